@@ -0,0 +1,84 @@
+plugins {
+  java
+  alias(libs.plugins.me.champeau.jmh)
+}
+
+/* -----------------------------------------------------
+ * Java configuration
+ * ----------------------------------------------------- */
+
+java {
+  sourceCompatibility = JavaVersion.VERSION_17
+  targetCompatibility = sourceCompatibility
+}
+
+/* -----------------------------------------------------
+ * Benchmark configuration
+ * ----------------------------------------------------- */
+
+jmh {
+  jmhVersion.set(libs.versions.version.library.java.jmh)
+  // Select suites with -Pjmh.includes=<regex>, e.g. -Pjmh.includes=UResourceHash
+  (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+  
+  // Machine-readable results, kept per library version to compare releases
+  resultFormat.set("JSON")
+  resultsFile.set(layout.buildDirectory.file(provider { "results/jmh/${project(":library").version}.json" }))
+  humanOutputFile.set(layout.buildDirectory.file("results/jmh/human.txt"))
+  failOnError.set(true)
+}
+
+/* -----------------------------------------------------
+ * Workload harness configuration
+ * ----------------------------------------------------- */
+
+// End-to-end workloads; Java 22 is required to evict the page cache through the FFM API
+val harness: SourceSet by sourceSets.creating {
+  java.srcDir("src/harness/java")
+}
+
+tasks.named<JavaCompile>(harness.compileJavaTaskName) {
+  javaCompiler.set(javaToolchains.compilerFor {
+    languageVersion.set(JavaLanguageVersion.of(22))
+  })
+  options.release.set(22)
+}
+
+// Options are given with -Pworkload.args="--scale 0.1 --workloads hash,copy"
+val workload by tasks.registering(JavaExec::class) {
+  group = "benchmark"
+  description = "Runs the end-to-end workloads over the synthetic datasets."
+  
+  classpath = harness.runtimeClasspath
+  mainClass.set("uoxx3.io.harness.UWorkloadHarness")
+  javaLauncher.set(javaToolchains.launcherFor {
+    languageVersion.set(JavaLanguageVersion.of(22))
+  })
+  jvmArgs("-Xms1g", "-Xmx1g", "--enable-native-access=ALL-UNNAMED")
+  
+  val data = layout.buildDirectory.dir("workload/data")
+  val report = layout.buildDirectory.file(provider { "results/workload/${project(":library").version}.json" })
+  doFirst {
+    report.get().asFile.parentFile.mkdirs()
+  }
+  argumentProviders.add(CommandLineArgumentProvider {
+    listOf("--data", data.get().asFile.path, "--out", report.get().asFile.path) +
+      ((findProperty("workload.args") as String?)?.trim()?.split(Regex("\\s+")) ?: emptyList())
+  })
+}
+
+/* -----------------------------------------------------
+ * Dependencies
+ * ----------------------------------------------------- */
+
+dependencies {
+  jmh(project(":library"))
+  jmh(libs.java.com.github.uoxx3.core.utilities)
+  jmh(libs.java.org.openjdk.jmh.core)
+  jmhCompileOnly(libs.java.org.jetbrains.annotations)
+  jmhAnnotationProcessor(libs.java.org.openjdk.jmh.generator)
+  
+  "harnessImplementation"(project(":library"))
+  "harnessImplementation"(libs.java.com.github.uoxx3.core.utilities)
+  "harnessCompileOnly"(libs.java.org.jetbrains.annotations)
+}
\ No newline at end of file
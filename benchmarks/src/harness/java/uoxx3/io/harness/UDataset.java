@@ -0,0 +1,241 @@
+package uoxx3.io.harness;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic datasets used by the workloads. Every dataset is generated from a fixed seed and
+ * a scale factor, so the same arguments always produce the same files. A generated dataset
+ * is reused while its description does not change.
+ */
+enum UDataset {
+	
+	/**
+	 * Many tiny files, from 512 bytes to 4 kilobytes, spread over flat directories.
+	 */
+	TINY("tiny") {
+		@Override
+		void generate(@NotNull Path root, double scale) throws IOException {
+			int count = scaled(50_000, scale);
+			SplittableRandom random = new SplittableRandom(SEED);
+			for (int i = 0; i < count; i++) {
+				Path directory = Files.createDirectories(root.resolve("d%03d".formatted(i % 500)));
+				write(directory.resolve("f%06d.dat".formatted(i)), random, 512 + random.nextInt(3585));
+			}
+		}
+	},
+	
+	/**
+	 * Deep and narrow trees, 64 levels deep, with a few 16 kilobyte files on every level.
+	 */
+	DEEP("deep") {
+		@Override
+		void generate(@NotNull Path root, double scale) throws IOException {
+			int branches = scaled(8, scale);
+			SplittableRandom random = new SplittableRandom(SEED);
+			for (int branch = 0; branch < branches; branch++) {
+				Path directory = root.resolve("b%02d".formatted(branch));
+				for (int level = 0; level < 64; level++) {
+					directory = Files.createDirectories(directory.resolve("l%02d".formatted(level)));
+					for (int i = 0; i < 16; i++) {
+						write(directory.resolve("f%02d.dat".formatted(i)), random, 16 << 10);
+					}
+				}
+			}
+		}
+	},
+	
+	/**
+	 * A single large file of 2 gigabytes.
+	 */
+	LARGE("large") {
+		@Override
+		void generate(@NotNull Path root, double scale) throws IOException {
+			long size = (long) Math.max(64L << 20, (2L << 30) * scale);
+			Files.createDirectories(root);
+			write(root.resolve("large.dat"), new SplittableRandom(SEED), size);
+		}
+	},
+	
+	/**
+	 * A jar with thousands of entries, half of them stored and half of them deflated.
+	 */
+	JAR("jar") {
+		@Override
+		void generate(@NotNull Path root, double scale) throws IOException {
+			int count = scaled(10_000, scale);
+			Random random = new Random(SEED);
+			Files.createDirectories(root);
+			
+			try (OutputStream out = Files.newOutputStream(root.resolve(JAR_NAME));
+				 ZipOutputStream zip = new ZipOutputStream(out)) {
+				for (int i = 0; i < count; i++) {
+					// Compressible text-like content, so deflated entries are realistic
+					byte[] content = new byte[256 + random.nextInt(8 << 10)];
+					for (int j = 0; j < content.length; j++) {
+						content[j] = (byte) ('a' + random.nextInt(8));
+					}
+					
+					ZipEntry entry = new ZipEntry("pkg%02d/Entry%05d.class".formatted(i % 64, i));
+					if (i % 2 == 0) {
+						CRC32 crc = new CRC32();
+						crc.update(content);
+						entry.setMethod(ZipEntry.STORED);
+						entry.setSize(content.length);
+						entry.setCrc(crc.getValue());
+					}
+					zip.putNextEntry(entry);
+					zip.write(content);
+					zip.closeEntry();
+				}
+			}
+		}
+	};
+	
+	/**
+	 * The name of the archive of the {@link #JAR} dataset.
+	 */
+	static final String JAR_NAME = "archive.jar";
+	
+	private static final long SEED = 0x5EED_F11E5L;
+	private static final String MARKER = ".dataset";
+	
+	private final String directory;
+	
+	UDataset(@NotNull String directory) {
+		this.directory = directory;
+	}
+	
+	/* -----------------------------------------------------
+	 * Dataset methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Generates the dataset, unless it was already generated with the same scale.
+	 *
+	 * @param data  the directory of all the datasets
+	 * @param scale the scale factor of the dataset
+	 * @return the root directory of the dataset
+	 * @throws IOException if the dataset cannot be generated
+	 */
+	@NotNull Path prepare(@NotNull Path data, double scale) throws IOException {
+		Path root = data.resolve(directory);
+		Path marker = root.resolve(MARKER);
+		String description = "%s seed=%d scale=%s".formatted(name(), SEED, scale);
+		if (Files.exists(marker) && Files.readString(marker).equals(description)) return root;
+		
+		if (Files.exists(root)) delete(root);
+		System.out.printf("Generating dataset %s...%n", name().toLowerCase());
+		generate(root, scale);
+		
+		// Flush the data, so clean pages can be evicted later
+		for (Path file : files(root)) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+		}
+		Files.writeString(marker, description);
+		return root;
+	}
+	
+	/**
+	 * Lists the regular files of a generated dataset.
+	 *
+	 * @param root the root directory of the dataset
+	 * @return the files of the dataset, sorted by path
+	 * @throws IOException if the dataset cannot be listed
+	 */
+	@NotNull List<Path> files(@NotNull Path root) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.filter(Files::isRegularFile)
+				.filter(path -> !path.getFileName().toString().equals(MARKER))
+				.sorted()
+				.toList();
+		}
+	}
+	
+	/**
+	 * Writes the files of the dataset.
+	 *
+	 * @param root  the root directory of the dataset
+	 * @param scale the scale factor of the dataset
+	 * @throws IOException if a file cannot be written
+	 */
+	abstract void generate(@NotNull Path root, double scale) throws IOException;
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Scales a count, keeping at least one element.
+	 *
+	 * @param count the count at scale 1
+	 * @param scale the scale factor
+	 * @return the scaled count
+	 */
+	private static int scaled(int count, double scale) {
+		return (int) Math.max(1, Math.round(count * scale));
+	}
+	
+	/**
+	 * Writes a file with random content.
+	 *
+	 * @param file   the file to write
+	 * @param random the source of the content
+	 * @param size   the size of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void write(@NotNull Path file, @NotNull SplittableRandom random, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, 1 << 20));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			long remaining = size;
+			while (remaining > 0) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+				while (buffer.remaining() >= Long.BYTES) {
+					buffer.putLong(random.nextLong());
+				}
+				while (buffer.hasRemaining()) {
+					buffer.put((byte) random.nextInt());
+				}
+				
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					remaining -= channel.write(buffer);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Deletes a directory and all its content.
+	 *
+	 * @param root the directory to delete
+	 * @throws IOException if any file cannot be deleted
+	 */
+	private static void delete(@NotNull Path root) throws IOException {
+		List<Path> paths;
+		try (Stream<Path> stream = Files.walk(root)) {
+			paths = new ArrayList<>(stream.toList());
+		}
+		for (int i = paths.size() - 1; i >= 0; i--) {
+			Files.delete(paths.get(i));
+		}
+	}
+	
+}
@@ -0,0 +1,111 @@
+package uoxx3.io.harness;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Evicts files from the operating system page cache with {@code posix_fadvise(DONTNEED)},
+ * so cold reads can be measured without dropping the caches of the whole machine.
+ * <p>
+ * Only the data pages of clean files are evicted; directory entries and inodes stay cached.
+ * Eviction is only available on Linux.
+ */
+final class UPageCache {
+	
+	private static final int O_RDONLY = 0;
+	private static final int POSIX_FADV_DONTNEED = 4;
+	
+	private static final @Nullable MethodHandle OPEN;
+	private static final @Nullable MethodHandle CLOSE;
+	private static final @Nullable MethodHandle FADVISE;
+	
+	static {
+		MethodHandle open = null;
+		MethodHandle close = null;
+		MethodHandle fadvise = null;
+		
+		if (System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux")) {
+			try {
+				Linker linker = Linker.nativeLinker();
+				SymbolLookup libc = linker.defaultLookup();
+				// Only the fixed arguments of open are passed, no mode is needed to read
+				open = linker.downcallHandle(libc.find("open").orElseThrow(),
+											 FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+				close = linker.downcallHandle(libc.find("close").orElseThrow(),
+											  FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+				fadvise = linker.downcallHandle(libc.find("posix_fadvise").orElseThrow(),
+												FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, JAVA_LONG, JAVA_INT));
+			} catch (RuntimeException e) {
+				open = null;
+				close = null;
+				fadvise = null;
+			}
+		}
+		
+		OPEN = open;
+		CLOSE = close;
+		FADVISE = fadvise;
+	}
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UPageCache() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/**
+	 * Checks whether files can be evicted on this system.
+	 *
+	 * @return true if eviction is available
+	 */
+	static boolean available() {
+		return FADVISE != null;
+	}
+	
+	/**
+	 * Evicts the cached pages of a file.
+	 *
+	 * @param file the file to evict
+	 * @throws IOException           if the file cannot be opened or the advice is rejected
+	 * @throws IllegalStateException if eviction is not available
+	 */
+	static void evict(@NotNull Path file) throws IOException {
+		if (OPEN == null || CLOSE == null || FADVISE == null) {
+			throw new IllegalStateException("Page cache eviction is not available");
+		}
+		
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment location = arena.allocateFrom(file.toAbsolutePath().toString());
+			int fd = (int) OPEN.invokeExact(location, O_RDONLY);
+			if (fd < 0) throw new IOException("Cannot open " + file);
+			
+			try {
+				// Returns the error number instead of setting errno
+				int error = (int) FADVISE.invokeExact(fd, 0L, 0L, POSIX_FADV_DONTNEED);
+				if (error != 0) throw new IOException("posix_fadvise failed with error %d: %s".formatted(error, file));
+			} finally {
+				int ignore = (int) CLOSE.invokeExact(fd);
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+	}
+	
+}
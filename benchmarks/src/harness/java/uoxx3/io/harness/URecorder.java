@@ -0,0 +1,81 @@
+package uoxx3.io.harness;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latency of every operation of a workload run and the amount of work done.
+ * A recorder is used by a single thread.
+ */
+final class URecorder {
+	
+	private long[] latencies = new long[1024];
+	private int operations;
+	private long files;
+	private long bytes;
+	
+	/**
+	 * Records a single operation.
+	 *
+	 * @param nanos the duration of the operation
+	 * @param files the number of files processed by the operation
+	 * @param bytes the number of bytes processed by the operation
+	 */
+	void record(long nanos, long files, long bytes) {
+		if (operations == latencies.length) {
+			latencies = Arrays.copyOf(latencies, operations << 1);
+		}
+		latencies[operations++] = nanos;
+		this.files += files;
+		this.bytes += bytes;
+	}
+	
+	/**
+	 * Returns the number of files processed.
+	 *
+	 * @return the number of files
+	 */
+	long files() {
+		return files;
+	}
+	
+	/**
+	 * Returns the number of bytes processed.
+	 *
+	 * @return the number of bytes
+	 */
+	long bytes() {
+		return bytes;
+	}
+	
+	/**
+	 * Returns the latency percentiles of the recorded operations.
+	 *
+	 * @return the 50th, 90th, 99th and 99.9th percentiles and the maximum, in nanoseconds
+	 */
+	long[] percentiles() {
+		if (operations == 0) return new long[5];
+		
+		long[] sorted = Arrays.copyOf(latencies, operations);
+		Arrays.sort(sorted);
+		return new long[]{
+			percentile(sorted, 0.50),
+			percentile(sorted, 0.90),
+			percentile(sorted, 0.99),
+			percentile(sorted, 0.999),
+			sorted[sorted.length - 1]
+		};
+	}
+	
+	/**
+	 * Returns a percentile of a sorted array with the nearest-rank method.
+	 *
+	 * @param sorted   the sorted values
+	 * @param quantile the quantile, from 0 to 1
+	 * @return the value at the given quantile
+	 */
+	private static long percentile(long[] sorted, double quantile) {
+		int rank = (int) Math.ceil(quantile * sorted.length);
+		return sorted[Math.max(rank - 1, 0)];
+	}
+	
+}
@@ -0,0 +1,179 @@
+package uoxx3.io.harness;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.io.UFilesystem;
+import uoxx3.io.UResource;
+import uoxx3.io.UResourceHash;
+import uoxx3.io.UWalkEntry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * End-to-end operations run through the library. Every operation is timed on its own and
+ * recorded with the number of files and bytes it processed.
+ */
+enum UWorkload {
+	
+	/**
+	 * Hashes every file, or every entry of the jar, with the default algorithm.
+	 */
+	HASH(Set.of(UDataset.TINY, UDataset.DEEP, UDataset.LARGE, UDataset.JAR)) {
+		@Override
+		void run(@NotNull UDataset dataset, @NotNull Path root, @NotNull Path scratch, @NotNull URecorder recorder)
+			throws IOException {
+			try {
+				if (dataset == UDataset.JAR) {
+					try (ZipFile zip = new ZipFile(root.resolve(UDataset.JAR_NAME).toFile())) {
+						for (ZipEntry entry : entries(zip)) {
+							long start = System.nanoTime();
+							UResourceHash.hash(zip, entry);
+							recorder.record(System.nanoTime() - start, 1, entry.getSize());
+						}
+					}
+					return;
+				}
+				
+				for (Path file : dataset.files(root)) {
+					long start = System.nanoTime();
+					UResourceHash.hash(file);
+					recorder.record(System.nanoTime() - start, 1, Files.size(file));
+				}
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	},
+	
+	/**
+	 * Walks the whole tree with the default options. A walk is a single operation.
+	 */
+	WALK(Set.of(UDataset.TINY, UDataset.DEEP)) {
+		@Override
+		void run(@NotNull UDataset dataset, @NotNull Path root, @NotNull Path scratch, @NotNull URecorder recorder)
+			throws IOException {
+			long start = System.nanoTime();
+			long files;
+			try (Stream<UWalkEntry> entries = UResource.walk(root)) {
+				files = entries.count();
+			}
+			recorder.record(System.nanoTime() - start, files, 0);
+		}
+	},
+	
+	/**
+	 * Resolves a path for every entry of the jar and reads its attributes. The jar is
+	 * mounted by the first resolution of every run.
+	 */
+	RESOLVE(Set.of(UDataset.JAR)) {
+		@Override
+		void run(@NotNull UDataset dataset, @NotNull Path root, @NotNull Path scratch, @NotNull URecorder recorder)
+			throws IOException {
+			UFilesystem.closeFilesystems();
+			for (URI uri : entryUris(root)) {
+				long start = System.nanoTime();
+				long size = Files.size(UResource.pathOf(uri));
+				recorder.record(System.nanoTime() - start, 1, size);
+			}
+		}
+	},
+	
+	/**
+	 * Copies every file, or every entry of the jar, into a scratch directory.
+	 */
+	COPY(Set.of(UDataset.TINY, UDataset.LARGE, UDataset.JAR)) {
+		@Override
+		void run(@NotNull UDataset dataset, @NotNull Path root, @NotNull Path scratch, @NotNull URecorder recorder)
+			throws IOException {
+			if (dataset == UDataset.JAR) {
+				UFilesystem.closeFilesystems();
+				int index = 0;
+				for (URI uri : entryUris(root)) {
+					Path target = scratch.resolve("e%06d.dat".formatted(index++));
+					long start = System.nanoTime();
+					long bytes = UResource.copy(UResource.pathOf(uri), target, true, null).bytes();
+					recorder.record(System.nanoTime() - start, 1, bytes);
+				}
+				return;
+			}
+			
+			for (Path file : dataset.files(root)) {
+				Path target = scratch.resolve(root.relativize(file).toString());
+				Files.createDirectories(target.getParent());
+				long start = System.nanoTime();
+				long bytes = UResource.copy(file, target, true, null).bytes();
+				recorder.record(System.nanoTime() - start, 1, bytes);
+			}
+		}
+	};
+	
+	private final Set<UDataset> datasets;
+	
+	UWorkload(@NotNull Set<UDataset> datasets) {
+		this.datasets = datasets;
+	}
+	
+	/* -----------------------------------------------------
+	 * Workload methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Checks whether the workload can run on the given dataset.
+	 *
+	 * @param dataset the dataset to check
+	 * @return true if the workload supports the dataset
+	 */
+	boolean supports(@NotNull UDataset dataset) {
+		return datasets.contains(dataset);
+	}
+	
+	/**
+	 * Runs the workload once over a whole dataset.
+	 *
+	 * @param dataset  the dataset to process
+	 * @param root     the root directory of the dataset
+	 * @param scratch  an empty directory for the output of the workload
+	 * @param recorder the recorder of every operation
+	 * @throws IOException if an operation fails
+	 */
+	abstract void run(@NotNull UDataset dataset, @NotNull Path root, @NotNull Path scratch,
+		@NotNull URecorder recorder) throws IOException;
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Lists the file entries of an archive.
+	 *
+	 * @param zip the opened archive
+	 * @return the file entries in archive order
+	 */
+	private static @NotNull List<ZipEntry> entries(@NotNull ZipFile zip) {
+		return zip.stream().filter(entry -> !entry.isDirectory()).map(ZipEntry.class::cast).toList();
+	}
+	
+	/**
+	 * Builds the URI of every file entry of the dataset jar.
+	 *
+	 * @param root the root directory of the jar dataset
+	 * @return the URIs of the entries
+	 * @throws IOException if the jar cannot be read
+	 */
+	private static @NotNull List<URI> entryUris(@NotNull Path root) throws IOException {
+		Path jar = root.resolve(UDataset.JAR_NAME);
+		try (ZipFile zip = new ZipFile(jar.toFile())) {
+			String base = "jar:" + jar.toUri() + "!/";
+			return entries(zip).stream().map(entry -> URI.create(base + entry.getName())).toList();
+		}
+	}
+	
+}
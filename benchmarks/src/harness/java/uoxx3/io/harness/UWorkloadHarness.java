@@ -0,0 +1,306 @@
+package uoxx3.io.harness;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Runs end-to-end workloads over synthetic datasets and reports throughput, latency
+ * percentiles, allocation rate and GC time, with cold and warm page cache.
+ * <p>
+ * Arguments, all optional:
+ * <pre>
+ * --data &lt;dir&gt;          directory of the generated datasets (workload-data)
+ * --out &lt;file&gt;          JSON report (workload.json)
+ * --scale &lt;factor&gt;      size factor of the datasets (1.0)
+ * --iterations &lt;n&gt;      measured runs of every combination (3)
+ * --workloads &lt;list&gt;    comma-separated workloads (hash,walk,resolve,copy)
+ * --datasets &lt;list&gt;     comma-separated datasets (tiny,deep,large,jar)
+ * --cache &lt;list&gt;        comma-separated cache states (cold,warm)
+ * </pre>
+ */
+public final class UWorkloadHarness {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UWorkloadHarness() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/**
+	 * Generates the selected datasets and runs every selected workload on them.
+	 *
+	 * @param args the harness options
+	 * @throws IOException if a dataset cannot be generated or a workload fails
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = options(args);
+		Path data = Path.of(options.getOrDefault("data", "workload-data"));
+		Path out = Path.of(options.getOrDefault("out", "workload.json"));
+		double scale = Double.parseDouble(options.getOrDefault("scale", "1.0"));
+		int iterations = Integer.parseInt(options.getOrDefault("iterations", "3"));
+		List<UWorkload> workloads = values(options.getOrDefault("workloads", "hash,walk,resolve,copy"), UWorkload.class);
+		List<UDataset> datasets = values(options.getOrDefault("datasets", "tiny,deep,large,jar"), UDataset.class);
+		List<String> caches = List.of(options.getOrDefault("cache", "cold,warm").split(","));
+		
+		if (caches.contains("cold") && !UPageCache.available()) {
+			System.out.println("Page cache eviction is not available, cold runs are skipped");
+		}
+		
+		Map<UDataset, Path> roots = new HashMap<>();
+		for (UDataset dataset : datasets) {
+			roots.put(dataset, dataset.prepare(data, scale));
+		}
+		
+		List<Result> results = new ArrayList<>();
+		for (UWorkload workload : workloads) {
+			for (UDataset dataset : datasets) {
+				if (!workload.supports(dataset)) continue;
+				Path root = roots.get(dataset);
+				
+				// Untimed run, so the measured runs use compiled code
+				run(workload, dataset, root, data, new URecorder());
+				
+				for (String cache : caches) {
+					boolean cold = cache.equals("cold");
+					if (cold && !UPageCache.available()) continue;
+					
+					for (int i = 0; i < iterations; i++) {
+						if (cold) {
+							for (Path file : dataset.files(root)) {
+								UPageCache.evict(file);
+							}
+						}
+						Result result = measure(workload, dataset, root, data, cache, i);
+						results.add(result);
+						System.out.println(result.line());
+					}
+				}
+			}
+		}
+		
+		Files.writeString(out, json(scale, results));
+		System.out.printf("Report written to %s%n", out.toAbsolutePath());
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Runs a workload once and collects its measurements.
+	 *
+	 * @param workload  the workload to run
+	 * @param dataset   the dataset to process
+	 * @param root      the root directory of the dataset
+	 * @param data      the directory of all the datasets
+	 * @param cache     the cache state, cold or warm
+	 * @param iteration the number of the run
+	 * @return the measurements of the run
+	 * @throws IOException if the workload fails
+	 */
+	private static @NotNull Result measure(@NotNull UWorkload workload, @NotNull UDataset dataset,
+		@NotNull Path root, @NotNull Path data, @NotNull String cache, int iteration) throws IOException {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		URecorder recorder = new URecorder();
+		
+		long allocated = threads.getTotalThreadAllocatedBytes();
+		long[] gc = gc();
+		long start = System.nanoTime();
+		run(workload, dataset, root, data, recorder);
+		long nanos = System.nanoTime() - start;
+		long[] gcAfter = gc();
+		allocated = threads.getTotalThreadAllocatedBytes() - allocated;
+		
+		return new Result(workload, dataset, cache, iteration, recorder.files(), recorder.bytes(), nanos,
+						  recorder.percentiles(), allocated, gcAfter[0] - gc[0], gcAfter[1] - gc[1]);
+	}
+	
+	/**
+	 * Runs a workload with a fresh scratch directory, deleted afterwards.
+	 *
+	 * @param workload the workload to run
+	 * @param dataset  the dataset to process
+	 * @param root     the root directory of the dataset
+	 * @param data     the directory of all the datasets
+	 * @param recorder the recorder of every operation
+	 * @throws IOException if the workload fails
+	 */
+	private static void run(@NotNull UWorkload workload, @NotNull UDataset dataset, @NotNull Path root,
+		@NotNull Path data, @NotNull URecorder recorder) throws IOException {
+		Path scratch = Files.createTempDirectory(Files.createDirectories(data), "scratch-");
+		try {
+			workload.run(dataset, root, scratch, recorder);
+		} finally {
+			try (Stream<Path> paths = Files.walk(scratch)) {
+				List<Path> list = paths.toList();
+				for (int i = list.size() - 1; i >= 0; i--) {
+					Files.delete(list.get(i));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the accumulated collection count and time of all the garbage collectors.
+	 *
+	 * @return the number of collections and the collection time in milliseconds
+	 */
+	private static long[] gc() {
+		long count = 0;
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(collector.getCollectionCount(), 0);
+			millis += Math.max(collector.getCollectionTime(), 0);
+		}
+		return new long[]{count, millis};
+	}
+	
+	/**
+	 * Parses the {@code --name value} arguments.
+	 *
+	 * @param args the command line arguments
+	 * @return the values by name
+	 * @throws IllegalArgumentException if an argument has no value or is not an option
+	 */
+	private static @NotNull Map<String, String> options(String @NotNull [] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i += 2) {
+			if (!args[i].startsWith("--") || i + 1 >= args.length) {
+				throw new IllegalArgumentException("Invalid argument: " + args[i]);
+			}
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+		return options;
+	}
+	
+	/**
+	 * Parses a comma-separated list of enum constants, in any case.
+	 *
+	 * @param list the list to parse
+	 * @param type the enum type
+	 * @param <E>  the enum type
+	 * @return the parsed constants
+	 */
+	private static <E extends Enum<E>> @NotNull List<E> values(@NotNull String list, @NotNull Class<E> type) {
+		return Arrays.stream(list.split(","))
+			.map(value -> Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT)))
+			.toList();
+	}
+	
+	/**
+	 * Builds the JSON report.
+	 *
+	 * @param scale   the scale factor of the datasets
+	 * @param results the measurements
+	 * @return the report
+	 */
+	private static @NotNull String json(double scale, @NotNull List<Result> results) {
+		StringBuilder json = new StringBuilder()
+			.append("{\n")
+			.append("  \"jvm\": \"").append(System.getProperty("java.vm.name")).append(' ')
+			.append(Runtime.version()).append("\",\n")
+			.append("  \"os\": \"").append(System.getProperty("os.name")).append(' ')
+			.append(System.getProperty("os.arch")).append("\",\n")
+			.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n")
+			.append("  \"scale\": ").append(scale).append(",\n")
+			.append("  \"results\": [\n");
+		
+		for (int i = 0; i < results.size(); i++) {
+			json.append("    ").append(results.get(i).json()).append(i + 1 < results.size() ? ",\n" : "\n");
+		}
+		return json.append("  ]\n}\n").toString();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Measurements of a single run.
+	 *
+	 * @param workload    the workload
+	 * @param dataset     the dataset
+	 * @param cache       the cache state, cold or warm
+	 * @param iteration   the number of the run
+	 * @param files       the number of files processed
+	 * @param bytes       the number of bytes processed
+	 * @param nanos       the duration of the run
+	 * @param percentiles the 50th, 90th, 99th and 99.9th latency percentiles and the maximum
+	 * @param allocated   the number of bytes allocated by all the threads
+	 * @param gcCount     the number of garbage collections
+	 * @param gcMillis    the time spent in garbage collections
+	 */
+	private record Result(UWorkload workload, UDataset dataset, String cache, int iteration, long files, long bytes,
+						  long nanos, long[] percentiles, long allocated, long gcCount, long gcMillis) {
+		
+		/**
+		 * Returns the number of files processed per second.
+		 *
+		 * @return the file throughput
+		 */
+		double filesPerSecond() {
+			return files * 1e9 / nanos;
+		}
+		
+		/**
+		 * Returns the number of megabytes processed per second.
+		 *
+		 * @return the data throughput
+		 */
+		double megabytesPerSecond() {
+			return bytes * 1e9 / nanos / (1 << 20);
+		}
+		
+		/**
+		 * Returns the number of megabytes allocated per second.
+		 *
+		 * @return the allocation rate
+		 */
+		double allocationRate() {
+			return allocated * 1e9 / nanos / (1 << 20);
+		}
+		
+		/**
+		 * Formats the result as a line of the console report.
+		 *
+		 * @return the formatted result
+		 */
+		@NotNull String line() {
+			return "%-8s %-6s %-5s #%d  %10.0f files/s %9.1f MB/s  p50=%.1fus p99=%.1fus max=%.1fus  alloc=%.1f MB/s  gc=%dms"
+				.formatted(workload.name().toLowerCase(), dataset.name().toLowerCase(), cache, iteration,
+						   filesPerSecond(), megabytesPerSecond(), percentiles[0] / 1e3, percentiles[2] / 1e3,
+						   percentiles[4] / 1e3, allocationRate(), gcMillis);
+		}
+		
+		/**
+		 * Formats the result as a JSON object.
+		 *
+		 * @return the JSON object
+		 */
+		@NotNull String json() {
+			return String.format(Locale.ROOT, "{\"workload\": \"%s\", \"dataset\": \"%s\", \"cache\": \"%s\", \"iteration\": %d, "
+				+ "\"files\": %d, \"bytes\": %d, \"nanos\": %d, \"filesPerSecond\": %.1f, \"mbPerSecond\": %.2f, "
+				+ "\"latencyNanos\": {\"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}, "
+				+ "\"allocatedBytes\": %d, \"allocationMbPerSecond\": %.2f, \"gcCount\": %d, \"gcMillis\": %d}",
+								 workload.name().toLowerCase(), dataset.name().toLowerCase(), cache, iteration,
+								 files, bytes, nanos, filesPerSecond(), megabytesPerSecond(), percentiles[0],
+								 percentiles[1], percentiles[2], percentiles[3], percentiles[4], allocated,
+								 allocationRate(), gcCount, gcMillis);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,76 @@
+package uoxx3.io.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Fixture files shared by the benchmark suites. The content is generated from a fixed seed,
+ * so every run measures the same data.
+ */
+final class UBenchmarkFiles {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UBenchmarkFiles() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/**
+	 * Generates random data.
+	 *
+	 * @param size the number of bytes to generate
+	 * @return the generated data
+	 */
+	static byte @NotNull [] content(int size) {
+		byte[] content = new byte[size];
+		new Random(size).nextBytes(content);
+		return content;
+	}
+	
+	/**
+	 * Creates a jar file with the given number of entries named {@code entry-<n>.bin}.
+	 *
+	 * @param file    the jar file to create
+	 * @param entries the number of entries
+	 * @param size    the size of every entry
+	 * @return the created jar file
+	 * @throws IOException if the jar cannot be written
+	 */
+	static @NotNull Path jar(@NotNull Path file, int entries, int size) throws IOException {
+		byte[] content = content(size);
+		try (OutputStream out = Files.newOutputStream(file);
+			 ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (int i = 0; i < entries; i++) {
+				zip.putNextEntry(new ZipEntry("entry-%d.bin".formatted(i)));
+				zip.write(content);
+				zip.closeEntry();
+			}
+		}
+		return file;
+	}
+	
+	/**
+	 * Deletes a directory and all its content.
+	 *
+	 * @param root the directory to delete
+	 * @throws IOException if any file cannot be deleted
+	 */
+	static void delete(@NotNull Path root) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,130 @@
+package uoxx3.io.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uoxx3.io.UFilesystem;
+import uoxx3.io.UResource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving jar URIs with {@link UFilesystem#filesystem(URI)} and
+ * {@link UResource#pathOf(URI)}. Warm benchmarks reuse a mounted jar; cold benchmarks mount
+ * the jar on every operation, which includes reading its central directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UFilesystemBenchmark {
+	
+	/* -----------------------------------------------------
+	 * States
+	 * ----------------------------------------------------- */
+	
+	@State(Scope.Benchmark)
+	public static class Archive {
+		
+		@Param({"16", "4096"})
+		public int entries;
+		
+		Path root;
+		URI archive;
+		URI entry;
+		
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			root = Files.createTempDirectory("uo-fs-bench");
+			Path jar = UBenchmarkFiles.jar(root.resolve("archive.jar"), entries, 256);
+			archive = URI.create("jar:" + jar.toUri());
+			entry = URI.create(archive + "!/entry-%d.bin".formatted(entries / 2));
+		}
+		
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			UFilesystem.closeFilesystems();
+			UBenchmarkFiles.delete(root);
+		}
+		
+	}
+	
+	@State(Scope.Benchmark)
+	public static class Mounted extends Archive {
+		
+		@Setup(Level.Iteration)
+		public void mount() throws IOException {
+			UFilesystem.filesystem(archive);
+		}
+		
+	}
+	
+	@State(Scope.Thread)
+	public static class Unmounted {
+		
+		@Setup(Level.Invocation)
+		public void unmount() {
+			// Invocation-level setup is acceptable here: mounting takes far longer than the timestamping
+			UFilesystem.closeFilesystems();
+		}
+		
+	}
+	
+	/* -----------------------------------------------------
+	 * Warm benchmarks
+	 * ----------------------------------------------------- */
+	
+	@Benchmark
+	public FileSystem filesystemWarm(Mounted state) throws IOException {
+		return UFilesystem.filesystem(state.archive);
+	}
+	
+	@Benchmark
+	public Path pathOfWarm(Mounted state) throws IOException {
+		return UResource.pathOf(state.entry);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public FileSystem filesystemWarmConcurrent(Mounted state) throws IOException {
+		return UFilesystem.filesystem(state.archive);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public Path pathOfWarmConcurrent(Mounted state) throws IOException {
+		return UResource.pathOf(state.entry);
+	}
+	
+	/* -----------------------------------------------------
+	 * Cold benchmarks
+	 * ----------------------------------------------------- */
+	
+	@Benchmark
+	public FileSystem filesystemCold(Archive state, Unmounted unmounted) throws IOException {
+		return UFilesystem.filesystem(state.archive);
+	}
+	
+	@Benchmark
+	public Path pathOfCold(Archive state, Unmounted unmounted) throws IOException {
+		return UResource.pathOf(state.entry);
+	}
+	
+}
@@ -0,0 +1,111 @@
+package uoxx3.io.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uoxx3.io.UResourceHash;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Throughput of {@link UResourceHash#hash} for every input type, across input sizes and
+ * hash algorithms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UResourceHashBenchmark {
+	
+	@Param({"1024", "65536", "1048576", "16777216"})
+	public int size;
+	
+	@Param({"MD5", "SHA-1", "SHA-256", "SHA-512"})
+	public String algo;
+	
+	private byte[] content;
+	private Path root;
+	private Path path;
+	private File file;
+	private ZipFile zip;
+	private ZipEntry entry;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		content = UBenchmarkFiles.content(size);
+		root = Files.createTempDirectory("uo-hash-bench");
+		path = Files.write(root.resolve("content.bin"), content);
+		file = path.toFile();
+		
+		zip = new ZipFile(UBenchmarkFiles.jar(root.resolve("content.jar"), 1, size).toFile());
+		entry = zip.getEntry("entry-0.bin");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		zip.close();
+		UBenchmarkFiles.delete(root);
+	}
+	
+	/* -----------------------------------------------------
+	 * Input types
+	 * ----------------------------------------------------- */
+	
+	@Benchmark
+	public byte[] stream() throws IOException, NoSuchAlgorithmException {
+		return UResourceHash.hash(new ByteArrayInputStream(content), algo);
+	}
+	
+	@Benchmark
+	public byte[] path() throws IOException, NoSuchAlgorithmException {
+		return UResourceHash.hash(path, algo);
+	}
+	
+	@Benchmark
+	public byte[] file() throws IOException, NoSuchAlgorithmException {
+		return UResourceHash.hash(file, algo);
+	}
+	
+	@Benchmark
+	public byte[] zipEntry() throws IOException, NoSuchAlgorithmException {
+		return UResourceHash.hash(zip, entry, algo);
+	}
+	
+	/* -----------------------------------------------------
+	 * Concurrent variants
+	 * ----------------------------------------------------- */
+	
+	@Benchmark
+	@Threads(4)
+	public byte[] pathConcurrent() throws IOException, NoSuchAlgorithmException {
+		return UResourceHash.hash(path, algo);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public byte[] zipEntryConcurrent() throws IOException, NoSuchAlgorithmException {
+		return UResourceHash.hash(zip, entry, algo);
+	}
+	
+}
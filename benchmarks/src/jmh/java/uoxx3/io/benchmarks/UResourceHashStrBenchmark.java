@@ -0,0 +1,46 @@
+package uoxx3.io.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uoxx3.io.UResourceHash;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link UResourceHash#hashStr(byte[])} for the digest lengths of the common
+ * algorithms: MD5, SHA-1, SHA-256 and SHA-512.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UResourceHashStrBenchmark {
+	
+	@Param({"16", "20", "32", "64"})
+	public int length;
+	
+	private byte[] digest;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		digest = UBenchmarkFiles.content(length);
+	}
+	
+	@Benchmark
+	public String hashStr() {
+		return UResourceHash.hashStr(digest);
+	}
+	
+}
@@ -0,0 +1,84 @@
+package uoxx3.io.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uoxx3.io.UResource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link UResource#basename} and {@link UResource#extensions} over a corpus of
+ * realistic locations: source trees, archives, dotfiles, versioned artifacts, Windows paths
+ * and jar entries. The results are per location.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UResourceNameBenchmark {
+	
+	private static final String[] CORPUS = {
+		"src/main/java/uoxx3/io/UResource.java",
+		"src/main/resources/META-INF/services/java.nio.file.spi.FileSystemProvider",
+		"build/libs/java-io-utilities-1.0.0-sources.jar",
+		"/var/cache/apt/archives/openjdk-17-jre_17.0.9+9-1_amd64.deb",
+		"/home/user/downloads/backup-2024-01-31.tar.gz",
+		"/home/user/.config/git/.gitignore",
+		".editorconfig",
+		"README",
+		"C:\\Users\\user\\AppData\\Local\\Temp\\report.final.v2.PDF",
+		"node_modules/@types/node/index.d.ts",
+		"assets/images/icons/app-icon@2x.png",
+		"docs/",
+		"releases/v1.2.3/",
+		"jar:file:/opt/app/lib/app.jar!/uoxx3/io/build.properties",
+		"photos/IMG_20240101_120000.HEIC",
+		"logs/app.log.2024-01-31.1.gz",
+	};
+	
+	@Benchmark
+	@OperationsPerInvocation(16)
+	public void basename(Blackhole blackhole) {
+		for (String location : CORPUS) {
+			blackhole.consume(UResource.basename(location, false, false));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(16)
+	public void basenamePartial(Blackhole blackhole) {
+		for (String location : CORPUS) {
+			blackhole.consume(UResource.basename(location, false, true));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(16)
+	public void extensions(Blackhole blackhole) {
+		for (String location : CORPUS) {
+			blackhole.consume(UResource.extensions(location));
+		}
+	}
+	
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(16)
+	public void extensionsConcurrent(Blackhole blackhole) {
+		for (String location : CORPUS) {
+			blackhole.consume(UResource.extensions(location));
+		}
+	}
+	
+}
@@ -1,4 +1,5 @@
 import generator.TaskBuildInfoGenerator
+import org.javamodularity.moduleplugin.extensions.TestModuleOptions
 import project.tasking.fromSourceSets
 import project.tasking.fromTasks
 import publish.createFromSpec
@@ -27,6 +28,32 @@ java {
   targetCompatibility = sourceCompatibility
 }
 
+/* -----------------------------------------------------
+ * Multi-release configuration
+ * ----------------------------------------------------- */
+
+// Classes that replace their Java 17 version when running on Java 22 or newer
+val java22: SourceSet by sourceSets.creating {
+  java.srcDir("src/main/java22")
+  compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(java22.compileJavaTaskName) {
+  javaCompiler.set(javaToolchains.compilerFor {
+    languageVersion.set(JavaLanguageVersion.of(22))
+  })
+  options.release.set(22)
+  // The versioned classes belong to the module described by the main source set
+  modularity.inferModulePath.set(false)
+}
+
+tasks.jar {
+  into("META-INF/versions/22") {
+    from(java22.output)
+  }
+  manifest.attributes("Multi-Release" to "true")
+}
+
 /* -----------------------------------------------------
  * Publishing configuration
  * ----------------------------------------------------- */
@@ -74,6 +101,37 @@ tasks.named("processResources") {
 
 tasks.test {
   useJUnitPlatform()
+  // Every pooled buffer is tracked, so double releases fail the tests and leaks are logged
+  systemProperty("uoxx3.io.buffers.debug", "true")
+}
+
+// Runs the tests on Java 22 against the versioned classes: the segment mappings and the io_uring engine.
+// The task is opt-in, either run directly or added to check with -Pjava22Test
+val java22Test by tasks.registering(Test::class) {
+  group = "verification"
+  description = "Runs the tests against the Java 22 classes of the multi-release jar."
+  
+  javaLauncher.set(javaToolchains.launcherFor {
+    languageVersion.set(JavaLanguageVersion.of(22))
+  })
+  testClassesDirs = sourceSets.test.get().output.classesDirs
+  // The versioned classes come first, so they replace their Java 17 version
+  classpath = java22.output + sourceSets.test.get().runtimeClasspath
+  extensions.configure<TestModuleOptions> {
+    runOnClasspath = true
+  }
+  
+  useJUnitPlatform()
+  systemProperty("uoxx3.io.buffers.debug", "true")
+  systemProperty("uoxx3.io.uring", "true")
+  jvmArgs("--enable-native-access=ALL-UNNAMED")
+}
+
+// Java 22 is only required by check when asked for with -Pjava22Test
+if (providers.gradleProperty("java22Test").isPresent) {
+  tasks.check {
+    dependsOn(java22Test)
+  }
 }
 
 /* -----------------------------------------------------
@@ -3,6 +3,7 @@ module uo.io.utilities {
 	requires java.net.http;
 	requires java.xml.crypto;
 	requires java.xml;
+	requires jdk.jfr;
 	
 	requires uo.core.utilities;
 	requires static org.jetbrains.annotations;
@@ -10,6 +11,9 @@ module uo.io.utilities {
 	// Export packages
 	exports uoxx3.io;
 	
+	// Services
+	uses uoxx3.io.UIoMetricsListener;
+	
 	// Open resources
 	opens uoxx3.io;
 }
\ No newline at end of file
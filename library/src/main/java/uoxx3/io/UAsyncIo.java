@@ -0,0 +1,461 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.internal.UAsyncHasher;
+import uoxx3.io.internal.UThreads;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Asynchronous counterparts of the blocking {@link UResourceHash}, {@link UResource#pathOf(URI)}
+ * and {@link UFilesystem#filesystem(URI)} methods.
+ * <p>
+ * Files of the default file system are hashed with an {@link AsynchronousFileChannel}; every
+ * other operation runs on the configured executor, which by default starts a virtual thread
+ * for every task when the running JVM supports them, or uses a bounded pool of
+ * {@link UFSConstants#FS_ASYNC_THREADS} platform threads otherwise.
+ * <p>
+ * The returned futures fail with the same exceptions thrown by the blocking methods, without
+ * any wrapping. Null parameters are rejected immediately with an {@link IllegalArgumentException}.
+ */
+public final class UAsyncIo {
+	
+	/**
+	 * The executor set by the user, or null to use the default one
+	 */
+	private static volatile @Nullable Executor executor;
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UAsyncIo() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Executor methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the executor that runs the blocking operations.
+	 *
+	 * @return the current executor
+	 */
+	public static @NotNull Executor executor() {
+		Executor current = executor;
+		return current != null ? current : DefaultExecutor.INSTANCE;
+	}
+	
+	/**
+	 * Replaces the executor that runs the blocking operations. The executor is not shut
+	 * down when it is replaced.
+	 *
+	 * @param executor the new executor
+	 * @throws IllegalArgumentException if the executor is null
+	 */
+	public static void executor(@NotNull Executor executor) {
+		UAssert.paramNotNull(executor, "Executor executor");
+		UAsyncIo.executor = executor;
+	}
+	
+	/**
+	 * Restores the default executor.
+	 */
+	public static void resetExecutor() {
+		executor = null;
+	}
+	
+	/* -----------------------------------------------------
+	 * Byte hash methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes the hash of the data read from the given input stream using the specified algorithm.
+	 *
+	 * @param stream the input stream to read data from
+	 * @param algo   the hash algorithm to use
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the stream or algorithm is null
+	 * @see UResourceHash#hash(InputStream, String)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull InputStream stream, @NotNull String algo) {
+		UAssert.paramNotNull(stream, "InputStream stream");
+		UAssert.paramNotNull(algo, "String algo");
+		return call(() -> UResourceHash.hash(stream, algo));
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given input stream using the default algorithm.
+	 *
+	 * @param stream the input stream to read data from
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the stream is null
+	 * @see UResourceHash#hash(InputStream)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull InputStream stream) {
+		return hash(stream, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given path using the specified algorithm.
+	 * Files of the default file system are read with an {@link AsynchronousFileChannel}.
+	 *
+	 * @param path the path to read data from
+	 * @param algo the hash algorithm to use
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the path or algorithm is null
+	 * @see UResourceHash#hash(Path, String)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull Path path, @NotNull String algo) {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(algo, "String algo");
+		
+		if (path.getFileSystem() == FileSystems.getDefault()) return UAsyncHasher.hash(path, algo);
+		return call(() -> UResourceHash.hash(path, algo));
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given path using the default algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the path is null
+	 * @see UResourceHash#hash(Path)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull Path path) {
+		return hash(path, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given file using the specified algorithm.
+	 *
+	 * @param file the file to read data from
+	 * @param algo the hash algorithm to use
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the file or algorithm is null
+	 * @see UResourceHash#hash(File, String)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull File file, @NotNull String algo) {
+		UAssert.paramNotNull(file, "File file");
+		return hash(file.toPath(), algo);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given file using the default algorithm.
+	 *
+	 * @param file the file to read data from
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the file is null
+	 * @see UResourceHash#hash(File)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull File file) {
+		return hash(file, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given zip entry using the specified algorithm.
+	 *
+	 * @param zip   the zip file containing the entry
+	 * @param entry the zip entry to read data from
+	 * @param algo  the hash algorithm to use
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the zip file, entry or algorithm is null
+	 * @see UResourceHash#hash(ZipFile, ZipEntry, String)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull ZipFile zip, @NotNull ZipEntry entry,
+		@NotNull String algo) {
+		UAssert.paramNotNull(zip, "ZipFile zip");
+		UAssert.paramNotNull(entry, "ZipEntry entry");
+		UAssert.paramNotNull(algo, "String algo");
+		return call(() -> UResourceHash.hash(zip, entry, algo));
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given zip entry using the default algorithm.
+	 *
+	 * @param zip   the zip file containing the entry
+	 * @param entry the zip entry to read data from
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the zip file or entry is null
+	 * @see UResourceHash#hash(ZipFile, ZipEntry)
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull ZipFile zip, @NotNull ZipEntry entry) {
+		return hash(zip, entry, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/* -----------------------------------------------------
+	 * String hash methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes the hash of the data read from the given input stream using the specified algorithm.
+	 *
+	 * @param stream the input stream to read data from
+	 * @param algo   the hash algorithm to use
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the stream or algorithm is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull InputStream stream, @NotNull String algo) {
+		return hash(stream, algo).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given input stream using the default algorithm.
+	 *
+	 * @param stream the input stream to read data from
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the stream is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull InputStream stream) {
+		return hash(stream).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given path using the specified algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @param algo the hash algorithm to use
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the path or algorithm is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull Path path, @NotNull String algo) {
+		return hash(path, algo).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given path using the default algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull Path path) {
+		return hash(path).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given file using the specified algorithm.
+	 *
+	 * @param file the file to read data from
+	 * @param algo the hash algorithm to use
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the file or algorithm is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull File file, @NotNull String algo) {
+		return hash(file, algo).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given file using the default algorithm.
+	 *
+	 * @param file the file to read data from
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the file is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull File file) {
+		return hash(file).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given zip entry using the specified algorithm.
+	 *
+	 * @param zip   the zip file containing the entry
+	 * @param entry the zip entry to read data from
+	 * @param algo  the hash algorithm to use
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the zip file, entry or algorithm is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull ZipFile zip, @NotNull ZipEntry entry,
+		@NotNull String algo) {
+		return hash(zip, entry, algo).thenApply(UResourceHash::hashStr);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given zip entry using the default algorithm.
+	 *
+	 * @param zip   the zip file containing the entry
+	 * @param entry the zip entry to read data from
+	 * @return a future completed with the computed hash as a string
+	 * @throws IllegalArgumentException if the zip file or entry is null
+	 */
+	public static @NotNull CompletableFuture<String> hashStr(@NotNull ZipFile zip, @NotNull ZipEntry entry) {
+		return hash(zip, entry).thenApply(UResourceHash::hashStr);
+	}
+	
+	/* -----------------------------------------------------
+	 * Quick fingerprint methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes a non-authoritative fingerprint of the given path.
+	 *
+	 * @param path            the path to read data from
+	 * @param algo            the hash algorithm to use
+	 * @param windowSize      the size of every window
+	 * @param interiorWindows the number of interior windows
+	 * @return a future completed with the quick fingerprint of the path
+	 * @throws IllegalArgumentException if the path or algorithm is null
+	 * @see UResourceHash#quickFingerprint(Path, String, int, int)
+	 */
+	public static @NotNull CompletableFuture<UQuickFingerprint> quickFingerprint(@NotNull Path path,
+		@NotNull String algo, int windowSize, int interiorWindows) {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(algo, "String algo");
+		return call(() -> UResourceHash.quickFingerprint(path, algo, windowSize, interiorWindows));
+	}
+	
+	/**
+	 * Computes a non-authoritative fingerprint of the given path using the default windows
+	 * and the default algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @return a future completed with the quick fingerprint of the path
+	 * @throws IllegalArgumentException if the path is null
+	 * @see UResourceHash#quickFingerprint(Path)
+	 */
+	public static @NotNull CompletableFuture<UQuickFingerprint> quickFingerprint(@NotNull Path path) {
+		return quickFingerprint(path, UFSConstants.FS_HASH_ALGORITHM, UFSConstants.FS_FINGERPRINT_WINDOW_SIZE,
+								UFSConstants.FS_FINGERPRINT_INTERIOR_WINDOWS);
+	}
+	
+	/* -----------------------------------------------------
+	 * Resolution methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Converts the given URI to a Path object. File URIs are resolved immediately; every
+	 * other scheme may mount an archive, so it is resolved on the executor.
+	 *
+	 * @param uri the URI to convert to a Path
+	 * @return a future completed with the path of the URI
+	 * @throws IllegalArgumentException if the URI is null
+	 * @see UResource#pathOf(URI)
+	 */
+	public static @NotNull CompletableFuture<Path> pathOf(@NotNull URI uri) {
+		UAssert.paramNotNull(uri, "URI uri");
+		if ("file".equals(uri.getScheme())) return now(() -> UResource.pathOf(uri));
+		return call(() -> UResource.pathOf(uri));
+	}
+	
+	/**
+	 * Converts the given URL to a Path object.
+	 *
+	 * @param url the URL to convert to a Path
+	 * @return a future completed with the path of the URL
+	 * @throws IllegalArgumentException if the URL is null
+	 * @see UResource#pathOf(URL)
+	 */
+	public static @NotNull CompletableFuture<Path> pathOf(@NotNull URL url) {
+		UAssert.paramNotNull(url, "URL url");
+		if ("file".equals(url.getProtocol())) return now(() -> UResource.pathOf(url));
+		return call(() -> UResource.pathOf(url));
+	}
+	
+	/**
+	 * Returns a FileSystem object for the given URI, mounting it on the executor if needed.
+	 *
+	 * @param uri the URI to convert to a FileSystem
+	 * @return a future completed with the file system of the URI
+	 * @throws IllegalArgumentException if the URI is null
+	 * @see UFilesystem#filesystem(URI)
+	 */
+	public static @NotNull CompletableFuture<FileSystem> filesystem(@NotNull URI uri) {
+		UAssert.paramNotNull(uri, "URI uri");
+		if ("file".equals(uri.getScheme())) return now(() -> UFilesystem.filesystem(uri));
+		return call(() -> UFilesystem.filesystem(uri));
+	}
+	
+	/**
+	 * Returns a FileSystem object for the given URL, mounting it on the executor if needed.
+	 *
+	 * @param url the URL to convert to a FileSystem
+	 * @return a future completed with the file system of the URL
+	 * @throws IllegalArgumentException if the URL is null
+	 * @see UFilesystem#filesystem(URL)
+	 */
+	public static @NotNull CompletableFuture<FileSystem> filesystem(@NotNull URL url) {
+		UAssert.paramNotNull(url, "URL url");
+		if ("file".equals(url.getProtocol())) return now(() -> UFilesystem.filesystem(url));
+		return call(() -> UFilesystem.filesystem(url));
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Runs the given operation on the executor.
+	 *
+	 * @param operation the blocking operation
+	 * @param <T>       the result type
+	 * @return a future completed with the result or the exception of the operation
+	 */
+	private static <T> @NotNull CompletableFuture<T> call(@NotNull Operation<T> operation) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		try {
+			executor().execute(() -> {
+				// The caller may have given up before the task started
+				if (result.isDone()) return;
+				try {
+					result.complete(operation.run());
+				} catch (Throwable e) {
+					result.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+	
+	/**
+	 * Runs the given operation in the calling thread.
+	 *
+	 * @param operation the non-blocking operation
+	 * @param <T>       the result type
+	 * @return a completed future with the result or the exception of the operation
+	 */
+	private static <T> @NotNull CompletableFuture<T> now(@NotNull Operation<T> operation) {
+		try {
+			return CompletableFuture.completedFuture(operation.run());
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	/**
+	 * Blocking operation that may throw checked exceptions.
+	 *
+	 * @param <T> the result type
+	 */
+	@FunctionalInterface
+	private interface Operation<T> {
+		
+		T run() throws Exception;
+		
+	}
+	
+	/**
+	 * Lazily created default executor.
+	 */
+	private static final class DefaultExecutor {
+		
+		private static final Executor INSTANCE = UThreads.newExecutor("uoxx3-io-async", UFSConstants.FS_ASYNC_THREADS);
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package uoxx3.io;
+
+/**
+ * Statistics of a {@link UResourceCache} or a {@link UHttpCache}.
+ *
+ * @param hits          the number of reads served from the cache
+ * @param misses        the number of reads that had to load the resource
+ * @param evictions     the number of entries removed to respect the size limit
+ * @param invalidations the number of entries removed because the resource changed or was invalidated
+ * @param entries       the number of cached entries
+ * @param bytes         the number of cached bytes
+ */
+public record UCacheStats(
+	long hits,
+	long misses,
+	long evictions,
+	long invalidations,
+	long entries,
+	long bytes
+) {
+	
+	/**
+	 * Returns the fraction of reads served from the cache.
+	 *
+	 * @return the hit rate between 0 and 1, or 0 if nothing was read
+	 */
+	public double hitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0.0 : (double) hits / requests;
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Deduplicated set of changes found by a {@link UWatcher} within a coalescing window.
+ * Every path appears in at most one of the sets.
+ *
+ * @param created  the entries created during the window
+ * @param modified the entries whose size or modification time changed during the window
+ * @param deleted  the entries deleted during the window, including the entries of deleted directories
+ */
+public record UChangeSet(
+	@NotNull Set<Path> created,
+	@NotNull Set<Path> modified,
+	@NotNull Set<Path> deleted
+) {
+	
+	public UChangeSet {
+		UAssert.paramNotNull(created, "Set<Path> created");
+		UAssert.paramNotNull(modified, "Set<Path> modified");
+		UAssert.paramNotNull(deleted, "Set<Path> deleted");
+		created = Set.copyOf(created);
+		modified = Set.copyOf(modified);
+		deleted = Set.copyOf(deleted);
+	}
+	
+	/**
+	 * Checks whether the change set contains no changes.
+	 *
+	 * @return true if nothing changed
+	 */
+	public boolean isEmpty() {
+		return created.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+	}
+	
+	/**
+	 * Returns every changed path, regardless of the kind of change.
+	 *
+	 * @return the changed paths
+	 */
+	public @NotNull Set<Path> all() {
+		Set<Path> result = new HashSet<>(created.size() + modified.size() + deleted.size());
+		result.addAll(created);
+		result.addAll(modified);
+		result.addAll(deleted);
+		return result;
+	}
+	
+}
\ No newline at end of file
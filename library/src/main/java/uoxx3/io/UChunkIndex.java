@@ -0,0 +1,166 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe index of content-defined chunks used to measure how many bytes
+ * are duplicated across a set of resources.
+ */
+public final class UChunkIndex {
+	
+	/**
+	 * Chunk length by chunk digest
+	 */
+	private final Map<ByteBuffer, Integer> chunks = new ConcurrentHashMap<>();
+	private final LongAdder totalBytes = new LongAdder();
+	private final LongAdder totalChunks = new LongAdder();
+	private final LongAdder resources = new LongAdder();
+	private final UChunkSpec spec;
+	private final String algo;
+	
+	/**
+	 * Creates a new chunk index with the given chunk sizes and hash algorithm.
+	 *
+	 * @param spec the chunk size limits
+	 * @param algo the hash algorithm used to digest every chunk
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the spec or algorithm is null
+	 */
+	public UChunkIndex(@NotNull UChunkSpec spec, @NotNull String algo) throws NoSuchAlgorithmException {
+		UAssert.paramNotNull(spec, "UChunkSpec spec");
+		UAssert.paramNotNull(algo, "String algo");
+		// Fail fast instead of failing inside a parallel task
+		MessageDigest.getInstance(algo);
+		
+		this.spec = spec;
+		this.algo = algo;
+	}
+	
+	/**
+	 * Creates a new chunk index with the default chunk sizes and the default algorithm.
+	 *
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 */
+	public UChunkIndex() throws NoSuchAlgorithmException {
+		this(UChunkSpec.DEFAULT, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/* -----------------------------------------------------
+	 * Index methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Chunks the data read from the given input stream and adds every chunk to the index.
+	 *
+	 * @param stream the input stream to read data from
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the stream is null
+	 */
+	public void add(@NotNull InputStream stream) throws IOException {
+		try {
+			UResourceChunker.chunks(stream, spec, algo, this::register);
+			resources.increment();
+		} catch (NoSuchAlgorithmException e) {
+			// Already validated in the constructor
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Chunks the data read from the given path and adds every chunk to the index.
+	 *
+	 * @param path the path to read data from
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public void add(@NotNull Path path) throws IOException {
+		UAssert.paramNotNull(path, "Path path");
+		try {
+			UResourceChunker.chunks(path, spec, algo, this::register);
+			resources.increment();
+		} catch (NoSuchAlgorithmException e) {
+			// Already validated in the constructor
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Chunks all the given paths in parallel and adds every chunk to the index.
+	 *
+	 * @param paths the paths to read data from
+	 * @throws IOException              if an I/O error occurs with any of the paths
+	 * @throws IllegalArgumentException if the collection is null
+	 */
+	public void addAll(@NotNull Collection<Path> paths) throws IOException {
+		UAssert.paramNotNull(paths, "Collection<Path> paths");
+		try {
+			paths.parallelStream().forEach(path -> {
+				try {
+					add(path);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Report methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns a snapshot of the deduplication statistics of all indexed resources.
+	 *
+	 * @return the deduplication report
+	 */
+	public @NotNull UChunkReport report() {
+		long uniqueBytes = 0;
+		for (int length : chunks.values()) {
+			uniqueBytes += length;
+		}
+		
+		return new UChunkReport(resources.sum(), totalChunks.sum(), chunks.size(),
+								totalBytes.sum(), uniqueBytes);
+	}
+	
+	/**
+	 * Removes all the chunks from the index.
+	 */
+	public void clear() {
+		chunks.clear();
+		totalBytes.reset();
+		totalChunks.reset();
+		resources.reset();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Registers a single chunk in the index.
+	 *
+	 * @param chunk the chunk to register
+	 */
+	private void register(@NotNull UResourceChunk chunk) {
+		chunks.putIfAbsent(ByteBuffer.wrap(chunk.digest()), chunk.length());
+		totalBytes.add(chunk.length());
+		totalChunks.increment();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package uoxx3.io;
+
+/**
+ * Deduplication statistics produced by a {@link UChunkIndex}.
+ *
+ * @param resources    the number of indexed resources
+ * @param chunks       the total number of chunks found
+ * @param uniqueChunks the number of distinct chunks found
+ * @param totalBytes   the total number of bytes indexed
+ * @param uniqueBytes  the number of bytes needed to store every distinct chunk once
+ */
+public record UChunkReport(
+	long resources,
+	long chunks,
+	long uniqueChunks,
+	long totalBytes,
+	long uniqueBytes
+) {
+	
+	/**
+	 * Returns the number of bytes that are stored more than once.
+	 *
+	 * @return the number of duplicated bytes
+	 */
+	public long duplicateBytes() {
+		return totalBytes - uniqueBytes;
+	}
+	
+	/**
+	 * Returns the ratio between the total bytes and the unique bytes.
+	 *
+	 * @return the deduplication ratio, or {@code 1.0} if nothing was indexed
+	 */
+	public double dedupRatio() {
+		return uniqueBytes == 0 ? 1.0 : (double) totalBytes / uniqueBytes;
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package uoxx3.io;
+
+/**
+ * Size limits used by the content-defined chunker.
+ *
+ * @param minSize the minimum size of a chunk; no cut point is searched before this size
+ * @param avgSize the expected size of a chunk; must be a power of two
+ * @param maxSize the maximum size of a chunk; a cut is forced when this size is reached
+ */
+public record UChunkSpec(
+	int minSize,
+	int avgSize,
+	int maxSize
+) {
+	
+	/**
+	 * The default chunk specification based on the {@link UFSConstants} chunk sizes.
+	 */
+	public static final UChunkSpec DEFAULT = new UChunkSpec(UFSConstants.FS_CHUNK_MIN_SIZE,
+															UFSConstants.FS_CHUNK_AVG_SIZE,
+															UFSConstants.FS_CHUNK_MAX_SIZE);
+	
+	public UChunkSpec {
+		if (minSize <= 0 || minSize >= avgSize || avgSize >= maxSize) {
+			throw new IllegalArgumentException(
+				"Invalid chunk sizes, expected 0 < min < avg < max. min=%d, avg=%d, max=%d given"
+					.formatted(minSize, avgSize, maxSize));
+		}
+		if (Integer.bitCount(avgSize) != 1) {
+			throw new IllegalArgumentException(
+				"The average chunk size must be a power of two. \"%d\" given".formatted(avgSize));
+		}
+	}
+	
+}
\ No newline at end of file
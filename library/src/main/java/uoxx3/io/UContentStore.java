@@ -0,0 +1,388 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.internal.UBloomFilter;
+import uoxx3.io.internal.UBufferPool;
+import uoxx3.io.internal.UThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Local content-addressable file store. Every object is stored once under its
+ * {@link UResourceHash} digest in a sharded fan-out directory layout:
+ * <pre>
+ * root/objects/ab/cd/abcd...
+ * root/tmp/
+ * </pre>
+ */
+public final class UContentStore {
+	
+	/**
+	 * The default number of objects used to size the Bloom filter.
+	 */
+	private static final long DEFAULT_EXPECTED_OBJECTS = 1L << 20;
+	
+	/**
+	 * The false positive probability of the Bloom filter.
+	 */
+	private static final double BLOOM_FPP = 0.01;
+	
+	private final Map<String, CompletableFuture<Path>> pending = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<String>> copying = new ConcurrentHashMap<>();
+	private final Path objects;
+	private final Path staging;
+	private final String algo;
+	private final UBloomFilter filter;
+	
+	/**
+	 * Whether the objects stored before the store was opened are in the filter. Until then
+	 * every lookup checks the filesystem.
+	 */
+	private volatile boolean scanned;
+	
+	/**
+	 * Opens (or creates) a content store in the given directory.
+	 *
+	 * @param root            the root directory of the store
+	 * @param algo            the hash algorithm used to address the objects
+	 * @param expectedObjects the number of objects used to size the in-memory Bloom filter
+	 * @throws IOException              if an I/O error occurs while creating the store
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the root or algorithm is null, or the expected objects is not positive
+	 */
+	public UContentStore(@NotNull Path root, @NotNull String algo, long expectedObjects) throws IOException,
+		NoSuchAlgorithmException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(algo, "String algo");
+		// Fail fast on unknown algorithms
+		MessageDigest.getInstance(algo);
+		
+		this.objects = Files.createDirectories(root.resolve("objects"));
+		this.staging = Files.createDirectories(root.resolve("tmp"));
+		this.algo = algo;
+		this.filter = new UBloomFilter(expectedObjects, BLOOM_FPP);
+		
+		// The existing objects are loaded into the filter in the background, so opening a
+		// large store does not wait for the whole tree to be listed
+		UThreads.newThread("uo-store-scan", this::scan, true).start();
+	}
+	
+	/**
+	 * Opens (or creates) a content store in the given directory using the default algorithm.
+	 *
+	 * @param root the root directory of the store
+	 * @throws IOException              if an I/O error occurs while creating the store
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the root is null
+	 */
+	public UContentStore(@NotNull Path root) throws IOException, NoSuchAlgorithmException {
+		this(root, UFSConstants.FS_HASH_ALGORITHM, DEFAULT_EXPECTED_OBJECTS);
+	}
+	
+	/* -----------------------------------------------------
+	 * Store methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Stores the data read from the given input stream. The data is hashed while it is copied
+	 * into a staging file, which is then atomically renamed to its final location. A stream
+	 * is always copied, since its digest is only known once it is read.
+	 *
+	 * @param stream the input stream to read data from
+	 * @return the digest of the stored object as a hexadecimal string
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the stream is null
+	 */
+	public @NotNull String put(@NotNull InputStream stream) throws IOException {
+		UAssert.paramNotNull(stream, "InputStream stream");
+		Path temp = Files.createTempFile(staging, "put-", ".tmp");
+		
+		try {
+			byte[] digest;
+			ByteBuffer pooled = UBufferPool.HEAP.acquire(UFSConstants.FS_READ_BUFFER_SIZE);
+			try (stream; OutputStream out = Files.newOutputStream(temp)) {
+				MessageDigest md = newDigest();
+				byte[] buffer = pooled.array();
+				int read;
+				
+				while ((read = stream.read(buffer)) != -1) {
+					md.update(buffer, 0, read);
+					out.write(buffer, 0, read);
+				}
+				digest = md.digest();
+			} finally {
+				UBufferPool.HEAP.release(pooled);
+			}
+			
+			String digestStr = UResourceHash.hashStr(digest);
+			commit(digestStr, digest, temp);
+			return digestStr;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	/**
+	 * Stores the content of the given path. The file is read once: it is hashed while it is
+	 * copied into a staging file, as {@link #put(InputStream)} does. Concurrent puts of the
+	 * same file share a single copy.
+	 *
+	 * @param path the path to read data from
+	 * @return the digest of the stored object as a hexadecimal string
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public @NotNull String put(@NotNull Path path) throws IOException {
+		UAssert.paramNotNull(path, "Path path");
+		String key = path.toRealPath().toString();
+		CompletableFuture<String> future = new CompletableFuture<>();
+		CompletableFuture<String> current = copying.putIfAbsent(key, future);
+		
+		// Other thread is copying the same file
+		if (current != null) {
+			try {
+				return current.join();
+			} catch (CompletionException ignore) {
+				// The other copy failed, this file is copied on its own
+				return put(Files.newInputStream(path));
+			}
+		}
+		
+		try {
+			String stored = put(Files.newInputStream(path));
+			future.complete(stored);
+			return stored;
+		} catch (IOException e) {
+			future.completeExceptionally(new UncheckedIOException(e));
+			throw e;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			copying.remove(key, future);
+		}
+	}
+	
+	/**
+	 * Returns the location of the object with the given digest.
+	 *
+	 * @param digest the hexadecimal digest of the object
+	 * @return the path of the stored object
+	 * @throws NoSuchFileException      if the object is not stored
+	 * @throws IllegalArgumentException if the digest is null or not a valid digest
+	 */
+	public @NotNull Path get(@NotNull String digest) throws NoSuchFileException {
+		if (!contains(digest)) throw new NoSuchFileException(digest);
+		return objectPath(digest);
+	}
+	
+	/**
+	 * Checks whether the object with the given digest is stored. Once the existing objects
+	 * are loaded into the in-memory Bloom filter, negative answers are served without
+	 * touching the filesystem.
+	 *
+	 * @param digest the hexadecimal digest of the object
+	 * @return true if the object is stored, false otherwise
+	 * @throws IllegalArgumentException if the digest is null or not a valid digest
+	 */
+	public boolean contains(@NotNull String digest) {
+		checkDigest(digest);
+		if (!mightContain(decode(digest))) return false;
+		
+		return Files.isRegularFile(objectPath(digest));
+	}
+	
+	/**
+	 * Lists the digests of every stored object. The objects are listed from the filesystem,
+	 * so the cost grows with the size of the store.
+	 *
+	 * @return the hexadecimal digests of the stored objects
+	 * @throws IOException if an I/O error occurs while listing the objects
+	 */
+	public @NotNull List<String> digests() throws IOException {
+		try (Stream<Path> stream = Files.walk(objects, 3)) {
+			return stream.filter(Files::isRegularFile)
+				.map(path -> path.getFileName().toString())
+				.filter(UContentStore::isValidDigest)
+				.toList();
+		}
+	}
+	
+	/**
+	 * Materializes the object with the given digest at the target location. A hard link is
+	 * created when the target is on the same filesystem; otherwise the object is copied.
+	 * Stored objects are shared by every link, so they must never be modified in place.
+	 *
+	 * @param digest the hexadecimal digest of the object
+	 * @param target the location where the object will be materialized
+	 * @return the target path
+	 * @throws IOException              if the object is not stored or an I/O error occurs
+	 * @throws IllegalArgumentException if the digest or target is null
+	 */
+	public @NotNull Path materialize(@NotNull String digest, @NotNull Path target) throws IOException {
+		UAssert.paramNotNull(target, "Path target");
+		Path source = get(digest);
+		
+		try {
+			return Files.createLink(target, source);
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			if (e instanceof FileAlreadyExistsException ex) throw ex;
+			// Cross-device links or filesystems without link support
+			return Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+		}
+	}
+	
+	/**
+	 * Deletes the object with the given digest. Materialized hard links keep their content.
+	 *
+	 * @param digest the hexadecimal digest of the object
+	 * @return true if the object was deleted, false if it was not stored
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the digest is null or not a valid digest
+	 */
+	public boolean delete(@NotNull String digest) throws IOException {
+		// The Bloom filter cannot forget the digest, contains() checks the filesystem anyway
+		if (!contains(digest)) return false;
+		return Files.deleteIfExists(objectPath(digest));
+	}
+	
+	/**
+	 * Returns the hash algorithm used to address the objects.
+	 *
+	 * @return the hash algorithm
+	 */
+	public @NotNull String algorithm() {
+		return algo;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Moves the staging file to its final location. Concurrent commits of the same
+	 * digest are coalesced, so only one rename is performed.
+	 *
+	 * @param digestStr the hexadecimal digest
+	 * @param digest    the raw digest
+	 * @param temp      the staging file
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void commit(@NotNull String digestStr, byte[] digest, @NotNull Path temp) throws IOException {
+		Path target = objectPath(digestStr);
+		if (mightContain(digest) && Files.isRegularFile(target)) return;
+		
+		CompletableFuture<Path> future = new CompletableFuture<>();
+		CompletableFuture<Path> current = pending.putIfAbsent(digestStr, future);
+		
+		// Other thread is storing the same content
+		if (current != null) {
+			try {
+				current.join();
+				return;
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof UncheckedIOException ex ? ex.getCause() : new IOException(e.getCause());
+			}
+		}
+		
+		try {
+			Files.createDirectories(target.getParent());
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException ignore) {
+				// Stored by another process
+			}
+			
+			filter.add(digest);
+			future.complete(target);
+		} catch (IOException e) {
+			future.completeExceptionally(new UncheckedIOException(e));
+			throw e;
+		} finally {
+			pending.remove(digestStr, future);
+		}
+	}
+	
+	/**
+	 * Loads the objects stored before the store was opened into the filter. If the objects
+	 * cannot be listed the filter is never used.
+	 */
+	private void scan() {
+		try {
+			for (String digest : digests()) {
+				filter.add(decode(digest));
+			}
+			scanned = true;
+		} catch (IOException | UncheckedIOException ignore) {
+			// Every lookup keeps checking the filesystem
+		}
+	}
+	
+	/**
+	 * Checks the filter, which only knows every object once the scan completed.
+	 *
+	 * @param digest the raw digest
+	 * @return false if the object is certainly not stored
+	 */
+	private boolean mightContain(byte[] digest) {
+		return !scanned || filter.mightContain(digest);
+	}
+	
+	/**
+	 * Resolves the fan-out location of the given digest.
+	 *
+	 * @param digest the hexadecimal digest
+	 * @return the location of the object
+	 */
+	private @NotNull Path objectPath(@NotNull String digest) {
+		return objects.resolve(digest.substring(0, 2))
+			.resolve(digest.substring(2, 4))
+			.resolve(digest);
+	}
+	
+	private @NotNull MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(algo);
+		} catch (NoSuchAlgorithmException e) {
+			// Already validated in the constructor
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static void checkDigest(String digest) {
+		UAssert.paramNotNull(digest, "String digest");
+		if (!isValidDigest(digest)) {
+			throw new IllegalArgumentException("Invalid digest. \"%s\" given".formatted(digest));
+		}
+	}
+	
+	private static boolean isValidDigest(@NotNull String digest) {
+		if (digest.length() < 4 || (digest.length() & 1) != 0) return false;
+		
+		for (int i = 0; i < digest.length(); i++) {
+			char c = digest.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+		}
+		return true;
+	}
+	
+	private static byte[] decode(@NotNull String digest) {
+		return HexFormat.of().parseHex(digest);
+	}
+	
+}
\ No newline at end of file
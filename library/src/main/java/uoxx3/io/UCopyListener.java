@@ -0,0 +1,17 @@
+package uoxx3.io;
+
+/**
+ * Receives the progress of a copy operation.
+ */
+@FunctionalInterface
+public interface UCopyListener {
+	
+	/**
+	 * Called every time a block of data is transferred.
+	 *
+	 * @param transferred the number of bytes transferred so far
+	 * @param total       the total number of bytes to transfer, or -1 if it is not known
+	 */
+	void progress(long transferred, long total);
+	
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a copy operation.
+ *
+ * @param bytes  the number of bytes copied
+ * @param nanos  the time the copy took in nanoseconds
+ * @param method the strategy used to copy the data
+ */
+public record UCopyResult(
+	long bytes,
+	long nanos,
+	@NotNull Method method
+) {
+	
+	public UCopyResult {
+		UAssert.paramNotNull(method, "Method method");
+	}
+	
+	/**
+	 * Returns the throughput of the copy.
+	 *
+	 * @return the number of bytes copied per second
+	 */
+	public double throughput() {
+		return nanos <= 0 ? 0.0 : bytes * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+	}
+	
+	/**
+	 * The strategies used to copy data, from the fastest to the slowest.
+	 */
+	public enum Method {
+		/**
+		 * The data was transferred by the operating system between channels
+		 * ({@code copy_file_range} or {@code sendfile} on Linux).
+		 */
+		TRANSFER,
+		/**
+		 * The data of an uncompressed archive entry was transferred directly from the
+		 * archive file.
+		 */
+		STORED_ENTRY,
+		/**
+		 * The data was copied through a pooled direct buffer.
+		 */
+		BUFFERED
+	}
+	
+}
\ No newline at end of file
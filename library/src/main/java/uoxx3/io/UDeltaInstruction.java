@@ -0,0 +1,58 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+/**
+ * Instruction used to rebuild a resource from an older version of it.
+ */
+public sealed interface UDeltaInstruction permits UDeltaInstruction.Copy, UDeltaInstruction.Literal {
+	
+	/**
+	 * Returns the number of bytes produced by this instruction.
+	 *
+	 * @return the number of bytes produced
+	 */
+	long length();
+	
+	/**
+	 * Copies a region of the old resource.
+	 *
+	 * @param offset the position of the region within the old resource
+	 * @param length the number of bytes of the region
+	 */
+	record Copy(
+		long offset,
+		long length
+	) implements UDeltaInstruction {
+		
+		public Copy {
+			if (offset < 0 || length <= 0) {
+				throw new IllegalArgumentException(
+					"Invalid copy region. offset=%d, length=%d given".formatted(offset, length));
+			}
+		}
+		
+	}
+	
+	/**
+	 * Inserts bytes that are not present in the old resource.
+	 *
+	 * @param data the bytes to insert
+	 */
+	record Literal(
+		byte @NotNull [] data
+	) implements UDeltaInstruction {
+		
+		public Literal {
+			UAssert.paramNotNull(data, "byte[] data");
+		}
+		
+		@Override
+		public long length() {
+			return data.length;
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a download.
+ *
+ * @param bytes        the size of the downloaded resource
+ * @param resumedBytes the number of bytes kept from an interrupted download
+ * @param ranges       the number of connections used in parallel, at least 1; 1 if the server does not support ranges
+ * @param digest       the digest of the whole resource
+ * @param algorithm    the algorithm of the digest
+ * @param nanos        the time the download took in nanoseconds
+ */
+public record UDownloadResult(
+	long bytes,
+	long resumedBytes,
+	int ranges,
+	byte @NotNull [] digest,
+	@NotNull String algorithm,
+	long nanos
+) {
+	
+	public UDownloadResult {
+		UAssert.paramNotNull(digest, "byte[] digest");
+		UAssert.paramNotNull(algorithm, "String algorithm");
+	}
+	
+	/**
+	 * Returns the digest of the resource as a hexadecimal string.
+	 *
+	 * @return the hexadecimal digest
+	 * @see UResourceHash#hashStr(byte[])
+	 */
+	public @NotNull String digestStr() {
+		return UResourceHash.hashStr(digest);
+	}
+	
+	/**
+	 * Returns the throughput of the download, without the resumed bytes.
+	 *
+	 * @return the number of bytes downloaded per second
+	 */
+	public double throughput() {
+		return nanos <= 0 ? 0.0 : (bytes - resumedBytes) * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+	}
+	
+}
\ No newline at end of file
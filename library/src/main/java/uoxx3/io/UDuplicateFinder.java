@@ -0,0 +1,286 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.internal.UBufferPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Finds resources with identical content. The candidates are narrowed in three stages,
+ * so only the resources that still collide are fully hashed:
+ * <ol>
+ *     <li>Group by size</li>
+ *     <li>Group by a digest of the head and tail of the resource</li>
+ *     <li>Group by the full {@link UResourceHash} digest</li>
+ * </ol>
+ */
+public final class UDuplicateFinder {
+	
+	/**
+	 * The size of the head and tail samples digested in the second stage.
+	 */
+	private static final int SAMPLE_SIZE = 4 << 10;
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UDuplicateFinder() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Find methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Finds the duplicated regular files inside the given roots. Every size group is processed
+	 * in parallel and each duplicate group is delivered to the consumer as soon as it is
+	 * confirmed. Empty files, files that cannot be read and repeated hard links of the same
+	 * file are ignored.
+	 *
+	 * @param roots    the directories (or files) to scan
+	 * @param algo     the hash algorithm used for the full digests
+	 * @param cache    an optional cache of full digests, updated with every computed digest
+	 * @param consumer the action that receives every duplicate group; calls are serialized
+	 * @return the report with every duplicate group found
+	 * @throws IOException              if a root cannot be walked
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the roots, algorithm or consumer is null, or the cache uses other algorithm
+	 */
+	public static @NotNull UDuplicateReport find(@NotNull Collection<Path> roots, @NotNull String algo,
+		@Nullable UHashCache cache, @NotNull Consumer<UDuplicateGroup> consumer) throws IOException,
+		NoSuchAlgorithmException {
+		UAssert.paramNotNull(roots, "Collection<Path> roots");
+		UAssert.paramNotNull(algo, "String algo");
+		UAssert.paramNotNull(consumer, "Consumer<UDuplicateGroup> consumer");
+		MessageDigest.getInstance(algo);
+		if (cache != null && !cache.algorithm().equals(algo)) {
+			throw new IllegalArgumentException(
+				"The cache algorithm \"%s\" does not match \"%s\"".formatted(cache.algorithm(), algo));
+		}
+		
+		// Stage 1: group by size
+		Map<Long, Queue<Candidate>> bySize = new ConcurrentHashMap<>();
+		Set<Object> seen = ConcurrentHashMap.newKeySet();
+		LongAdder scanned = new LongAdder();
+		try {
+			roots.parallelStream().forEach(root -> {
+				try {
+					collect(root, bySize, seen, scanned);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		
+		// Stages 2 and 3 run in parallel for every size group
+		Queue<UDuplicateGroup> groups = new ConcurrentLinkedQueue<>();
+		LongAdder hashed = new LongAdder();
+		// The calls are serialized with a private lock, the consumer may be locked by its owner
+		Object delivery = new Object();
+		Consumer<UDuplicateGroup> sink = group -> {
+			groups.add(group);
+			synchronized (delivery) {
+				consumer.accept(group);
+			}
+		};
+		
+		bySize.entrySet().parallelStream()
+			.filter(entry -> entry.getValue().size() > 1)
+			.forEach(entry -> processSizeGroup(entry.getKey(), entry.getValue(), algo, cache, hashed, sink));
+		
+		return new UDuplicateReport(new ArrayList<>(groups), scanned.sum(), hashed.sum());
+	}
+	
+	/**
+	 * Finds the duplicated regular files inside the given roots.
+	 *
+	 * @param roots the directories (or files) to scan
+	 * @param algo  the hash algorithm used for the full digests
+	 * @param cache an optional cache of full digests, updated with every computed digest
+	 * @return the report with every duplicate group found
+	 * @throws IOException              if a root cannot be walked
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the roots or algorithm is null, or the cache uses other algorithm
+	 */
+	public static @NotNull UDuplicateReport find(@NotNull Collection<Path> roots, @NotNull String algo,
+		@Nullable UHashCache cache) throws IOException, NoSuchAlgorithmException {
+		return find(roots, algo, cache, (ignore) -> {});
+	}
+	
+	/**
+	 * Finds the duplicated regular files inside the given roots using the default algorithm.
+	 *
+	 * @param roots the directories (or files) to scan
+	 * @return the report with every duplicate group found
+	 * @throws IOException              if a root cannot be walked
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the roots are null
+	 */
+	public static @NotNull UDuplicateReport find(@NotNull Collection<Path> roots) throws IOException,
+		NoSuchAlgorithmException {
+		return find(roots, UFSConstants.FS_HASH_ALGORITHM, null);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Collects every non-empty regular file of the given root grouped by size.
+	 */
+	private static void collect(@NotNull Path root, @NotNull Map<Long, Queue<Candidate>> bySize,
+		@NotNull Set<Object> seen, @NotNull LongAdder scanned) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (!attrs.isRegularFile() || attrs.size() == 0) return FileVisitResult.CONTINUE;
+				scanned.increment();
+				
+				// Hard links share the same storage, they are not duplicates
+				Object key = attrs.fileKey();
+				if (key != null && !seen.add(key)) return FileVisitResult.CONTINUE;
+				
+				bySize.computeIfAbsent(attrs.size(), (ignore) -> new ConcurrentLinkedQueue<>())
+					.add(new Candidate(file, attrs));
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	/**
+	 * Narrows a group of files with the same size and delivers the confirmed duplicates.
+	 */
+	private static void processSizeGroup(long size, @NotNull Collection<Candidate> candidates, @NotNull String algo,
+		@Nullable UHashCache cache, @NotNull LongAdder hashed, @NotNull Consumer<UDuplicateGroup> sink) {
+		// Stage 2: head and tail sample
+		Map<String, List<Candidate>> bySample = candidates.parallelStream()
+			.map(candidate -> new Digested(candidate, sampleDigest(candidate.path, size, algo)))
+			.filter(digested -> digested.digest != null)
+			.collect(Collectors.groupingByConcurrent(Digested::digest,
+													 Collectors.mapping(Digested::candidate, Collectors.toList())));
+		
+		for (Map.Entry<String, List<Candidate>> sampleGroup : bySample.entrySet()) {
+			List<Candidate> group = sampleGroup.getValue();
+			if (group.size() < 2) continue;
+			
+			// The sample already covers the whole content
+			if (size <= 2L * SAMPLE_SIZE) {
+				sink.accept(new UDuplicateGroup(size, sampleGroup.getKey(), paths(group)));
+				continue;
+			}
+			
+			// Stage 3: full hash
+			Map<String, List<Candidate>> byDigest = group.parallelStream()
+				.map(candidate -> new Digested(candidate, fullDigest(candidate, algo, cache, hashed)))
+				.filter(digested -> digested.digest != null)
+				.collect(Collectors.groupingByConcurrent(Digested::digest,
+														 Collectors.mapping(Digested::candidate, Collectors.toList())));
+			
+			byDigest.forEach((digest, duplicates) -> {
+				if (duplicates.size() > 1) sink.accept(new UDuplicateGroup(size, digest, paths(duplicates)));
+			});
+		}
+	}
+	
+	/**
+	 * Digests the head and tail of the file. Small files are digested completely, so the
+	 * result is equal to the full digest.
+	 *
+	 * @return the hexadecimal sample digest, or null if the file cannot be read
+	 */
+	private static @Nullable String sampleDigest(@NotNull Path path, long size, @NotNull String algo) {
+		ByteBuffer buffer = UBufferPool.HEAP.acquire(SAMPLE_SIZE);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MessageDigest digest = MessageDigest.getInstance(algo);
+			
+			if (size <= 2L * SAMPLE_SIZE) {
+				digestRegion(channel, digest, buffer, 0, size);
+			} else {
+				digestRegion(channel, digest, buffer, 0, SAMPLE_SIZE);
+				digestRegion(channel, digest, buffer, size - SAMPLE_SIZE, SAMPLE_SIZE);
+			}
+			return UResourceHash.hashStr(digest.digest());
+		} catch (IOException e) {
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			UBufferPool.HEAP.release(buffer);
+		}
+	}
+	
+	/**
+	 * Computes the full digest of the candidate, using the cache if possible.
+	 *
+	 * @return the hexadecimal digest, or null if the file cannot be read
+	 */
+	private static @Nullable String fullDigest(@NotNull Candidate candidate, @NotNull String algo,
+		@Nullable UHashCache cache, @NotNull LongAdder hashed) {
+		if (cache != null) {
+			String cached = cache.get(candidate.path, candidate.attributes);
+			if (cached != null) return cached;
+		}
+		
+		try {
+			String digest = UResourceHash.hashStr(candidate.path, algo);
+			hashed.increment();
+			
+			if (cache != null) cache.put(candidate.path, candidate.attributes, digest);
+			return digest;
+		} catch (IOException e) {
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static void digestRegion(@NotNull FileChannel channel, @NotNull MessageDigest digest,
+		@NotNull ByteBuffer buffer, long position, long length) throws IOException {
+		long end = position + length;
+		while (position < end) {
+			buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+			int read = channel.read(buffer, position);
+			if (read == -1) break;
+			
+			digest.update(buffer.array(), 0, read);
+			position += read;
+		}
+	}
+	
+	private static @NotNull List<Path> paths(@NotNull List<Candidate> candidates) {
+		return candidates.stream()
+			.map(Candidate::path)
+			.sorted()
+			.toList();
+	}
+	
+	private record Candidate(Path path, BasicFileAttributes attributes) {
+	}
+	
+	private record Digested(Candidate candidate, @Nullable String digest) {
+	}
+	
+}
\ No newline at end of file
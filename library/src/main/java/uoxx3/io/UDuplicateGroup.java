@@ -0,0 +1,37 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A group of resources with identical content.
+ *
+ * @param size   the size of every resource of the group
+ * @param digest the hexadecimal digest shared by every resource of the group
+ * @param paths  the resources of the group
+ */
+public record UDuplicateGroup(
+	long size,
+	@NotNull String digest,
+	@NotNull List<Path> paths
+) {
+	
+	public UDuplicateGroup {
+		UAssert.paramNotNull(digest, "String digest");
+		UAssert.paramNotNull(paths, "List<Path> paths");
+		paths = List.copyOf(paths);
+	}
+	
+	/**
+	 * Returns the number of bytes that would be freed by keeping a single copy.
+	 *
+	 * @return the wasted bytes of the group
+	 */
+	public long wastedBytes() {
+		return size * (paths.size() - 1);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.util.List;
+
+/**
+ * Result of a duplicate search.
+ *
+ * @param groups       the duplicate groups found
+ * @param scannedFiles the number of regular files found in the roots
+ * @param hashedFiles  the number of files that needed a full hash
+ */
+public record UDuplicateReport(
+	@NotNull List<UDuplicateGroup> groups,
+	long scannedFiles,
+	long hashedFiles
+) {
+	
+	public UDuplicateReport {
+		UAssert.paramNotNull(groups, "List<UDuplicateGroup> groups");
+		groups = List.copyOf(groups);
+	}
+	
+	/**
+	 * Returns the number of bytes that would be freed by keeping a single copy of every group.
+	 *
+	 * @return the total wasted bytes
+	 */
+	public long wastedBytes() {
+		return groups.stream()
+			.mapToLong(UDuplicateGroup::wastedBytes)
+			.sum();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,281 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, case-insensitive classifier that maps resource names to categories by
+ * their extension.
+ * <p>
+ * The extensions are stored in a reversed-suffix trie, so multi-part extensions such as
+ * {@code tar.gz} are matched directly on the {@link CharSequence}, from the end of the
+ * name, without allocating. The longest registered extension wins: with {@code gz} and
+ * {@code tar.gz} registered, {@code "backup.tar.gz"} is classified as {@code tar.gz}.
+ * The file name is located with the same rules as {@link UResourceName}, so trailing
+ * separators and empty trailing extensions are ignored: {@code "file.gz."} is classified
+ * as {@code gz}.
+ *
+ * @param <T> the category type
+ */
+public final class UExtensionClassifier<T> {
+	
+	/**
+	 * Index returned when a name does not match any extension.
+	 */
+	public static final int NO_CATEGORY = -1;
+	
+	// Flattened trie: children of node n are keys[first[n] .. first[n] + count[n]), sorted
+	private final char[] keys;
+	private final int[] targets;
+	private final int[] first;
+	private final int[] count;
+	private final int[] category;
+	private final List<T> categories;
+	
+	private UExtensionClassifier(char[] keys, int[] targets, int[] first, int[] count, int[] category,
+		List<T> categories) {
+		this.keys = keys;
+		this.targets = targets;
+		this.first = first;
+		this.count = count;
+		this.category = category;
+		this.categories = categories;
+	}
+	
+	/**
+	 * Builds a classifier from the given extension-to-category mapping. Extensions may be
+	 * written with or without the leading {@code '.'} and are compared ignoring case.
+	 *
+	 * @param mapping the category of every extension
+	 * @param <T>     the category type
+	 * @return the classifier
+	 * @throws IllegalArgumentException if the mapping is null, contains null values, invalid extensions
+	 *                                  or the same extension (ignoring case) with different categories
+	 */
+	public static <T> @NotNull UExtensionClassifier<T> of(@NotNull Map<String, ? extends T> mapping) {
+		UAssert.paramNotNull(mapping, "Map<String, T> mapping");
+		Map<T, Integer> categoryIndexes = new LinkedHashMap<>();
+		Node root = new Node();
+		
+		for (Map.Entry<String, ? extends T> entry : mapping.entrySet()) {
+			String extension = normalize(entry.getKey());
+			T value = entry.getValue();
+			UAssert.paramNotNull(value, "Category of \"%s\"".formatted(extension));
+			int index = categoryIndexes.computeIfAbsent(value, (ignore) -> categoryIndexes.size());
+			
+			// Insert the extension reversed
+			Node node = root;
+			for (int i = extension.length() - 1; i >= 0; i--) {
+				node = node.children.computeIfAbsent(extension.charAt(i), (ignore) -> new Node());
+			}
+			if (node.category != NO_CATEGORY && node.category != index) {
+				throw new IllegalArgumentException("Conflicting categories for extension \"%s\"".formatted(extension));
+			}
+			node.category = index;
+		}
+		
+		return flatten(root, List.copyOf(categoryIndexes.keySet()));
+	}
+	
+	/* -----------------------------------------------------
+	 * Classification methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Classifies the given resource name.
+	 *
+	 * @param name the resource name or location
+	 * @return the index of the category in {@link #categories()}, or {@link #NO_CATEGORY}
+	 * @throws IllegalArgumentException if the name is null
+	 */
+	public int categoryIndex(@NotNull CharSequence name) {
+		UAssert.paramNotNull(name, "CharSequence name");
+		
+		// Locate the file name: trim and ignore trailing separators
+		int start = 0;
+		int end = name.length();
+		while (start < end && name.charAt(start) <= ' ') start++;
+		while (end > start && name.charAt(end - 1) <= ' ') end--;
+		while (end > start && UResourceName.isSeparator(name.charAt(end - 1))) end--;
+		// Empty trailing extensions are discarded, as UResourceName does
+		while (end > start && name.charAt(end - 1) == UFSConstants.FS_EXTENSION_IDENTIFIER) end--;
+		
+		int result = NO_CATEGORY;
+		int node = 0;
+		
+		for (int i = end - 1; i >= start; i--) {
+			char c = name.charAt(i);
+			if (UResourceName.isSeparator(c)) break;
+			
+			// The suffix is an extension only when it is preceded by '.'
+			if (c == UFSConstants.FS_EXTENSION_IDENTIFIER && i < end - 1 && category[node] != NO_CATEGORY) {
+				result = category[node];
+			}
+			
+			node = child(node, lowerCase(c));
+			if (node == -1) break;
+		}
+		return result;
+	}
+	
+	/**
+	 * Classifies the given resource name.
+	 *
+	 * @param name the resource name or location
+	 * @return the category, or null if no extension matches
+	 * @throws IllegalArgumentException if the name is null
+	 */
+	public @Nullable T classify(@NotNull CharSequence name) {
+		int index = categoryIndex(name);
+		return index == NO_CATEGORY ? null : categories.get(index);
+	}
+	
+	/**
+	 * Classifies the given resource name.
+	 *
+	 * @param name         the resource name or location
+	 * @param defaultValue the value returned when no extension matches
+	 * @return the category, or the default value if no extension matches
+	 * @throws IllegalArgumentException if the name is null
+	 */
+	public T classify(@NotNull CharSequence name, T defaultValue) {
+		int index = categoryIndex(name);
+		return index == NO_CATEGORY ? defaultValue : categories.get(index);
+	}
+	
+	/**
+	 * Classifies all the given names in parallel.
+	 *
+	 * @param names the resource names or locations
+	 * @return the index of the category of every name, or {@link #NO_CATEGORY}
+	 * @throws IllegalArgumentException if the array or any of its names is null
+	 */
+	public int @NotNull [] categoryIndexes(@NotNull CharSequence @NotNull [] names) {
+		UAssert.paramNotNull(names, "CharSequence[] names");
+		int[] result = new int[names.length];
+		
+		IntStream.range(0, names.length)
+			.parallel()
+			.forEach(i -> result[i] = categoryIndex(names[i]));
+		return result;
+	}
+	
+	/**
+	 * Classifies all the given names in parallel, storing the categories in the given array.
+	 *
+	 * @param names  the resource names or locations
+	 * @param result the array where the category of every name is stored (null when no extension matches)
+	 * @throws IllegalArgumentException if any array or name is null, or the arrays have different lengths
+	 */
+	public void classifyAll(@NotNull CharSequence @NotNull [] names, T @NotNull [] result) {
+		UAssert.paramNotNull(names, "CharSequence[] names");
+		UAssert.paramNotNull(result, "T[] result");
+		if (names.length != result.length) {
+			throw new IllegalArgumentException("The arrays have different lengths. %d and %d given"
+												   .formatted(names.length, result.length));
+		}
+		
+		IntStream.range(0, names.length)
+			.parallel()
+			.forEach(i -> result[i] = classify(names[i]));
+	}
+	
+	/**
+	 * Returns the distinct categories of the classifier, in registration order.
+	 *
+	 * @return the categories
+	 */
+	public @NotNull List<T> categories() {
+		return categories;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	private int child(int node, char c) {
+		int low = first[node];
+		int high = low + count[node] - 1;
+		
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char key = keys[mid];
+			
+			if (key < c) low = mid + 1;
+			else if (key > c) high = mid - 1;
+			else return targets[mid];
+		}
+		return -1;
+	}
+	
+	private static char lowerCase(char c) {
+		if (c < 0x80) return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+		return Character.toLowerCase(c);
+	}
+	
+	private static @NotNull String normalize(String extension) {
+		UAssert.paramNotNull(extension, "String extension");
+		String result = extension.trim();
+		if (!result.isEmpty() && result.charAt(0) == UFSConstants.FS_EXTENSION_IDENTIFIER) result = result.substring(1);
+		
+		StringBuilder builder = new StringBuilder(result.length());
+		for (int i = 0; i < result.length(); i++) {
+			char c = result.charAt(i);
+			if (UResourceName.isSeparator(c) || c <= ' ') {
+				throw new IllegalArgumentException("Invalid extension. \"%s\" given".formatted(extension));
+			}
+			builder.append(lowerCase(c));
+		}
+		
+		if (builder.isEmpty() || builder.charAt(builder.length() - 1) == UFSConstants.FS_EXTENSION_IDENTIFIER) {
+			throw new IllegalArgumentException("Invalid extension. \"%s\" given".formatted(extension));
+		}
+		return builder.toString();
+	}
+	
+	private static <T> @NotNull UExtensionClassifier<T> flatten(@NotNull Node root, @NotNull List<T> categories) {
+		// Breadth-first numbering, the root is always node 0
+		List<Node> nodes = new ArrayList<>();
+		nodes.add(root);
+		for (int i = 0; i < nodes.size(); i++) nodes.addAll(nodes.get(i).children.values());
+		
+		Map<Node, Integer> ids = new IdentityHashMap<>();
+		for (int i = 0; i < nodes.size(); i++) ids.put(nodes.get(i), i);
+		
+		int edges = nodes.size() - 1;
+		char[] keys = new char[edges];
+		int[] targets = new int[edges];
+		int[] first = new int[nodes.size()];
+		int[] count = new int[nodes.size()];
+		int[] category = new int[nodes.size()];
+		int edge = 0;
+		
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+			first[i] = edge;
+			count[i] = node.children.size();
+			category[i] = node.category;
+			
+			for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+				keys[edge] = child.getKey();
+				targets[edge++] = ids.get(child.getValue());
+			}
+		}
+		return new UExtensionClassifier<>(keys, targets, first, count, category, categories);
+	}
+	
+	/**
+	 * Mutable trie node used while building the classifier.
+	 */
+	private static final class Node {
+		
+		final SortedMap<Character, Node> children = new TreeMap<>();
+		int category = NO_CATEGORY;
+		
+	}
+	
+}
\ No newline at end of file
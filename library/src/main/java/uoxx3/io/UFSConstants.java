@@ -34,6 +34,12 @@ public interface UFSConstants {
 	 */
 	int FS_BUFFER_SIZE = 4 << 10;
 	
+	/**
+	 * The smallest buffer size used to read files and streams, set to 64 kilobytes. Larger
+	 * sizes are used when the file store reports a larger block size.
+	 */
+	int FS_READ_BUFFER_SIZE = 64 << 10;
+	
 	/**
 	 * The scheme used for Java runtime image file system URIs.
 	 */
@@ -46,4 +52,64 @@ public interface UFSConstants {
 	String FS_HASH_ALGORITHM = (currentRunningArchitecture() == UArchitecture.X64) ?
 							   "SHA-512" : "SHA-256";
 	
+	/**
+	 * The minimum size of a content-defined chunk, set to 2 kilobytes.
+	 */
+	int FS_CHUNK_MIN_SIZE = 2 << 10;
+	
+	/**
+	 * The expected (average) size of a content-defined chunk, set to 8 kilobytes.
+	 */
+	int FS_CHUNK_AVG_SIZE = 8 << 10;
+	
+	/**
+	 * The maximum size of a content-defined chunk, set to 64 kilobytes.
+	 */
+	int FS_CHUNK_MAX_SIZE = 64 << 10;
+	
+	/**
+	 * The size of every window read by a quick fingerprint, set to 16 kilobytes.
+	 */
+	int FS_FINGERPRINT_WINDOW_SIZE = 16 << 10;
+	
+	/**
+	 * The number of evenly spaced interior windows read by a quick fingerprint,
+	 * in addition to the head and tail windows.
+	 */
+	int FS_FINGERPRINT_INTERIOR_WINDOWS = 4;
+	
+	/**
+	 * The time window in milliseconds used by the watchers to coalesce bursts of
+	 * file system events, set to 200 milliseconds.
+	 */
+	long FS_WATCH_COALESCE_MILLIS = 200;
+	
+	/**
+	 * The number of files read at the same time by the bulk read methods, set to 64.
+	 */
+	int FS_BULK_READ_PARALLELISM = 64;
+	
+	/**
+	 * The size of the blocks compressed in parallel when an archive is created, set to
+	 * 128 kilobytes.
+	 */
+	int FS_ARCHIVE_BLOCK_SIZE = 128 << 10;
+	
+	/**
+	 * The number of platform threads used by the default asynchronous executor when virtual
+	 * threads are not available, set to 16.
+	 */
+	int FS_ASYNC_THREADS = 16;
+	
+	/**
+	 * The number of parallel range requests used to download a resource, set to 4.
+	 */
+	int FS_DOWNLOAD_CONNECTIONS = 4;
+	
+	/**
+	 * The size of the chunks requested by a parallel download, set to 1 megabyte. Every
+	 * connection requests the chunks one by one in ascending order.
+	 */
+	int FS_DOWNLOAD_CHUNK_SIZE = 1 << 20;
+	
 }
\ No newline at end of file
@@ -2,12 +2,17 @@ package uoxx3.io;
 
 import org.jetbrains.annotations.NotNull;
 import uoxx3.UAssert;
+import uoxx3.io.internal.UFilesystemCloseEvent;
+import uoxx3.io.internal.UFilesystemMountEvent;
+import uoxx3.io.internal.UMetrics;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.*;
@@ -15,7 +20,10 @@ import java.util.function.Function;
 
 public final class UFilesystem {
 	
-	private static final Set<FileSystem> filesystems = Collections.synchronizedSet(new HashSet<>());
+	/**
+	 * Mounted file systems and the URI of their archive, as reported by the mount events
+	 */
+	private static final Map<FileSystem, String> filesystems = Collections.synchronizedMap(new HashMap<>());
 	
 	/* -----------------------------------------------------
 	 * Constants
@@ -63,25 +71,51 @@ public final class UFilesystem {
 		
 		return switch (scheme) {
 			case "file" -> Path.of(uri).getFileSystem();
-			case "jar" -> {
-				// Generate new filesystem
-				FileSystem fs = FileSystems.newFileSystem(uri, new HashMap<>());
-				Optional<FileSystem> found = filesystems.stream()
-					.filter(fs::equals)
-					.findFirst();
-				
-				if (found.isPresent()) {
-					fs.close();
-					yield found.get();
-				}
-				
-				filesystems.add(fs);
-				yield fs;
-			}
+			case "jar" -> mount(uri).filesystem();
 			default -> throw new IOException();
 		};
 	}
 	
+	/**
+	 * Returns the file system of a jar URI, mounting the archive if it is not mounted yet.
+	 *
+	 * @param uri the jar URI
+	 * @return the file system and whether it was already mounted
+	 * @throws IOException if the archive cannot be mounted
+	 */
+	static @NotNull Mount mount(@NotNull URI uri) throws IOException {
+		UFilesystemMountEvent event = new UFilesystemMountEvent();
+		event.begin();
+		boolean metrics = UMetrics.enabled();
+		long start = metrics ? System.nanoTime() : 0;
+		Mount mount;
+		
+		// A jar can only be mounted once, so an open filesystem is reused
+		try {
+			mount = new Mount(FileSystems.getFileSystem(uri), true);
+		} catch (FileSystemNotFoundException ignore) {
+			try {
+				FileSystem fs = FileSystems.newFileSystem(uri, new HashMap<>());
+				filesystems.put(fs, archive(uri));
+				mount = new Mount(fs, false);
+			} catch (FileSystemAlreadyExistsException e) {
+				// Mounted by another thread in the meantime
+				mount = new Mount(FileSystems.getFileSystem(uri), true);
+			}
+		}
+		
+		if (metrics || event.shouldCommit()) {
+			String archive = archive(uri);
+			if (metrics) UMetrics.mounted(archive, mount.reused(), System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.archive = archive;
+				event.reused = mount.reused();
+				event.commit();
+			}
+		}
+		return mount;
+	}
+	
 	/* -----------------------------------------------------
 	 * Close filesystem methods
 	 * ----------------------------------------------------- */
@@ -95,19 +129,30 @@ public final class UFilesystem {
 	public static void closeFilesystemsIf(@NotNull Function<FileSystem, Boolean> action) {
 		UAssert.paramNotNull(action, "Function<FileSystem, Boolean> action");
 		// Get filesystem iterator
-		Iterator<FileSystem> iterator = filesystems.iterator();
+		Iterator<Map.Entry<FileSystem, String>> iterator = filesystems.entrySet().iterator();
 		
 		// We perform an iteration this way, because it allows
 		// us to make changes to the collection at the same time as iterate.
 		while (iterator.hasNext()) {
-			FileSystem fs = iterator.next();
+			Map.Entry<FileSystem, String> entry = iterator.next();
+			FileSystem fs = entry.getKey();
 			
 			if (action.apply(fs)) {
+				UFilesystemCloseEvent event = new UFilesystemCloseEvent();
+				event.begin();
+				boolean metrics = UMetrics.enabled();
+				long start = metrics ? System.nanoTime() : 0;
 				try {
 					if (fs.isOpen()) fs.close();
 				} catch (IOException ignore) {
 				}
 				iterator.remove();
+				
+				if (metrics) UMetrics.closed(entry.getValue(), System.nanoTime() - start);
+				if (event.shouldCommit()) {
+					event.archive = entry.getValue();
+					event.commit();
+				}
 			}
 		}
 	}
@@ -119,4 +164,32 @@ public final class UFilesystem {
 		closeFilesystemsIf((ignore) -> true);
 	}
 	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the URI of the archive of a jar URI, without the entry after the {@code !/} separator.
+	 *
+	 * @param uri the jar URI
+	 * @return the URI of the archive
+	 */
+	private static @NotNull String archive(@NotNull URI uri) {
+		String location = uri.toString();
+		int separator = location.indexOf("!/");
+		return separator == -1 ? location : location.substring(0, separator);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * File system of a jar URI.
+	 *
+	 * @param filesystem the mounted file system
+	 * @param reused     true if the archive was already mounted
+	 */
+	record Mount(@NotNull FileSystem filesystem, boolean reused) {}
+	
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe cache of full resource digests. An entry is only valid while the size and
+ * the modification time of the resource are unchanged. The cache can be persisted to a
+ * text file so it survives between runs.
+ */
+public final class UHashCache {
+	
+	/**
+	 * Header written at the beginning of a persisted cache.
+	 */
+	private static final String HEADER = "# uo-hash-cache v1 ";
+	
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final String algo;
+	
+	/**
+	 * Creates a new empty cache for the given algorithm.
+	 *
+	 * @param algo the hash algorithm of the cached digests
+	 * @throws IllegalArgumentException if the algorithm is null
+	 */
+	public UHashCache(@NotNull String algo) {
+		UAssert.paramNotNull(algo, "String algo");
+		this.algo = algo;
+	}
+	
+	/* -----------------------------------------------------
+	 * Cache methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the cached digest of the given path if the resource did not change.
+	 *
+	 * @param path       the path of the resource
+	 * @param attributes the current attributes of the resource
+	 * @return the cached hexadecimal digest, or null if there is no valid entry
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public @Nullable String get(@NotNull Path path, @NotNull BasicFileAttributes attributes) {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(attributes, "BasicFileAttributes attributes");
+		Entry entry = entries.get(key(path));
+		
+		return entry != null && entry.size == attributes.size() &&
+			   entry.modified == attributes.lastModifiedTime().toMillis() ? entry.digest : null;
+	}
+	
+	/**
+	 * Stores the digest of the given path.
+	 *
+	 * @param path       the path of the resource
+	 * @param attributes the attributes of the resource when it was hashed
+	 * @param digest     the hexadecimal digest of the resource
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public void put(@NotNull Path path, @NotNull BasicFileAttributes attributes, @NotNull String digest) {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(attributes, "BasicFileAttributes attributes");
+		UAssert.paramNotNull(digest, "String digest");
+		entries.put(key(path), new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), digest));
+	}
+	
+	/**
+	 * Returns the hash algorithm of the cached digests.
+	 *
+	 * @return the hash algorithm
+	 */
+	public @NotNull String algorithm() {
+		return algo;
+	}
+	
+	/**
+	 * Returns the number of cached entries.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/* -----------------------------------------------------
+	 * Persistence methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Loads a cache persisted with {@link #save(Path)}. A missing file produces an empty cache.
+	 *
+	 * @param file the cache file
+	 * @param algo the expected hash algorithm; entries of other algorithms are discarded
+	 * @return the loaded cache
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static @NotNull UHashCache load(@NotNull Path file, @NotNull String algo) throws IOException {
+		UAssert.paramNotNull(file, "Path file");
+		UHashCache cache = new UHashCache(algo);
+		if (!Files.exists(file)) return cache;
+		
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if (header == null || !header.equals(HEADER + algo)) return cache;
+			
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// digest \t size \t modified \t path
+				String[] parts = line.split("\t", 4);
+				if (parts.length != 4) continue;
+				
+				try {
+					cache.entries.put(parts[3], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+														  parts[0]));
+				} catch (NumberFormatException ignore) {
+				}
+			}
+		}
+		return cache;
+	}
+	
+	/**
+	 * Persists the cache to the given file. The file is replaced atomically.
+	 *
+	 * @param file the cache file
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the file is null
+	 */
+	public void save(@NotNull Path file) throws IOException {
+		UAssert.paramNotNull(file, "Path file");
+		Path parent = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write(HEADER + algo);
+				writer.newLine();
+				
+				for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+					// The format is line based
+					if (entry.getKey().indexOf('\n') != -1) continue;
+					Entry value = entry.getValue();
+					writer.write(value.digest + '\t' + value.size + '\t' + value.modified + '\t' + entry.getKey());
+					writer.newLine();
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	private static @NotNull String key(@NotNull Path path) {
+		return path.toAbsolutePath().normalize().toString();
+	}
+	
+	private record Entry(long size, long modified, String digest) {
+	}
+	
+}
\ No newline at end of file
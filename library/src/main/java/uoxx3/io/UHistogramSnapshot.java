@@ -0,0 +1,91 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.util.Arrays;
+
+/**
+ * Latency distribution recorded by {@link UIoMetrics}. Every bucket counts the operations
+ * whose duration in nanoseconds has the same highest set bit, so bucket {@code i} holds
+ * durations from {@code 2^i} to {@code 2^(i+1) - 1} nanoseconds; bucket 0 also holds
+ * durations of 0.
+ *
+ * @param buckets    the number of operations of every bucket
+ * @param count      the total number of operations
+ * @param totalNanos the sum of the durations of all the operations
+ */
+public record UHistogramSnapshot(
+	long @NotNull [] buckets,
+	long count,
+	long totalNanos
+) {
+	
+	public UHistogramSnapshot {
+		UAssert.paramNotNull(buckets, "long[] buckets");
+		buckets = buckets.clone();
+	}
+	
+	/**
+	 * Returns the number of operations of every bucket.
+	 *
+	 * @return a copy of the buckets
+	 */
+	@Override
+	public long @NotNull [] buckets() {
+		return buckets.clone();
+	}
+	
+	/**
+	 * Returns the mean duration.
+	 *
+	 * @return the mean duration in nanoseconds, or 0 if nothing was recorded
+	 */
+	public double mean() {
+		return count == 0 ? 0.0 : (double) totalNanos / count;
+	}
+	
+	/**
+	 * Returns an upper bound of the given percentile: the largest duration of the bucket
+	 * that contains the percentile.
+	 *
+	 * @param quantile the quantile, from 0 to 1
+	 * @return the percentile in nanoseconds, or 0 if nothing was recorded
+	 * @throws IllegalArgumentException if the quantile is not between 0 and 1
+	 */
+	public long percentile(double quantile) {
+		if (!(quantile >= 0 && quantile <= 1)) {
+			throw new IllegalArgumentException("The quantile must be between 0 and 1. \"%s\" given".formatted(quantile));
+		}
+		
+		long total = Arrays.stream(buckets).sum();
+		if (total == 0) return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank) return i >= Long.SIZE - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+		}
+		return Long.MAX_VALUE;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof UHistogramSnapshot that)) return false;
+		return count == that.count && totalNanos == that.totalNanos && Arrays.equals(buckets, that.buckets);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Arrays.hashCode(buckets) + Long.hashCode(count)) + Long.hashCode(totalNanos);
+	}
+	
+	@Override
+	public String toString() {
+		return "UHistogramSnapshot[count=%d, mean=%.0fns, p50=%dns, p99=%dns]"
+			.formatted(count, mean(), percentile(0.5), percentile(0.99));
+	}
+	
+}
@@ -0,0 +1,533 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Disk cache of remote resources fetched over HTTP. The bodies are kept in a
+ * {@link UContentStore}, so identical bodies of different URIs are stored once, and an index
+ * maps every URI to the digest of its body and its {@code ETag} and {@code Last-Modified}
+ * values:
+ * <pre>
+ * root/index
+ * root/store/objects/...
+ * </pre>
+ * Cached resources are revalidated with a conditional request on every fetch, and the body is
+ * only transferred when it changed. Concurrent fetches of the same URI share a single request.
+ * <p>
+ * The stored bodies are bounded by size; the least recently fetched resources are evicted
+ * first. Bodies larger than the whole capacity are returned but never cached. The index is
+ * rewritten whenever a resource is stored or removed, so the cache survives between runs.
+ */
+public final class UHttpCache {
+	
+	/**
+	 * Header written at the beginning of the index.
+	 */
+	private static final String HEADER = "# uo-http-cache v1 ";
+	
+	private final Map<URI, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+	
+	/*
+	 * Index and eviction order, guarded by the lock. The entries are in access order and
+	 * the references count the entries of every stored body.
+	 */
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Integer> references = new HashMap<>();
+	private final List<String> oversized = new ArrayList<>();
+	private long bytes;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+	
+	private final HttpClient client;
+	private final UContentStore store;
+	private final Path index;
+	private final long maxBytes;
+	
+	/**
+	 * Opens (or creates) a cache in the given directory.
+	 *
+	 * @param root     the root directory of the cache
+	 * @param maxBytes the maximum number of bytes of the stored bodies
+	 * @param client   the client that sends the requests
+	 * @throws IOException              if an I/O error occurs while creating or loading the cache
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the root or client is null, or the maximum size is not positive
+	 */
+	public UHttpCache(@NotNull Path root, long maxBytes, @NotNull HttpClient client) throws IOException,
+		NoSuchAlgorithmException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(client, "HttpClient client");
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("The maximum size must be positive. \"%d\" given".formatted(maxBytes));
+		}
+		
+		this.client = client;
+		this.store = new UContentStore(root.resolve("store"));
+		this.index = root.resolve("index");
+		this.maxBytes = maxBytes;
+		loadIndex();
+	}
+	
+	/**
+	 * Opens (or creates) a cache in the given directory, using a client that follows redirects.
+	 *
+	 * @param root     the root directory of the cache
+	 * @param maxBytes the maximum number of bytes of the stored bodies
+	 * @throws IOException              if an I/O error occurs while creating or loading the cache
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the root is null or the maximum size is not positive
+	 */
+	public UHttpCache(@NotNull Path root, long maxBytes) throws IOException, NoSuchAlgorithmException {
+		this(root, maxBytes, HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build());
+	}
+	
+	/* -----------------------------------------------------
+	 * Fetch methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Fetches a resource, revalidating the cached body if there is one. Concurrent fetches of
+	 * the same URI send a single request.
+	 * <p>
+	 * The returned file is shared by every URI with the same body and must not be modified. It
+	 * is deleted when the resource is evicted, so it should be read right away, or materialized
+	 * with {@link #materialize(URI, Path)}.
+	 *
+	 * @param uri the resource to fetch
+	 * @return the stored body of the resource
+	 * @throws IOException              if the resource cannot be fetched or stored
+	 * @throws IllegalArgumentException if the URI is null
+	 */
+	public @NotNull Path fetch(@NotNull URI uri) throws IOException {
+		UAssert.paramNotNull(uri, "URI uri");
+		URI key = uri.normalize();
+		CompletableFuture<Path> future = new CompletableFuture<>();
+		CompletableFuture<Path> current = loading.putIfAbsent(key, future);
+		
+		// Other thread is fetching the same resource
+		if (current != null) {
+			try {
+				return current.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof UncheckedIOException ex ? ex.getCause() : new IOException(e.getCause());
+			}
+		}
+		
+		try {
+			Path body = load(key);
+			future.complete(body);
+			return body;
+		} catch (IOException e) {
+			future.completeExceptionally(new UncheckedIOException(e));
+			throw e;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+	
+	/**
+	 * Fetches a resource and returns its body as a string.
+	 *
+	 * @param uri the resource to fetch
+	 * @return the body of the resource decoded as UTF-8
+	 * @throws IOException              if the resource cannot be fetched or stored
+	 * @throws IllegalArgumentException if the URI is null
+	 * @see #fetch(URI)
+	 */
+	public @NotNull String fetchString(@NotNull URI uri) throws IOException {
+		return Files.readString(fetch(uri), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Fetches a resource and materializes its body at the target location, which remains
+	 * valid after the resource is evicted.
+	 *
+	 * @param uri    the resource to fetch
+	 * @param target the location where the body will be materialized
+	 * @return the target path
+	 * @throws IOException              if the resource cannot be fetched or materialized
+	 * @throws IllegalArgumentException if the URI or target is null
+	 * @see UContentStore#materialize(String, Path)
+	 */
+	public @NotNull Path materialize(@NotNull URI uri, @NotNull Path target) throws IOException {
+		UAssert.paramNotNull(target, "Path target");
+		Path body = fetch(uri);
+		return store.materialize(body.getFileName().toString(), target);
+	}
+	
+	/* -----------------------------------------------------
+	 * Invalidation methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Removes the cached resource, so the next fetch transfers the whole body.
+	 *
+	 * @param uri the resource to remove
+	 * @throws IOException              if the index cannot be written
+	 * @throws IllegalArgumentException if the URI is null
+	 */
+	public void invalidate(@NotNull URI uri) throws IOException {
+		UAssert.paramNotNull(uri, "URI uri");
+		List<String> unused = new ArrayList<>();
+		
+		lock.lock();
+		try {
+			Entry entry = entries.remove(uri.normalize());
+			if (entry == null) return;
+			
+			release(entry, unused);
+			invalidations.increment();
+			saveIndex();
+		} finally {
+			lock.unlock();
+		}
+		deleteBodies(unused);
+	}
+	
+	/* -----------------------------------------------------
+	 * Statistics methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns a snapshot of the cache statistics. Hits are the fetches answered with
+	 * {@code 304 Not Modified}; misses are the fetches that transferred the body.
+	 *
+	 * @return the cache statistics
+	 */
+	public @NotNull UCacheStats stats() {
+		lock.lock();
+		try {
+			return new UCacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size(),
+								   bytes);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns the maximum number of bytes of the stored bodies.
+	 *
+	 * @return the cache capacity in bytes
+	 */
+	public long maxBytes() {
+		return maxBytes;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Sends the request of a resource, conditional if it is cached, and stores the body.
+	 *
+	 * @param key the normalized URI of the resource
+	 * @return the stored body
+	 * @throws IOException if the resource cannot be fetched or stored
+	 */
+	private @NotNull Path load(@NotNull URI key) throws IOException {
+		Entry cached = cached(key);
+		HttpResponse<InputStream> response = send(key, cached);
+		
+		if (response.statusCode() == 304 && cached != null) {
+			response.body().close();
+			try {
+				Path body = store.get(cached.digest);
+				hits.increment();
+				return body;
+			} catch (NoSuchFileException e) {
+				// The body was evicted by another fetch after the request was sent
+				response = send(key, null);
+			}
+		}
+		while (true) {
+			if (response.statusCode() != 200) {
+				response.body().close();
+				throw new IOException("Cannot fetch %s. Status %d".formatted(key, response.statusCode()));
+			}
+			
+			misses.increment();
+			String digest = store.put(response.body());
+			try {
+				Path body = store.get(digest);
+				Entry entry = new Entry(digest, Files.size(body), response.headers().firstValue("ETag").orElse(""),
+										response.headers().firstValue("Last-Modified").orElse(""));
+				if (admit(key, entry)) return body;
+			} catch (NoSuchFileException ignore) {
+			}
+			// The body was already stored for another resource, whose eviction deleted it before
+			// this fetch referenced it
+			response = send(key, null);
+		}
+	}
+	
+	/**
+	 * Sends the request of a resource.
+	 *
+	 * @param key    the normalized URI of the resource
+	 * @param cached the cached entry whose body is revalidated, or null to request the whole body
+	 * @return the response with the body as a stream
+	 * @throws IOException if the request fails
+	 */
+	private @NotNull HttpResponse<InputStream> send(@NotNull URI key, @Nullable Entry cached) throws IOException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(key);
+		if (cached != null) {
+			if (!cached.etag.isEmpty()) request.header("If-None-Match", cached.etag);
+			if (!cached.lastModified.isEmpty()) request.header("If-Modified-Since", cached.lastModified);
+		}
+		
+		try {
+			return client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The fetch of %s was interrupted".formatted(key));
+		}
+	}
+	
+	/**
+	 * Returns the cached entry of a resource, removing it if its body is no longer stored.
+	 *
+	 * @param key the normalized URI of the resource
+	 * @return the cached entry, or null if the resource is not cached
+	 */
+	private @Nullable Entry cached(@NotNull URI key) {
+		lock.lock();
+		try {
+			Entry entry = entries.get(key);
+			if (entry == null || store.contains(entry.digest)) return entry;
+			
+			// The body was deleted outside the cache
+			entries.remove(key);
+			release(entry, new ArrayList<>());
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a fetched resource and evicts the least recently fetched resources over the
+	 * capacity. A body larger than the capacity is not added, as in {@link UResourceCache}:
+	 * the resource is removed and the body is only kept until the next fetch stores a body,
+	 * so the caller can still read it.
+	 * <p>
+	 * The body is checked under the lock, since bodies are only deleted under the lock once
+	 * they are no longer referenced; after this method returns true the body stays stored
+	 * until the resource is removed.
+	 *
+	 * @param key   the normalized URI of the resource
+	 * @param entry the fetched entry
+	 * @return true if the resource was added, false if its body was deleted in the meantime
+	 * @throws IOException if the index cannot be written
+	 */
+	private boolean admit(@NotNull URI key, @NotNull Entry entry) throws IOException {
+		List<String> unused = new ArrayList<>();
+		
+		lock.lock();
+		try {
+			if (!store.contains(entry.digest)) return false;
+			
+			// The bodies of the previous oversized fetches are no longer returned
+			unused.addAll(oversized);
+			oversized.clear();
+			
+			if (entry.size > maxBytes) {
+				Entry previous = entries.remove(key);
+				if (previous != null) release(previous, unused);
+				if (!references.containsKey(entry.digest)) oversized.add(entry.digest);
+				unused.remove(entry.digest);
+			} else {
+				// The new body is referenced before the old one is released, they may be the same
+				if (references.merge(entry.digest, 1, Integer::sum) == 1) bytes += entry.size;
+				Entry previous = entries.put(key, entry);
+				if (previous != null) release(previous, unused);
+				
+				// The new body fits and is the most recent, so its resource is never evicted here
+				Iterator<Map.Entry<URI, Entry>> iterator = entries.entrySet().iterator();
+				while (bytes > maxBytes && iterator.hasNext()) {
+					Map.Entry<URI, Entry> victim = iterator.next();
+					iterator.remove();
+					release(victim.getValue(), unused);
+					evictions.increment();
+				}
+			}
+			saveIndex();
+		} finally {
+			lock.unlock();
+		}
+		deleteBodies(unused);
+		return true;
+	}
+	
+	/**
+	 * Releases the body of a removed entry. The lock must be held.
+	 *
+	 * @param entry  the removed entry
+	 * @param unused receives the digest of the body if no other entry references it
+	 */
+	private void release(@NotNull Entry entry, @NotNull List<String> unused) {
+		Integer remaining = references.computeIfPresent(entry.digest, (digest, count) -> count == 1 ? null : count - 1);
+		if (remaining != null) return;
+		
+		bytes -= entry.size;
+		unused.add(entry.digest);
+	}
+	
+	/**
+	 * Deletes the bodies that are no longer referenced, unless a fetch referenced them again.
+	 *
+	 * @param digests the digests of the released bodies
+	 * @throws IOException if a body cannot be deleted
+	 */
+	private void deleteBodies(@NotNull List<String> digests) throws IOException {
+		for (String digest : digests) {
+			lock.lock();
+			try {
+				if (!references.containsKey(digest)) store.delete(digest);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Loads the index, skipping the resources whose body is no longer stored and evicting the
+	 * least recently fetched resources over the capacity, and deletes the stored bodies that
+	 * no resource of the index references. Those are left behind when the process stops
+	 * between storing a body and rewriting the index.
+	 *
+	 * @throws IOException if the index cannot be read or an unreferenced body cannot be deleted
+	 */
+	private void loadIndex() throws IOException {
+		if (Files.exists(index)) readIndex();
+		
+		// The cache may be reopened with a smaller capacity
+		Iterator<Map.Entry<URI, Entry>> iterator = entries.entrySet().iterator();
+		boolean evicted = false;
+		while (bytes > maxBytes && iterator.hasNext()) {
+			Entry victim = iterator.next().getValue();
+			iterator.remove();
+			release(victim, new ArrayList<>());
+			evicted = true;
+		}
+		if (evicted) saveIndex();
+		
+		for (String digest : store.digests()) {
+			if (!references.containsKey(digest)) store.delete(digest);
+		}
+	}
+	
+	/**
+	 * Reads the entries of the index, unless it was written with another algorithm.
+	 *
+	 * @throws IOException if the index cannot be read
+	 */
+	private void readIndex() throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if (header == null || !header.equals(HEADER + store.algorithm())) return;
+			
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// digest \t size \t etag \t last-modified \t uri, from the least recently fetched
+				String[] parts = line.split("\t", 5);
+				if (parts.length != 5) continue;
+				
+				try {
+					Entry entry = new Entry(parts[0], Long.parseLong(parts[1]), parts[2], parts[3]);
+					if (!store.contains(entry.digest)) continue;
+					
+					Entry previous = entries.put(URI.create(parts[4]), entry);
+					if (previous != null) release(previous, new ArrayList<>());
+					if (references.merge(entry.digest, 1, Integer::sum) == 1) bytes += entry.size;
+				} catch (IllegalArgumentException ignore) {
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Rewrites the index atomically. The lock must be held.
+	 *
+	 * @throws IOException if the index cannot be written
+	 */
+	private void saveIndex() throws IOException {
+		Path temp = Files.createTempFile(index.toAbsolutePath().getParent(), "index", ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write(HEADER + store.algorithm());
+				writer.newLine();
+				
+				for (Map.Entry<URI, Entry> entry : entries.entrySet()) {
+					Entry value = entry.getValue();
+					// The format is line and tab based
+					if (isInvalidField(value.etag) || isInvalidField(value.lastModified)) continue;
+					
+					writer.write(value.digest + '\t' + value.size + '\t' + value.etag + '\t' + value.lastModified +
+								 '\t' + entry.getKey());
+					writer.newLine();
+				}
+			}
+			Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	private static boolean isInvalidField(@NotNull String field) {
+		return field.indexOf('\t') != -1 || field.indexOf('\n') != -1 || field.indexOf('\r') != -1;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Cached resource.
+	 *
+	 * @param digest       the digest of the stored body
+	 * @param size         the size of the body
+	 * @param etag         the entity tag of the body, or an empty string
+	 * @param lastModified the modification date of the body, or an empty string
+	 */
+	private record Entry(String digest, long size, String etag, String lastModified) {
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.internal.URangedDownload;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Downloads resources over HTTP with parallel {@code Range} requests. The resource is split in
+ * chunks of {@link UFSConstants#FS_DOWNLOAD_CHUNK_SIZE} bytes that the connections request in
+ * ascending order; every chunk is written in place into a preallocated {@code .part} file next
+ * to the target and digested from memory, so the downloaded file is verified without a
+ * separate hash pass.
+ * <p>
+ * An interrupted download is resumed by the next download of the same resource to the same
+ * target, as long as the server reports the same {@code ETag} or {@code Last-Modified} value.
+ * Servers without range support are downloaded with a single request.
+ */
+public final class UHttpDownloader {
+	
+	private final HttpClient client;
+	private final int connections;
+	
+	/**
+	 * Creates a new downloader.
+	 *
+	 * @param client      the client that sends the requests
+	 * @param connections the maximum number of parallel range requests of every download
+	 * @throws IllegalArgumentException if the client is null or the connections is not positive
+	 */
+	public UHttpDownloader(@NotNull HttpClient client, int connections) {
+		UAssert.paramNotNull(client, "HttpClient client");
+		if (connections <= 0) {
+			throw new IllegalArgumentException("The connections must be positive. \"%d\" given".formatted(connections));
+		}
+		this.client = client;
+		this.connections = connections;
+	}
+	
+	/**
+	 * Creates a new downloader that follows redirects and uses
+	 * {@link UFSConstants#FS_DOWNLOAD_CONNECTIONS} parallel range requests.
+	 */
+	public UHttpDownloader() {
+		this(HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build(),
+			 UFSConstants.FS_DOWNLOAD_CONNECTIONS);
+	}
+	
+	/* -----------------------------------------------------
+	 * Download methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Downloads a resource to the given path and verifies its digest. The target is only
+	 * replaced when the digest matches; otherwise the downloaded data is discarded.
+	 *
+	 * @param uri      the resource to download
+	 * @param target   the file to write; it is replaced if it exists
+	 * @param algo     the hash algorithm of the digest
+	 * @param expected the expected hexadecimal digest, or null to skip the verification
+	 * @return the result of the download
+	 * @throws IOException              if the resource cannot be downloaded or the digest does not match
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the URI, target or algorithm is null, or the expected digest
+	 *                                  is not hexadecimal
+	 */
+	public @NotNull UDownloadResult download(@NotNull URI uri, @NotNull Path target, @NotNull String algo,
+		@Nullable String expected) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(uri, "URI uri");
+		UAssert.paramNotNull(target, "Path target");
+		UAssert.paramNotNull(algo, "String algo");
+		
+		byte[] digest = expected != null ? HexFormat.of().parseHex(expected) : null;
+		return new URangedDownload(client, uri, target, connections).run(algo, digest);
+	}
+	
+	/**
+	 * Downloads a resource to the given path, computing its digest with the default algorithm.
+	 *
+	 * @param uri    the resource to download
+	 * @param target the file to write; it is replaced if it exists
+	 * @return the result of the download
+	 * @throws IOException              if the resource cannot be downloaded
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the URI or target is null
+	 * @see #download(URI, Path, String, String)
+	 */
+	public @NotNull UDownloadResult download(@NotNull URI uri, @NotNull Path target) throws IOException,
+		NoSuchAlgorithmException {
+		return download(uri, target, UFSConstants.FS_HASH_ALGORITHM, null);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process {@link UIoMetricsListener} built on {@link LongAdder} counters, which are
+ * striped under contention, and fixed-bucket latency histograms. Nothing is allocated
+ * while recording.
+ * <p>
+ * An instance can be registered with {@link UIoMetricsListener#register(UIoMetricsListener)}
+ * or declared as a provider of {@link UIoMetricsListener}, and read with {@link #snapshot()}.
+ */
+public final class UIoMetrics implements UIoMetricsListener {
+	
+	private final LongAdder mounts = new LongAdder();
+	private final LongAdder reusedMounts = new LongAdder();
+	private final LongAdder closes = new LongAdder();
+	private final LongAdder resolves = new LongAdder();
+	private final LongAdder resolveHits = new LongAdder();
+	private final LongAdder hashes = new LongAdder();
+	private final LongAdder hashedBytes = new LongAdder();
+	private final Histogram mountLatency = new Histogram();
+	private final Histogram resolveLatency = new Histogram();
+	private final Histogram hashLatency = new Histogram();
+	
+	/**
+	 * Creates a new metrics collector with all the values at zero.
+	 */
+	public UIoMetrics() {}
+	
+	/* -----------------------------------------------------
+	 * Listener methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public void mounted(@NotNull String archive, boolean reused, long nanos) {
+		mounts.increment();
+		if (reused) {
+			reusedMounts.increment();
+		} else {
+			mountLatency.record(nanos);
+		}
+	}
+	
+	@Override
+	public void closed(@NotNull String archive, long nanos) {
+		closes.increment();
+	}
+	
+	@Override
+	public void resolved(@NotNull String scheme, boolean cacheHit, long nanos) {
+		resolves.increment();
+		if (cacheHit) resolveHits.increment();
+		resolveLatency.record(nanos);
+	}
+	
+	@Override
+	public void hashed(@NotNull String algorithm, long bytes, long nanos) {
+		hashes.increment();
+		hashedBytes.add(bytes);
+		hashLatency.record(nanos);
+	}
+	
+	/* -----------------------------------------------------
+	 * Snapshot methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the current values. Operations recorded while the snapshot is taken may be
+	 * only partially included.
+	 *
+	 * @return the collected metrics
+	 */
+	public @NotNull UIoMetricsSnapshot snapshot() {
+		return new UIoMetricsSnapshot(mounts.sum(), reusedMounts.sum(), closes.sum(), resolves.sum(),
+									  resolveHits.sum(), hashes.sum(), hashedBytes.sum(),
+									  mountLatency.snapshot(), resolveLatency.snapshot(), hashLatency.snapshot());
+	}
+	
+	/**
+	 * Sets all the values back to zero.
+	 */
+	public void reset() {
+		mounts.reset();
+		reusedMounts.reset();
+		closes.reset();
+		resolves.reset();
+		resolveHits.reset();
+		hashes.reset();
+		hashedBytes.reset();
+		mountLatency.reset();
+		resolveLatency.reset();
+		hashLatency.reset();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Latency histogram with one bucket for every power of two of nanoseconds.
+	 */
+	private static final class Histogram {
+		
+		private final LongAdder[] buckets = new LongAdder[Long.SIZE - 1];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		
+		/**
+		 * Creates a new empty histogram.
+		 */
+		Histogram() {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+		
+		/**
+		 * Records a duration.
+		 *
+		 * @param nanos the duration in nanoseconds; negative values are recorded as 0
+		 */
+		void record(long nanos) {
+			long value = Math.max(nanos, 0);
+			int index = value == 0 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+			buckets[index].increment();
+			count.increment();
+			total.add(value);
+		}
+		
+		/**
+		 * Returns the current distribution.
+		 *
+		 * @return the recorded distribution
+		 */
+		@NotNull UHistogramSnapshot snapshot() {
+			long[] values = new long[buckets.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = buckets[i].sum();
+			}
+			return new UHistogramSnapshot(values, count.sum(), total.sum());
+		}
+		
+		/**
+		 * Sets all the buckets back to zero.
+		 */
+		void reset() {
+			for (LongAdder bucket : buckets) {
+				bucket.reset();
+			}
+			count.reset();
+			total.reset();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,82 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.io.internal.UMetrics;
+
+/**
+ * Receives a callback for every measured operation of the library. Implementations are
+ * discovered with {@link java.util.ServiceLoader} when the library is first used, or
+ * registered with {@link #register(UIoMetricsListener)}.
+ * <p>
+ * Callbacks run on the thread that performed the operation, so they must be fast and
+ * thread-safe. Exceptions thrown by a listener are ignored.
+ *
+ * @see UIoMetrics
+ */
+public interface UIoMetricsListener {
+	
+	/* -----------------------------------------------------
+	 * Callback methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Called when a jar file system is requested by {@code UFilesystem.filesystem} or
+	 * {@code UResource.pathOf}.
+	 *
+	 * @param archive the URI of the archive
+	 * @param reused  true if the archive was already mounted
+	 * @param nanos   the duration of the operation
+	 */
+	default void mounted(@NotNull String archive, boolean reused, long nanos) {}
+	
+	/**
+	 * Called when {@code UFilesystem.closeFilesystemsIf} closes a file system.
+	 *
+	 * @param archive the URI of the closed archive
+	 * @param nanos   the duration of the operation
+	 */
+	default void closed(@NotNull String archive, long nanos) {}
+	
+	/**
+	 * Called when {@code UResource.pathOf} resolves a URI.
+	 *
+	 * @param scheme   the scheme of the URI
+	 * @param cacheHit true if the file system of the URI was already available
+	 * @param nanos    the duration of the operation
+	 */
+	default void resolved(@NotNull String scheme, boolean cacheHit, long nanos) {}
+	
+	/**
+	 * Called when {@code UResourceHash.hash} digests a resource.
+	 *
+	 * @param algorithm the hash algorithm
+	 * @param bytes     the number of bytes digested
+	 * @param nanos     the duration of the operation
+	 */
+	default void hashed(@NotNull String algorithm, long bytes, long nanos) {}
+	
+	/* -----------------------------------------------------
+	 * Registration methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Registers a listener in addition to the ones found by the service loader.
+	 *
+	 * @param listener the listener to register
+	 * @throws IllegalArgumentException if the listener is null
+	 */
+	static void register(@NotNull UIoMetricsListener listener) {
+		UMetrics.register(listener);
+	}
+	
+	/**
+	 * Removes a registered or discovered listener.
+	 *
+	 * @param listener the listener to remove
+	 * @throws IllegalArgumentException if the listener is null
+	 */
+	static void unregister(@NotNull UIoMetricsListener listener) {
+		UMetrics.unregister(listener);
+	}
+	
+}
\ No newline at end of file
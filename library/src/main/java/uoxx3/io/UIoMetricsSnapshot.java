@@ -0,0 +1,50 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counters and latency distributions collected by {@link UIoMetrics}.
+ *
+ * @param mounts         the number of jar file system requests
+ * @param reusedMounts   the number of requests served by an already mounted archive
+ * @param closes         the number of closed file systems
+ * @param resolves       the number of resolved URIs
+ * @param resolveHits    the number of resolutions whose file system was already available
+ * @param hashes         the number of hashed resources
+ * @param hashedBytes    the number of bytes hashed
+ * @param mountLatency   the latency of the mounts that had to open the archive
+ * @param resolveLatency the latency of all the resolutions
+ * @param hashLatency    the latency of all the hashes
+ */
+public record UIoMetricsSnapshot(
+	long mounts,
+	long reusedMounts,
+	long closes,
+	long resolves,
+	long resolveHits,
+	long hashes,
+	long hashedBytes,
+	@NotNull UHistogramSnapshot mountLatency,
+	@NotNull UHistogramSnapshot resolveLatency,
+	@NotNull UHistogramSnapshot hashLatency
+) {
+	
+	/**
+	 * Returns the fraction of resolutions whose file system was already available.
+	 *
+	 * @return the hit rate between 0 and 1, or 0 if nothing was resolved
+	 */
+	public double resolveHitRate() {
+		return resolves == 0 ? 0.0 : (double) resolveHits / resolves;
+	}
+	
+	/**
+	 * Returns the hashing throughput: the bytes hashed per second spent hashing.
+	 *
+	 * @return the number of bytes hashed per second, or 0 if nothing was hashed
+	 */
+	public double hashedBytesPerSecond() {
+		return hashLatency.totalNanos() == 0 ? 0.0 : hashedBytes * 1e9 / hashLatency.totalNanos();
+	}
+	
+}
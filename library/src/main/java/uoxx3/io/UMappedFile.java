@@ -0,0 +1,113 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Read-only memory-mapped view of a file, created by {@link UResource#map(java.nio.file.Path)}.
+ * Positions are {@code long}, so files larger than 2 GB are addressed as a single view.
+ * <p>
+ * The file is unmapped when the view is closed, instead of when the garbage collector
+ * finds it unreachable. Accessing the view after it is closed throws an
+ * {@link IllegalStateException}. Closing a view while other threads still read from it is
+ * only safe on Java 22 or newer; on older versions the caller must make sure that no thread
+ * uses the view when it is closed.
+ */
+public interface UMappedFile extends Closeable {
+	
+	/**
+	 * Returns the size of the mapped file.
+	 *
+	 * @return the number of mapped bytes
+	 */
+	long size();
+	
+	/**
+	 * Returns the byte order used to read multibyte values.
+	 *
+	 * @return the byte order of the view
+	 */
+	@NotNull ByteOrder order();
+	
+	/**
+	 * Reads the byte at the given position.
+	 *
+	 * @param position the position of the byte
+	 * @return the byte value
+	 * @throws IndexOutOfBoundsException if the position is out of range
+	 * @throws IllegalStateException     if the view is closed
+	 */
+	byte getByte(long position);
+	
+	/**
+	 * Reads the short value at the given position using the byte order of the view.
+	 *
+	 * @param position the position of the first byte
+	 * @return the short value
+	 * @throws IndexOutOfBoundsException if the value is out of range
+	 * @throws IllegalStateException     if the view is closed
+	 */
+	short getShort(long position);
+	
+	/**
+	 * Reads the int value at the given position using the byte order of the view.
+	 *
+	 * @param position the position of the first byte
+	 * @return the int value
+	 * @throws IndexOutOfBoundsException if the value is out of range
+	 * @throws IllegalStateException     if the view is closed
+	 */
+	int getInt(long position);
+	
+	/**
+	 * Reads the long value at the given position using the byte order of the view.
+	 *
+	 * @param position the position of the first byte
+	 * @return the long value
+	 * @throws IndexOutOfBoundsException if the value is out of range
+	 * @throws IllegalStateException     if the view is closed
+	 */
+	long getLong(long position);
+	
+	/**
+	 * Copies a region of the file into the given array.
+	 *
+	 * @param position    the position of the first byte to copy
+	 * @param destination the array to copy into
+	 * @param offset      the first position of the array to write
+	 * @param length      the number of bytes to copy
+	 * @throws IndexOutOfBoundsException if any region is out of range
+	 * @throws IllegalStateException     if the view is closed
+	 */
+	void get(long position, byte @NotNull [] destination, int offset, int length);
+	
+	/**
+	 * Returns a read-only buffer over a region of the file, using the byte order of the view.
+	 * The buffer must not be used after the view is closed. Regions that cross an internal
+	 * mapping boundary on Java versions before 22 are returned as a copy.
+	 *
+	 * @param position the position of the first byte of the region
+	 * @param length   the number of bytes of the region
+	 * @return the buffer over the region
+	 * @throws IndexOutOfBoundsException if the region is out of range
+	 * @throws IllegalStateException     if the view is closed
+	 */
+	@NotNull ByteBuffer slice(long position, int length);
+	
+	/**
+	 * Checks whether the view can still be read.
+	 *
+	 * @return true if the view is not closed
+	 */
+	boolean isOpen();
+	
+	/**
+	 * Unmaps the file. Closing a closed view has no effect.
+	 */
+	@Override
+	void close();
+	
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Subscriber that writes every received chunk to a file. The chunks are written into a
+ * temporary file next to the target, which replaces the target atomically when the publisher
+ * completes, so the target never contains partial data.
+ * <p>
+ * Only a few chunks are requested ahead of the written ones, so a slow disk slows down the
+ * publisher instead of filling the memory. A subscriber can only be used once.
+ */
+public final class UPathSubscriber implements Flow.Subscriber<ByteBuffer> {
+	
+	/**
+	 * The number of chunks requested ahead of the written ones
+	 */
+	private static final int PREFETCH = 4;
+	
+	private final CompletableFuture<Long> result = new CompletableFuture<>();
+	private final Path target;
+	private @Nullable Flow.Subscription subscription;
+	private @Nullable FileChannel channel;
+	private @Nullable Path temp;
+	private long written;
+	private int consumed;
+	
+	/**
+	 * Creates a new subscriber that writes to the given path.
+	 *
+	 * @param target the file to write; it is replaced if it exists
+	 * @throws IllegalArgumentException if the target is null
+	 */
+	public UPathSubscriber(@NotNull Path target) {
+		UAssert.paramNotNull(target, "Path target");
+		this.target = target;
+	}
+	
+	/* -----------------------------------------------------
+	 * Result methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the future completed with the number of written bytes when the target is
+	 * replaced, or with the error of the publisher or the write.
+	 *
+	 * @return the result of the subscription
+	 */
+	public @NotNull CompletableFuture<Long> result() {
+		return result;
+	}
+	
+	/* -----------------------------------------------------
+	 * Subscriber methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Opens the temporary file and requests the first chunks.
+	 *
+	 * @param subscription the new subscription
+	 * @throws IllegalArgumentException if the subscription is null
+	 */
+	@Override
+	public void onSubscribe(@NotNull Flow.Subscription subscription) {
+		UAssert.paramNotNull(subscription, "Flow.Subscription subscription");
+		if (this.subscription != null || result.isDone()) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		
+		try {
+			Path parent = target.toAbsolutePath().getParent();
+			temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+			channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			subscription.cancel();
+			fail(e);
+			return;
+		}
+		subscription.request(PREFETCH);
+	}
+	
+	/**
+	 * Writes the chunk and requests more chunks when half of the prefetched chunks are written.
+	 *
+	 * @param chunk the chunk to write
+	 * @throws IllegalArgumentException if the chunk is null
+	 */
+	@Override
+	public void onNext(@NotNull ByteBuffer chunk) {
+		UAssert.paramNotNull(chunk, "ByteBuffer chunk");
+		if (channel == null || subscription == null) return;
+		
+		try {
+			while (chunk.hasRemaining()) {
+				written += channel.write(chunk);
+			}
+		} catch (IOException e) {
+			subscription.cancel();
+			fail(e);
+			return;
+		}
+		
+		if (++consumed == PREFETCH / 2) {
+			consumed = 0;
+			subscription.request(PREFETCH / 2);
+		}
+	}
+	
+	/**
+	 * Discards the written data and completes the result with the error.
+	 *
+	 * @param error the error of the publisher
+	 * @throws IllegalArgumentException if the error is null
+	 */
+	@Override
+	public void onError(@NotNull Throwable error) {
+		UAssert.paramNotNull(error, "Throwable error");
+		fail(error);
+	}
+	
+	/**
+	 * Replaces the target with the written data and completes the result.
+	 */
+	@Override
+	public void onComplete() {
+		if (channel == null || temp == null) return;
+		
+		try {
+			channel.force(false);
+			channel.close();
+			channel = null;
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+			result.complete(written);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Deletes the temporary file and completes the result with the given error.
+	 *
+	 * @param error the cause of the failure
+	 */
+	private void fail(@NotNull Throwable error) {
+		try {
+			if (channel != null) channel.close();
+			if (temp != null) Files.deleteIfExists(temp);
+		} catch (IOException e) {
+			error.addSuppressed(e);
+		}
+		channel = null;
+		temp = null;
+		result.completeExceptionally(error);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Non-authoritative fingerprint of a resource, produced by
+ * {@link UResourceHash#quickFingerprint(java.nio.file.Path)}.
+ * <p>
+ * Only the size and a few fixed windows of the resource are digested, so two different
+ * resources can produce the same fingerprint. Equal fingerprints mean "probably unchanged";
+ * use {@link UResourceHash#hash(java.nio.file.Path)} when the content must be verified.
+ *
+ * @param size            the size of the resource
+ * @param digest          the digest of the size and the sampled windows
+ * @param algorithm       the hash algorithm used
+ * @param windowSize      the size of every sampled window
+ * @param interiorWindows the number of interior windows sampled
+ * @param complete        true if the windows covered the whole resource, in which case the fingerprint is exact
+ */
+public record UQuickFingerprint(
+	long size,
+	byte @NotNull [] digest,
+	@NotNull String algorithm,
+	int windowSize,
+	int interiorWindows,
+	boolean complete
+) {
+	
+	public UQuickFingerprint {
+		UAssert.paramNotNull(digest, "byte[] digest");
+		UAssert.paramNotNull(algorithm, "String algorithm");
+	}
+	
+	/**
+	 * Checks whether the resource is probably unchanged. Fingerprints computed with
+	 * different parameters are never considered equal.
+	 *
+	 * @param other the fingerprint to compare
+	 * @return true if both fingerprints are equal
+	 */
+	public boolean probablyEquals(@NotNull UQuickFingerprint other) {
+		UAssert.paramNotNull(other, "UQuickFingerprint other");
+		return equals(other);
+	}
+	
+	/**
+	 * Returns the hexadecimal representation of the fingerprint digest.
+	 *
+	 * @return the fingerprint digest as a string
+	 */
+	public @NotNull String digestStr() {
+		return UResourceHash.hashStr(digest);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof UQuickFingerprint that)) return false;
+		
+		return size == that.size && windowSize == that.windowSize && interiorWindows == that.interiorWindows &&
+			   algorithm.equals(that.algorithm) && MessageDigest.isEqual(digest, that.digest);
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(size, algorithm, windowSize, interiorWindows) * 31 + Arrays.hashCode(digest);
+	}
+	
+	@Override
+	public String toString() {
+		return "UQuickFingerprint[size=%d, digest=%s, algorithm=%s, windowSize=%d, interiorWindows=%d, complete=%b]"
+			.formatted(size, digestStr(), algorithm, windowSize, interiorWindows, complete);
+	}
+	
+}
\ No newline at end of file
@@ -1,21 +1,42 @@
 package uoxx3.io;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import uoxx3.UAssert;
 import uoxx3.io.internal.JrtResourceInfo;
+import uoxx3.io.internal.UArchiveExtractor;
+import uoxx3.io.internal.UArchiveWriter;
+import uoxx3.io.internal.UBatchIo;
+import uoxx3.io.internal.UMappings;
+import uoxx3.io.internal.UMetrics;
+import uoxx3.io.internal.UResolveEvent;
 import uoxx3.io.internal.UResourceActions;
+import uoxx3.io.internal.UResourcePublisher;
+import uoxx3.io.internal.UTransfers;
+import uoxx3.io.internal.UTreeWalker;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.FileSystem;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
 public final class UResource extends UResourceActions {
@@ -76,20 +97,16 @@ public final class UResource extends UResourceActions {
 	 */
 	public static @NotNull String basename(@NotNull String location, boolean isDirectory, boolean partialResult) {
 		UAssert.paramNotNull(location, "String location");
-		// Eliminate all separator characters and only keep the
-		// last part of the resource
-		location = resourceWithoutSlashes(location);
+		// Only keep the last part of the resource
+		UResourceName name = UResourceName.of(location);
 		// Directories do not contain extensions and should
 		// not be processed by default
-		if (isDirectory) return location;
+		if (isDirectory) return name.filename();
 		
 		// The partial result means that only the file name will be
 		// returned, but without any extension; otherwise, the file
 		// name with the extensions will be returned.
-		if (!partialResult) return location;
-		
-		int index = location.indexOf(UFSConstants.FS_EXTENSION_IDENTIFIER);
-		return index == -1 ? location : location.substring(0, index);
+		return partialResult ? name.basename() : name.filename();
 	}
 	
 	/**
@@ -195,22 +212,7 @@ public final class UResource extends UResourceActions {
 	 */
 	public static String @NotNull [] extensions(@NotNull String location) {
 		UAssert.paramNotNull(location, "String location");
-		// Eliminate all separator characters and only keep the
-		// last part of the resource
-		String locationWithoutExt = basename(location, false);
-		location = resourceWithoutSlashes(location);
-		int index = location.indexOf(UFSConstants.FS_EXTENSION_IDENTIFIER);
-		
-		checkResource:
-		{
-			if (index == -1) break checkResource;
-			
-			String[] extensions = location.split("\\.");
-			return Arrays.stream(extensions)
-				.filter(e -> !locationWithoutExt.contentEquals(e))
-				.toArray(String[]::new);
-		}
-		return UFSConstants.FS_EMPTY_EXTENSIONS;
+		return UResourceName.of(location).extensions();
 	}
 	
 	/**
@@ -277,9 +279,7 @@ public final class UResource extends UResourceActions {
 	 */
 	public static @NotNull Optional<String> extension(@NotNull String location) {
 		UAssert.paramNotNull(location, "String location");
-		String[] extensions = extensions(location);
-		return extensions.length == 0 ? Optional.empty() :
-			   Optional.of(extensions[extensions.length - 1]);
+		return Optional.ofNullable(UResourceName.of(location).lastExtension());
 	}
 	
 	/**
@@ -333,6 +333,341 @@ public final class UResource extends UResourceActions {
 		return extension(entry.getName());
 	}
 	
+	/* -----------------------------------------------------
+	 * Walk methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Walks the given tree lazily. Directories are listed in parallel by the pool of the
+	 * options, and the name, extension and depth filters are applied while the directories
+	 * are read. The attributes of every entry are read once and carried in the entry.
+	 * <p>
+	 * The entries are not sorted. The returned stream must be closed to stop the walk
+	 * before it is fully consumed.
+	 *
+	 * @param root    the root of the tree
+	 * @param options the walk options
+	 * @return the stream of entries; read errors are thrown as {@link java.io.UncheckedIOException}
+	 * @throws IOException              if the root cannot be read
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static @NotNull Stream<UWalkEntry> walk(@NotNull Path root, @NotNull UWalkOptions options)
+		throws IOException {
+		return UTreeWalker.stream(root, options);
+	}
+	
+	/**
+	 * Walks the given tree lazily with the default options.
+	 *
+	 * @param root the root of the tree
+	 * @return the stream of entries
+	 * @throws IOException              if the root cannot be read
+	 * @throws IllegalArgumentException if the root is null
+	 */
+	public static @NotNull Stream<UWalkEntry> walk(@NotNull Path root) throws IOException {
+		return walk(root, UWalkOptions.DEFAULT);
+	}
+	
+	/**
+	 * Walks the given tree and delivers the entries in batches. The consumer may be called
+	 * concurrently from several worker threads; this method returns when the walk is done.
+	 *
+	 * @param root     the root of the tree
+	 * @param options  the walk options
+	 * @param consumer the action that receives every batch
+	 * @throws IOException              if the root or any directory cannot be read
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void walk(@NotNull Path root, @NotNull UWalkOptions options,
+		@NotNull Consumer<List<UWalkEntry>> consumer) throws IOException {
+		UTreeWalker.walk(root, options, consumer);
+	}
+	
+	/* -----------------------------------------------------
+	 * Copy methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Copies a file into another file using the fastest strategy available:
+	 * <ul>
+	 *     <li>Files of the default file system are transferred by the operating system
+	 *     ({@code copy_file_range} or {@code sendfile} on Linux).</li>
+	 *     <li>Uncompressed entries of jar files opened through {@link UFilesystem} are
+	 *     transferred directly from the jar file.</li>
+	 *     <li>Anything else is copied through a pooled direct buffer.</li>
+	 * </ul>
+	 * As with {@link Files#copy(Path, Path, java.nio.file.CopyOption...)}, nothing is copied
+	 * when the source and the target are the same file.
+	 *
+	 * @param source   the file to copy
+	 * @param target   the destination file
+	 * @param replace  true to replace the target if it exists
+	 * @param listener the action that receives the progress, or null
+	 * @return the number of bytes copied, the time it took and the strategy used
+	 * @throws java.nio.file.FileAlreadyExistsException if the target exists and must not be replaced
+	 * @throws IOException                              if an I/O error occurs
+	 * @throws IllegalArgumentException                 if the source or target is null
+	 */
+	public static @NotNull UCopyResult copy(@NotNull Path source, @NotNull Path target, boolean replace,
+		@Nullable UCopyListener listener) throws IOException {
+		return UTransfers.copy(source, target, replace, listener);
+	}
+	
+	/**
+	 * Copies a file into a new file using the fastest strategy available.
+	 *
+	 * @param source the file to copy
+	 * @param target the destination file
+	 * @return the number of bytes copied, the time it took and the strategy used
+	 * @throws java.nio.file.FileAlreadyExistsException if the target exists
+	 * @throws IOException                              if an I/O error occurs
+	 * @throws IllegalArgumentException                 if the source or target is null
+	 * @see #copy(Path, Path, boolean, UCopyListener)
+	 */
+	public static @NotNull UCopyResult copy(@NotNull Path source, @NotNull Path target) throws IOException {
+		return copy(source, target, false, null);
+	}
+	
+	/**
+	 * Copies a file into a channel, such as a socket channel, using the fastest strategy
+	 * available. The channel is not closed.
+	 *
+	 * @param source   the file to copy
+	 * @param target   the destination channel; it must be in blocking mode
+	 * @param listener the action that receives the progress, or null
+	 * @return the number of bytes copied, the time it took and the strategy used
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the source or target is null, or the target is not blocking
+	 * @see #copy(Path, Path, boolean, UCopyListener)
+	 */
+	public static @NotNull UCopyResult copy(@NotNull Path source, @NotNull WritableByteChannel target,
+		@Nullable UCopyListener listener) throws IOException {
+		return UTransfers.copy(source, target, listener);
+	}
+	
+	/**
+	 * Copies all the data of a channel, such as a socket channel, into a file. Files of the
+	 * default file system are written by the operating system from the channel.
+	 *
+	 * @param source   the channel to read until its end; it must be in blocking mode
+	 * @param target   the destination file
+	 * @param replace  true to replace the target if it exists
+	 * @param listener the action that receives the progress, or null
+	 * @return the number of bytes copied, the time it took and the strategy used
+	 * @throws java.nio.file.FileAlreadyExistsException if the target exists and must not be replaced
+	 * @throws IOException                              if an I/O error occurs
+	 * @throws IllegalArgumentException                 if the source or target is null, or the source is not blocking
+	 */
+	public static @NotNull UCopyResult copy(@NotNull ReadableByteChannel source, @NotNull Path target,
+		boolean replace, @Nullable UCopyListener listener) throws IOException {
+		return UTransfers.copy(source, target, replace, listener);
+	}
+	
+	/* -----------------------------------------------------
+	 * Mapping methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Maps the whole content of a file in read-only mode. The file is unmapped when the
+	 * returned view is closed.
+	 * <p>
+	 * On Java 22 or newer the file is mapped as a single memory segment; on older versions
+	 * it is mapped as a set of {@link java.nio.MappedByteBuffer} windows. In both cases files
+	 * larger than 2 GB are addressed with {@code long} positions.
+	 *
+	 * @param path  the file to map
+	 * @param order the byte order used to read multibyte values
+	 * @return the mapped view of the file
+	 * @throws IOException              if the file cannot be mapped
+	 * @throws IllegalArgumentException if the path or order is null
+	 */
+	public static @NotNull UMappedFile map(@NotNull Path path, @NotNull ByteOrder order) throws IOException {
+		return UMappings.map(path, order);
+	}
+	
+	/**
+	 * Maps the whole content of a file in read-only mode, reading multibyte values in
+	 * big-endian order.
+	 *
+	 * @param path the file to map
+	 * @return the mapped view of the file
+	 * @throws IOException              if the file cannot be mapped
+	 * @throws IllegalArgumentException if the path is null
+	 * @see #map(Path, ByteOrder)
+	 */
+	public static @NotNull UMappedFile map(@NotNull Path path) throws IOException {
+		return map(path, ByteOrder.BIG_ENDIAN);
+	}
+	
+	/* -----------------------------------------------------
+	 * Bulk read methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Reads many files concurrently and delivers the content of every file to the consumer
+	 * as soon as it is read. The files are read by a bounded number of workers, virtual
+	 * threads when the JVM supports them, using buffers from a shared pool. On Java 22 and
+	 * Linux, when the {@code uoxx3.io.uring} system property is true, the local files are
+	 * instead read in batches through io_uring and delivered in the calling thread.
+	 * <p>
+	 * The buffer given to the consumer is read-only and returns to the pool when the consumer
+	 * returns, so it must be copied if it is needed later. The consumer may be called
+	 * concurrently and in any order. The first error stops the remaining reads.
+	 *
+	 * @param paths       the files to read
+	 * @param parallelism the maximum number of files read at the same time
+	 * @param consumer    the action that receives every file and its content
+	 * @throws IOException              if any file cannot be read
+	 * @throws IllegalArgumentException if any parameter is null or the parallelism is not positive
+	 */
+	public static void readAll(@NotNull Collection<Path> paths, int parallelism,
+		@NotNull BiConsumer<Path, ByteBuffer> consumer) throws IOException {
+		UBatchIo.readAll(paths, parallelism, consumer);
+	}
+	
+	/**
+	 * Reads many files concurrently, using {@link UFSConstants#FS_BULK_READ_PARALLELISM}
+	 * workers, and returns the content of every file.
+	 *
+	 * @param paths the files to read
+	 * @return the content of every file by path
+	 * @throws IOException              if any file cannot be read
+	 * @throws IllegalArgumentException if the collection is null
+	 * @see #readAll(Collection, int, BiConsumer)
+	 */
+	public static @NotNull Map<Path, byte[]> readAll(@NotNull Collection<Path> paths) throws IOException {
+		Map<Path, byte[]> result = new ConcurrentHashMap<>();
+		readAll(paths, UFSConstants.FS_BULK_READ_PARALLELISM, (path, buffer) -> {
+			byte[] content = new byte[buffer.remaining()];
+			buffer.get(content);
+			result.put(path, content);
+		});
+		return result;
+	}
+	
+	/* -----------------------------------------------------
+	 * Archive methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Extracts all the entries of a zip or jar file into a directory. The directories are
+	 * created first and the files are inflated and written in parallel. Existing files are
+	 * replaced.
+	 *
+	 * @param archive the zip or jar file to extract
+	 * @param target  the destination directory; it is created if it does not exist
+	 * @return the number of files extracted
+	 * @throws java.util.zip.ZipException if an entry would be written outside the target directory
+	 * @throws IOException                if an I/O error occurs
+	 * @throws IllegalArgumentException   if the archive or target is null
+	 */
+	public static int extract(@NotNull Path archive, @NotNull Path target) throws IOException {
+		return UArchiveExtractor.extract(archive, target);
+	}
+	
+	/**
+	 * Creates a zip file with all the files and directories of a tree. The files are split
+	 * into blocks of {@link UFSConstants#FS_ARCHIVE_BLOCK_SIZE} bytes that are compressed
+	 * in parallel and appended in order.
+	 * <p>
+	 * The output is reproducible: the entries are sorted by name and all of them have the
+	 * same timestamp, so the same tree always produces the same bytes. The target is
+	 * replaced atomically.
+	 *
+	 * @param root   the directory to archive
+	 * @param target the zip file to create
+	 * @param level  the compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+	 * @return the number of entries written
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the root or target is null, or the level is not valid
+	 */
+	public static int archive(@NotNull Path root, @NotNull Path target, int level) throws IOException {
+		return UArchiveWriter.create(root, target, level);
+	}
+	
+	/**
+	 * Creates a zip file with all the files and directories of a tree using the default
+	 * compression level.
+	 *
+	 * @param root   the directory to archive
+	 * @param target the zip file to create
+	 * @return the number of entries written
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the root or target is null
+	 * @see #archive(Path, Path, int)
+	 */
+	public static int archive(@NotNull Path root, @NotNull Path target) throws IOException {
+		return archive(root, target, Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/* -----------------------------------------------------
+	 * Publisher methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Creates a publisher of the content of the given path. Every subscriber reads the file
+	 * from the beginning, and a chunk is only read when the subscriber has requested it, so
+	 * a slow subscriber never makes the content pile up in memory. The chunks are read on
+	 * the {@link UAsyncIo#executor() asynchronous executor}.
+	 * <p>
+	 * The chunks are pooled buffers that are reused as soon as
+	 * {@link Flow.Subscriber#onNext(Object)} returns, so subscribers must consume or copy
+	 * them before returning.
+	 *
+	 * @param path      the path to publish
+	 * @param chunkSize the maximum number of bytes of every chunk
+	 * @return the publisher of the path content
+	 * @throws IllegalArgumentException if the path is null or the chunk size is not positive
+	 * @see UPathSubscriber
+	 */
+	public static @NotNull Flow.Publisher<ByteBuffer> publisher(@NotNull Path path, int chunkSize) {
+		UAssert.paramNotNull(path, "Path path");
+		return new UResourcePublisher(() -> Files.newByteChannel(path), chunkSize, UAsyncIo.executor());
+	}
+	
+	/**
+	 * Creates a publisher of the content of the given path with chunks of
+	 * {@link UFSConstants#FS_READ_BUFFER_SIZE} bytes.
+	 *
+	 * @param path the path to publish
+	 * @return the publisher of the path content
+	 * @throws IllegalArgumentException if the path is null
+	 * @see #publisher(Path, int)
+	 */
+	public static @NotNull Flow.Publisher<ByteBuffer> publisher(@NotNull Path path) {
+		return publisher(path, UFSConstants.FS_READ_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Creates a publisher of the content of the given URI. The URI is resolved with
+	 * {@link #pathOf(URI)} when the first chunk is requested, so archives are mounted on the
+	 * {@link UAsyncIo#executor() asynchronous executor} and resolution errors are delivered
+	 * to the subscriber.
+	 *
+	 * @param uri       the URI to publish
+	 * @param chunkSize the maximum number of bytes of every chunk
+	 * @return the publisher of the URI content
+	 * @throws IllegalArgumentException if the URI is null or the chunk size is not positive
+	 * @see #publisher(Path, int)
+	 */
+	public static @NotNull Flow.Publisher<ByteBuffer> publisher(@NotNull URI uri, int chunkSize) {
+		UAssert.paramNotNull(uri, "URI uri");
+		return new UResourcePublisher(() -> Files.newByteChannel(pathOf(uri)), chunkSize, UAsyncIo.executor());
+	}
+	
+	/**
+	 * Creates a publisher of the content of the given URI with chunks of
+	 * {@link UFSConstants#FS_READ_BUFFER_SIZE} bytes.
+	 *
+	 * @param uri the URI to publish
+	 * @return the publisher of the URI content
+	 * @throws IllegalArgumentException if the URI is null
+	 * @see #publisher(URI, int)
+	 */
+	public static @NotNull Flow.Publisher<ByteBuffer> publisher(@NotNull URI uri) {
+		return publisher(uri, UFSConstants.FS_READ_BUFFER_SIZE);
+	}
+	
 	/* -----------------------------------------------------
 	 * Path from other resources
 	 * ----------------------------------------------------- */
@@ -361,17 +696,45 @@ public final class UResource extends UResourceActions {
 	 * @throws IOException              if an I/O error occurs or if the URI scheme is not supported
 	 * @throws IllegalArgumentException if the URI is null
 	 */
-	@SuppressWarnings("resource")
 	public static @NotNull Path pathOf(@NotNull URI uri) throws IOException {
+		UResolveEvent event = new UResolveEvent();
+		event.begin();
+		boolean metrics = UMetrics.enabled();
+		long start = metrics ? System.nanoTime() : 0;
+		Path path = resolve(uri, event);
+		
+		if (metrics) UMetrics.resolved(uri.getScheme(), event.cacheHit, System.nanoTime() - start);
+		if (event.shouldCommit()) {
+			event.scheme = uri.getScheme();
+			event.commit();
+		}
+		return path;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Converts the given URI to a Path object, handling different URI schemes.
+	 *
+	 * @param uri   the URI to convert to a Path
+	 * @param event the resolution event, updated with the cache state
+	 * @return a Path object representing the given URI
+	 * @throws IOException if an I/O error occurs or if the URI scheme is not supported
+	 */
+	@SuppressWarnings("resource")
+	private static @NotNull Path resolve(@NotNull URI uri, @NotNull UResolveEvent event) throws IOException {
 		String scheme = uri.getScheme();
 		
 		return switch (scheme) {
 			case "file" -> Path.of(uri);
 			case "jar" -> {
-				FileSystem fs = UFilesystem.filesystem(uri);
+				UFilesystem.Mount mount = UFilesystem.mount(uri);
+				event.cacheHit = mount.reused();
 				
 				// Extract the path of the resource to access within the JAR file
-				yield fs.getPath(extractJarLocation(uri));
+				yield mount.filesystem().getPath(extractJarLocation(uri));
 			}
 			case "jrt" -> {
 				// Handle the JVM bug for jlink images where URIs need to be reconstructed
@@ -0,0 +1,551 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache of resource contents bounded by the total number of cached bytes.
+ * <p>
+ * Entries are evicted with a segmented LRU policy: new entries enter a probation segment
+ * and are promoted to a protected segment when they are read again, so a scan of resources
+ * read only once cannot flush the resources read frequently. Small entries are kept in the
+ * heap, large entries in direct buffers outside the heap. Resources larger than the
+ * probation segment (a fifth of the capacity) are read but not cached.
+ * <p>
+ * Entries are validated against the size and modification time of the resource on every
+ * read, unless validation is disabled and the cache is kept up to date through
+ * {@link #invalidate(UChangeSet)}, for example with a {@link UWatcher}.
+ */
+public final class UResourceCache {
+	
+	/**
+	 * The default size from which entries are stored outside the heap, set to 64 kilobytes.
+	 */
+	public static final int DEFAULT_OFF_HEAP_THRESHOLD = 64 << 10;
+	
+	/**
+	 * The fraction of the capacity reserved for the protected segment.
+	 */
+	private static final double PROTECTED_RATIO = 0.8;
+	
+	/**
+	 * The number of hits buffered while the lock is busy.
+	 */
+	private static final int HIT_BUFFER_SIZE = 128;
+	
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+	private final Map<Path, Load> loading = new ConcurrentHashMap<>();
+	
+	/*
+	 * Eviction order, guarded by the lock. Both maps are in access order.
+	 */
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LinkedHashMap<Path, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<Path, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+	private long probationBytes;
+	private long protectedBytes;
+	
+	/*
+	 * Hits recorded while the lock was busy, replayed by the next thread that takes the lock.
+	 */
+	
+	private final BlockingQueue<Hit> hitBuffer = new ArrayBlockingQueue<>(HIT_BUFFER_SIZE);
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+	
+	private final long maxBytes;
+	private final long maxProtectedBytes;
+	private final int offHeapThreshold;
+	private final boolean validate;
+	
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxBytes         the maximum number of cached bytes
+	 * @param offHeapThreshold the size from which entries are stored in direct buffers
+	 * @param validate         true to check the size and modification time of the resource on every read
+	 * @throws IllegalArgumentException if the maximum size is not positive or the threshold is negative
+	 */
+	public UResourceCache(long maxBytes, int offHeapThreshold, boolean validate) {
+		if (maxBytes <= 0 || offHeapThreshold < 0) {
+			throw new IllegalArgumentException("Invalid cache limits. max=%d, offHeap=%d given"
+												   .formatted(maxBytes, offHeapThreshold));
+		}
+		this.maxBytes = maxBytes;
+		this.maxProtectedBytes = (long) (maxBytes * PROTECTED_RATIO);
+		this.offHeapThreshold = offHeapThreshold;
+		this.validate = validate;
+	}
+	
+	/**
+	 * Creates a new cache that validates every read and keeps entries of 64 kilobytes or
+	 * more outside the heap.
+	 *
+	 * @param maxBytes the maximum number of cached bytes
+	 * @throws IllegalArgumentException if the maximum size is not positive
+	 */
+	public UResourceCache(long maxBytes) {
+		this(maxBytes, DEFAULT_OFF_HEAP_THRESHOLD, true);
+	}
+	
+	/* -----------------------------------------------------
+	 * Read methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the content of the given resource, loading it if it is not cached or if it
+	 * changed since it was cached. Concurrent reads of the same missing resource load it
+	 * only once.
+	 *
+	 * @param path the resource to read, in any file system
+	 * @return a read-only buffer with the whole content of the resource
+	 * @throws IOException              if the resource cannot be read
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public @NotNull ByteBuffer read(@NotNull Path path) throws IOException {
+		UAssert.paramNotNull(path, "Path path");
+		Path key = path.toAbsolutePath();
+		
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			if (!validate || entry.matches(attributesOf(key, entry))) {
+				hits.increment();
+				touch(key, entry);
+				return entry.view();
+			}
+			remove(key, entry);
+			invalidations.increment();
+		}
+		
+		misses.increment();
+		return load(key).view();
+	}
+	
+	/**
+	 * Returns the content of the resource located by the given URI. The URI is resolved with
+	 * {@link UResource#pathOf(URI)}, so resources inside jar files are supported.
+	 *
+	 * @param uri the resource to read
+	 * @return a read-only buffer with the whole content of the resource
+	 * @throws IOException              if the resource cannot be resolved or read
+	 * @throws IllegalArgumentException if the URI is null
+	 */
+	public @NotNull ByteBuffer read(@NotNull URI uri) throws IOException {
+		UAssert.paramNotNull(uri, "URI uri");
+		return read(UResource.pathOf(uri));
+	}
+	
+	/* -----------------------------------------------------
+	 * Invalidation methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Removes the entry of the given resource.
+	 *
+	 * @param path the resource to remove
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public void invalidate(@NotNull Path path) {
+		UAssert.paramNotNull(path, "Path path");
+		Path key = path.toAbsolutePath();
+		lock.lock();
+		try {
+			// A load in progress may have read the content before it changed
+			Load load = loading.get(key);
+			if (load != null) load.outdated = true;
+		} finally {
+			lock.unlock();
+		}
+		
+		Entry entry = entries.get(key);
+		if (entry != null && remove(key, entry)) invalidations.increment();
+	}
+	
+	/**
+	 * Removes the entries of every resource changed or deleted in the given change set.
+	 * It can be used directly as the consumer of a {@link UWatcher}.
+	 *
+	 * @param changes the changes to apply
+	 * @throws IllegalArgumentException if the change set is null
+	 */
+	public void invalidate(@NotNull UChangeSet changes) {
+		UAssert.paramNotNull(changes, "UChangeSet changes");
+		changes.modified().forEach(this::invalidate);
+		changes.deleted().forEach(this::invalidate);
+	}
+	
+	/**
+	 * Removes all the entries.
+	 */
+	public void invalidateAll() {
+		lock.lock();
+		try {
+			invalidations.add(entries.size());
+			loading.values().forEach(load -> load.outdated = true);
+			entries.clear();
+			probation.clear();
+			protectedSegment.clear();
+			probationBytes = 0;
+			protectedBytes = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Statistics methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns a snapshot of the cache statistics.
+	 *
+	 * @return the cache statistics
+	 */
+	public @NotNull UCacheStats stats() {
+		lock.lock();
+		try {
+			return new UCacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(),
+								   probation.size() + protectedSegment.size(), probationBytes + protectedBytes);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns the maximum number of cached bytes.
+	 *
+	 * @return the cache capacity in bytes
+	 */
+	public long maxBytes() {
+		return maxBytes;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Loads a resource, sharing the load with other threads reading the same resource. The
+	 * loaded entry is not cached if the resource is invalidated while it is read.
+	 *
+	 * @param key the absolute path of the resource
+	 * @return the loaded entry
+	 * @throws IOException if the resource cannot be read
+	 */
+	private @NotNull Entry load(@NotNull Path key) throws IOException {
+		Load load = new Load();
+		CompletableFuture<Entry> future = load.future;
+		Load current = loading.putIfAbsent(key, load);
+		
+		// Other thread is loading the same resource
+		if (current != null) {
+			try {
+				return current.future.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof UncheckedIOException ex ? ex.getCause() : new IOException(e.getCause());
+			}
+		}
+		
+		try {
+			Entry entry = readEntry(key);
+			admit(key, entry, load);
+			future.complete(entry);
+			return entry;
+		} catch (IOException e) {
+			future.completeExceptionally(new UncheckedIOException(e));
+			throw e;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, load);
+		}
+	}
+	
+	/**
+	 * Reads the attributes of a cached resource, removing its entry if it no longer exists.
+	 *
+	 * @param key   the absolute path of the resource
+	 * @param entry the cached entry of the resource
+	 * @return the current attributes of the resource
+	 * @throws IOException if the attributes cannot be read
+	 */
+	private @NotNull BasicFileAttributes attributesOf(@NotNull Path key, @NotNull Entry entry) throws IOException {
+		try {
+			return Files.readAttributes(key, BasicFileAttributes.class);
+		} catch (IOException e) {
+			if (remove(key, entry)) invalidations.increment();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Reads the whole content of a resource.
+	 *
+	 * @param key the absolute path of the resource
+	 * @return the entry with the content and the attributes of the resource
+	 * @throws IOException if the resource cannot be read
+	 */
+	private @NotNull Entry readEntry(@NotNull Path key) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		long size = attributes.size();
+		
+		if (size < offHeapThreshold || size > Integer.MAX_VALUE) {
+			byte[] content = Files.readAllBytes(key);
+			return new Entry(ByteBuffer.wrap(content), attributes);
+		}
+		
+		ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+		try (SeekableByteChannel channel = Files.newByteChannel(key)) {
+			while (content.hasRemaining() && channel.read(content) != -1) {
+				// Read until the buffer is full or the resource ends
+			}
+			
+			// The resource grew while it was read
+			if (!content.hasRemaining() && channel.read(ByteBuffer.allocate(1)) != -1) {
+				return new Entry(ByteBuffer.wrap(Files.readAllBytes(key)), attributes);
+			}
+		}
+		return new Entry(content.flip(), attributes);
+	}
+	
+	/**
+	 * Adds a loaded entry to the probation segment and evicts entries over the capacity.
+	 * Entries larger than the probation segment and entries of outdated loads are not cached.
+	 *
+	 * @param key   the absolute path of the resource
+	 * @param entry the loaded entry
+	 * @param load  the load that read the entry
+	 */
+	private void admit(@NotNull Path key, @NotNull Entry entry, @NotNull Load load) {
+		if (entry.weight() > maxBytes - maxProtectedBytes) return;
+		
+		lock.lock();
+		try {
+			// Checked under the lock, so an invalidation either marks the load or removes the entry
+			if (load.outdated) return;
+			drainHits();
+			
+			Entry previous = entries.put(key, entry);
+			if (previous != null) unlink(key);
+			
+			probation.put(key, entry);
+			probationBytes += entry.weight();
+			
+			// The probation segment is evicted first, then the protected segment
+			while (probationBytes + protectedBytes > maxBytes) {
+				LinkedHashMap<Path, Entry> victims = probation.isEmpty() ? protectedSegment : probation;
+				Iterator<Map.Entry<Path, Entry>> iterator = victims.entrySet().iterator();
+				Map.Entry<Path, Entry> victim = iterator.next();
+				iterator.remove();
+				
+				if (victims == probation) {
+					probationBytes -= victim.getValue().weight();
+				} else {
+					protectedBytes -= victim.getValue().weight();
+				}
+				entries.remove(victim.getKey(), victim.getValue());
+				evictions.increment();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records a hit. The hit is applied right away when the lock is free; otherwise it is
+	 * buffered and replayed by the next thread that takes the lock, so reads do not wait for
+	 * each other. Only when the buffer is full the read waits for the lock, so no hit is lost.
+	 *
+	 * @param key   the absolute path of the resource
+	 * @param entry the entry that was read
+	 */
+	private void touch(@NotNull Path key, @NotNull Entry entry) {
+		Hit hit = new Hit(key, entry);
+		if (!lock.tryLock()) {
+			if (hitBuffer.offer(hit)) return;
+			lock.lock();
+		}
+		try {
+			drainHits();
+			promote(hit);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Replays the buffered hits. The lock must be held.
+	 */
+	private void drainHits() {
+		Hit hit;
+		while ((hit = hitBuffer.poll()) != null) {
+			promote(hit);
+		}
+	}
+	
+	/**
+	 * Applies a hit. Entries of the probation segment are promoted to the protected segment,
+	 * whose least recently used entries are demoted back when it is full. Hits of entries
+	 * that were removed or replaced in the meantime are ignored. The lock must be held.
+	 *
+	 * @param hit the hit to apply
+	 */
+	private void promote(@NotNull Hit hit) {
+		Path key = hit.key;
+		Entry entry = hit.entry;
+		// The lookups also move the entry to the end of the access order
+		if (protectedSegment.get(key) == entry) return;
+		if (probation.get(key) != entry) return;
+		
+		probation.remove(key);
+		probationBytes -= entry.weight();
+		protectedSegment.put(key, entry);
+		protectedBytes += entry.weight();
+		
+		while (protectedBytes > maxProtectedBytes) {
+			Iterator<Map.Entry<Path, Entry>> iterator = protectedSegment.entrySet().iterator();
+			Map.Entry<Path, Entry> demoted = iterator.next();
+			iterator.remove();
+			
+			protectedBytes -= demoted.getValue().weight();
+			probation.put(demoted.getKey(), demoted.getValue());
+			probationBytes += demoted.getValue().weight();
+		}
+	}
+	
+	/**
+	 * Removes an entry if it is still the cached entry of the resource.
+	 *
+	 * @param key   the absolute path of the resource
+	 * @param entry the entry to remove
+	 * @return true if the entry was removed
+	 */
+	private boolean remove(@NotNull Path key, @NotNull Entry entry) {
+		lock.lock();
+		try {
+			if (!entries.remove(key, entry)) return false;
+			unlink(key);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes a resource from the eviction order. The lock must be held.
+	 *
+	 * @param key the absolute path of the resource
+	 */
+	private void unlink(@NotNull Path key) {
+		Entry removed = probation.remove(key);
+		if (removed != null) {
+			probationBytes -= removed.weight();
+			return;
+		}
+		
+		removed = protectedSegment.remove(key);
+		if (removed != null) protectedBytes -= removed.weight();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Load of a resource in progress, shared by the threads reading the resource.
+	 */
+	private static final class Load {
+		
+		final CompletableFuture<Entry> future = new CompletableFuture<>();
+		
+		/**
+		 * Whether the resource was invalidated during the load, guarded by the lock.
+		 */
+		boolean outdated;
+		
+	}
+	
+	/**
+	 * Read of a cached entry, waiting to update the eviction order.
+	 *
+	 * @param key   the absolute path of the resource
+	 * @param entry the entry that was read
+	 */
+	private record Hit(@NotNull Path key, @NotNull Entry entry) {
+	}
+	
+	/**
+	 * Cached content of a resource.
+	 *
+	 * @param content  the content of the resource
+	 * @param size     the size of the resource when it was read
+	 * @param modified the modification time of the resource when it was read
+	 */
+	private record Entry(@NotNull ByteBuffer content, long size, long modified) {
+		
+		/**
+		 * Creates a new entry with the attributes read before the content.
+		 *
+		 * @param content    the content of the resource
+		 * @param attributes the attributes of the resource
+		 */
+		Entry(@NotNull ByteBuffer content, @NotNull BasicFileAttributes attributes) {
+			this(content, attributes.size(), attributes.lastModifiedTime().toMillis());
+		}
+		
+		/**
+		 * Checks whether the resource still has the attributes it had when it was read.
+		 *
+		 * @param attributes the current attributes of the resource
+		 * @return true if the entry is still valid
+		 */
+		boolean matches(@NotNull BasicFileAttributes attributes) {
+			return size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+		}
+		
+		/**
+		 * Returns the number of bytes the entry counts against the capacity.
+		 *
+		 * @return the entry weight
+		 */
+		long weight() {
+			return content.capacity();
+		}
+		
+		/**
+		 * Returns an independent read-only view of the content.
+		 *
+		 * @return the content view
+		 */
+		@NotNull ByteBuffer view() {
+			return content.asReadOnlyBuffer();
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+/**
+ * A content-defined chunk of a resource.
+ *
+ * @param offset the position of the first byte of the chunk within the resource
+ * @param length the number of bytes of the chunk
+ * @param digest the hash of the chunk content
+ */
+public record UResourceChunk(
+	long offset,
+	int length,
+	byte @NotNull [] digest
+) {
+	
+	public UResourceChunk {
+		UAssert.paramNotNull(digest, "byte[] digest");
+	}
+	
+	/**
+	 * Returns the hexadecimal representation of the chunk digest.
+	 *
+	 * @return the chunk digest as a string
+	 */
+	public @NotNull String digestStr() {
+		return UResourceHash.hashStr(digest);
+	}
+	
+}
\ No newline at end of file
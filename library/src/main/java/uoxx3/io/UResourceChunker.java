@@ -0,0 +1,231 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.internal.UBufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public final class UResourceChunker {
+	
+	/**
+	 * Random values used by the gear rolling hash, one for each possible byte value.
+	 * The table is generated from a fixed seed, so chunk boundaries are stable between runs.
+	 */
+	private static final long[] GEAR = new long[256];
+	
+	static {
+		// SplitMix64 sequence
+		long seed = 0x5DEECE66DL;
+		for (int i = 0; i < GEAR.length; i++) {
+			long z = (seed += 0x9E3779B97F4A7C15L);
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			GEAR[i] = z ^ (z >>> 31);
+		}
+	}
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UResourceChunker() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Streaming chunk methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Splits the data read from the given input stream into content-defined chunks and
+	 * delivers every chunk to the given consumer as soon as its boundary is found.
+	 * <p>
+	 * The boundaries are computed with a normalized gear rolling hash (FastCDC), so an
+	 * insertion or deletion only changes the chunks around the edit.
+	 *
+	 * @param stream   the input stream to read data from
+	 * @param spec     the chunk size limits
+	 * @param algo     the hash algorithm used to digest every chunk
+	 * @param consumer the action that receives every chunk in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void chunks(@NotNull InputStream stream, @NotNull UChunkSpec spec, @NotNull String algo,
+		@NotNull Consumer<UResourceChunk> consumer) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(stream, "InputStream stream");
+		UAssert.paramNotNull(spec, "UChunkSpec spec");
+		UAssert.paramNotNull(algo, "String algo");
+		UAssert.paramNotNull(consumer, "Consumer<UResourceChunk> consumer");
+		
+		ByteBuffer pooled = UBufferPool.HEAP.acquire(UFSConstants.FS_READ_BUFFER_SIZE);
+		try (stream) {
+			MessageDigest digest = MessageDigest.getInstance(algo);
+			byte[] buffer = pooled.array();
+			
+			// Normalized chunking: a stricter mask is used before the average
+			// size and a looser one after it, which narrows the size distribution
+			int bits = Integer.numberOfTrailingZeros(spec.avgSize());
+			long maskS = highBitsMask(bits + 1);
+			long maskL = highBitsMask(Math.max(bits - 1, 1));
+			int minSize = spec.minSize();
+			int avgSize = spec.avgSize();
+			int maxSize = spec.maxSize();
+			
+			long offset = 0;
+			int length = 0;
+			long fingerprint = 0;
+			int read;
+			
+			while ((read = stream.read(buffer)) != -1) {
+				int start = 0;
+				int i = 0;
+				
+				while (i < read) {
+					// Cut-point skipping: nothing before the minimum size can be a boundary
+					if (length < minSize) {
+						int skip = Math.min(minSize - length, read - i);
+						length += skip;
+						i += skip;
+						continue;
+					}
+					
+					fingerprint = (fingerprint << 1) + GEAR[buffer[i++] & 0xFF];
+					length++;
+					
+					long mask = length < avgSize ? maskS : maskL;
+					if ((fingerprint & mask) != 0 && length < maxSize) continue;
+					
+					digest.update(buffer, start, i - start);
+					consumer.accept(new UResourceChunk(offset, length, digest.digest()));
+					
+					offset += length;
+					length = 0;
+					fingerprint = 0;
+					start = i;
+				}
+				
+				if (start < read) digest.update(buffer, start, read - start);
+			}
+			
+			// The remaining bytes are always a chunk
+			if (length > 0) {
+				consumer.accept(new UResourceChunk(offset, length, digest.digest()));
+			}
+		} finally {
+			UBufferPool.HEAP.release(pooled);
+		}
+	}
+	
+	/**
+	 * Splits the data read from the given path into content-defined chunks and
+	 * delivers every chunk to the given consumer as soon as its boundary is found.
+	 *
+	 * @param path     the path to read data from
+	 * @param spec     the chunk size limits
+	 * @param algo     the hash algorithm used to digest every chunk
+	 * @param consumer the action that receives every chunk in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void chunks(@NotNull Path path, @NotNull UChunkSpec spec, @NotNull String algo,
+		@NotNull Consumer<UResourceChunk> consumer) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(path, "Path path");
+		chunks(Files.newInputStream(path), spec, algo, consumer);
+	}
+	
+	/* -----------------------------------------------------
+	 * Collected chunk methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Splits the data read from the given input stream into content-defined chunks.
+	 *
+	 * @param stream the input stream to read data from
+	 * @param spec   the chunk size limits
+	 * @param algo   the hash algorithm used to digest every chunk
+	 * @return the chunks of the stream in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static @NotNull List<UResourceChunk> chunks(@NotNull InputStream stream, @NotNull UChunkSpec spec,
+		@NotNull String algo) throws IOException, NoSuchAlgorithmException {
+		List<UResourceChunk> result = new ArrayList<>();
+		chunks(stream, spec, algo, result::add);
+		return result;
+	}
+	
+	/**
+	 * Splits the data read from the given input stream into content-defined chunks using
+	 * the default chunk sizes and the default algorithm.
+	 *
+	 * @param stream the input stream to read data from
+	 * @return the chunks of the stream in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the stream is null
+	 */
+	public static @NotNull List<UResourceChunk> chunks(@NotNull InputStream stream) throws IOException,
+		NoSuchAlgorithmException {
+		return chunks(stream, UChunkSpec.DEFAULT, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/**
+	 * Splits the data read from the given path into content-defined chunks.
+	 *
+	 * @param path the path to read data from
+	 * @param spec the chunk size limits
+	 * @param algo the hash algorithm used to digest every chunk
+	 * @return the chunks of the path in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static @NotNull List<UResourceChunk> chunks(@NotNull Path path, @NotNull UChunkSpec spec,
+		@NotNull String algo) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(path, "Path path");
+		return chunks(Files.newInputStream(path), spec, algo);
+	}
+	
+	/**
+	 * Splits the data read from the given path into content-defined chunks using
+	 * the default chunk sizes and the default algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @return the chunks of the path in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public static @NotNull List<UResourceChunk> chunks(@NotNull Path path) throws IOException,
+		NoSuchAlgorithmException {
+		return chunks(path, UChunkSpec.DEFAULT, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Generates a mask with the given number of most significant bits set. The gear hash
+	 * shifts to the left, so the high bits depend on the largest window of bytes.
+	 *
+	 * @param bits the number of bits to set
+	 * @return the generated mask
+	 */
+	private static long highBitsMask(int bits) {
+		return bits >= Long.SIZE ? -1L : ((1L << bits) - 1) << (Long.SIZE - bits);
+	}
+	
+}
\ No newline at end of file
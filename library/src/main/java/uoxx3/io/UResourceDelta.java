@@ -0,0 +1,657 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.internal.UBufferPool;
+import uoxx3.io.internal.UChannelInputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * rsync-style delta encoding. A {@link USignature} of the old resource is computed, the new
+ * resource is scanned with a rolling window to produce {@link UDeltaInstruction}s, and the
+ * instructions are applied to the old resource to rebuild the new one.
+ */
+public final class UResourceDelta {
+	
+	/**
+	 * The default block size used by the signatures.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 8 << 10;
+	
+	/**
+	 * The maximum size of a single literal instruction.
+	 */
+	private static final int LITERAL_LIMIT = 64 << 10;
+	
+	/**
+	 * Files larger than this size are split into segments processed in parallel.
+	 */
+	private static final long PARALLEL_SEGMENT_SIZE = 64L << 20;
+	
+	/**
+	 * Identifier written at the beginning of a serialized delta ("UDLT").
+	 */
+	private static final int MAGIC = 0x55444C54;
+	private static final int OP_END = 0;
+	private static final int OP_COPY = 1;
+	private static final int OP_LITERAL = 2;
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UResourceDelta() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Signature methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes the block signature of the data read from the given input stream.
+	 *
+	 * @param stream    the input stream to read data from
+	 * @param blockSize the size of the blocks
+	 * @param algo      the algorithm used to compute the strong digests
+	 * @return the signature of the data
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the stream or algorithm is null, or the block size is not positive
+	 */
+	public static @NotNull USignature signature(@NotNull InputStream stream, int blockSize, @NotNull String algo)
+		throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(stream, "InputStream stream");
+		UAssert.paramNotNull(algo, "String algo");
+		checkBlockSize(blockSize);
+		
+		ByteBuffer pooled = UBufferPool.HEAP.acquire(blockSize);
+		try (stream) {
+			MessageDigest digest = MessageDigest.getInstance(algo);
+			byte[] block = pooled.array();
+			List<byte[]> strong = new ArrayList<>();
+			int[] weak = new int[16];
+			long length = 0;
+			int read;
+			
+			while ((read = stream.readNBytes(block, 0, blockSize)) > 0) {
+				if (strong.size() == weak.length) weak = Arrays.copyOf(weak, weak.length * 2);
+				
+				weak[strong.size()] = weakChecksum(block, 0, read);
+				digest.update(block, 0, read);
+				strong.add(digest.digest());
+				length += read;
+			}
+			
+			return new USignature(blockSize, length, algo, Arrays.copyOf(weak, strong.size()),
+								  strong.toArray(byte[][]::new));
+		} finally {
+			UBufferPool.HEAP.release(pooled);
+		}
+	}
+	
+	/**
+	 * Computes the block signature of the given path. The blocks are read with positional
+	 * reads and digested in parallel.
+	 *
+	 * @param path      the path to read data from
+	 * @param blockSize the size of the blocks
+	 * @param algo      the algorithm used to compute the strong digests
+	 * @return the signature of the path
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the path or algorithm is null, or the block size is not positive
+	 */
+	public static @NotNull USignature signature(@NotNull Path path, int blockSize, @NotNull String algo)
+		throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(algo, "String algo");
+		checkBlockSize(blockSize);
+		MessageDigest.getInstance(algo);
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			long count = (length + blockSize - 1) / blockSize;
+			if (count > Integer.MAX_VALUE) throw new IOException("Too many blocks, use a bigger block size");
+			
+			int blocks = (int) count;
+			int[] weak = new int[blocks];
+			byte[][] strong = new byte[blocks][];
+			// Every task digests a contiguous group of blocks with its own buffer
+			int group = (int) Math.max(1, PARALLEL_SEGMENT_SIZE / 16 / blockSize);
+			int groups = (blocks + group - 1) / group;
+			
+			try {
+				IntStream.range(0, groups).parallel().forEach(g -> {
+					try {
+						MessageDigest digest = MessageDigest.getInstance(algo);
+						ByteBuffer buffer = UBufferPool.HEAP.acquire(blockSize);
+						int last = Math.min(blocks, (g + 1) * group);
+						
+						try {
+							for (int i = g * group; i < last; i++) {
+								long position = (long) i * blockSize;
+								buffer.clear().limit((int) Math.min(blockSize, length - position));
+								readFully(channel, buffer, position);
+								
+								weak[i] = weakChecksum(buffer.array(), 0, buffer.limit());
+								digest.update(buffer.array(), 0, buffer.limit());
+								strong[i] = digest.digest();
+							}
+						} finally {
+							UBufferPool.HEAP.release(buffer);
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					} catch (NoSuchAlgorithmException e) {
+						throw new IllegalStateException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			
+			return new USignature(blockSize, length, algo, weak, strong);
+		}
+	}
+	
+	/**
+	 * Computes the block signature of the given path using the default block size and
+	 * the default algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @return the signature of the path
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public static @NotNull USignature signature(@NotNull Path path) throws IOException, NoSuchAlgorithmException {
+		return signature(path, DEFAULT_BLOCK_SIZE, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/* -----------------------------------------------------
+	 * Delta methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Scans the data read from the given input stream and delivers the instructions needed
+	 * to rebuild it from the resource described by the signature. Adjacent copies are merged
+	 * and literals are split in chunks of at most 64 kilobytes.
+	 *
+	 * @param signature the signature of the old resource
+	 * @param stream    the input stream of the new resource
+	 * @param consumer  the action that receives every instruction in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the signature algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void delta(@NotNull USignature signature, @NotNull InputStream stream,
+		@NotNull Consumer<UDeltaInstruction> consumer) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(signature, "USignature signature");
+		UAssert.paramNotNull(stream, "InputStream stream");
+		UAssert.paramNotNull(consumer, "Consumer<UDeltaInstruction> consumer");
+		
+		try (stream) {
+			DeltaEmitter emitter = new DeltaEmitter(consumer);
+			scan(signature, stream, emitter);
+			emitter.flush();
+		}
+	}
+	
+	/**
+	 * Scans the given path and delivers the instructions needed to rebuild it from the
+	 * resource described by the signature. Large files are split into segments of 64 megabytes
+	 * that are scanned in parallel, one window of segments per processor at a time; a match is
+	 * never searched across two segments. The instructions of a window are delivered in order
+	 * as soon as the whole window is scanned, so only one window of instructions is kept in
+	 * memory.
+	 *
+	 * @param signature the signature of the old resource
+	 * @param path      the path of the new resource
+	 * @param consumer  the action that receives every instruction in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the signature algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void delta(@NotNull USignature signature, @NotNull Path path,
+		@NotNull Consumer<UDeltaInstruction> consumer) throws IOException, NoSuchAlgorithmException {
+		delta(signature, path, PARALLEL_SEGMENT_SIZE, consumer);
+	}
+	
+	/**
+	 * Scans the given path in segments of the given size.
+	 *
+	 * @param signature   the signature of the old resource
+	 * @param path        the path of the new resource
+	 * @param segmentSize the size of the segments scanned in parallel
+	 * @param consumer    the action that receives every instruction in order
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the signature algorithm is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 * @see #delta(USignature, Path, Consumer)
+	 */
+	static void delta(@NotNull USignature signature, @NotNull Path path, long segmentSize,
+		@NotNull Consumer<UDeltaInstruction> consumer) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(signature, "USignature signature");
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(consumer, "Consumer<UDeltaInstruction> consumer");
+		MessageDigest.getInstance(signature.algorithm());
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			int segments = (int) Math.max(1, (length + segmentSize - 1) / segmentSize);
+			int window = Runtime.getRuntime().availableProcessors();
+			// Joins the segments, merging the copies at the boundaries
+			DeltaEmitter emitter = new DeltaEmitter(consumer);
+			
+			for (int first = 0; first < segments; first += window) {
+				int last = Math.min(segments, first + window);
+				// A single segment is delivered while it is scanned
+				if (last - first == 1) {
+					long start = first * segmentSize;
+					long end = Math.min(length, start + segmentSize);
+					scan(signature, new UChannelInputStream(channel, start, end - start), emitter);
+					continue;
+				}
+				
+				List<List<UDeltaInstruction>> parts = new ArrayList<>(last - first);
+				for (int i = first; i < last; i++) parts.add(new ArrayList<>());
+				int offset = first;
+				
+				try {
+					IntStream.range(first, last).parallel().forEach(i -> {
+						long start = i * segmentSize;
+						long end = Math.min(length, start + segmentSize);
+						
+						try {
+							DeltaEmitter part = new DeltaEmitter(parts.get(i - offset)::add);
+							scan(signature, new UChannelInputStream(channel, start, end - start), part);
+							part.flush();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						} catch (NoSuchAlgorithmException e) {
+							throw new IllegalStateException(e);
+						}
+					});
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				parts.forEach(part -> part.forEach(emitter::accept));
+			}
+			emitter.flush();
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Apply methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Rebuilds the new resource by applying the instructions to the old resource.
+	 *
+	 * @param base         the old resource
+	 * @param instructions the instructions produced by a delta operation
+	 * @param stream       the stream where the new resource is written; it is not closed
+	 * @throws IOException              if an I/O error occurs or an instruction is out of the base bounds
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void apply(@NotNull Path base, @NotNull Iterable<UDeltaInstruction> instructions,
+		@NotNull OutputStream stream) throws IOException {
+		UAssert.paramNotNull(stream, "OutputStream stream");
+		apply(base, instructions, Channels.newChannel(stream));
+		stream.flush();
+	}
+	
+	/**
+	 * Rebuilds the new resource at the target location by applying the instructions to
+	 * the old resource.
+	 *
+	 * @param base         the old resource
+	 * @param instructions the instructions produced by a delta operation
+	 * @param target       the location of the new resource; it must be different from the base
+	 * @throws IOException              if an I/O error occurs or an instruction is out of the base bounds
+	 * @throws IllegalArgumentException if any parameter is null, or the target is the base file
+	 */
+	public static void apply(@NotNull Path base, @NotNull Iterable<UDeltaInstruction> instructions,
+		@NotNull Path target) throws IOException {
+		UAssert.paramNotNull(base, "Path base");
+		UAssert.paramNotNull(target, "Path target");
+		// Opening the target would truncate the base while it is still read
+		if (Files.exists(target) && Files.isSameFile(base, target)) {
+			throw new IllegalArgumentException("The target is the base file. \"%s\" given".formatted(target));
+		}
+		try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+												StandardOpenOption.TRUNCATE_EXISTING)) {
+			apply(base, instructions, out);
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Serialization methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Writes the instructions in a compact binary format.
+	 *
+	 * @param instructions the instructions to write
+	 * @param stream       the stream to write to; it is not closed
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void writeDelta(@NotNull Iterable<UDeltaInstruction> instructions, @NotNull OutputStream stream)
+		throws IOException {
+		UAssert.paramNotNull(instructions, "Iterable<UDeltaInstruction> instructions");
+		UAssert.paramNotNull(stream, "OutputStream stream");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(MAGIC);
+		
+		for (UDeltaInstruction instruction : instructions) {
+			if (instruction instanceof UDeltaInstruction.Copy copy) {
+				out.writeByte(OP_COPY);
+				out.writeLong(copy.offset());
+				out.writeLong(copy.length());
+			} else if (instruction instanceof UDeltaInstruction.Literal literal) {
+				out.writeByte(OP_LITERAL);
+				out.writeInt(literal.data().length);
+				out.write(literal.data());
+			}
+		}
+		
+		out.writeByte(OP_END);
+		out.flush();
+	}
+	
+	/**
+	 * Reads the instructions written by {@link #writeDelta(Iterable, OutputStream)} and
+	 * delivers them to the given consumer as they are decoded.
+	 *
+	 * @param stream   the stream to read from; it is not closed
+	 * @param consumer the action that receives every instruction in order
+	 * @throws IOException              if an I/O error occurs or the data is not a valid delta
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void readDelta(@NotNull InputStream stream, @NotNull Consumer<UDeltaInstruction> consumer)
+		throws IOException {
+		UAssert.paramNotNull(stream, "InputStream stream");
+		UAssert.paramNotNull(consumer, "Consumer<UDeltaInstruction> consumer");
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		if (in.readInt() != MAGIC) throw new IOException("Invalid delta header");
+		
+		while (true) {
+			int op = in.readUnsignedByte();
+			switch (op) {
+				case OP_END -> {
+					return;
+				}
+				case OP_COPY -> consumer.accept(new UDeltaInstruction.Copy(in.readLong(), in.readLong()));
+				case OP_LITERAL -> {
+					int length = in.readInt();
+					if (length < 0 || length > LITERAL_LIMIT) throw new IOException("Invalid literal length");
+					byte[] data = in.readNBytes(length);
+					if (data.length != length) throw new EOFException();
+					consumer.accept(new UDeltaInstruction.Literal(data));
+				}
+				default -> throw new IOException("Invalid delta operation \"%d\"".formatted(op));
+			}
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Scans a stream with a rolling window and emits copy and literal instructions.
+	 *
+	 * @param signature the signature of the old resource
+	 * @param stream    the data to scan
+	 * @param emitter   the instruction sink
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the signature algorithm is not available
+	 */
+	private static void scan(@NotNull USignature signature, @NotNull InputStream stream,
+		@NotNull DeltaEmitter emitter) throws IOException, NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance(signature.algorithm());
+		int bs = signature.blockSize();
+		ByteBuffer pooled = UBufferPool.HEAP.acquire(LITERAL_LIMIT + 2 * bs);
+		byte[] buffer = pooled.array();
+		
+		try {
+			int literal = 0;  // start of the pending literal
+			int pos = 0;      // start of the window
+			int end = 0;      // end of the valid data
+			boolean eof = false;
+			boolean rolling = false;
+			int a = 0;
+			int b = 0;
+			
+			while (true) {
+				// The window needs one extra byte to roll
+				if (end - pos <= bs && !eof) {
+					if (literal > 0) {
+						System.arraycopy(buffer, literal, buffer, 0, end - literal);
+						pos -= literal;
+						end -= literal;
+						literal = 0;
+					}
+					
+					int read = stream.read(buffer, end, buffer.length - end);
+					if (read == -1) eof = true;
+					else end += read;
+					continue;
+				}
+				if (end - pos < bs) break;
+				
+				if (!rolling) {
+					a = 0;
+					b = 0;
+					for (int i = 0; i < bs; i++) {
+						int x = buffer[pos + i] & 0xFF;
+						a += x;
+						b += (bs - i) * x;
+					}
+					a &= 0xFFFF;
+					b &= 0xFFFF;
+					rolling = true;
+				}
+				
+				int block = findBlock(signature, digest, (b << 16) | a, buffer, pos, bs);
+				if (block != -1) {
+					emitter.literal(buffer, literal, pos - literal);
+					emitter.copy((long) block * bs, bs);
+					pos += bs;
+					literal = pos;
+					rolling = false;
+					continue;
+				}
+				
+				// No match, the window needs more data
+				if (pos + bs == end) break;
+				
+				int out = buffer[pos] & 0xFF;
+				int in = buffer[pos + bs] & 0xFF;
+				a = (a - out + in) & 0xFFFF;
+				b = (b - bs * out + a) & 0xFFFF;
+				pos++;
+				
+				if (pos - literal >= LITERAL_LIMIT) {
+					emitter.literal(buffer, literal, pos - literal);
+					literal = pos;
+				}
+			}
+			
+			// The last block of the old resource may be shorter than the block size
+			int lastBlock = signature.blockCount() - 1;
+			int tail = lastBlock < 0 ? 0 : signature.blockLength(lastBlock);
+			if (tail > 0 && tail < bs && end - literal >= tail) {
+				int tailPos = end - tail;
+				int block = findBlock(signature, digest, weakChecksum(buffer, tailPos, tail), buffer, tailPos, tail);
+				
+				if (block == lastBlock) {
+					emitter.literal(buffer, literal, tailPos - literal);
+					emitter.copy((long) block * bs, tail);
+					literal = end;
+				}
+			}
+			
+			emitter.literal(buffer, literal, end - literal);
+		} finally {
+			UBufferPool.HEAP.release(pooled);
+		}
+	}
+	
+	/**
+	 * Finds a block of the given length whose checksums are equal to the window ones.
+	 *
+	 * @return the block index, or -1 if there is none
+	 */
+	private static int findBlock(@NotNull USignature signature, @NotNull MessageDigest digest, int checksum,
+		byte[] buffer, int offset, int length) {
+		int block = signature.find(checksum);
+		byte[] strong = null;
+		
+		while (block != -1) {
+			if (signature.blockLength(block) == length) {
+				if (strong == null) {
+					digest.update(buffer, offset, length);
+					strong = digest.digest();
+				}
+				if (signature.matches(block, strong)) return block;
+			}
+			block = signature.findNext(block);
+		}
+		return -1;
+	}
+	
+	/**
+	 * Computes the weak checksum (rsync rolling checksum) of the given region.
+	 */
+	private static int weakChecksum(byte[] buffer, int offset, int length) {
+		int a = 0;
+		int b = 0;
+		for (int i = 0; i < length; i++) {
+			int x = buffer[offset + i] & 0xFF;
+			a += x;
+			b += (length - i) * x;
+		}
+		return ((b & 0xFFFF) << 16) | (a & 0xFFFF);
+	}
+	
+	private static void apply(@NotNull Path base, @NotNull Iterable<UDeltaInstruction> instructions,
+		@NotNull WritableByteChannel out) throws IOException {
+		UAssert.paramNotNull(base, "Path base");
+		UAssert.paramNotNull(instructions, "Iterable<UDeltaInstruction> instructions");
+		
+		try (FileChannel in = FileChannel.open(base, StandardOpenOption.READ)) {
+			long size = in.size();
+			
+			for (UDeltaInstruction instruction : instructions) {
+				if (instruction instanceof UDeltaInstruction.Copy copy) {
+					if (copy.offset() + copy.length() > size) {
+						throw new IOException("The copy instruction is out of the base bounds: " + copy);
+					}
+					
+					long position = copy.offset();
+					long remaining = copy.length();
+					while (remaining > 0) {
+						long transferred = in.transferTo(position, remaining, out);
+						if (transferred <= 0) throw new EOFException();
+						position += transferred;
+						remaining -= transferred;
+					}
+				} else if (instruction instanceof UDeltaInstruction.Literal literal) {
+					ByteBuffer data = ByteBuffer.wrap(literal.data());
+					while (data.hasRemaining()) out.write(data);
+				}
+			}
+		}
+	}
+	
+	private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position)
+		throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read == -1) throw new EOFException();
+			position += read;
+		}
+		buffer.flip();
+	}
+	
+	private static void checkBlockSize(int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("The block size must be positive. \"%d\" given".formatted(blockSize));
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal classes
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Instruction sink that merges adjacent copies.
+	 */
+	private static final class DeltaEmitter {
+		
+		private final Consumer<UDeltaInstruction> consumer;
+		private long copyOffset = -1;
+		private long copyLength;
+		
+		DeltaEmitter(@NotNull Consumer<UDeltaInstruction> consumer) {
+			this.consumer = consumer;
+		}
+		
+		void copy(long offset, long length) {
+			if (copyOffset != -1 && copyOffset + copyLength == offset) {
+				copyLength += length;
+				return;
+			}
+			
+			flush();
+			copyOffset = offset;
+			copyLength = length;
+		}
+		
+		void literal(byte[] buffer, int offset, int length) {
+			if (length <= 0) return;
+			flush();
+			
+			// Literals never exceed the serialization limit
+			for (int i = offset; i < offset + length; i += LITERAL_LIMIT) {
+				int to = Math.min(offset + length, i + LITERAL_LIMIT);
+				consumer.accept(new UDeltaInstruction.Literal(Arrays.copyOfRange(buffer, i, to)));
+			}
+		}
+		
+		void accept(@NotNull UDeltaInstruction instruction) {
+			if (instruction instanceof UDeltaInstruction.Copy copy) {
+				copy(copy.offset(), copy.length());
+			} else {
+				flush();
+				consumer.accept(instruction);
+			}
+		}
+		
+		void flush() {
+			if (copyOffset == -1) return;
+			
+			consumer.accept(new UDeltaInstruction.Copy(copyOffset, copyLength));
+			copyOffset = -1;
+		}
+		
+	}
+	
+}
\ No newline at end of file
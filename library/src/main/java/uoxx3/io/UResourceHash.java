@@ -2,18 +2,29 @@ package uoxx3.io;
 
 import org.jetbrains.annotations.NotNull;
 import uoxx3.UAssert;
+import uoxx3.io.internal.UBatchIo;
+import uoxx3.io.internal.UBufferPool;
+import uoxx3.io.internal.UHashEvent;
+import uoxx3.io.internal.UMetrics;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -40,18 +51,54 @@ public final class UResourceHash {
 	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
 	 * @throws IllegalArgumentException if the stream or algorithm is null
 	 */
-	@SuppressWarnings("StatementWithEmptyBody")
 	public static byte[] hash(@NotNull InputStream stream, @NotNull String algo) throws IOException, NoSuchAlgorithmException {
+		return hash(stream, algo, UFSConstants.FS_READ_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Computes the hash of the data read from the given input stream, reading it with a pooled
+	 * buffer of the given size.
+	 *
+	 * @param stream     the input stream to read data from
+	 * @param algo       the hash algorithm to use
+	 * @param bufferSize the size of the read buffer
+	 * @return the computed hash as a byte array
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the stream or algorithm is null
+	 */
+	private static byte[] hash(@NotNull InputStream stream, @NotNull String algo, int bufferSize)
+		throws IOException, NoSuchAlgorithmException {
 		UAssert.paramNotNull(stream, "InputStream stream");
 		UAssert.paramNotNull(algo, "String algo");
 		
+		UHashEvent event = new UHashEvent();
+		event.begin();
+		boolean metrics = UMetrics.enabled();
+		long start = metrics ? System.nanoTime() : 0;
+		
+		ByteBuffer pooled = UBufferPool.HEAP.acquire(bufferSize);
 		try (stream) {
 			MessageDigest digest = MessageDigest.getInstance(algo);
 			DigestInputStream digestStream = new DigestInputStream(stream, digest);
-			byte[] buffer = new byte[UFSConstants.FS_BUFFER_SIZE];
+			byte[] buffer = pooled.array();
+			long bytes = 0;
+			int read;
 			
-			while (digestStream.read(buffer) != -1) {/*Do nothing*/}
-			return digest.digest();
+			while ((read = digestStream.read(buffer)) != -1) {
+				bytes += read;
+			}
+			byte[] result = digest.digest();
+			
+			if (event.shouldCommit()) {
+				event.algorithm = algo;
+				event.bytes = bytes;
+				event.commit();
+			}
+			if (metrics) UMetrics.hashed(algo, bytes, System.nanoTime() - start);
+			return result;
+		} finally {
+			UBufferPool.HEAP.release(pooled);
 		}
 	}
 	
@@ -80,7 +127,7 @@ public final class UResourceHash {
 	 */
 	public static byte[] hash(@NotNull Path path, @NotNull String algo) throws IOException, NoSuchAlgorithmException {
 		UAssert.paramNotNull(path, "Path path");
-		return hash(Files.newInputStream(path), algo);
+		return hash(Files.newInputStream(path), algo, UBufferPool.readSize(path));
 	}
 	
 	/**
@@ -108,7 +155,7 @@ public final class UResourceHash {
 	 */
 	public static byte[] hash(@NotNull File file, @NotNull String algo) throws IOException, NoSuchAlgorithmException {
 		UAssert.paramNotNull(file, "File file");
-		return hash(new FileInputStream(file), algo);
+		return hash(new FileInputStream(file), algo, UBufferPool.readSize(file.toPath()));
 	}
 	
 	/**
@@ -170,10 +217,7 @@ public final class UResourceHash {
 	 */
 	public static @NotNull String hashStr(byte[] hash) {
 		UAssert.paramNotNull(hash, "byte[] hash");
-		return IntStream.range(0, hash.length)
-			.map(i -> hash[i])
-			.mapToObj(b -> String.format("%02x", b))
-			.collect(Collectors.joining());
+		return HexFormat.of().formatHex(hash);
 	}
 	
 	/**
@@ -291,4 +335,169 @@ public final class UResourceHash {
 		return hashStr(hash(zip, entry));
 	}
 	
+	/* -----------------------------------------------------
+	 * Batch hash methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes the hash of many files using the specified algorithm. The files are read whole
+	 * through the batched read engine, io_uring on Linux when it is enabled, so this suits many
+	 * small files; large files are better hashed one by one with {@link #hash(Path, String)}.
+	 *
+	 * @param paths the files to hash
+	 * @param algo  the hash algorithm to use
+	 * @return the hash of every file, in the order of the given collection
+	 * @throws IOException              if any file cannot be read
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the paths or algorithm is null
+	 * @see UResource#readAll(Collection, int, BiConsumer)
+	 */
+	public static @NotNull Map<Path, byte[]> hashAll(@NotNull Collection<Path> paths, @NotNull String algo)
+		throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(paths, "Collection<Path> paths");
+		UAssert.paramNotNull(algo, "String algo");
+		
+		// Fails early if the algorithm is not available
+		MessageDigest.getInstance(algo);
+		boolean metrics = UMetrics.enabled();
+		Map<Path, byte[]> hashes = new ConcurrentHashMap<>();
+		
+		UBatchIo.readAll(paths, UFSConstants.FS_BULK_READ_PARALLELISM, (path, content) -> {
+			long start = metrics ? System.nanoTime() : 0;
+			long bytes = content.remaining();
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance(algo);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+			digest.update(content);
+			hashes.put(path, digest.digest());
+			if (metrics) UMetrics.hashed(algo, bytes, System.nanoTime() - start);
+		});
+		
+		Map<Path, byte[]> result = new LinkedHashMap<>();
+		for (Path path : paths) {
+			result.put(path, hashes.get(path));
+		}
+		return result;
+	}
+	
+	/**
+	 * Computes the hash of many files using the default algorithm.
+	 *
+	 * @param paths the files to hash
+	 * @return the hash of every file, in the order of the given collection
+	 * @throws IOException              if any file cannot be read
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the paths are null
+	 * @see #hashAll(Collection, String)
+	 */
+	public static @NotNull Map<Path, byte[]> hashAll(@NotNull Collection<Path> paths) throws IOException,
+		NoSuchAlgorithmException {
+		return hashAll(paths, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/* -----------------------------------------------------
+	 * Quick fingerprint methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes a non-authoritative fingerprint of the given path. Only the file size, the head
+	 * and tail windows and the given number of evenly spaced interior windows are digested; the
+	 * windows are read with positional {@link FileChannel} reads, so the rest of the file is never
+	 * touched. Files smaller than all the windows together are digested completely.
+	 *
+	 * @param path            the path to read data from
+	 * @param algo            the hash algorithm to use
+	 * @param windowSize      the size of every window
+	 * @param interiorWindows the number of interior windows
+	 * @return the quick fingerprint of the path
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the path or algorithm is null, the window size is not positive or
+	 *                                  the number of interior windows is negative
+	 */
+	public static @NotNull UQuickFingerprint quickFingerprint(@NotNull Path path, @NotNull String algo,
+		int windowSize, int interiorWindows) throws IOException, NoSuchAlgorithmException {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(algo, "String algo");
+		if (windowSize <= 0 || interiorWindows < 0) {
+			throw new IllegalArgumentException("Invalid windows. windowSize=%d, interiorWindows=%d given"
+												   .formatted(windowSize, interiorWindows));
+		}
+		
+		ByteBuffer buffer = UBufferPool.HEAP.acquire(Math.min(windowSize, UBufferPool.readSize(path)));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MessageDigest digest = MessageDigest.getInstance(algo);
+			long size = channel.size();
+			long windows = interiorWindows + 2L;
+			boolean complete = size <= windows * windowSize;
+			
+			// The size is part of the fingerprint (big-endian)
+			for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+				digest.update((byte) (size >>> shift));
+			}
+			
+			if (complete) {
+				digestWindow(channel, digest, buffer, 0, size);
+			} else {
+				long last = size - windowSize;
+				for (long i = 0; i < windows; i++) {
+					// Head, interior windows and tail, evenly spaced
+					digestWindow(channel, digest, buffer, last * i / (windows - 1), windowSize);
+				}
+			}
+			
+			return new UQuickFingerprint(size, digest.digest(), algo, windowSize, interiorWindows, complete);
+		} finally {
+			UBufferPool.HEAP.release(buffer);
+		}
+	}
+	
+	/**
+	 * Computes a non-authoritative fingerprint of the given path using the default windows
+	 * and the default algorithm.
+	 *
+	 * @param path the path to read data from
+	 * @return the quick fingerprint of the path
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the path is null
+	 * @see #quickFingerprint(Path, String, int, int)
+	 */
+	public static @NotNull UQuickFingerprint quickFingerprint(@NotNull Path path) throws IOException,
+		NoSuchAlgorithmException {
+		return quickFingerprint(path, UFSConstants.FS_HASH_ALGORITHM, UFSConstants.FS_FINGERPRINT_WINDOW_SIZE,
+								UFSConstants.FS_FINGERPRINT_INTERIOR_WINDOWS);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Digests a region of the channel using positional reads.
+	 *
+	 * @param channel  the channel to read from
+	 * @param digest   the digest to update
+	 * @param buffer   the heap buffer used to read
+	 * @param position the position of the region
+	 * @param length   the number of bytes of the region
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void digestWindow(@NotNull FileChannel channel, @NotNull MessageDigest digest,
+		@NotNull ByteBuffer buffer, long position, long length) throws IOException {
+		long end = position + length;
+		
+		while (position < end) {
+			buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+			int read = channel.read(buffer, position);
+			if (read == -1) break;
+			
+			digest.update(buffer.array(), 0, read);
+			position += read;
+		}
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,348 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.util.Arrays;
+
+/**
+ * Flyweight view over a resource location. The location is scanned once and only the
+ * offsets of the directory, the file name, the basename and every extension are stored;
+ * the {@link String} values are materialized lazily when they are requested.
+ * <p>
+ * The rules are the ones used by {@link UResource#basename(String, boolean, boolean)} and
+ * {@link UResource#extensions(String)}:
+ * <ul>
+ *     <li>{@code '/'}, {@code '\\'} and {@code '|'} are separators, and trailing separators are ignored</li>
+ *     <li>the location is trimmed before looking for the file name</li>
+ *     <li>the basename ends at the first {@code '.'} of the file name</li>
+ *     <li>empty trailing extensions and extensions equal to the basename are discarded</li>
+ * </ul>
+ * Instances are not thread-safe, but they can be reused with {@link #reset(CharSequence)}
+ * to parse many locations without allocating.
+ */
+public final class UResourceName {
+	
+	private CharSequence source;
+	private int directoryEnd;
+	private int nameStart;
+	private int nameEnd;
+	private int basenameEnd;
+	
+	// Start and end offsets of every extension
+	private int[] extensions = new int[8];
+	private int extensionCount;
+	
+	// Lazily materialized values
+	private String filename;
+	private String basename;
+	private String[] extensionValues;
+	
+	/**
+	 * Creates an empty name; use {@link #reset(CharSequence)} to parse a location.
+	 */
+	public UResourceName() {
+		reset("");
+	}
+	
+	/**
+	 * Parses the given location.
+	 *
+	 * @param location the full location
+	 * @return the parsed name view
+	 * @throws IllegalArgumentException if the location is null
+	 */
+	public static @NotNull UResourceName of(@NotNull CharSequence location) {
+		return new UResourceName().reset(location);
+	}
+	
+	/* -----------------------------------------------------
+	 * Parse methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Parses the given location, replacing the current state of this instance.
+	 *
+	 * @param location the full location
+	 * @return this instance
+	 * @throws IllegalArgumentException if the location is null
+	 */
+	public @NotNull UResourceName reset(@NotNull CharSequence location) {
+		UAssert.paramNotNull(location, "CharSequence location");
+		source = location;
+		filename = null;
+		basename = null;
+		extensionValues = null;
+		extensionCount = 0;
+		
+		// Same rules as String#trim
+		int start = 0;
+		int end = location.length();
+		while (start < end && location.charAt(start) <= ' ') start++;
+		while (end > start && location.charAt(end - 1) <= ' ') end--;
+		
+		// Ignore trailing separators
+		while (end > start && isSeparator(location.charAt(end - 1))) end--;
+		
+		int name = end;
+		while (name > start && !isSeparator(location.charAt(name - 1))) name--;
+		
+		int directory = name;
+		while (directory > start && isSeparator(location.charAt(directory - 1))) directory--;
+		
+		directoryEnd = directory;
+		nameStart = name;
+		nameEnd = end;
+		basenameEnd = end;
+		
+		scanExtensions();
+		return this;
+	}
+	
+	/* -----------------------------------------------------
+	 * Offset methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the parsed location.
+	 *
+	 * @return the source location
+	 */
+	public @NotNull CharSequence source() {
+		return source;
+	}
+	
+	/**
+	 * Returns the offset where the file name starts within the source.
+	 *
+	 * @return the file name start offset
+	 */
+	public int nameStart() {
+		return nameStart;
+	}
+	
+	/**
+	 * Returns the offset where the file name ends within the source.
+	 *
+	 * @return the file name end offset (exclusive)
+	 */
+	public int nameEnd() {
+		return nameEnd;
+	}
+	
+	/**
+	 * Returns the offset where the basename ends within the source.
+	 *
+	 * @return the basename end offset (exclusive)
+	 */
+	public int basenameEnd() {
+		return basenameEnd;
+	}
+	
+	/**
+	 * Returns the number of extensions of the file name.
+	 *
+	 * @return the number of extensions
+	 */
+	public int extensionCount() {
+		return extensionCount;
+	}
+	
+	/**
+	 * Returns the offset where the extension with the given index starts within the source.
+	 *
+	 * @param index the extension index
+	 * @return the extension start offset
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int extensionStart(int index) {
+		return extensions[checkExtension(index) << 1];
+	}
+	
+	/**
+	 * Returns the offset where the extension with the given index ends within the source.
+	 *
+	 * @param index the extension index
+	 * @return the extension end offset (exclusive)
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int extensionEnd(int index) {
+		return extensions[(checkExtension(index) << 1) + 1];
+	}
+	
+	/* -----------------------------------------------------
+	 * Value methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the raw directory part of the location, without the trailing separators.
+	 *
+	 * @return the directory part, or an empty string if there is none
+	 */
+	public @NotNull String directory() {
+		int start = 0;
+		while (start < directoryEnd && source.charAt(start) <= ' ') start++;
+		return source.subSequence(start, directoryEnd).toString();
+	}
+	
+	/**
+	 * Returns the file name, including its extensions.
+	 *
+	 * @return the file name
+	 */
+	public @NotNull String filename() {
+		if (filename == null) filename = source.subSequence(nameStart, nameEnd).toString();
+		return filename;
+	}
+	
+	/**
+	 * Returns the basename: the file name without any extension.
+	 *
+	 * @return the basename
+	 */
+	public @NotNull String basename() {
+		if (basename == null) basename = source.subSequence(nameStart, basenameEnd).toString();
+		return basename;
+	}
+	
+	/**
+	 * Returns the extension with the given index.
+	 *
+	 * @param index the extension index
+	 * @return the extension
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public @NotNull String extension(int index) {
+		return extensions()[checkExtension(index)];
+	}
+	
+	/**
+	 * Returns the last extension of the file name.
+	 *
+	 * @return the last extension, or null if there is none
+	 */
+	public @Nullable String lastExtension() {
+		return extensionCount == 0 ? null : extension(extensionCount - 1);
+	}
+	
+	/**
+	 * Returns all the extensions of the file name.
+	 *
+	 * @return the extensions; the returned array must not be modified
+	 */
+	public String @NotNull [] extensions() {
+		if (extensionValues != null) return extensionValues;
+		if (extensionCount == 0) return extensionValues = UFSConstants.FS_EMPTY_EXTENSIONS;
+		
+		String[] values = new String[extensionCount];
+		for (int i = 0; i < extensionCount; i++) {
+			values[i] = source.subSequence(extensions[i << 1], extensions[(i << 1) + 1]).toString();
+		}
+		return extensionValues = values;
+	}
+	
+	/**
+	 * Compares the extension with the given index to a character sequence without
+	 * materializing the extension.
+	 *
+	 * @param index      the extension index
+	 * @param value      the value to compare
+	 * @param ignoreCase whether the case should be ignored
+	 * @return true if the extension is equal to the value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * @throws IllegalArgumentException  if the value is null
+	 */
+	public boolean extensionEquals(int index, @NotNull CharSequence value, boolean ignoreCase) {
+		UAssert.paramNotNull(value, "CharSequence value");
+		int start = extensionStart(index);
+		int length = extensionEnd(index) - start;
+		if (length != value.length()) return false;
+		
+		for (int i = 0; i < length; i++) {
+			char a = source.charAt(start + i);
+			char b = value.charAt(i);
+			if (a == b) continue;
+			if (!ignoreCase || Character.toLowerCase(a) != Character.toLowerCase(b)) return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		return filename();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Scans the file name once, registering every extension. This mirrors
+	 * {@code filename.split("\\.")} followed by the removal of the segments equal to the basename.
+	 */
+	private void scanExtensions() {
+		int segmentStart = nameStart;
+		int lastNonEmptyStart = -1;
+		boolean first = true;
+		
+		for (int i = nameStart; i <= nameEnd; i++) {
+			if (i < nameEnd && source.charAt(i) != UFSConstants.FS_EXTENSION_IDENTIFIER) continue;
+			
+			// The whole name is the basename when there is no extension identifier
+			if (first) {
+				first = false;
+				basenameEnd = i;
+				if (i > segmentStart) lastNonEmptyStart = segmentStart;
+			} else {
+				if (i > segmentStart) lastNonEmptyStart = segmentStart;
+				if (!regionEquals(segmentStart, i, nameStart, basenameEnd)) addExtension(segmentStart, i);
+			}
+			segmentStart = i + 1;
+		}
+		
+		// Trailing empty segments are not extensions
+		while (extensionCount > 0) {
+			int last = (extensionCount - 1) << 1;
+			if (extensions[last] != extensions[last + 1] || extensions[last] <= lastNonEmptyStart) break;
+			extensionCount--;
+		}
+	}
+	
+	private void addExtension(int start, int end) {
+		int index = extensionCount << 1;
+		if (index + 1 >= extensions.length) extensions = Arrays.copyOf(extensions, extensions.length << 1);
+		
+		extensions[index] = start;
+		extensions[index + 1] = end;
+		extensionCount++;
+	}
+	
+	private boolean regionEquals(int start, int end, int otherStart, int otherEnd) {
+		if (end - start != otherEnd - otherStart) return false;
+		
+		for (int i = 0; i < end - start; i++) {
+			if (source.charAt(start + i) != source.charAt(otherStart + i)) return false;
+		}
+		return true;
+	}
+	
+	private int checkExtension(int index) {
+		if (index < 0 || index >= extensionCount) {
+			throw new IndexOutOfBoundsException("Extension index %d out of bounds for %d extensions"
+													.formatted(index, extensionCount));
+		}
+		return index;
+	}
+	
+	/**
+	 * Checks whether the given character is a separator.
+	 *
+	 * @param c the character to check
+	 * @return true if the character is a separator
+	 */
+	static boolean isSeparator(char c) {
+		return c == UFSConstants.FS_FILE_SEPARATOR || c == '\\' || c == '|';
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Block signature of a resource: a weak rolling checksum and a strong digest for every
+ * fixed-size block. The last block may be shorter than the block size.
+ */
+public final class USignature {
+	
+	/**
+	 * Identifier written at the beginning of a serialized signature ("USIG").
+	 */
+	private static final int MAGIC = 0x55534947;
+	
+	private final int blockSize;
+	private final long length;
+	private final String algo;
+	private final int[] weak;
+	private final byte[][] strong;
+	
+	// Open-addressing lookup of blocks by weak checksum
+	private final int[] table;
+	private final int[] next;
+	private final int shift;
+	
+	/**
+	 * Creates a new signature from the checksums of every block.
+	 *
+	 * @param blockSize the size of every block except the last one
+	 * @param length    the total length of the resource
+	 * @param algo      the algorithm used to compute the strong digests
+	 * @param weak      the weak checksum of every block
+	 * @param strong    the strong digest of every block
+	 * @throws IllegalArgumentException if any parameter is null or the sizes are inconsistent
+	 */
+	USignature(int blockSize, long length, @NotNull String algo, int @NotNull [] weak, byte @NotNull [][] strong) {
+		UAssert.paramNotNull(algo, "String algo");
+		UAssert.paramNotNull(weak, "int[] weak");
+		UAssert.paramNotNull(strong, "byte[][] strong");
+		if (blockSize <= 0 || length < 0 || weak.length != strong.length ||
+			weak.length != (length + blockSize - 1) / blockSize) {
+			throw new IllegalArgumentException("Inconsistent signature. blockSize=%d, length=%d, blocks=%d given"
+												   .formatted(blockSize, length, weak.length));
+		}
+		
+		this.blockSize = blockSize;
+		this.length = length;
+		this.algo = algo;
+		this.weak = weak;
+		this.strong = strong;
+		
+		// Build the lookup table (chained through the next array)
+		int capacity = Integer.highestOneBit(Math.max(2, weak.length * 2 - 1)) << 1;
+		this.table = new int[capacity];
+		this.next = new int[weak.length];
+		this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+		Arrays.fill(table, -1);
+		
+		for (int i = weak.length - 1; i >= 0; i--) {
+			int slot = slot(weak[i]);
+			next[i] = table[slot];
+			table[slot] = i;
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Properties
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the size of every block except the last one.
+	 *
+	 * @return the block size
+	 */
+	public int blockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * Returns the total length of the resource.
+	 *
+	 * @return the resource length
+	 */
+	public long length() {
+		return length;
+	}
+	
+	/**
+	 * Returns the algorithm used to compute the strong digests.
+	 *
+	 * @return the hash algorithm
+	 */
+	public @NotNull String algorithm() {
+		return algo;
+	}
+	
+	/**
+	 * Returns the number of blocks of the resource.
+	 *
+	 * @return the number of blocks
+	 */
+	public int blockCount() {
+		return weak.length;
+	}
+	
+	/**
+	 * Returns the length of the block with the given index.
+	 *
+	 * @param index the block index
+	 * @return the block length
+	 */
+	public int blockLength(int index) {
+		return (int) Math.min(blockSize, length - (long) index * blockSize);
+	}
+	
+	/* -----------------------------------------------------
+	 * Lookup methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Finds the first block with the given weak checksum.
+	 *
+	 * @param checksum the weak checksum
+	 * @return the first block index, or -1 if there is none
+	 */
+	int find(int checksum) {
+		int index = table[slot(checksum)];
+		while (index != -1 && weak[index] != checksum) index = next[index];
+		return index;
+	}
+	
+	/**
+	 * Finds the next block with the same weak checksum as the given block.
+	 *
+	 * @param index the current block index
+	 * @return the next block index, or -1 if there is none
+	 */
+	int findNext(int index) {
+		int checksum = weak[index];
+		index = next[index];
+		while (index != -1 && weak[index] != checksum) index = next[index];
+		return index;
+	}
+	
+	/**
+	 * Checks whether the strong digest of the given block is equal to the given digest.
+	 *
+	 * @param index  the block index
+	 * @param digest the digest to compare
+	 * @return true if both digests are equal
+	 */
+	boolean matches(int index, byte[] digest) {
+		return MessageDigest.isEqual(strong[index], digest);
+	}
+	
+	/* -----------------------------------------------------
+	 * Serialization methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Writes the signature in a compact binary format.
+	 *
+	 * @param stream the stream to write to; it is not closed
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the stream is null
+	 */
+	public void writeTo(@NotNull OutputStream stream) throws IOException {
+		UAssert.paramNotNull(stream, "OutputStream stream");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		int digestLength = strong.length == 0 ? 0 : strong[0].length;
+		
+		out.writeInt(MAGIC);
+		out.writeInt(blockSize);
+		out.writeLong(length);
+		out.writeUTF(algo);
+		out.writeInt(digestLength);
+		
+		for (int i = 0; i < weak.length; i++) {
+			out.writeInt(weak[i]);
+			out.write(strong[i]);
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Reads a signature written by {@link #writeTo(OutputStream)}.
+	 *
+	 * @param stream the stream to read from; it is not closed
+	 * @return the signature read
+	 * @throws IOException              if an I/O error occurs or the data is not a valid signature
+	 * @throws IllegalArgumentException if the stream is null
+	 */
+	public static @NotNull USignature readFrom(@NotNull InputStream stream) throws IOException {
+		UAssert.paramNotNull(stream, "InputStream stream");
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		
+		if (in.readInt() != MAGIC) throw new IOException("Invalid signature header");
+		int blockSize = in.readInt();
+		long length = in.readLong();
+		String algo = in.readUTF();
+		int digestLength = in.readInt();
+		
+		if (blockSize <= 0 || length < 0 || digestLength < 0) throw new IOException("Invalid signature header");
+		long count = (length + blockSize - 1) / blockSize;
+		if (count > Integer.MAX_VALUE) throw new IOException("Too many blocks");
+		
+		int[] weak = new int[(int) count];
+		byte[][] strong = new byte[(int) count][];
+		for (int i = 0; i < count; i++) {
+			weak[i] = in.readInt();
+			strong[i] = in.readNBytes(digestLength);
+			if (strong[i].length != digestLength) throw new EOFException();
+		}
+		
+		return new USignature(blockSize, length, algo, weak, strong);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	private int slot(int checksum) {
+		// Fibonacci hashing, the low half of the checksum is a plain byte sum
+		return (checksum * 0x9E3779B9) >>> shift;
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A regular file recorded in a {@link UTreeSnapshot}.
+ *
+ * @param path     the path relative to the snapshot root, using {@code /} as separator
+ * @param size     the size of the file in bytes
+ * @param modified the modification time of the file in milliseconds since the epoch
+ * @param mode     the POSIX permission bits of the file (for example {@code 0644}), or 0 if not supported
+ * @param digest   the hash of the file content
+ */
+public record USnapshotEntry(
+	@NotNull String path,
+	long size,
+	long modified,
+	int mode,
+	byte @NotNull [] digest
+) {
+	
+	public USnapshotEntry {
+		UAssert.paramNotNull(path, "String path");
+		UAssert.paramNotNull(digest, "byte[] digest");
+	}
+	
+	/**
+	 * Checks whether this entry and the given entry have the same content and mode.
+	 * The modification time is ignored.
+	 *
+	 * @param other the entry to compare with
+	 * @return true if both entries are equivalent
+	 * @throws IllegalArgumentException if the entry is null
+	 */
+	public boolean sameContent(@NotNull USnapshotEntry other) {
+		UAssert.paramNotNull(other, "USnapshotEntry other");
+		return size == other.size && mode == other.mode && Arrays.equals(digest, other.digest);
+	}
+	
+	/**
+	 * Returns the hexadecimal representation of the file digest.
+	 *
+	 * @return the file digest as a string
+	 */
+	public @NotNull String digestStr() {
+		return UResourceHash.hashStr(digest);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof USnapshotEntry other)) return false;
+		return modified == other.modified && path.equals(other.path) && sameContent(other);
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(path, size, modified, mode) * 31 + Arrays.hashCode(digest);
+	}
+	
+	@Override
+	public String toString() {
+		return "USnapshotEntry[path=%s, size=%d, modified=%d, mode=%o, digest=%s]"
+			.formatted(path, size, modified, mode, digestStr());
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+/**
+ * A difference between two states of a directory tree, produced by {@link UTreeSnapshot}.
+ *
+ * @param kind   the kind of change
+ * @param path   the path relative to the tree root, using {@code /} as separator
+ * @param before the previous state of the entry, or null if it was added
+ * @param after  the new state of the entry, or null if it was removed
+ */
+public record UTreeChange(
+	@NotNull Kind kind,
+	@NotNull String path,
+	@Nullable USnapshotEntry before,
+	@Nullable USnapshotEntry after
+) {
+	
+	public UTreeChange {
+		UAssert.paramNotNull(kind, "Kind kind");
+		UAssert.paramNotNull(path, "String path");
+	}
+	
+	/**
+	 * The kinds of change between two states of a tree.
+	 */
+	public enum Kind {
+		ADDED,
+		REMOVED,
+		MODIFIED
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,601 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sorted record of the regular files of a directory tree: relative path, size, modification
+ * time, permissions and content digest.
+ * <p>
+ * A snapshot is stored in a compact binary file made of a header, a table of fixed-size
+ * records sorted by path, and a block with the paths. Opened snapshots are memory-mapped,
+ * so entries are only decoded when they are accessed.
+ */
+public final class UTreeSnapshot {
+	
+	/**
+	 * The magic number of the snapshot files ("USNP").
+	 */
+	private static final int MAGIC = 0x55534E50;
+	
+	/**
+	 * The version of the snapshot file format.
+	 */
+	private static final short VERSION = 1;
+	
+	/**
+	 * The size of a record without the digest: name offset, name length, mode, size and
+	 * modification time.
+	 */
+	private static final int RECORD_BASE_SIZE = Integer.BYTES * 3 + Long.BYTES * 2;
+	
+	/**
+	 * The number of changed files hashed in parallel before their changes are delivered.
+	 */
+	private static final int DIFF_BATCH_SIZE = 256;
+	
+	private final ByteBuffer buffer;
+	private final String algorithm;
+	private final int digestLength;
+	private final int count;
+	private final int recordsOffset;
+	private final int recordSize;
+	private final int namesOffset;
+	
+	/**
+	 * Creates a new snapshot over the given encoded content.
+	 *
+	 * @param buffer the encoded snapshot
+	 * @throws IOException if the content is not a valid snapshot
+	 */
+	private UTreeSnapshot(@NotNull ByteBuffer buffer) throws IOException {
+		this.buffer = buffer.asReadOnlyBuffer();
+		
+		try {
+			ByteBuffer header = this.buffer.duplicate();
+			if (header.getInt() != MAGIC) throw new IOException("The file is not a tree snapshot");
+			if (header.getShort() != VERSION) throw new IOException("Unsupported tree snapshot version");
+			
+			this.digestLength = header.getShort();
+			byte[] name = new byte[header.getShort()];
+			header.get(name);
+			this.algorithm = new String(name, StandardCharsets.US_ASCII);
+			this.count = header.getInt();
+			
+			this.recordsOffset = header.position();
+			this.recordSize = RECORD_BASE_SIZE + digestLength;
+			this.namesOffset = Math.addExact(recordsOffset, Math.multiplyExact(count, recordSize));
+		} catch (BufferUnderflowException | ArithmeticException e) {
+			throw new IOException("Truncated tree snapshot", e);
+		}
+		
+		if (count < 0 || digestLength < 0 || namesOffset > buffer.limit()) {
+			throw new IOException("Truncated tree snapshot");
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Factory methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Records all the regular files of the given tree. The tree is walked and hashed in
+	 * parallel; symbolic links and other special files are not recorded.
+	 *
+	 * @param root the root of the tree
+	 * @param algo the hash algorithm used to digest the files
+	 * @return the in-memory snapshot of the tree
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 * @throws IllegalArgumentException if the root or algorithm is null
+	 */
+	public static @NotNull UTreeSnapshot create(@NotNull Path root, @NotNull String algo) throws IOException,
+		NoSuchAlgorithmException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(algo, "String algo");
+		int digestLength = MessageDigest.getInstance(algo).getDigestLength();
+		
+		List<LiveFile> files = liveFiles(root);
+		List<USnapshotEntry> entries = parallelMap(files, (file) -> file.snapshot(algo));
+		return new UTreeSnapshot(encode(algo, digestLength, entries));
+	}
+	
+	/**
+	 * Records all the regular files of the given tree using the default algorithm.
+	 *
+	 * @param root the root of the tree
+	 * @return the in-memory snapshot of the tree
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available
+	 * @throws IllegalArgumentException if the root is null
+	 */
+	public static @NotNull UTreeSnapshot create(@NotNull Path root) throws IOException, NoSuchAlgorithmException {
+		return create(root, UFSConstants.FS_HASH_ALGORITHM);
+	}
+	
+	/**
+	 * Opens a snapshot file written by {@link #write(Path)}. The file is memory-mapped and
+	 * must not be modified while the snapshot is in use.
+	 *
+	 * @param file the snapshot file
+	 * @return the opened snapshot
+	 * @throws IOException              if the file cannot be read or is not a valid snapshot
+	 * @throws IllegalArgumentException if the file is null
+	 */
+	public static @NotNull UTreeSnapshot open(@NotNull Path file) throws IOException {
+		UAssert.paramNotNull(file, "Path file");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("The tree snapshot is too large to be mapped. %d bytes".formatted(size));
+			}
+			
+			// The mapping remains valid after the channel is closed
+			return new UTreeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Snapshot methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Writes the snapshot to the given file. The file is replaced atomically.
+	 *
+	 * @param file the destination file
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the file is null
+	 */
+	public void write(@NotNull Path file) throws IOException {
+		UAssert.paramNotNull(file, "Path file");
+		Path parent = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				ByteBuffer content = buffer.duplicate().clear();
+				while (content.hasRemaining()) {
+					channel.write(content);
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	/**
+	 * Returns the hash algorithm used to digest the files.
+	 *
+	 * @return the hash algorithm
+	 */
+	public @NotNull String algorithm() {
+		return algorithm;
+	}
+	
+	/**
+	 * Returns the number of files recorded in the snapshot.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Returns the entry at the given position. Entries are sorted by path.
+	 *
+	 * @param index the position of the entry
+	 * @return the decoded entry
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public @NotNull USnapshotEntry entry(int index) {
+		int record = recordOffset(index);
+		byte[] digest = new byte[digestLength];
+		buffer.get(record + RECORD_BASE_SIZE, digest);
+		
+		return new USnapshotEntry(path(index), buffer.getLong(record + Integer.BYTES * 3),
+								  buffer.getLong(record + Integer.BYTES * 3 + Long.BYTES),
+								  buffer.getInt(record + Integer.BYTES * 2), digest);
+	}
+	
+	/**
+	 * Finds the entry with the given path using a binary search.
+	 *
+	 * @param path the path relative to the snapshot root, using {@code /} as separator
+	 * @return an Optional containing the entry if present, otherwise an empty Optional
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public @NotNull Optional<USnapshotEntry> find(@NotNull String path) {
+		UAssert.paramNotNull(path, "String path");
+		int low = 0;
+		int high = count - 1;
+		
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = path(middle).compareTo(path);
+			
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return Optional.of(entry(middle));
+			}
+		}
+		return Optional.empty();
+	}
+	
+	/**
+	 * Returns all the entries sorted by path.
+	 *
+	 * @return the stream of entries
+	 */
+	public @NotNull Stream<USnapshotEntry> entries() {
+		return IntStream.range(0, count).mapToObj(this::entry);
+	}
+	
+	/* -----------------------------------------------------
+	 * Diff methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Compares this snapshot with a newer snapshot of the same tree. The changes are
+	 * delivered sorted by path. Files whose content and mode did not change are not
+	 * reported, even if their modification time changed.
+	 *
+	 * @param after    the newer snapshot
+	 * @param consumer the action that receives every change
+	 * @throws IllegalArgumentException if any parameter is null or the snapshots use different algorithms
+	 */
+	public void diff(@NotNull UTreeSnapshot after, @NotNull Consumer<UTreeChange> consumer) {
+		UAssert.paramNotNull(after, "UTreeSnapshot after");
+		UAssert.paramNotNull(consumer, "Consumer<UTreeChange> consumer");
+		if (!algorithm.equals(after.algorithm)) {
+			throw new IllegalArgumentException("The snapshots use different algorithms. %s and %s given"
+												   .formatted(algorithm, after.algorithm));
+		}
+		
+		int i = 0;
+		int j = 0;
+		while (i < count || j < after.count) {
+			int comparison = i == count ? 1 : j == after.count ? -1 : path(i).compareTo(after.path(j));
+			
+			if (comparison < 0) {
+				USnapshotEntry removed = entry(i++);
+				consumer.accept(new UTreeChange(UTreeChange.Kind.REMOVED, removed.path(), removed, null));
+			} else if (comparison > 0) {
+				USnapshotEntry added = after.entry(j++);
+				consumer.accept(new UTreeChange(UTreeChange.Kind.ADDED, added.path(), null, added));
+			} else {
+				USnapshotEntry previous = entry(i++);
+				USnapshotEntry current = after.entry(j++);
+				if (!previous.sameContent(current)) {
+					consumer.accept(new UTreeChange(UTreeChange.Kind.MODIFIED, previous.path(), previous, current));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Compares this snapshot with the current state of the given tree. Only the files whose
+	 * size, modification time or mode changed are hashed, in parallel batches. The changes are
+	 * delivered sorted by path as every batch completes; files whose content and mode did not
+	 * change are not reported.
+	 *
+	 * @param root     the root of the live tree
+	 * @param consumer the action that receives every change
+	 * @throws IOException              if an I/O error occurs
+	 * @throws NoSuchAlgorithmException if the algorithm of the snapshot is not available
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public void diff(@NotNull Path root, @NotNull Consumer<UTreeChange> consumer) throws IOException,
+		NoSuchAlgorithmException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(consumer, "Consumer<UTreeChange> consumer");
+		MessageDigest.getInstance(algorithm);
+		
+		List<LiveFile> files = liveFiles(root);
+		List<Candidate> candidates = new ArrayList<>();
+		
+		int i = 0;
+		int j = 0;
+		while (i < count || j < files.size()) {
+			int comparison = i == count ? 1 : j == files.size() ? -1 : path(i).compareTo(files.get(j).path());
+			
+			if (comparison < 0) {
+				candidates.add(new Candidate(entry(i++), null));
+			} else if (comparison > 0) {
+				candidates.add(new Candidate(null, files.get(j++)));
+			} else {
+				USnapshotEntry previous = entry(i++);
+				LiveFile current = files.get(j++);
+				// Unchanged metadata: the recorded digest is trusted
+				if (!current.sameMetadata(previous)) candidates.add(new Candidate(previous, current));
+			}
+		}
+		
+		// The candidates are hashed in parallel batches, so the changes of a batch are delivered
+		// in order as soon as it completes and only one batch of results is kept in memory
+		for (int start = 0; start < candidates.size(); start += DIFF_BATCH_SIZE) {
+			List<Candidate> batch = candidates.subList(start, Math.min(candidates.size(), start + DIFF_BATCH_SIZE));
+			for (UTreeChange change : parallelMap(batch, this::resolve)) {
+				if (change != null) consumer.accept(change);
+			}
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the position of the record at the given index.
+	 *
+	 * @param index the position of the entry
+	 * @return the offset of the record in the buffer
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	private int recordOffset(int index) {
+		return recordsOffset + recordSize * Objects.checkIndex(index, count);
+	}
+	
+	/**
+	 * Decodes the path of the entry at the given index.
+	 *
+	 * @param index the position of the entry
+	 * @return the relative path of the entry
+	 */
+	private @NotNull String path(int index) {
+		int record = recordOffset(index);
+		byte[] name = new byte[buffer.getInt(record + Integer.BYTES)];
+		buffer.get(namesOffset + buffer.getInt(record), name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Hashes a candidate and converts it into a change.
+	 *
+	 * @param candidate the entry that may have changed
+	 * @return the change, or null if the content and mode did not change
+	 * @throws IOException if the file cannot be hashed
+	 */
+	private @Nullable UTreeChange resolve(@NotNull Candidate candidate) throws IOException {
+		USnapshotEntry before = candidate.before();
+		if (candidate.after() == null) {
+			return new UTreeChange(UTreeChange.Kind.REMOVED, before.path(), before, null);
+		}
+		
+		USnapshotEntry after = candidate.after().snapshot(algorithm);
+		if (before == null) return new UTreeChange(UTreeChange.Kind.ADDED, after.path(), null, after);
+		return before.sameContent(after) ? null :
+			   new UTreeChange(UTreeChange.Kind.MODIFIED, after.path(), before, after);
+	}
+	
+	/**
+	 * Walks the given tree and returns its regular files sorted by relative path.
+	 *
+	 * @param root the root of the tree
+	 * @return the sorted files
+	 * @throws IOException if the tree cannot be walked
+	 */
+	private static @NotNull List<LiveFile> liveFiles(@NotNull Path root) throws IOException {
+		List<LiveFile> files = new ArrayList<>();
+		UResource.walk(root, UWalkOptions.DEFAULT.withPosixAttributes(true), batch -> {
+			List<LiveFile> converted = new ArrayList<>(batch.size());
+			for (UWalkEntry entry : batch) {
+				if (entry.attributes().isRegularFile()) {
+					converted.add(new LiveFile(relativePath(root, entry.path()), entry.path(), entry.attributes()));
+				}
+			}
+			synchronized (files) {
+				files.addAll(converted);
+			}
+		});
+		
+		files.sort(Comparator.comparing(LiveFile::path));
+		return files;
+	}
+	
+	/**
+	 * Converts a path of the tree into a portable relative path.
+	 *
+	 * @param root the root of the tree
+	 * @param path the path to convert
+	 * @return the relative path using {@code /} as separator
+	 */
+	private static @NotNull String relativePath(@NotNull Path root, @NotNull Path path) {
+		Path relative = root.relativize(path);
+		StringBuilder builder = new StringBuilder();
+		for (Path name : relative) {
+			if (builder.length() > 0) builder.append('/');
+			builder.append(name);
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Converts the permissions of the given attributes into POSIX mode bits.
+	 *
+	 * @param attributes the attributes of a file
+	 * @return the permission bits, or 0 if the attributes have no permissions
+	 */
+	private static int mode(@NotNull BasicFileAttributes attributes) {
+		if (!(attributes instanceof PosixFileAttributes posix)) return 0;
+		
+		int mode = 0;
+		for (PosixFilePermission permission : posix.permissions()) {
+			// OWNER_READ is the most significant bit, OTHERS_EXECUTE the least significant
+			mode |= 1 << (8 - permission.ordinal());
+		}
+		return mode;
+	}
+	
+	/**
+	 * Encodes a list of entries sorted by path.
+	 *
+	 * @param algo         the hash algorithm of the digests
+	 * @param digestLength the length of every digest
+	 * @param entries      the sorted entries
+	 * @return the encoded snapshot
+	 * @throws IOException if the snapshot is too large
+	 */
+	private static @NotNull ByteBuffer encode(@NotNull String algo, int digestLength,
+		@NotNull List<USnapshotEntry> entries) throws IOException {
+		byte[] algoName = algo.getBytes(StandardCharsets.US_ASCII);
+		byte[][] names = new byte[entries.size()][];
+		long namesLength = 0;
+		for (int i = 0; i < names.length; i++) {
+			names[i] = entries.get(i).path().getBytes(StandardCharsets.UTF_8);
+			namesLength += names[i].length;
+		}
+		
+		long headerLength = Integer.BYTES + Short.BYTES * 3L + algoName.length + Integer.BYTES;
+		long total = headerLength + (long) (RECORD_BASE_SIZE + digestLength) * names.length + namesLength;
+		if (total > Integer.MAX_VALUE) {
+			throw new IOException("The tree snapshot is too large. %d bytes".formatted(total));
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate((int) total);
+		buffer.putInt(MAGIC)
+			.putShort(VERSION)
+			.putShort((short) digestLength)
+			.putShort((short) algoName.length)
+			.put(algoName)
+			.putInt(names.length);
+		
+		int nameOffset = 0;
+		for (int i = 0; i < names.length; i++) {
+			USnapshotEntry entry = entries.get(i);
+			buffer.putInt(nameOffset)
+				.putInt(names[i].length)
+				.putInt(entry.mode())
+				.putLong(entry.size())
+				.putLong(entry.modified())
+				.put(entry.digest());
+			nameOffset += names[i].length;
+		}
+		for (byte[] name : names) {
+			buffer.put(name);
+		}
+		
+		return buffer.flip();
+	}
+	
+	/**
+	 * Applies an I/O action to every element in parallel, keeping the order of the elements.
+	 *
+	 * @param elements the elements to process
+	 * @param action   the action to apply
+	 * @param <T>      the type of the elements
+	 * @param <R>      the type of the results
+	 * @return the results in the order of the elements
+	 * @throws IOException if the action fails for any element
+	 */
+	private static <T, R> @NotNull List<R> parallelMap(@NotNull List<T> elements, @NotNull IOFunction<T, R> action)
+		throws IOException {
+		try {
+			return elements.parallelStream()
+				.map(element -> {
+					try {
+						return action.apply(element);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				})
+				.toList();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Function that can throw an I/O error.
+	 *
+	 * @param <T> the type of the argument
+	 * @param <R> the type of the result
+	 */
+	@FunctionalInterface
+	private interface IOFunction<T, R> {
+		
+		R apply(T value) throws IOException;
+		
+	}
+	
+	/**
+	 * Regular file found in a live tree.
+	 *
+	 * @param path       the relative path of the file
+	 * @param location   the location of the file
+	 * @param attributes the attributes read while walking the tree
+	 */
+	private record LiveFile(@NotNull String path, @NotNull Path location, @NotNull BasicFileAttributes attributes) {
+		
+		/**
+		 * Checks whether the file still has the metadata recorded in a snapshot.
+		 *
+		 * @param entry the recorded entry
+		 * @return true if the size, modification time and mode did not change
+		 */
+		boolean sameMetadata(@NotNull USnapshotEntry entry) {
+			return attributes.size() == entry.size() && attributes.lastModifiedTime().toMillis() == entry.modified() &&
+				   mode(attributes) == entry.mode();
+		}
+		
+		/**
+		 * Hashes the file and converts it into a snapshot entry.
+		 *
+		 * @param algo the hash algorithm
+		 * @return the snapshot entry
+		 * @throws IOException if the file cannot be read
+		 */
+		@NotNull USnapshotEntry snapshot(@NotNull String algo) throws IOException {
+			try {
+				return new USnapshotEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis(),
+										  mode(attributes), UResourceHash.hash(location, algo));
+			} catch (NoSuchAlgorithmException e) {
+				// Already validated before the walk
+				throw new IllegalStateException(e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Entry whose state must be resolved by hashing.
+	 *
+	 * @param before the recorded entry, or null if the file was added
+	 * @param after  the live file, or null if the file was removed
+	 */
+	private record Candidate(@Nullable USnapshotEntry before, @Nullable LiveFile after) {}
+	
+}
\ No newline at end of file
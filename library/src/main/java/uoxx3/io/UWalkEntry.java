@@ -0,0 +1,28 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Entry found while walking a directory tree. The attributes are read once during the
+ * walk and carried along with the path.
+ *
+ * @param path       the path of the entry
+ * @param attributes the attributes of the entry; POSIX attributes when requested and supported
+ * @param depth      the depth of the entry relative to the root (the root has depth 0)
+ */
+public record UWalkEntry(
+	@NotNull Path path,
+	@NotNull BasicFileAttributes attributes,
+	int depth
+) {
+	
+	public UWalkEntry {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(attributes, "BasicFileAttributes attributes");
+	}
+	
+}
\ No newline at end of file
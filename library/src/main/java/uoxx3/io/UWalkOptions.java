@@ -0,0 +1,269 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable options of {@link UResource#walk(Path, UWalkOptions)}. Every {@code with}
+ * method returns a new instance.
+ */
+public final class UWalkOptions {
+	
+	/**
+	 * The default options: unlimited depth, no filters, links not followed and
+	 * directories not reported.
+	 */
+	public static final UWalkOptions DEFAULT = new UWalkOptions(Integer.MAX_VALUE, false, false, null,
+																null, null, 256, 64, false, false);
+	
+	private final int maxDepth;
+	private final boolean followLinks;
+	private final boolean includeDirectories;
+	private final @Nullable Predicate<String> nameFilter;
+	private final @Nullable UExtensionClassifier<Boolean> extensions;
+	private final @Nullable ForkJoinPool pool;
+	private final int batchSize;
+	private final int queueCapacity;
+	private final boolean ignoreErrors;
+	private final boolean posixAttributes;
+	
+	private UWalkOptions(int maxDepth, boolean followLinks, boolean includeDirectories,
+		@Nullable Predicate<String> nameFilter, @Nullable UExtensionClassifier<Boolean> extensions,
+		@Nullable ForkJoinPool pool, int batchSize, int queueCapacity, boolean ignoreErrors,
+		boolean posixAttributes) {
+		this.maxDepth = maxDepth;
+		this.followLinks = followLinks;
+		this.includeDirectories = includeDirectories;
+		this.nameFilter = nameFilter;
+		this.extensions = extensions;
+		this.pool = pool;
+		this.batchSize = batchSize;
+		this.queueCapacity = queueCapacity;
+		this.ignoreErrors = ignoreErrors;
+		this.posixAttributes = posixAttributes;
+	}
+	
+	/* -----------------------------------------------------
+	 * With methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Limits the depth of the walk. Entries deeper than the limit are neither reported
+	 * nor read.
+	 *
+	 * @param maxDepth the maximum depth (0 only visits the root)
+	 * @return the new options
+	 * @throws IllegalArgumentException if the depth is negative
+	 */
+	public @NotNull UWalkOptions withMaxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The maximum depth cannot be negative. \"%d\" given".formatted(maxDepth));
+		}
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Sets whether symbolic links are followed.
+	 *
+	 * @param followLinks true to follow symbolic links
+	 * @return the new options
+	 */
+	public @NotNull UWalkOptions withFollowLinks(boolean followLinks) {
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Sets whether directories are reported. Directories are always traversed.
+	 *
+	 * @param includeDirectories true to report the directories
+	 * @return the new options
+	 */
+	public @NotNull UWalkOptions withDirectories(boolean includeDirectories) {
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Only reports the non-directory entries whose file name matches the given filter.
+	 *
+	 * @param nameFilter the file name filter
+	 * @return the new options
+	 * @throws IllegalArgumentException if the filter is null
+	 */
+	public @NotNull UWalkOptions withNameFilter(@NotNull Predicate<String> nameFilter) {
+		UAssert.paramNotNull(nameFilter, "Predicate<String> nameFilter");
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Only reports the non-directory entries with one of the given extensions. The
+	 * comparison ignores case and supports multi-part extensions such as {@code tar.gz}.
+	 *
+	 * @param extensions the accepted extensions
+	 * @return the new options
+	 * @throws IllegalArgumentException if the extensions are null or invalid
+	 */
+	public @NotNull UWalkOptions withExtensions(String @NotNull ... extensions) {
+		UAssert.paramNotNull(extensions, "String[] extensions");
+		UExtensionClassifier<Boolean> classifier = UExtensionClassifier.of(
+			Arrays.stream(extensions).collect(Collectors.toMap(Function.identity(),
+																				(ignore) -> Boolean.TRUE,
+																				(a, b) -> a)));
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, classifier, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Sets the pool used to walk the directories. By default every walk creates its own pool
+	 * and shuts it down when the walk ends or its stream is closed, so workers waiting for a
+	 * slow stream never hold threads of the common pool. The given pool is never shut down.
+	 *
+	 * @param pool the work-stealing pool
+	 * @return the new options
+	 * @throws IllegalArgumentException if the pool is null
+	 */
+	public @NotNull UWalkOptions withPool(@NotNull ForkJoinPool pool) {
+		UAssert.paramNotNull(pool, "ForkJoinPool pool");
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Sets the maximum number of entries delivered in a single batch.
+	 *
+	 * @param batchSize the batch size
+	 * @return the new options
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	public @NotNull UWalkOptions withBatchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("The batch size must be positive. \"%d\" given".formatted(batchSize));
+		}
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Sets whether directories that cannot be read are skipped. By default the first
+	 * error stops the walk and is reported to the caller.
+	 *
+	 * @param ignoreErrors true to skip the directories that cannot be read
+	 * @return the new options
+	 */
+	public @NotNull UWalkOptions withIgnoreErrors(boolean ignoreErrors) {
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/**
+	 * Sets whether the entries carry {@link java.nio.file.attribute.PosixFileAttributes}
+	 * when the file system supports them. They are read with the same call as the basic
+	 * attributes.
+	 *
+	 * @param posixAttributes true to read the POSIX attributes
+	 * @return the new options
+	 */
+	public @NotNull UWalkOptions withPosixAttributes(boolean posixAttributes) {
+		return new UWalkOptions(maxDepth, followLinks, includeDirectories, nameFilter, extensions, pool,
+								batchSize, queueCapacity, ignoreErrors, posixAttributes);
+	}
+	
+	/* -----------------------------------------------------
+	 * Properties
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the maximum depth of the walk.
+	 *
+	 * @return the maximum depth
+	 */
+	public int maxDepth() {
+		return maxDepth;
+	}
+	
+	/**
+	 * Returns whether symbolic links are followed.
+	 *
+	 * @return true if symbolic links are followed
+	 */
+	public boolean followLinks() {
+		return followLinks;
+	}
+	
+	/**
+	 * Returns whether directories are reported.
+	 *
+	 * @return true if directories are reported
+	 */
+	public boolean includeDirectories() {
+		return includeDirectories;
+	}
+	
+	/**
+	 * Returns the maximum number of entries delivered in a single batch.
+	 *
+	 * @return the batch size
+	 */
+	public int batchSize() {
+		return batchSize;
+	}
+	
+	/**
+	 * Returns whether directories that cannot be read are skipped.
+	 *
+	 * @return true if read errors are ignored
+	 */
+	public boolean ignoreErrors() {
+		return ignoreErrors;
+	}
+	
+	/**
+	 * Returns whether the entries carry POSIX attributes when they are supported.
+	 *
+	 * @return true if the POSIX attributes are read
+	 */
+	public boolean posixAttributes() {
+		return posixAttributes;
+	}
+	
+	/**
+	 * Returns the number of batches a lazy stream buffers before the workers wait.
+	 *
+	 * @return the queue capacity in batches
+	 */
+	public int queueCapacity() {
+		return queueCapacity;
+	}
+	
+	/**
+	 * Returns the pool used to walk the directories.
+	 *
+	 * @return the configured pool, or null if every walk creates its own pool
+	 */
+	public @Nullable ForkJoinPool pool() {
+		return pool;
+	}
+	
+	/**
+	 * Checks whether a non-directory entry passes the name and extension filters.
+	 *
+	 * @param name the file name of the entry
+	 * @return true if the entry is accepted
+	 */
+	public boolean accepts(@NotNull String name) {
+		if (extensions != null && extensions.categoryIndex(name) == UExtensionClassifier.NO_CATEGORY) return false;
+		return nameFilter == null || nameFilter.test(name);
+	}
+	
+}
\ No newline at end of file
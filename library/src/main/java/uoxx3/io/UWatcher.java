@@ -0,0 +1,438 @@
+package uoxx3.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.internal.UThreads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Recursive directory watcher built on top of a {@link WatchService}. Events are collected
+ * during a coalescing window and compared with the last known state of the tree, so every
+ * change is delivered once and only real changes are delivered. Lost events
+ * ({@link StandardWatchEventKinds#OVERFLOW}) cause a rescan of the affected directory only.
+ * <p>
+ * The change sets are delivered on a single dedicated thread, in order.
+ */
+public final class UWatcher implements Closeable {
+	
+	private final Path root;
+	private final long windowNanos;
+	private final Consumer<UChangeSet> consumer;
+	private final WatchService service;
+	private final Thread thread;
+	private volatile boolean open = true;
+	
+	/*
+	 * The state below is only accessed by the watcher thread once it is started
+	 */
+	
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+	private final Map<Path, WatchKey> keys = new HashMap<>();
+	private final Map<Path, Map<Path, Stamp>> listings = new HashMap<>();
+	private final Map<Path, Set<Path>> dirty = new LinkedHashMap<>();
+	private final Set<Path> rescans = new HashSet<>();
+	private final Set<Path> lost = new HashSet<>();
+	
+	/**
+	 * Creates a new watcher and registers every directory of the tree.
+	 *
+	 * @param root          the root directory
+	 * @param window        the coalescing window
+	 * @param virtualThread true to deliver the changes on a virtual thread when available
+	 * @param consumer      the action that receives the change sets
+	 * @throws IOException if the root cannot be registered
+	 */
+	private UWatcher(@NotNull Path root, @NotNull Duration window, boolean virtualThread,
+		@NotNull Consumer<UChangeSet> consumer) throws IOException {
+		this.root = root;
+		this.windowNanos = Math.max(window.toNanos(), 0);
+		this.consumer = consumer;
+		this.service = root.getFileSystem().newWatchService();
+		
+		try {
+			scan(root, null);
+		} catch (IOException | RuntimeException e) {
+			service.close();
+			throw e;
+		}
+		
+		this.thread = UThreads.newThread("uo-watcher " + root, this::run, virtualThread);
+		this.thread.start();
+	}
+	
+	/* -----------------------------------------------------
+	 * Factory methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Starts watching the given directory and all its subdirectories. Directories created
+	 * later are registered automatically, and their content is reported as created.
+	 *
+	 * @param root          the root directory
+	 * @param window        the time events are collected before a change set is delivered
+	 * @param virtualThread true to deliver the changes on a virtual thread when the JVM supports them
+	 * @param consumer      the action that receives the change sets
+	 * @return the running watcher
+	 * @throws NotDirectoryException    if the root is not a directory
+	 * @throws IOException              if an I/O error occurs while registering the tree
+	 * @throws IllegalArgumentException if the root, window or consumer is null
+	 */
+	public static @NotNull UWatcher watch(@NotNull Path root, @NotNull Duration window, boolean virtualThread,
+		@NotNull Consumer<UChangeSet> consumer) throws IOException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(window, "Duration window");
+		UAssert.paramNotNull(consumer, "Consumer<UChangeSet> consumer");
+		
+		Path absolute = root.toAbsolutePath().normalize();
+		if (!Files.isDirectory(absolute)) {
+			throw new NotDirectoryException(absolute.toString());
+		}
+		
+		return new UWatcher(absolute, window, virtualThread, consumer);
+	}
+	
+	/**
+	 * Starts watching the given directory and all its subdirectories with the default
+	 * coalescing window, delivering the changes on a platform thread.
+	 *
+	 * @param root     the root directory
+	 * @param consumer the action that receives the change sets
+	 * @return the running watcher
+	 * @throws NotDirectoryException    if the root is not a directory
+	 * @throws IOException              if an I/O error occurs while registering the tree
+	 * @throws IllegalArgumentException if the root or consumer is null
+	 */
+	public static @NotNull UWatcher watch(@NotNull Path root, @NotNull Consumer<UChangeSet> consumer)
+		throws IOException {
+		return watch(root, Duration.ofMillis(UFSConstants.FS_WATCH_COALESCE_MILLIS), false, consumer);
+	}
+	
+	/* -----------------------------------------------------
+	 * Watcher methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the watched root directory.
+	 *
+	 * @return the absolute root directory
+	 */
+	public @NotNull Path root() {
+		return root;
+	}
+	
+	/**
+	 * Checks whether the watcher is still running.
+	 *
+	 * @return true if the watcher was not closed
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+	
+	/**
+	 * Stops the watcher. When called from another thread, this method waits until the
+	 * watcher thread ends, so no change set is delivered after it returns.
+	 *
+	 * @throws IOException if an I/O error occurs while closing the watch service
+	 */
+	@Override
+	public void close() throws IOException {
+		open = false;
+		service.close();
+		
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Main loop of the watcher thread.
+	 */
+	private void run() {
+		long deadline = 0;
+		try {
+			while (open) {
+				WatchKey key;
+				if (dirty.isEmpty() && rescans.isEmpty() && lost.isEmpty()) {
+					// The window starts with the first event of a burst
+					key = service.take();
+					deadline = System.nanoTime() + windowNanos;
+				} else {
+					long wait = deadline - System.nanoTime();
+					key = wait > 0 ? service.poll(wait, TimeUnit.NANOSECONDS) : null;
+				}
+				
+				if (key != null) {
+					collect(key);
+				} else {
+					flush();
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// The watcher was closed
+		}
+	}
+	
+	/**
+	 * Records the pending events of the given key.
+	 *
+	 * @param key the signalled key
+	 */
+	private void collect(@NotNull WatchKey key) {
+		Path directory = directories.get(key);
+		if (directory == null) {
+			key.cancel();
+			return;
+		}
+		
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				rescans.add(directory);
+			} else {
+				dirty.computeIfAbsent(directory, (ignore) -> new HashSet<>())
+					.add(directory.resolve((Path) event.context()));
+			}
+		}
+		
+		if (!key.reset()) {
+			directories.remove(key);
+			keys.remove(directory, key);
+			
+			// Nothing watches the parent of the root, so its deletion is detected here
+			if (directory.equals(root) && !Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+				forget(root, lost);
+			}
+		}
+	}
+	
+	/**
+	 * Compares the pending entries with the last known state and delivers the changes.
+	 */
+	private void flush() {
+		Set<Path> created = new HashSet<>();
+		Set<Path> modified = new HashSet<>();
+		Set<Path> deleted = new HashSet<>(lost);
+		lost.clear();
+		
+		// Events were lost: every known and current entry of the directory is checked
+		for (Path directory : rescans) {
+			Map<Path, Stamp> listing = listings.get(directory);
+			if (listing == null) continue;
+			
+			Set<Path> entries = dirty.computeIfAbsent(directory, (ignore) -> new HashSet<>());
+			entries.addAll(listing.keySet());
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				stream.forEach(entries::add);
+			} catch (IOException e) {
+				// The directory is gone, its parent reports it
+			}
+		}
+		rescans.clear();
+		
+		for (Map.Entry<Path, Set<Path>> entry : dirty.entrySet()) {
+			Map<Path, Stamp> listing = listings.get(entry.getKey());
+			if (listing == null) continue;
+			
+			for (Path path : entry.getValue()) {
+				reconcile(listing, path, created, modified, deleted);
+			}
+		}
+		dirty.clear();
+		
+		// An entry deleted and created again within the window was replaced
+		for (Iterator<Path> iterator = created.iterator(); iterator.hasNext(); ) {
+			Path path = iterator.next();
+			if (deleted.remove(path)) {
+				iterator.remove();
+				modified.add(path);
+			}
+		}
+		
+		UChangeSet changes = new UChangeSet(created, modified, deleted);
+		if (changes.isEmpty()) return;
+		
+		try {
+			consumer.accept(changes);
+		} catch (RuntimeException e) {
+			// A failing consumer must not stop the watcher
+			Thread current = Thread.currentThread();
+			current.getUncaughtExceptionHandler().uncaughtException(current, e);
+		}
+	}
+	
+	/**
+	 * Compares the current state of an entry with its last known state.
+	 *
+	 * @param listing  the last known state of the parent directory
+	 * @param path     the entry to check
+	 * @param created  the created entries
+	 * @param modified the modified entries
+	 * @param deleted  the deleted entries
+	 */
+	private void reconcile(@NotNull Map<Path, Stamp> listing, @NotNull Path path, @NotNull Set<Path> created,
+		@NotNull Set<Path> modified, @NotNull Set<Path> deleted) {
+		Stamp previous = listing.get(path);
+		Stamp current = stamp(path);
+		
+		if (current == null) {
+			if (previous == null) return;
+			
+			listing.remove(path);
+			deleted.add(path);
+			if (previous.directory()) forget(path, deleted);
+			return;
+		}
+		
+		if (previous == null) {
+			listing.put(path, current);
+			created.add(path);
+			if (current.directory()) scanQuietly(path, created);
+			return;
+		}
+		
+		boolean replaced = previous.directory() != current.directory() ||
+						   !Objects.equals(previous.fileKey(), current.fileKey());
+		if (replaced) {
+			listing.put(path, current);
+			modified.add(path);
+			if (previous.directory()) forget(path, deleted);
+			if (current.directory()) scanQuietly(path, created);
+		} else if (!current.directory() && !current.equals(previous)) {
+			listing.put(path, current);
+			modified.add(path);
+		}
+	}
+	
+	/**
+	 * Registers a directory and records the state of all its entries, recursively.
+	 *
+	 * @param directory the directory to register
+	 * @param created   the set that receives every entry found, or null to not report them
+	 * @throws IOException if the directory cannot be registered or read
+	 */
+	private void scan(@NotNull Path directory, @Nullable Set<Path> created) throws IOException {
+		// Register before listing, so no entry is missed between both operations
+		WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+										  StandardWatchEventKinds.ENTRY_DELETE,
+										  StandardWatchEventKinds.ENTRY_MODIFY);
+		directories.put(key, directory);
+		keys.put(directory, key);
+		
+		Map<Path, Stamp> listing = new HashMap<>();
+		listings.put(directory, listing);
+		
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				Stamp stamp = stamp(path);
+				if (stamp == null) continue;
+				
+				listing.put(path, stamp);
+				if (created != null) created.add(path);
+				if (stamp.directory()) {
+					if (created == null) {
+						scan(path, null);
+					} else {
+						scanQuietly(path, created);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Registers a new directory, ignoring the errors caused by concurrent deletions.
+	 *
+	 * @param directory the directory to register
+	 * @param created   the set that receives every entry found
+	 */
+	private void scanQuietly(@NotNull Path directory, @NotNull Set<Path> created) {
+		try {
+			scan(directory, created);
+		} catch (IOException e) {
+			// The directory was removed or cannot be read; a later event reports it
+		}
+	}
+	
+	/**
+	 * Stops watching a directory and all its subdirectories.
+	 *
+	 * @param directory the removed directory
+	 * @param deleted   the set that receives every known entry of the directory
+	 */
+	private void forget(@NotNull Path directory, @NotNull Set<Path> deleted) {
+		WatchKey key = keys.remove(directory);
+		if (key != null) {
+			key.cancel();
+			directories.remove(key);
+		}
+		
+		Map<Path, Stamp> listing = listings.remove(directory);
+		if (listing == null) return;
+		
+		for (Map.Entry<Path, Stamp> entry : listing.entrySet()) {
+			deleted.add(entry.getKey());
+			if (entry.getValue().directory()) forget(entry.getKey(), deleted);
+		}
+	}
+	
+	/**
+	 * Reads the state of an entry without following links.
+	 *
+	 * @param path the entry to read
+	 * @return the state of the entry, or null if it does not exist
+	 */
+	private static @Nullable Stamp stamp(@NotNull Path path) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class,
+																  LinkOption.NOFOLLOW_LINKS);
+			return new Stamp(attributes.isDirectory(), attributes.size(),
+							 attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+		} catch (IOException e) {
+			// Removed entries and entries that cannot be read are treated as missing
+			return null;
+		}
+	}
+	
+	/**
+	 * Last known state of an entry.
+	 *
+	 * @param directory true if the entry is a directory
+	 * @param size      the size of the entry
+	 * @param modified  the modification time of the entry in milliseconds
+	 * @param fileKey   the file key of the entry, used to detect replaced entries
+	 */
+	private record Stamp(boolean directory, long size, long modified, @Nullable Object fileKey) {}
+	
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts zip and jar files. All the directories are created first and the files are then
+ * inflated and written in parallel. Uncompressed entries are transferred directly from the
+ * archive file, and compressed entries are written through pooled direct buffers.
+ */
+public final class UArchiveExtractor {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UArchiveExtractor() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Extraction methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Extracts all the entries of an archive into a directory. Existing files are replaced.
+	 *
+	 * @param archive the zip or jar file to extract
+	 * @param target  the destination directory; it is created if it does not exist
+	 * @return the number of files extracted
+	 * @throws ZipException             if an entry would be written outside the target directory
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the archive or target is null
+	 */
+	public static int extract(@NotNull Path archive, @NotNull Path target) throws IOException {
+		UAssert.paramNotNull(archive, "Path archive");
+		UAssert.paramNotNull(target, "Path target");
+		Path root = target.toAbsolutePath().normalize();
+		Files.createDirectories(root);
+		
+		UZipIndex index = index(archive);
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			List<ZipEntry> files = new ArrayList<>();
+			Set<Path> directories = new TreeSet<>();
+			
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				Path location = resolve(root, entry);
+				if (entry.isDirectory()) {
+					directories.add(location);
+				} else {
+					files.add(entry);
+					directories.add(location.getParent());
+				}
+			}
+			
+			// Parents sort before their children, so every directory is created once
+			for (Path directory : directories) {
+				Files.createDirectories(directory);
+			}
+			
+			try {
+				files.parallelStream().forEach(entry -> {
+					try {
+						write(archive, zip, index, entry, resolve(root, entry));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return files.size();
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Resolves the destination of an entry, rejecting names that leave the target directory.
+	 *
+	 * @param root  the normalized target directory
+	 * @param entry the entry to resolve
+	 * @return the destination of the entry
+	 * @throws ZipException if the entry is outside the target directory
+	 */
+	private static @NotNull Path resolve(@NotNull Path root, @NotNull ZipEntry entry) throws ZipException {
+		Path location = root.resolve(entry.getName()).normalize();
+		if (!location.startsWith(root) || location.equals(root) && !entry.isDirectory()) {
+			throw new ZipException("The entry is outside the target directory: " + entry.getName());
+		}
+		return location;
+	}
+	
+	/**
+	 * Writes the content of a file entry.
+	 *
+	 * @param archive  the archive file
+	 * @param zip      the opened archive
+	 * @param index    the index of the archive, or null if it cannot be indexed
+	 * @param entry    the entry to write
+	 * @param location the destination file
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void write(@NotNull Path archive, @NotNull ZipFile zip, @Nullable UZipIndex index,
+		@NotNull ZipEntry entry, @NotNull Path location) throws IOException {
+		try (FileChannel out = FileChannel.open(location, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+												StandardOpenOption.TRUNCATE_EXISTING)) {
+			UZipIndex.Entry stored = index == null ? null : index.entry(entry.getName());
+			if (stored != null && stored.stored()) {
+				try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ)) {
+					long offset = UZipIndex.dataOffset(in, stored);
+					long done = 0;
+					while (done < stored.size()) {
+						long transferred = in.transferTo(offset + done, stored.size() - done, out);
+						if (transferred <= 0) throw new ZipException("Truncated entry " + entry.getName());
+						done += transferred;
+					}
+				}
+			} else {
+				ByteBuffer buffer = UBufferPool.SHARED.acquire();
+				try (ReadableByteChannel in = Channels.newChannel(zip.getInputStream(entry))) {
+					while (in.read(buffer) != -1) {
+						buffer.flip();
+						while (buffer.hasRemaining()) {
+							out.write(buffer);
+						}
+						buffer.clear();
+					}
+				} finally {
+					UBufferPool.SHARED.release(buffer);
+				}
+			}
+		}
+		
+		if (entry.getLastModifiedTime() != null) {
+			Files.setLastModifiedTime(location, entry.getLastModifiedTime());
+		}
+	}
+	
+	/**
+	 * Indexes the archive, used to locate the data of uncompressed entries.
+	 *
+	 * @param archive the archive file
+	 * @return the index, or null if the archive cannot be indexed
+	 */
+	private static @Nullable UZipIndex index(@NotNull Path archive) {
+		try {
+			return UZipIndex.of(archive);
+		} catch (IOException e) {
+			// The entries are read through the zip file instead
+			return null;
+		}
+	}
+	
+}
\ No newline at end of file
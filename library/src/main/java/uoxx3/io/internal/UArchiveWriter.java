@@ -0,0 +1,492 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.UFSConstants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Creates zip files from directory trees. Every file is split into blocks that are compressed
+ * in parallel, each block primed with the last 32 kilobytes of the previous one, and the
+ * compressed blocks are appended in order. The concatenated blocks form a single deflate
+ * stream, so the result is a regular zip file.
+ * <p>
+ * The output is reproducible: entries are sorted by name and every entry has the same
+ * timestamp and attributes, so the same tree always produces the same bytes.
+ */
+public final class UArchiveWriter {
+	
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int ZIP64_END_SIZE = 56;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final int ZIP64_MAX_ENTRIES = 0xFFFF;
+	
+	/**
+	 * Files of this size or larger use zip64 sizes, leaving room for the compressed data to
+	 * be a bit larger than the original data.
+	 */
+	private static final long ZIP64_SIZE_THRESHOLD = 0xF0000000L;
+	
+	private static final int VERSION_DEFAULT = 20;
+	private static final int VERSION_ZIP64 = 45;
+	private static final int FLAG_UTF8 = 0x0800;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+	private static final int ATTRIBUTE_DIRECTORY = 0x10;
+	
+	/**
+	 * The MS-DOS date of every entry, 1980-01-01, the first date of the format.
+	 */
+	private static final int DOS_DATE = (1 << 5) | 1;
+	private static final int DOS_TIME = 0;
+	
+	/**
+	 * The size of the deflate window; the data a block may reference from the previous block.
+	 */
+	private static final int DICTIONARY_SIZE = 32 << 10;
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UArchiveWriter() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Archive methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Creates a zip file with all the files and directories of a tree. The target is
+	 * replaced atomically.
+	 *
+	 * @param root   the directory to archive
+	 * @param target the zip file to create
+	 * @param level  the compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+	 * @return the number of entries written
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the root or target is null, or the level is not valid
+	 */
+	public static int create(@NotNull Path root, @NotNull Path target, int level) throws IOException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(target, "Path target");
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level. \"%d\" given".formatted(level));
+		}
+		
+		Path output = target.toAbsolutePath().normalize();
+		List<Entry> entries = entries(root.toAbsolutePath().normalize(), output);
+		Path temp = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+		
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				write(channel, entries, level);
+			}
+			Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return entries.size();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Lists the regular files and directories of a tree sorted by entry name. Links and
+	 * other special files are skipped.
+	 *
+	 * @param root   the directory to list
+	 * @param target the archive being created, skipped if it is inside the tree
+	 * @return the entries of the tree
+	 * @throws IOException if the tree cannot be listed
+	 */
+	private static @NotNull List<Entry> entries(@NotNull Path root, @NotNull Path target) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try (Stream<Path> paths = Files.walk(root)) {
+			Iterator<Path> iterator = paths.iterator();
+			while (iterator.hasNext()) {
+				Path path = iterator.next();
+				if (path.equals(root) || path.equals(target)) continue;
+				
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class,
+																	  LinkOption.NOFOLLOW_LINKS);
+				StringBuilder name = new StringBuilder();
+				for (Path part : root.relativize(path)) {
+					if (!name.isEmpty()) name.append('/');
+					name.append(part);
+				}
+				
+				if (attributes.isDirectory()) {
+					entries.add(new Entry(path, name.append('/').toString(), -1));
+				} else if (attributes.isRegularFile()) {
+					entries.add(new Entry(path, name.toString(), attributes.size()));
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		
+		entries.sort(Comparator.comparing(Entry::name));
+		return entries;
+	}
+	
+	/**
+	 * Writes all the entries and the central directory. The blocks of the files are
+	 * compressed in the common pool, with a bounded number of blocks in flight, and written
+	 * in order by the calling thread. When the writing fails, the blocks still in flight are
+	 * awaited and their buffers returned to the pool.
+	 *
+	 * @param channel the channel of the archive
+	 * @param entries the entries to write
+	 * @param level   the compression level
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void write(@NotNull FileChannel channel, @NotNull List<Entry> entries, int level)
+		throws IOException {
+		Iterator<Block> blocks = entries.stream()
+			.filter(entry -> !entry.directory())
+			.flatMap(entry -> Stream.iterate(0L, offset -> offset == 0 || offset < entry.size(),
+											 offset -> offset + UFSConstants.FS_ARCHIVE_BLOCK_SIZE)
+				.map(offset -> new Block(entry, offset)))
+			.iterator();
+		
+		int window = Runtime.getRuntime().availableProcessors() * 2;
+		Deque<CompletableFuture<Compressed>> pending = new ArrayDeque<>();
+		List<Record> records = new ArrayList<>(entries.size());
+		
+		try {
+			for (Entry entry : entries) {
+				long offset = channel.position();
+				byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+				boolean zip64 = entry.size() >= ZIP64_SIZE_THRESHOLD;
+				writeFully(channel, localHeader(name, zip64, 0, 0, 0, entry.directory()));
+				
+				CRC32 crc = new CRC32();
+				long compressed = 0;
+				if (!entry.directory()) {
+					boolean last;
+					do {
+						while (pending.size() < window && blocks.hasNext()) {
+							Block block = blocks.next();
+							pending.add(CompletableFuture.supplyAsync(() -> compress(block, level)));
+						}
+						
+						Compressed result = pending.remove().join();
+						crc.update(result.data().array(), result.start(), result.length());
+						UBufferPool.HEAP.release(result.data());
+						writeFully(channel, ByteBuffer.wrap(result.output(), 0, result.outputLength()));
+						compressed += result.outputLength();
+						last = result.last();
+					} while (!last);
+					
+					if (!zip64 && compressed >= ZIP64_MAGIC) {
+						throw new IOException("The compressed data of %s is too large".formatted(entry.path()));
+					}
+					
+					// The sizes are only known after the data, so the header is completed in place
+					ByteBuffer header = localHeader(name, zip64, crc.getValue(), compressed, entry.size(), false);
+					long position = offset;
+					while (header.hasRemaining()) {
+						position += channel.write(header, position);
+					}
+				}
+				
+				records.add(new Record(entry, name, crc.getValue(), compressed, offset, zip64));
+			}
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+			throw e;
+		} finally {
+			// Every block in flight is awaited: cancelling a running block would lose its pooled buffer
+			for (CompletableFuture<Compressed> future : pending) {
+				try {
+					UBufferPool.HEAP.release(future.join().data());
+				} catch (CompletionException ignored) {
+					// The failed block released its buffer
+				}
+			}
+		}
+		
+		writeCentralDirectory(channel, records);
+	}
+	
+	/**
+	 * Compresses a block of a file. Every block but the last ends with a sync flush, so the
+	 * blocks can be concatenated into a single deflate stream.
+	 *
+	 * @param block the block to compress
+	 * @param level the compression level
+	 * @return the original and compressed data of the block
+	 * @throws UncheckedIOException if the file cannot be read or changed its size
+	 */
+	private static @NotNull Compressed compress(@NotNull Block block, int level) {
+		long size = block.entry().size();
+		int length = (int) Math.min(UFSConstants.FS_ARCHIVE_BLOCK_SIZE, size - block.offset());
+		int dictionary = (int) Math.min(DICTIONARY_SIZE, block.offset());
+		boolean last = block.offset() + length >= size;
+		
+		// Released by the writer once the checksum is updated
+		ByteBuffer buffer = UBufferPool.HEAP.acquire(dictionary + length).limit(dictionary + length);
+		byte[] data = buffer.array();
+		try (FileChannel channel = FileChannel.open(block.entry().path(), StandardOpenOption.READ)) {
+			long position = block.offset() - dictionary;
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, position + buffer.position());
+				if (read == -1) throw new IOException("The file %s changed while it was archived"
+														  .formatted(block.entry().path()));
+			}
+		} catch (IOException e) {
+			UBufferPool.HEAP.release(buffer);
+			throw new UncheckedIOException(e);
+		}
+		
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (dictionary > 0) deflater.setDictionary(data, 0, dictionary);
+			deflater.setInput(data, dictionary, length);
+			if (last) deflater.finish();
+			
+			byte[] output = new byte[length + (length >>> 8) + 64];
+			int count = 0;
+			while (true) {
+				if (count == output.length) output = Arrays.copyOf(output, output.length << 1);
+				count += deflater.deflate(output, count, output.length - count,
+										  last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+				if (last ? deflater.finished() : count < output.length) break;
+			}
+			return new Compressed(buffer, dictionary, length, output, count, last);
+		} catch (RuntimeException | Error e) {
+			UBufferPool.HEAP.release(buffer);
+			throw e;
+		} finally {
+			deflater.end();
+		}
+	}
+	
+	/**
+	 * Builds the local header of an entry.
+	 *
+	 * @param name       the encoded entry name
+	 * @param zip64      true to store the sizes in a zip64 extra field
+	 * @param crc        the checksum of the entry data
+	 * @param compressed the compressed size
+	 * @param size       the uncompressed size
+	 * @param directory  true if the entry is a directory
+	 * @return the header, ready to be written
+	 */
+	private static @NotNull ByteBuffer localHeader(byte @NotNull [] name, boolean zip64, long crc, long compressed,
+		long size, boolean directory) {
+		int extra = zip64 ? 4 + Long.BYTES * 2 : 0;
+		ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + name.length + extra)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.putInt(LOCAL_HEADER_SIGNATURE)
+			.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+			.putShort((short) FLAG_UTF8)
+			.putShort((short) (directory ? METHOD_STORED : METHOD_DEFLATED))
+			.putShort((short) DOS_TIME)
+			.putShort((short) DOS_DATE)
+			.putInt((int) crc)
+			.putInt((int) (zip64 ? ZIP64_MAGIC : compressed))
+			.putInt((int) (zip64 ? ZIP64_MAGIC : Math.max(size, 0)))
+			.putShort((short) name.length)
+			.putShort((short) extra)
+			.put(name);
+		
+		if (zip64) {
+			header.putShort((short) ZIP64_EXTRA_ID)
+				.putShort((short) (Long.BYTES * 2))
+				.putLong(size)
+				.putLong(compressed);
+		}
+		return header.flip();
+	}
+	
+	/**
+	 * Writes the central directory and the end records of the archive.
+	 *
+	 * @param channel the channel of the archive
+	 * @param records the written entries
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void writeCentralDirectory(@NotNull FileChannel channel, @NotNull List<Record> records)
+		throws IOException {
+		long start = channel.position();
+		
+		for (Record record : records) {
+			boolean offset64 = record.offset() >= ZIP64_MAGIC;
+			int extra = (record.zip64() ? Long.BYTES * 2 : 0) + (offset64 ? Long.BYTES : 0);
+			boolean zip64 = extra > 0;
+			if (zip64) extra += 4;
+			
+			ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + record.name().length + extra)
+				.order(ByteOrder.LITTLE_ENDIAN)
+				.putInt(CENTRAL_HEADER_SIGNATURE)
+				.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+				.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+				.putShort((short) FLAG_UTF8)
+				.putShort((short) (record.entry().directory() ? METHOD_STORED : METHOD_DEFLATED))
+				.putShort((short) DOS_TIME)
+				.putShort((short) DOS_DATE)
+				.putInt((int) record.crc())
+				.putInt((int) (record.zip64() ? ZIP64_MAGIC : record.compressed()))
+				.putInt((int) (record.zip64() ? ZIP64_MAGIC : Math.max(record.entry().size(), 0)))
+				.putShort((short) record.name().length)
+				.putShort((short) extra)
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putInt(record.entry().directory() ? ATTRIBUTE_DIRECTORY : 0)
+				.putInt((int) (offset64 ? ZIP64_MAGIC : record.offset()))
+				.put(record.name());
+			
+			if (zip64) {
+				header.putShort((short) ZIP64_EXTRA_ID).putShort((short) (extra - 4));
+				if (record.zip64()) header.putLong(record.entry().size()).putLong(record.compressed());
+				if (offset64) header.putLong(record.offset());
+			}
+			writeFully(channel, header.flip());
+		}
+		
+		long end = channel.position();
+		long size = end - start;
+		boolean zip64 = records.size() >= ZIP64_MAX_ENTRIES || start >= ZIP64_MAGIC || size >= ZIP64_MAGIC;
+		
+		ByteBuffer trailer = ByteBuffer.allocate(END_SIZE + (zip64 ? ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE : 0))
+			.order(ByteOrder.LITTLE_ENDIAN);
+		if (zip64) {
+			trailer.putInt(ZIP64_END_SIGNATURE)
+				.putLong(ZIP64_END_SIZE - 12)
+				.putShort((short) VERSION_ZIP64)
+				.putShort((short) VERSION_ZIP64)
+				.putInt(0)
+				.putInt(0)
+				.putLong(records.size())
+				.putLong(records.size())
+				.putLong(size)
+				.putLong(start)
+				.putInt(ZIP64_LOCATOR_SIGNATURE)
+				.putInt(0)
+				.putLong(end)
+				.putInt(1);
+		}
+		
+		int count = zip64 ? ZIP64_MAX_ENTRIES : records.size();
+		trailer.putInt(END_SIGNATURE)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) count)
+			.putShort((short) count)
+			.putInt((int) (zip64 ? ZIP64_MAGIC : size))
+			.putInt((int) (zip64 ? ZIP64_MAGIC : start))
+			.putShort((short) 0);
+		writeFully(channel, trailer.flip());
+	}
+	
+	/**
+	 * Writes all the remaining bytes of a buffer.
+	 *
+	 * @param channel the destination channel
+	 * @param buffer  the data to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * File or directory of the archived tree.
+	 *
+	 * @param path the location of the file
+	 * @param name the name of the entry, ending with a separator for directories
+	 * @param size the size of the file, or -1 for directories
+	 */
+	private record Entry(@NotNull Path path, @NotNull String name, long size) {
+		
+		/**
+		 * Checks whether the entry is a directory.
+		 *
+		 * @return true if the entry is a directory
+		 */
+		boolean directory() {
+			return size < 0;
+		}
+		
+	}
+	
+	/**
+	 * Block of a file compressed by a single task.
+	 *
+	 * @param entry  the file of the block
+	 * @param offset the position of the first byte of the block
+	 */
+	private record Block(@NotNull Entry entry, long offset) {}
+	
+	/**
+	 * Result of the compression of a block.
+	 *
+	 * @param data         the pooled buffer with the dictionary followed by the original data
+	 * @param start        the position of the original data in the array
+	 * @param length       the number of bytes of original data
+	 * @param output       the compressed data
+	 * @param outputLength the number of bytes of compressed data
+	 * @param last         true if the block is the last block of its file
+	 */
+	private record Compressed(@NotNull ByteBuffer data, int start, int length, byte @NotNull [] output,
+							  int outputLength, boolean last) {}
+	
+	/**
+	 * Written entry, kept for the central directory.
+	 *
+	 * @param entry      the archived file or directory
+	 * @param name       the encoded entry name
+	 * @param crc        the checksum of the entry data
+	 * @param compressed the compressed size
+	 * @param offset     the position of the local header
+	 * @param zip64      true if the sizes are stored in a zip64 extra field
+	 */
+	private record Record(@NotNull Entry entry, byte @NotNull [] name, long crc, long compressed, long offset,
+						  boolean zip64) {}
+	
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hashes files with an {@link AsynchronousFileChannel}. Every read is issued from the
+ * completion of the previous one, so no thread is blocked while the file is read.
+ */
+public final class UAsyncHasher {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UAsyncHasher() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Hash methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Computes the hash of the given path. The returned future fails with the original
+	 * exception if the algorithm is not available or the file cannot be read, and with an
+	 * {@link UnsupportedOperationException} if the file system of the path does not
+	 * support asynchronous channels.
+	 * <p>
+	 * Cancelling the returned future closes the channel and stops reading.
+	 *
+	 * @param path the path to read data from
+	 * @param algo the hash algorithm to use
+	 * @return a future completed with the computed hash
+	 * @throws IllegalArgumentException if the path or algorithm is null
+	 */
+	public static @NotNull CompletableFuture<byte[]> hash(@NotNull Path path, @NotNull String algo) {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(algo, "String algo");
+		
+		UHashEvent event = new UHashEvent();
+		event.begin();
+		boolean metrics = UMetrics.enabled();
+		long start = metrics ? System.nanoTime() : 0;
+		
+		MessageDigest digest;
+		AsynchronousFileChannel channel;
+		try {
+			digest = MessageDigest.getInstance(algo);
+			channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+		} catch (NoSuchAlgorithmException | IOException | UnsupportedOperationException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		
+		Reader reader = new Reader(channel, digest, UBufferPool.HEAP.acquire(UBufferPool.readSize(path)),
+								   algo, event, metrics, start);
+		reader.result.whenComplete((hash, error) -> {
+			// A pending read fails as soon as the channel is closed
+			if (reader.result.isCancelled()) reader.close();
+		});
+		reader.read();
+		return reader.result;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Read loop of a single file. Only one read is pending at any time, so the state is
+	 * never accessed concurrently.
+	 */
+	private static final class Reader implements CompletionHandler<Integer, Void> {
+		
+		private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+		private final AsynchronousFileChannel channel;
+		private final MessageDigest digest;
+		private final ByteBuffer buffer;
+		private final String algo;
+		private final UHashEvent event;
+		private final boolean metrics;
+		private final long start;
+		private long position;
+		
+		private Reader(@NotNull AsynchronousFileChannel channel, @NotNull MessageDigest digest,
+			@NotNull ByteBuffer buffer, @NotNull String algo, @NotNull UHashEvent event, boolean metrics, long start) {
+			this.channel = channel;
+			this.digest = digest;
+			this.buffer = buffer;
+			this.algo = algo;
+			this.event = event;
+			this.metrics = metrics;
+			this.start = start;
+		}
+		
+		private void read() {
+			try {
+				channel.read(buffer.clear(), position, null, this);
+			} catch (RuntimeException e) {
+				failed(e, null);
+			}
+		}
+		
+		@Override
+		public void completed(Integer read, Void attachment) {
+			if (read == -1) {
+				finish();
+				return;
+			}
+			
+			digest.update(buffer.array(), 0, read);
+			position += read;
+			read();
+		}
+		
+		@Override
+		public void failed(Throwable error, Void attachment) {
+			close();
+			UBufferPool.HEAP.release(buffer);
+			result.completeExceptionally(error);
+		}
+		
+		private void finish() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				failed(e, null);
+				return;
+			}
+			UBufferPool.HEAP.release(buffer);
+			byte[] hash = digest.digest();
+			
+			if (event.shouldCommit()) {
+				event.algorithm = algo;
+				event.bytes = position;
+				event.commit();
+			}
+			if (metrics) UMetrics.hashed(algo, position, System.nanoTime() - start);
+			result.complete(hash);
+		}
+		
+		private void close() {
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// The result is already known
+			}
+		}
+		
+	}
+	
+}
\ No newline at end of file
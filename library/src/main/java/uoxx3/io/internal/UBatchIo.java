@@ -0,0 +1,53 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+/**
+ * Batched file read engine. This version reads the files with {@link UBulkReader}; the
+ * Java 22 version of the multi-release jar submits the reads through io_uring on Linux
+ * when the {@code uoxx3.io.uring} system property is true.
+ */
+public final class UBatchIo {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UBatchIo() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Engine methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Checks whether the reads are submitted through io_uring.
+	 *
+	 * @return true if the native engine is in use
+	 */
+	public static boolean nativeEngine() {
+		return false;
+	}
+	
+	/**
+	 * Reads every file and delivers its content to the consumer.
+	 *
+	 * @param paths       the files to read
+	 * @param parallelism the maximum number of files read at the same time
+	 * @param consumer    the action that receives every file and its content
+	 * @throws IOException              if any file cannot be read
+	 * @throws IllegalArgumentException if any parameter is null or the parallelism is not positive
+	 * @see UBulkReader#readAll(Collection, int, BiConsumer)
+	 */
+	public static void readAll(@NotNull Collection<Path> paths, int parallelism,
+		@NotNull BiConsumer<Path, ByteBuffer> consumer) throws IOException {
+		UBulkReader.readAll(paths, parallelism, consumer);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package uoxx3.io.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter specialized for cryptographic digests. The digest bytes
+ * are already uniformly distributed, so the bit indexes are taken directly from them
+ * instead of hashing the keys again.
+ */
+public final class UBloomFilter {
+	
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashes;
+	
+	/**
+	 * Creates a new Bloom filter sized for the given number of entries and
+	 * false positive probability.
+	 *
+	 * @param expectedEntries the number of entries expected to be added
+	 * @param fpp             the desired false positive probability
+	 * @throws IllegalArgumentException if the number of entries is not positive or the probability is not in (0, 1)
+	 */
+	public UBloomFilter(long expectedEntries, double fpp) {
+		if (expectedEntries <= 0) {
+			throw new IllegalArgumentException(
+				"The expected entries must be positive. \"%d\" given".formatted(expectedEntries));
+		}
+		if (fpp <= 0 || fpp >= 1) {
+			throw new IllegalArgumentException(
+				"The false positive probability must be in (0, 1). \"%f\" given".formatted(fpp));
+		}
+		
+		long m = (long) Math.ceil(-expectedEntries * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+		
+		this.bits = new AtomicLongArray(Math.max(words, 1));
+		this.bitCount = (long) bits.length() << 6;
+		this.hashes = Math.max(1, (int) Math.round((double) m / expectedEntries * Math.log(2)));
+	}
+	
+	/* -----------------------------------------------------
+	 * Methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Adds the given digest to the filter.
+	 *
+	 * @param digest the digest to add
+	 */
+	public void add(byte[] digest) {
+		long h1 = hash1(digest);
+		long h2 = hash2(digest);
+		
+		for (int i = 0; i < hashes; i++) {
+			long index = Math.floorMod(h1 + i * h2, bitCount);
+			int word = (int) (index >>> 6);
+			long mask = 1L << index;
+			long current;
+			
+			// Lock-free set of the bit
+			while (((current = bits.get(word)) & mask) == 0) {
+				if (bits.compareAndSet(word, current, current | mask)) break;
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether the given digest might have been added to the filter.
+	 *
+	 * @param digest the digest to check
+	 * @return false if the digest was definitely never added, true otherwise
+	 */
+	public boolean mightContain(byte[] digest) {
+		long h1 = hash1(digest);
+		long h2 = hash2(digest);
+		
+		for (int i = 0; i < hashes; i++) {
+			long index = Math.floorMod(h1 + i * h2, bitCount);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) return false;
+		}
+		return true;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	private static long hash1(byte[] digest) {
+		return readLong(digest, 0);
+	}
+	
+	private static long hash2(byte[] digest) {
+		// Always odd, so every probe visits a different bit
+		return readLong(digest, 8) | 1L;
+	}
+	
+	private static long readLong(byte[] digest, int offset) {
+		long result = 0;
+		for (int i = 0; i < Long.BYTES; i++) {
+			int idx = offset + i;
+			result = (result << 8) | (idx < digest.length ? digest[idx] & 0xFF : 0);
+		}
+		return result;
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,380 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.UFSConstants;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of heap or direct buffers grouped in power-of-two size classes. Every platform thread
+ * keeps one idle buffer of each small class, so most acquisitions never touch the shared
+ * queues; the queues hold the overflow and the buffers of the large classes.
+ * <p>
+ * When the {@code uoxx3.io.buffers.debug} system property is true, every acquired buffer is
+ * tracked: buffers collected without being released are reported as leaks, and releasing a
+ * buffer twice throws an exception.
+ */
+public final class UBufferPool {
+	
+	/**
+	 * The size of the buffers returned by {@link #acquire()}, set to 256 kilobytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256 << 10;
+	
+	/**
+	 * Whether the leak detection of the shared pools is enabled.
+	 */
+	public static final boolean DEBUG = Boolean.getBoolean("uoxx3.io.buffers.debug");
+	
+	/**
+	 * The shared pool of direct buffers used by the transfer and bulk read methods, with size
+	 * classes from 4 kilobytes to 1 megabyte.
+	 */
+	public static final UBufferPool SHARED = new UBufferPool(4 << 10, 1 << 20,
+															 Runtime.getRuntime().availableProcessors() * 2,
+															 true, DEBUG);
+	
+	/**
+	 * The shared pool of heap buffers used by the stream and digest methods, with size
+	 * classes from 4 kilobytes to 1 megabyte.
+	 */
+	public static final UBufferPool HEAP = new UBufferPool(4 << 10, 1 << 20,
+														   Runtime.getRuntime().availableProcessors() * 2,
+														   false, DEBUG);
+	
+	/**
+	 * The largest buffer kept in the thread-local slots.
+	 */
+	private static final int LOCAL_MAX_SIZE = DEFAULT_BUFFER_SIZE;
+	
+	/**
+	 * The largest read size picked from a file store block size.
+	 */
+	private static final int MAX_READ_SIZE = 1 << 20;
+	
+	/**
+	 * The number of directories whose read size is cached before the cache is cleared.
+	 */
+	private static final int READ_SIZE_CACHE_LIMIT = 4096;
+	
+	/**
+	 * Read size by parent directory. Looking up the file store is much slower than the
+	 * read itself on some platforms.
+	 */
+	private static final Map<Path, Integer> READ_SIZES = new ConcurrentHashMap<>();
+	
+	private static final System.Logger LOGGER = System.getLogger(UBufferPool.class.getName());
+	
+	private final Queue<ByteBuffer>[] classes;
+	private final AtomicInteger[] pooled;
+	private final ThreadLocal<ByteBuffer[]> local;
+	private final int minShift;
+	private final int localClasses;
+	private final int maxSize;
+	private final int maxPooled;
+	private final boolean direct;
+	
+	/**
+	 * Leak tracking state, or null if tracking is disabled
+	 */
+	private final @Nullable Tracking tracking;
+	
+	/**
+	 * Creates a new pool.
+	 *
+	 * @param minSize    the size of the smallest class; rounded up to a power of two
+	 * @param maxSize    the size of the largest class; rounded up to a power of two
+	 * @param maxPooled  the maximum number of idle buffers kept for every class in the shared queues
+	 * @param direct     true to allocate direct buffers, false to allocate heap buffers
+	 * @param trackLeaks true to track every acquired buffer until it is released
+	 * @throws IllegalArgumentException if any value is not positive or the minimum is larger than the maximum
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public UBufferPool(int minSize, int maxSize, int maxPooled, boolean direct, boolean trackLeaks) {
+		if (minSize <= 0 || maxSize < minSize || maxPooled <= 0 || maxSize > 1 << 30) {
+			throw new IllegalArgumentException("Invalid pool limits. min=%d, max=%d, pooled=%d given"
+												   .formatted(minSize, maxSize, maxPooled));
+		}
+		this.minShift = ceilShift(minSize);
+		int maxShift = ceilShift(maxSize);
+		this.maxSize = 1 << maxShift;
+		this.maxPooled = maxPooled;
+		this.direct = direct;
+		this.tracking = trackLeaks ? new Tracking() : null;
+		
+		int count = maxShift - minShift + 1;
+		this.classes = new Queue[count];
+		this.pooled = new AtomicInteger[count];
+		for (int i = 0; i < count; i++) {
+			classes[i] = new ConcurrentLinkedQueue<>();
+			pooled[i] = new AtomicInteger();
+		}
+		
+		this.localClasses = Math.max(0, Math.min(count, ceilShift(LOCAL_MAX_SIZE) - minShift + 1));
+		this.local = ThreadLocal.withInitial(() -> new ByteBuffer[localClasses]);
+	}
+	
+	/**
+	 * Creates a new pool of direct buffers without leak tracking.
+	 *
+	 * @param minSize   the size of the smallest class; rounded up to a power of two
+	 * @param maxSize   the size of the largest class; rounded up to a power of two
+	 * @param maxPooled the maximum number of idle buffers kept for every class in the shared queues
+	 * @throws IllegalArgumentException if any value is not positive or the minimum is larger than the maximum
+	 */
+	public UBufferPool(int minSize, int maxSize, int maxPooled) {
+		this(minSize, maxSize, maxPooled, true, false);
+	}
+	
+	/* -----------------------------------------------------
+	 * Pool methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Takes a buffer of at least the given size from the pool, or allocates a new one.
+	 * Sizes larger than the largest class are allocated without pooling.
+	 *
+	 * @param size the minimum capacity of the buffer
+	 * @return a cleared big-endian buffer
+	 * @throws IllegalArgumentException if the size is negative
+	 */
+	public @NotNull ByteBuffer acquire(int size) {
+		if (size < 0) throw new IllegalArgumentException("The size cannot be negative. \"%d\" given".formatted(size));
+		if (size > maxSize) return track(allocate(size));
+		
+		int index = Math.max(ceilShift(size), minShift) - minShift;
+		ByteBuffer buffer = null;
+		
+		if (index < localClasses && !UThreads.isVirtual(Thread.currentThread())) {
+			ByteBuffer[] slots = local.get();
+			buffer = slots[index];
+			slots[index] = null;
+		}
+		if (buffer == null) {
+			buffer = classes[index].poll();
+			if (buffer != null) pooled[index].decrementAndGet();
+		}
+		if (buffer == null) buffer = allocate(1 << (index + minShift));
+		
+		buffer.clear().order(ByteOrder.BIG_ENDIAN);
+		return track(buffer);
+	}
+	
+	/**
+	 * Takes a buffer of the default size from the pool, or allocates a new one.
+	 *
+	 * @return a cleared big-endian buffer
+	 */
+	public @NotNull ByteBuffer acquire() {
+		return acquire(DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Returns a buffer to the pool. Buffers that do not match a size class and buffers
+	 * beyond the pool limit are left to the garbage collector.
+	 *
+	 * @param buffer the buffer to return
+	 * @throws IllegalArgumentException if the buffer is null
+	 * @throws IllegalStateException    if leaks are tracked and the buffer is not currently acquired from this pool
+	 */
+	public void release(@NotNull ByteBuffer buffer) {
+		UAssert.paramNotNull(buffer, "ByteBuffer buffer");
+		if (tracking != null) tracking.untrack(buffer);
+		
+		int capacity = buffer.capacity();
+		if (buffer.isDirect() != direct || buffer.isReadOnly() || Integer.bitCount(capacity) != 1) return;
+		
+		int index = Integer.numberOfTrailingZeros(capacity) - minShift;
+		if (index < 0 || index >= classes.length) return;
+		
+		if (index < localClasses && !UThreads.isVirtual(Thread.currentThread())) {
+			ByteBuffer[] slots = local.get();
+			if (slots[index] == null) {
+				slots[index] = buffer;
+				return;
+			}
+		}
+		if (pooled[index].incrementAndGet() > maxPooled) {
+			pooled[index].decrementAndGet();
+			return;
+		}
+		classes[index].offer(buffer);
+	}
+	
+	/**
+	 * Returns the number of buffers that were collected without being released. Always zero
+	 * when leaks are not tracked.
+	 *
+	 * @return the number of leaked buffers found so far
+	 */
+	public long leaks() {
+		if (tracking == null) return 0;
+		tracking.drain();
+		return tracking.leaks.sum();
+	}
+	
+	/* -----------------------------------------------------
+	 * Sizing methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the buffer size used to read the given path. The size is the block size of the
+	 * file store that contains the path, rounded up to a power of two and kept between
+	 * {@link UFSConstants#FS_READ_BUFFER_SIZE} and 1 megabyte. The size is cached for every
+	 * directory.
+	 *
+	 * @param path the path that is going to be read
+	 * @return the read buffer size
+	 * @throws IllegalArgumentException if the path is null
+	 */
+	public static int readSize(@NotNull Path path) {
+		UAssert.paramNotNull(path, "Path path");
+		Path directory = path.toAbsolutePath().getParent();
+		if (directory == null) return UFSConstants.FS_READ_BUFFER_SIZE;
+		
+		Integer cached = READ_SIZES.get(directory);
+		if (cached != null) return cached;
+		
+		int size = UFSConstants.FS_READ_BUFFER_SIZE;
+		try {
+			long blockSize = Files.getFileStore(directory).getBlockSize();
+			if (blockSize > size) size = 1 << ceilShift((int) Math.min(blockSize, MAX_READ_SIZE));
+		} catch (IOException | UnsupportedOperationException | SecurityException ignored) {
+			// The default size is used when the file store cannot be queried
+		}
+		
+		if (READ_SIZES.size() >= READ_SIZE_CACHE_LIMIT) READ_SIZES.clear();
+		READ_SIZES.put(directory, size);
+		return size;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Allocates a new buffer of the pool kind.
+	 *
+	 * @param capacity the capacity of the buffer
+	 * @return the allocated buffer
+	 */
+	private @NotNull ByteBuffer allocate(int capacity) {
+		return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+	
+	/**
+	 * Starts tracking the given buffer if leaks are tracked.
+	 *
+	 * @param buffer the acquired buffer
+	 * @return the same buffer
+	 */
+	private @NotNull ByteBuffer track(@NotNull ByteBuffer buffer) {
+		if (tracking != null) tracking.track(buffer);
+		return buffer;
+	}
+	
+	/**
+	 * Returns the exponent of the smallest power of two greater than or equal to the value.
+	 *
+	 * @param value the value to round
+	 * @return the exponent of the rounded value
+	 */
+	private static int ceilShift(int value) {
+		return value <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(value - 1);
+	}
+	
+	/* -----------------------------------------------------
+	 * Leak tracking
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Reference to an acquired buffer that remembers where the buffer was acquired.
+	 */
+	private static final class Tracker extends PhantomReference<ByteBuffer> {
+		
+		private final int key;
+		private final Throwable site;
+		
+		private Tracker(@NotNull ByteBuffer buffer, @NotNull ReferenceQueue<ByteBuffer> queue) {
+			super(buffer, queue);
+			this.key = System.identityHashCode(buffer);
+			this.site = new Throwable("Buffer of %d bytes acquired here".formatted(buffer.capacity()));
+		}
+		
+	}
+	
+	/**
+	 * Trackers of the acquired buffers. A tracker that reaches the queue while it is still
+	 * registered belongs to a buffer that was never released.
+	 */
+	private static final class Tracking {
+		
+		private final Map<Integer, List<Tracker>> trackers = new HashMap<>();
+		private final ReferenceQueue<ByteBuffer> queue = new ReferenceQueue<>();
+		private final LongAdder leaks = new LongAdder();
+		
+		private void track(@NotNull ByteBuffer buffer) {
+			drain();
+			Tracker tracker = new Tracker(buffer, queue);
+			synchronized (trackers) {
+				trackers.computeIfAbsent(tracker.key, k -> new ArrayList<>(1)).add(tracker);
+			}
+		}
+		
+		private void untrack(@NotNull ByteBuffer buffer) {
+			int key = System.identityHashCode(buffer);
+			synchronized (trackers) {
+				List<Tracker> list = trackers.get(key);
+				if (list != null) {
+					for (int i = 0; i < list.size(); i++) {
+						Tracker tracker = list.get(i);
+						if (!tracker.refersTo(buffer)) continue;
+						
+						list.remove(i);
+						if (list.isEmpty()) trackers.remove(key);
+						tracker.clear();
+						return;
+					}
+				}
+			}
+			throw new IllegalStateException("The buffer was already released or was not acquired from this pool");
+		}
+		
+		private void drain() {
+			Reference<? extends ByteBuffer> reference;
+			while ((reference = queue.poll()) != null) {
+				Tracker tracker = (Tracker) reference;
+				boolean leaked;
+				synchronized (trackers) {
+					List<Tracker> list = trackers.get(tracker.key);
+					leaked = list != null && list.remove(tracker);
+					if (list != null && list.isEmpty()) trackers.remove(tracker.key);
+				}
+				if (!leaked) continue;
+				
+				leaks.increment();
+				LOGGER.log(System.Logger.Level.WARNING, "Buffer collected without being released", tracker.site);
+			}
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.UFSConstants;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads many files concurrently. A bounded number of workers, virtual threads when the JVM
+ * supports them, take files from a shared queue, so the latency of opening and reading
+ * every file overlaps with the others.
+ */
+public final class UBulkReader {
+	
+	/**
+	 * The largest buffer that can be allocated for a file.
+	 */
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UBulkReader() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Read methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Reads every file and delivers its content to the consumer. The buffer is taken from
+	 * {@link UBufferPool#SHARED} and returned to the pool when the consumer returns, so it
+	 * must not be used after that. The consumer may be called concurrently from several
+	 * workers. The first error stops the remaining reads.
+	 *
+	 * @param paths       the files to read
+	 * @param parallelism the maximum number of files read at the same time
+	 * @param consumer    the action that receives every file and its content
+	 * @throws IOException              if any file cannot be read
+	 * @throws IllegalArgumentException if any parameter is null or the parallelism is not positive
+	 */
+	public static void readAll(@NotNull Collection<Path> paths, int parallelism,
+		@NotNull BiConsumer<Path, ByteBuffer> consumer) throws IOException {
+		UAssert.paramNotNull(paths, "Collection<Path> paths");
+		UAssert.paramNotNull(consumer, "BiConsumer<Path, ByteBuffer> consumer");
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("The parallelism must be positive. \"%d\" given".formatted(parallelism));
+		}
+		
+		Iterator<Path> queue = List.copyOf(paths).iterator();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		
+		Runnable worker = () -> {
+			Path path;
+			while (error.get() == null && (path = next(queue)) != null) {
+				try {
+					read(path, consumer);
+				} catch (IOException | RuntimeException | Error e) {
+					error.compareAndSet(null, e);
+				}
+			}
+		};
+		
+		List<Thread> workers = new ArrayList<>();
+		int count = Math.min(parallelism, paths.size());
+		for (int i = 0; i < count; i++) {
+			Thread thread = UThreads.newThread("uo-bulk-reader-" + i, worker, true);
+			thread.start();
+			workers.add(thread);
+		}
+		
+		try {
+			for (Thread thread : workers) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			error.compareAndSet(null, e);
+			workers.forEach(Thread::interrupt);
+			Thread.currentThread().interrupt();
+		}
+		
+		Throwable e = error.get();
+		if (e == null) return;
+		if (e instanceof IOException io) throw io;
+		if (e instanceof InterruptedException) throw new InterruptedIOException("The bulk read was interrupted");
+		if (e instanceof RuntimeException runtime) throw runtime;
+		throw (Error) e;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Takes the next file from the shared queue.
+	 *
+	 * @param queue the shared queue
+	 * @return the next file, or null if there are no more files
+	 */
+	private static @Nullable Path next(@NotNull Iterator<Path> queue) {
+		synchronized (queue) {
+			return queue.hasNext() ? queue.next() : null;
+		}
+	}
+	
+	/**
+	 * Reads a whole file into a pooled buffer and delivers it to the consumer.
+	 *
+	 * @param path     the file to read
+	 * @param consumer the action that receives the content
+	 * @throws IOException if the file cannot be read
+	 */
+	private static void read(@NotNull Path path, @NotNull BiConsumer<Path, ByteBuffer> consumer) throws IOException {
+		ByteBuffer buffer;
+		try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+			long size = channel.size();
+			if (size > MAX_BUFFER_SIZE) throw new IOException("The file is too large: " + path);
+			
+			buffer = UBufferPool.SHARED.acquire((int) size);
+			buffer.limit((int) size);
+			ByteBuffer scratch = null;
+			try {
+				while (true) {
+					if (channel.read(buffer) == -1) break;
+					if (buffer.hasRemaining()) continue;
+					
+					// The file may have grown while it was read
+					if (buffer.limit() < buffer.capacity()) {
+						buffer.limit(buffer.capacity());
+						continue;
+					}
+					
+					// A full buffer is only replaced if there is more data after it
+					if (scratch == null) scratch = ByteBuffer.allocate(UFSConstants.FS_BUFFER_SIZE);
+					int read = channel.read(scratch.clear());
+					if (read == -1) break;
+					if (read == 0) continue;
+					if (buffer.capacity() >= MAX_BUFFER_SIZE) throw new IOException("The file is too large: " + path);
+					
+					long capacity = Math.max(buffer.capacity() * 2L, (long) buffer.capacity() + read);
+					ByteBuffer larger = UBufferPool.SHARED.acquire((int) Math.min(capacity, MAX_BUFFER_SIZE));
+					larger.put(buffer.flip()).put(scratch.flip());
+					UBufferPool.SHARED.release(buffer);
+					buffer = larger;
+				}
+			} catch (IOException | RuntimeException e) {
+				UBufferPool.SHARED.release(buffer);
+				throw e;
+			}
+		}
+		
+		try {
+			consumer.accept(path, buffer.flip().asReadOnlyBuffer());
+		} finally {
+			UBufferPool.SHARED.release(buffer);
+		}
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream over a region of a file channel. Reads use absolute positions, so
+ * several streams can share the same channel from different threads.
+ */
+public final class UChannelInputStream extends InputStream {
+	
+	private final FileChannel channel;
+	private final long limit;
+	private long position;
+	
+	/**
+	 * Creates a new stream over the given region of the channel.
+	 *
+	 * @param channel  the channel to read from; it is not closed by this stream
+	 * @param position the position of the first byte of the region
+	 * @param length   the number of bytes of the region
+	 * @throws IllegalArgumentException if the channel is null or the region is negative
+	 */
+	public UChannelInputStream(@NotNull FileChannel channel, long position, long length) {
+		UAssert.paramNotNull(channel, "FileChannel channel");
+		if (position < 0 || length < 0) {
+			throw new IllegalArgumentException(
+				"Invalid region. position=%d, length=%d given".formatted(position, length));
+		}
+		
+		this.channel = channel;
+		this.position = position;
+		this.limit = position + length;
+	}
+	
+	/* -----------------------------------------------------
+	 * Methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public int read() throws IOException {
+		byte[] single = new byte[1];
+		return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte @NotNull [] b, int off, int len) throws IOException {
+		if (position >= limit) return -1;
+		if (len == 0) return 0;
+		
+		int count = (int) Math.min(len, limit - position);
+		int read = channel.read(ByteBuffer.wrap(b, off, count), position);
+		if (read == -1) return -1;
+		
+		position += read;
+		return read;
+	}
+	
+	@Override
+	public long skip(long n) {
+		long skipped = Math.max(0, Math.min(n, limit - position));
+		position += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, limit - position);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package uoxx3.io.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when {@code UFilesystem.closeFilesystemsIf} closes a mounted archive.
+ */
+@Name("uoxx3.io.FilesystemClose")
+@Label("Filesystem Close")
+@Category({"Java IO Utilities", "Filesystem"})
+@Description("Close of an archive file system")
+public final class UFilesystemCloseEvent extends Event {
+	
+	@Label("Archive")
+	@Description("The URI of the closed archive")
+	public String archive;
+	
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package uoxx3.io.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when {@code UFilesystem.filesystem} mounts an archive, or reuses an
+ * archive that was already mounted. The duration covers the whole mount, including the
+ * read of the central directory.
+ */
+@Name("uoxx3.io.FilesystemMount")
+@Label("Filesystem Mount")
+@Category({"Java IO Utilities", "Filesystem"})
+@Description("Mount of an archive file system")
+public final class UFilesystemMountEvent extends Event {
+	
+	@Label("Archive")
+	@Description("The URI of the mounted archive")
+	public String archive;
+	
+	@Label("Reused")
+	@Description("Whether the archive was already mounted")
+	public boolean reused;
+	
+}
\ No newline at end of file
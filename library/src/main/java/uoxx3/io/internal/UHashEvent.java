@@ -0,0 +1,28 @@
+package uoxx3.io.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when {@code UResourceHash.hash} digests a resource.
+ */
+@Name("uoxx3.io.ResourceHash")
+@Label("Resource Hash")
+@Category({"Java IO Utilities", "Resource"})
+@Description("Digest of the content of a resource")
+@StackTrace(false)
+public final class UHashEvent extends Event {
+	
+	@Label("Algorithm")
+	public String algorithm;
+	
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+	
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.UMappedFile;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Creates memory-mapped views of files. This version maps windows of
+ * {@link java.nio.MappedByteBuffer}; the Java 22 version of the multi-release jar replaces
+ * it with a single memory segment per file.
+ */
+public final class UMappings {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UMappings() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Mapping methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Maps the whole content of a file in read-only mode.
+	 *
+	 * @param path  the file to map
+	 * @param order the byte order of the multibyte values
+	 * @return the mapped view
+	 * @throws IOException              if the file cannot be mapped
+	 * @throws IllegalArgumentException if the path or order is null
+	 */
+	public static @NotNull UMappedFile map(@NotNull Path path, @NotNull ByteOrder order) throws IOException {
+		UAssert.paramNotNull(path, "Path path");
+		UAssert.paramNotNull(order, "ByteOrder order");
+		
+		// The mapping remains valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new UWindowedMapping(channel, order);
+		}
+	}
+	
+}
\ No newline at end of file
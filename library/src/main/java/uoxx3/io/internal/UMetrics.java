@@ -0,0 +1,174 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.UIoMetricsListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Dispatches the measured operations to the {@link UIoMetricsListener} instances. The
+ * listeners are kept in an array replaced on every change, so dispatching never locks and
+ * {@link #enabled()} is a single volatile read.
+ */
+public final class UMetrics {
+	
+	private static final UIoMetricsListener[] NONE = new UIoMetricsListener[0];
+	
+	/**
+	 * The number of broken providers skipped before the discovery gives up.
+	 */
+	private static final int MAX_PROVIDER_ERRORS = 16;
+	
+	private static volatile UIoMetricsListener[] listeners = load();
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UMetrics() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Registration methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Checks whether any listener is registered. Callers skip the timing of an operation
+	 * when no listener would receive it.
+	 *
+	 * @return true if there is at least one listener
+	 */
+	public static boolean enabled() {
+		return listeners.length != 0;
+	}
+	
+	/**
+	 * Registers a listener.
+	 *
+	 * @param listener the listener to register
+	 * @throws IllegalArgumentException if the listener is null
+	 */
+	public static synchronized void register(@NotNull UIoMetricsListener listener) {
+		UAssert.paramNotNull(listener, "UIoMetricsListener listener");
+		UIoMetricsListener[] current = listeners;
+		UIoMetricsListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners = updated;
+	}
+	
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener the listener to remove
+	 * @throws IllegalArgumentException if the listener is null
+	 */
+	public static synchronized void unregister(@NotNull UIoMetricsListener listener) {
+		UAssert.paramNotNull(listener, "UIoMetricsListener listener");
+		listeners = Arrays.stream(listeners)
+			.filter(registered -> registered != listener)
+			.toArray(UIoMetricsListener[]::new);
+	}
+	
+	/* -----------------------------------------------------
+	 * Dispatch methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Dispatches a mount.
+	 *
+	 * @param archive the URI of the archive
+	 * @param reused  true if the archive was already mounted
+	 * @param nanos   the duration of the operation
+	 */
+	public static void mounted(@NotNull String archive, boolean reused, long nanos) {
+		for (UIoMetricsListener listener : listeners) {
+			try {
+				listener.mounted(archive, reused, nanos);
+			} catch (RuntimeException ignore) {
+				// A failing listener must not break the operation
+			}
+		}
+	}
+	
+	/**
+	 * Dispatches a close.
+	 *
+	 * @param archive the URI of the closed archive
+	 * @param nanos   the duration of the operation
+	 */
+	public static void closed(@NotNull String archive, long nanos) {
+		for (UIoMetricsListener listener : listeners) {
+			try {
+				listener.closed(archive, nanos);
+			} catch (RuntimeException ignore) {
+				// A failing listener must not break the operation
+			}
+		}
+	}
+	
+	/**
+	 * Dispatches a resolution.
+	 *
+	 * @param scheme   the scheme of the URI
+	 * @param cacheHit true if the file system of the URI was already available
+	 * @param nanos    the duration of the operation
+	 */
+	public static void resolved(@NotNull String scheme, boolean cacheHit, long nanos) {
+		for (UIoMetricsListener listener : listeners) {
+			try {
+				listener.resolved(scheme, cacheHit, nanos);
+			} catch (RuntimeException ignore) {
+				// A failing listener must not break the operation
+			}
+		}
+	}
+	
+	/**
+	 * Dispatches a hash.
+	 *
+	 * @param algorithm the hash algorithm
+	 * @param bytes     the number of bytes digested
+	 * @param nanos     the duration of the operation
+	 */
+	public static void hashed(@NotNull String algorithm, long bytes, long nanos) {
+		for (UIoMetricsListener listener : listeners) {
+			try {
+				listener.hashed(algorithm, bytes, nanos);
+			} catch (RuntimeException ignore) {
+				// A failing listener must not break the operation
+			}
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Loads the listeners declared as services. Providers that cannot be loaded are skipped.
+	 *
+	 * @return the discovered listeners
+	 */
+	private static UIoMetricsListener @NotNull [] load() {
+		List<UIoMetricsListener> found = new ArrayList<>();
+		Iterator<UIoMetricsListener> iterator = ServiceLoader.load(UIoMetricsListener.class).iterator();
+		int errors = 0;
+		while (errors < MAX_PROVIDER_ERRORS) {
+			try {
+				if (!iterator.hasNext()) break;
+				found.add(iterator.next());
+			} catch (ServiceConfigurationError ignore) {
+				// A broken provider must not prevent the library from loading
+				errors++;
+			}
+		}
+		return found.isEmpty() ? NONE : found.toArray(UIoMetricsListener[]::new);
+	}
+	
+}
\ No newline at end of file
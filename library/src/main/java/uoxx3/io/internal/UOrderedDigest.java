@@ -0,0 +1,233 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+import uoxx3.io.UFSConstants;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Digest of a file downloaded in fixed-size chunks by several workers. The workers claim the
+ * chunks in ascending order and hand every downloaded chunk over to the digest, which keeps
+ * the chunks that arrive ahead of the digested position in a bounded in-memory window. A
+ * worker that would claim a chunk beyond the window waits until the digest catches up, so the
+ * data is always digested from memory and the memory in use stays bounded.
+ * <p>
+ * Only the chunks stored by a previous attempt are read back from the file. Digesting and
+ * reading are done outside the lock by a single thread at a time, so the workers never wait
+ * for them.
+ */
+public final class UOrderedDigest {
+	
+	private final MessageDigest digest;
+	private final FileChannel channel;
+	private final long length;
+	private final int chunkSize;
+	private final int window;
+	private final boolean[] stored;
+	
+	/*
+	 * Claims and window, guarded by the lock.
+	 */
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition advanced = lock.newCondition();
+	private final Map<Integer, ByteBuffer> pending = new HashMap<>();
+	private int cursor;
+	private int digested;
+	private boolean draining;
+	private boolean failed;
+	
+	/**
+	 * Creates a new ordered digest.
+	 *
+	 * @param digest    the digest to update in order
+	 * @param channel   the downloaded file, used to read back the chunks stored by a previous attempt
+	 * @param length    the length of the file
+	 * @param chunkSize the size of every chunk but the last one
+	 * @param window    the maximum number of chunks claimed ahead of the digested position
+	 * @param stored    the chunks stored by a previous attempt, which are not claimed
+	 * @throws IllegalArgumentException if any object is null, or the chunk size or window is not positive
+	 */
+	public UOrderedDigest(@NotNull MessageDigest digest, @NotNull FileChannel channel, long length, int chunkSize,
+		int window, boolean @NotNull [] stored) {
+		UAssert.paramNotNull(digest, "MessageDigest digest");
+		UAssert.paramNotNull(channel, "FileChannel channel");
+		UAssert.paramNotNull(stored, "boolean[] stored");
+		if (chunkSize <= 0 || window <= 0) {
+			throw new IllegalArgumentException("Invalid chunks. chunkSize=%d, window=%d given".formatted(chunkSize,
+																										   window));
+		}
+		this.digest = digest;
+		this.channel = channel;
+		this.length = length;
+		this.chunkSize = chunkSize;
+		this.window = window;
+		this.stored = stored;
+	}
+	
+	/* -----------------------------------------------------
+	 * Chunk methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Claims the next chunk to download, waiting while the window is full.
+	 *
+	 * @return the index of the chunk, or -1 if there are no more chunks or the download failed
+	 * @throws InterruptedIOException if the thread is interrupted while it waits
+	 */
+	public int claim() throws InterruptedIOException {
+		lock.lock();
+		try {
+			while (true) {
+				while (cursor < stored.length && stored[cursor]) cursor++;
+				if (failed || cursor >= stored.length) return -1;
+				if (cursor - digested < window) return cursor++;
+				advanced.await();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The download was interrupted");
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Hands a downloaded chunk over to the digest. The buffer must come from
+	 * {@link UBufferPool#HEAP}; it is released once it is digested.
+	 *
+	 * @param index the index of the chunk
+	 * @param data  the content of the chunk
+	 * @throws IOException if a chunk stored by a previous attempt cannot be read back
+	 */
+	public void completed(int index, @NotNull ByteBuffer data) throws IOException {
+		lock.lock();
+		try {
+			if (failed) {
+				UBufferPool.HEAP.release(data);
+				return;
+			}
+			pending.put(index, data);
+		} finally {
+			lock.unlock();
+		}
+		drain();
+	}
+	
+	/**
+	 * Stops the claims and releases the chunks that were not digested.
+	 */
+	public void fail() {
+		lock.lock();
+		try {
+			failed = true;
+			pending.values().forEach(UBufferPool.HEAP::release);
+			pending.clear();
+			advanced.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Completes the digest once every chunk was handed over.
+	 *
+	 * @return the digest of the whole file
+	 * @throws IOException if a chunk is missing or cannot be read back
+	 */
+	public byte @NotNull [] digest() throws IOException {
+		drain();
+		lock.lock();
+		try {
+			if (digested != stored.length) {
+				throw new IOException("The file was not completely written. %d of %d chunks digested"
+										  .formatted(digested, stored.length));
+			}
+			return digest.digest();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Digests the chunks available at the digested position. Only one thread drains at a
+	 * time; the others leave their chunks in the window for it. The workers only drain when
+	 * they hand over a chunk, so the owner calls this method once after starting them to
+	 * digest the chunks stored at the start of the file.
+	 *
+	 * @throws IOException if a stored chunk cannot be read back
+	 */
+	public void drain() throws IOException {
+		lock.lock();
+		try {
+			if (draining) return;
+			draining = true;
+			
+			// Only the owner clears the flag, a thread that returns above leaves it set
+			try {
+				while (!failed && digested < stored.length) {
+					int index = digested;
+					ByteBuffer data = pending.remove(index);
+					// Checked in the same critical section that clears the flag, so no chunk is left behind
+					if (data == null && !stored[index]) break;
+					
+					lock.unlock();
+					try {
+						if (data != null) {
+							digest.update(data);
+							UBufferPool.HEAP.release(data);
+						} else {
+							reread(index);
+						}
+					} finally {
+						lock.lock();
+					}
+					digested++;
+					advanced.signalAll();
+				}
+			} finally {
+				draining = false;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Digests a chunk stored by a previous attempt.
+	 *
+	 * @param index the index of the chunk
+	 * @throws IOException if the chunk cannot be read
+	 */
+	private void reread(int index) throws IOException {
+		long position = (long) index * chunkSize;
+		long end = Math.min(length, position + chunkSize);
+		ByteBuffer buffer = UBufferPool.HEAP.acquire(UFSConstants.FS_READ_BUFFER_SIZE);
+		try {
+			while (position < end) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+				int read = channel.read(buffer, position);
+				if (read < 0) throw new IOException("Unexpected end of file at " + position);
+				
+				digest.update(buffer.flip());
+				position += read;
+			}
+		} finally {
+			UBufferPool.HEAP.release(buffer);
+		}
+	}
+	
+}
\ No newline at end of file
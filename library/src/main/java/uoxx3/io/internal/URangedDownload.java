@@ -0,0 +1,420 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.io.UDownloadResult;
+import uoxx3.io.UFSConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Download of a resource with parallel {@code Range} requests. The resource is split in chunks
+ * that the connections claim in ascending order; every chunk is written to a {@code .part} file
+ * next to the target with positional writes and, once forced to disk, marked as stored in a
+ * {@code .part.state} file, so an interrupted download continues where it stopped as long as
+ * the {@code ETag} or {@code Last-Modified} header of the resource does not change.
+ * <p>
+ * The chunks are digested from memory through an {@link UOrderedDigest}, which bounds how far
+ * the connections run ahead of the digest, so the digest is ready when the last chunk completes.
+ * Servers that ignore the ranges are downloaded with a single request and cannot be resumed.
+ */
+public final class URangedDownload {
+	
+	private static final int STATE_MAGIC = 0x55444C32;
+	private static final int STATE_HEADER_SIZE = Integer.BYTES * 4 + Long.BYTES;
+	private static final int CHUNK_SIZE = UFSConstants.FS_DOWNLOAD_CHUNK_SIZE;
+	private static final int STATE_SYNC_CHUNKS = 8;
+	
+	private final HttpClient client;
+	private final URI uri;
+	private final Path target;
+	private final Path part;
+	private final Path state;
+	private final int connections;
+	private final List<Integer> unsynced = new ArrayList<>();
+	
+	/**
+	 * Creates a new download.
+	 *
+	 * @param client      the client that sends the requests
+	 * @param uri         the resource to download
+	 * @param target      the file to write; it is replaced when the download completes
+	 * @param connections the maximum number of parallel range requests
+	 */
+	public URangedDownload(@NotNull HttpClient client, @NotNull URI uri, @NotNull Path target, int connections) {
+		String name = target.getFileName().toString();
+		this.client = client;
+		this.uri = uri;
+		this.target = target;
+		this.part = target.resolveSibling(name + ".part");
+		this.state = target.resolveSibling(name + ".part.state");
+		this.connections = connections;
+	}
+	
+	/* -----------------------------------------------------
+	 * Download methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Downloads the resource and replaces the target once the digest is verified. If the digest
+	 * does not match, the downloaded data is discarded so the next attempt starts again.
+	 *
+	 * @param algo     the hash algorithm of the digest
+	 * @param expected the expected digest, or null to skip the verification
+	 * @return the result of the download
+	 * @throws IOException              if the resource cannot be downloaded or the digest does not match
+	 * @throws NoSuchAlgorithmException if the specified algorithm is not available
+	 */
+	public @NotNull UDownloadResult run(@NotNull String algo, byte @Nullable [] expected) throws IOException,
+		NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance(algo);
+		UHashEvent event = new UHashEvent();
+		event.begin();
+		long start = System.nanoTime();
+		
+		HttpResponse<InputStream> probe = send(HttpRequest.newBuilder(uri).header("Range", "bytes=0-0").build());
+		// Only the headers are needed
+		probe.body().close();
+		int status = probe.statusCode();
+		if (status != 200 && status != 206 && status != 416) {
+			throw new IOException("Cannot download %s. Status %d".formatted(uri, status));
+		}
+		// Empty resources cannot satisfy any range, they are downloaded with a single request
+		long length = status == 206 ? totalLength(probe.headers()) : -1;
+		String validator = validator(probe.headers());
+		
+		Progress progress = length > 0 ? ranged(digest, length, validator) : whole(digest);
+		byte[] result = progress.digest;
+		if (expected != null && !MessageDigest.isEqual(expected, result)) {
+			Files.deleteIfExists(part);
+			Files.deleteIfExists(state);
+			throw new IOException("The digest of %s does not match. Expected %s, computed %s"
+									  .formatted(uri, HexFormat.of().formatHex(expected),
+											  HexFormat.of().formatHex(result)));
+		}
+		
+		Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Files.deleteIfExists(state);
+		
+		long nanos = System.nanoTime() - start;
+		if (event.shouldCommit()) {
+			event.algorithm = algo;
+			event.bytes = progress.length;
+			event.commit();
+		}
+		if (UMetrics.enabled()) UMetrics.hashed(algo, progress.length, nanos);
+		return new UDownloadResult(progress.length, progress.resumed, progress.ranges, result, algo, nanos);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Downloads the resource in chunks with parallel range requests, resuming the previous attempt.
+	 */
+	private @NotNull Progress ranged(@NotNull MessageDigest digest, long length, @NotNull String validator)
+		throws IOException {
+		int chunks = (int) ((length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		boolean[] stored = loadState(length, validator, chunks);
+		boolean resumed = stored != null;
+		if (!resumed) stored = new boolean[chunks];
+		
+		try (FileChannel file = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+												 StandardOpenOption.WRITE);
+			 FileChannel progress = FileChannel.open(state, StandardOpenOption.CREATE, StandardOpenOption.READ,
+													 StandardOpenOption.WRITE)) {
+			if (!resumed) {
+				// The file is preallocated, so the chunks are written in place
+				file.truncate(0);
+				file.write(ByteBuffer.allocate(1), length - 1);
+				writeState(progress, length, validator, chunks);
+			}
+			
+			long kept = 0;
+			int missing = 0;
+			for (int i = 0; i < chunks; i++) {
+				if (stored[i]) kept += chunkLength(i, length);
+				else missing++;
+			}
+			
+			// The window keeps a few chunks per connection in memory until the digest reaches them
+			UOrderedDigest ordered = new UOrderedDigest(digest, file, length, CHUNK_SIZE, connections * 2, stored);
+			// Every chunk saves a flag after the header and the validator once it is on disk
+			long flags = STATE_HEADER_SIZE + validator.getBytes(StandardCharsets.UTF_8).length;
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			List<Thread> workers = new ArrayList<>();
+			for (int i = 0; i < Math.min(connections, missing); i++) {
+				Runnable worker = () -> {
+					try {
+						int index;
+						while ((index = ordered.claim()) >= 0) {
+							downloadChunk(file, progress, flags, ordered, index, length, validator);
+						}
+					} catch (IOException | RuntimeException | Error e) {
+						error.compareAndSet(null, e);
+						ordered.fail();
+					}
+				};
+				Thread thread = UThreads.newThread("uo-download-" + i, worker, true);
+				thread.start();
+				workers.add(thread);
+			}
+			
+			try {
+				// The chunks stored at the start are digested while the workers download the next ones
+				ordered.drain();
+			} catch (IOException | RuntimeException e) {
+				error.compareAndSet(null, e);
+				ordered.fail();
+			}
+			try {
+				join(workers, ordered, error);
+			} finally {
+				checkpoint(file, progress, flags);
+			}
+			
+			// A download resumed from every chunk still counts the connection of the range probe
+			return new Progress(length, kept, Math.max(1, workers.size()), ordered.digest());
+		}
+	}
+	
+	/**
+	 * Downloads a chunk, writes it in place and hands it over to the digest.
+	 */
+	private void downloadChunk(@NotNull FileChannel file, @NotNull FileChannel progress, long flags,
+		@NotNull UOrderedDigest ordered, int index, long length, @NotNull String validator) throws IOException {
+		long first = (long) index * CHUNK_SIZE;
+		int size = chunkLength(index, length);
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+			.header("Range", "bytes=%d-%d".formatted(first, first + size - 1));
+		if (!validator.isEmpty()) request.header("If-Range", validator);
+		
+		HttpResponse<InputStream> response = send(request.build());
+		ByteBuffer buffer = UBufferPool.HEAP.acquire(size);
+		try (InputStream stream = response.body()) {
+			if (response.statusCode() != 206) {
+				throw new IOException("The resource %s changed during the download. Status %d"
+										  .formatted(uri, response.statusCode()));
+			}
+			int read = stream.readNBytes(buffer.array(), 0, size);
+			if (read != size) {
+				throw new IOException("The chunk of %s at %d ended after %d bytes".formatted(uri, first, read));
+			}
+			
+			buffer.limit(size);
+			while (buffer.hasRemaining()) {
+				file.write(buffer, first + buffer.position());
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			UBufferPool.HEAP.release(buffer);
+			throw e;
+		}
+		// The digest owns the buffer from here on
+		ordered.completed(index, buffer.flip());
+		stored(file, progress, flags, index);
+	}
+	
+	/**
+	 * Marks a written chunk as stored, saving the state every few chunks.
+	 */
+	private void stored(@NotNull FileChannel file, @NotNull FileChannel progress, long flags, int index)
+		throws IOException {
+		synchronized (unsynced) {
+			unsynced.add(index);
+			if (unsynced.size() >= STATE_SYNC_CHUNKS) checkpoint(file, progress, flags);
+		}
+	}
+	
+	/**
+	 * Saves the chunks written since the last checkpoint to the state. The file is forced first,
+	 * otherwise a crash could leave chunks marked as stored that never reached the disk and are
+	 * never downloaded again.
+	 */
+	private void checkpoint(@NotNull FileChannel file, @NotNull FileChannel progress, long flags)
+		throws IOException {
+		synchronized (unsynced) {
+			if (unsynced.isEmpty()) return;
+			file.force(false);
+			for (int index : unsynced) {
+				progress.write(ByteBuffer.wrap(new byte[]{1}), flags + index);
+			}
+			unsynced.clear();
+		}
+	}
+	
+	/**
+	 * Downloads the whole resource with a single request.
+	 */
+	private @NotNull Progress whole(@NotNull MessageDigest digest) throws IOException {
+		Files.deleteIfExists(state);
+		HttpResponse<InputStream> response = send(HttpRequest.newBuilder(uri).build());
+		ByteBuffer buffer = UBufferPool.HEAP.acquire(UFSConstants.FS_READ_BUFFER_SIZE);
+		long length = 0;
+		
+		try (InputStream stream = response.body();
+			 FileChannel file = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+												 StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (response.statusCode() != 200) {
+				throw new IOException("Cannot download %s. Status %d".formatted(uri, response.statusCode()));
+			}
+			
+			int read;
+			while ((read = stream.read(buffer.array())) != -1) {
+				buffer.clear().limit(read);
+				digest.update(buffer.array(), 0, read);
+				while (buffer.hasRemaining()) {
+					file.write(buffer);
+				}
+				length += read;
+			}
+		} finally {
+			UBufferPool.HEAP.release(buffer);
+		}
+		return new Progress(length, 0, 1, digest.digest());
+	}
+	
+	private @NotNull HttpResponse<InputStream> send(@NotNull HttpRequest request) throws IOException {
+		try {
+			return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The download of %s was interrupted".formatted(uri));
+		}
+	}
+	
+	private static void join(@NotNull List<Thread> workers, @NotNull UOrderedDigest ordered,
+		@NotNull AtomicReference<Throwable> error) throws IOException {
+		try {
+			for (Thread thread : workers) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			// The workers stop after their current chunk, the progress is kept for a later attempt
+			error.compareAndSet(null, e);
+			ordered.fail();
+			workers.forEach(Thread::interrupt);
+			Thread.currentThread().interrupt();
+		}
+		
+		Throwable e = error.get();
+		if (e == null) return;
+		if (e instanceof IOException io) throw io;
+		if (e instanceof InterruptedException) throw new InterruptedIOException("The download was interrupted");
+		if (e instanceof RuntimeException runtime) throw runtime;
+		throw (Error) e;
+	}
+	
+	/* -----------------------------------------------------
+	 * State methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Loads the chunks stored by a previous attempt.
+	 *
+	 * @return the stored chunks, or null if there is no previous attempt of the same resource
+	 */
+	private boolean @Nullable [] loadState(long length, @NotNull String validator, int chunks) throws IOException {
+		// Resources without validator cannot be checked, so they are downloaded again
+		if (validator.isEmpty() || !Files.isRegularFile(part) || !Files.isRegularFile(state)) return null;
+		if (Files.size(part) != length) return null;
+		
+		ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(state));
+		if (data.remaining() < STATE_HEADER_SIZE || data.getInt() != STATE_MAGIC || data.getLong() != length) {
+			return null;
+		}
+		int chunkSize = data.getInt();
+		int count = data.getInt();
+		int size = data.getInt();
+		if (chunkSize != CHUNK_SIZE || count != chunks || size != validator.getBytes(StandardCharsets.UTF_8).length
+			|| data.remaining() != size + count) {
+			return null;
+		}
+		
+		byte[] tag = new byte[size];
+		data.get(tag);
+		if (!validator.equals(new String(tag, StandardCharsets.UTF_8))) return null;
+		
+		boolean[] stored = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			stored[i] = data.get() != 0;
+		}
+		return stored;
+	}
+	
+	/**
+	 * Writes the state of a new attempt, with no chunk stored.
+	 */
+	private static void writeState(@NotNull FileChannel channel, long length, @NotNull String validator, int chunks)
+		throws IOException {
+		byte[] tag = validator.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer data = ByteBuffer.allocate(STATE_HEADER_SIZE + tag.length + chunks)
+			.putInt(STATE_MAGIC)
+			.putLong(length)
+			.putInt(CHUNK_SIZE)
+			.putInt(chunks)
+			.putInt(tag.length)
+			.put(tag);
+		
+		channel.truncate(0);
+		data.position(0);
+		long position = 0;
+		while (data.hasRemaining()) {
+			position += channel.write(data, position);
+		}
+	}
+	
+	private static int chunkLength(int index, long length) {
+		return (int) Math.min(CHUNK_SIZE, length - (long) index * CHUNK_SIZE);
+	}
+	
+	private static @NotNull String validator(@NotNull HttpHeaders headers) {
+		// Weak entity tags cannot be used in If-Range
+		String tag = headers.firstValue("ETag").orElse("");
+		if (!tag.isEmpty() && !tag.startsWith("W/")) return tag;
+		return headers.firstValue("Last-Modified").orElse("");
+	}
+	
+	private static long totalLength(@NotNull HttpHeaders headers) {
+		// Content-Range: bytes 0-0/<length>, the length is "*" when it is unknown
+		String range = headers.firstValue("Content-Range").orElse("");
+		int slash = range.lastIndexOf('/');
+		if (slash < 0) return -1;
+		try {
+			return Long.parseLong(range.substring(slash + 1).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Outcome of the transfer, before the target is replaced.
+	 *
+	 * @param length  the size of the resource
+	 * @param resumed the number of bytes kept from a previous attempt
+	 * @param ranges  the number of connections
+	 * @param digest  the digest of the resource
+	 */
+	private record Progress(long length, long resumed, int ranges, byte @NotNull [] digest) {}
+	
+}
\ No newline at end of file
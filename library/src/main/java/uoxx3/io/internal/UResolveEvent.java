@@ -0,0 +1,28 @@
+package uoxx3.io.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when {@code UResource.pathOf} resolves a URI. For jar URIs, a cache hit
+ * means the archive was already mounted.
+ */
+@Name("uoxx3.io.ResourceResolve")
+@Label("Resource Resolve")
+@Category({"Java IO Utilities", "Resource"})
+@Description("Resolution of a URI into a path")
+@StackTrace(false)
+public final class UResolveEvent extends Event {
+	
+	@Label("Scheme")
+	public String scheme;
+	
+	@Label("Cache Hit")
+	@Description("Whether the file system of the URI was already mounted")
+	public boolean cacheHit;
+	
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package uoxx3.io.internal;
 import org.jetbrains.annotations.NotNull;
 import uoxx3.UAssert;
 import uoxx3.io.UFSConstants;
+import uoxx3.io.UResourceName;
 
 import java.net.URI;
 import java.util.Arrays;
@@ -35,19 +36,7 @@ public abstract class UResourceActions {
 	 */
 	protected static @NotNull String resourceWithoutSlashes(@NotNull String location) {
 		UAssert.paramNotNull(location, "String location");
-		// File separators
-		String commonSeparator = String.valueOf(UFSConstants.FS_FILE_SEPARATOR);
-		String cleanLocation = location.replaceAll("[/|\\\\]+", commonSeparator)
-			.trim();
-		
-		// Check that the location does not end with a slash
-		while (cleanLocation.endsWith(commonSeparator)) {
-			cleanLocation = cleanLocation.substring(0, cleanLocation.length() - 1);
-		}
-		
-		// Only get the last element after a '/' character
-		int slashIdx = cleanLocation.lastIndexOf(commonSeparator);
-		return cleanLocation.substring(slashIdx == -1 ? 0 : slashIdx + 1);
+		return UResourceName.of(location).filename();
 	}
 	
 	/**
@@ -0,0 +1,231 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the content of a resource in chunks. Every subscriber reads the resource from
+ * the beginning, and a chunk is only read when the subscriber has requested it, so at most one
+ * chunk per subscriber is in memory.
+ * <p>
+ * The chunks are read on the given executor into a pooled buffer, which is only held while
+ * there is outstanding demand and is reused as soon as {@link Flow.Subscriber#onNext} returns.
+ */
+public final class UResourcePublisher implements Flow.Publisher<ByteBuffer> {
+	
+	private final Source source;
+	private final int chunkSize;
+	private final Executor executor;
+	
+	/**
+	 * Creates a new publisher.
+	 *
+	 * @param source    the action that opens the resource for every subscriber
+	 * @param chunkSize the maximum number of bytes of every chunk
+	 * @param executor  the executor that reads the chunks and signals the subscribers
+	 * @throws IllegalArgumentException if the source or executor is null, or the chunk size is not positive
+	 */
+	public UResourcePublisher(@NotNull Source source, int chunkSize, @NotNull Executor executor) {
+		UAssert.paramNotNull(source, "Source source");
+		UAssert.paramNotNull(executor, "Executor executor");
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("The chunk size must be positive. \"%d\" given".formatted(chunkSize));
+		}
+		this.source = source;
+		this.chunkSize = chunkSize;
+		this.executor = executor;
+	}
+	
+	/* -----------------------------------------------------
+	 * Publisher methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Adds the given subscriber. The resource is opened when the first chunk is requested.
+	 *
+	 * @param subscriber the subscriber
+	 * @throws IllegalArgumentException if the subscriber is null
+	 */
+	@Override
+	public void subscribe(@NotNull Flow.Subscriber<? super ByteBuffer> subscriber) {
+		UAssert.paramNotNull(subscriber, "Flow.Subscriber<? super ByteBuffer> subscriber");
+		subscriber.onSubscribe(new Subscription(subscriber));
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Action that opens the published resource.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		
+		/**
+		 * Opens a new channel positioned at the beginning of the resource.
+		 *
+		 * @return the opened channel
+		 * @throws IOException if the resource cannot be opened
+		 */
+		@NotNull ReadableByteChannel open() throws IOException;
+		
+	}
+	
+	/**
+	 * Subscription of a single subscriber. All the signals are emitted by the drain loop,
+	 * which never runs concurrently with itself.
+	 */
+	private final class Subscription implements Flow.Subscription {
+		
+		private final Flow.Subscriber<? super ByteBuffer> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile @Nullable Throwable invalidRequest;
+		
+		/**
+		 * Only accessed by the drain loop
+		 */
+		private @Nullable ReadableByteChannel channel;
+		private boolean done;
+		
+		private Subscription(@NotNull Flow.Subscriber<? super ByteBuffer> subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("The demand must be positive. \"%d\" given".formatted(n));
+			} else {
+				demand.getAndAccumulate(n, (current, added) -> {
+					long sum = current + added;
+					return sum < 0 ? Long.MAX_VALUE : sum;
+				});
+			}
+			schedule();
+		}
+		
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+		
+		private void schedule() {
+			if (pending.getAndIncrement() != 0) return;
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				cancelled = true;
+				close();
+				subscriber.onError(e);
+			}
+		}
+		
+		private void drain() {
+			ByteBuffer buffer = null;
+			int missed = 1;
+			
+			try {
+				while (true) {
+					while (!done) {
+						if (cancelled) {
+							done = true;
+							close();
+							break;
+						}
+						
+						Throwable invalid = invalidRequest;
+						if (invalid != null) {
+							terminate(invalid);
+							break;
+						}
+						if (demand.get() == 0) break;
+						
+						if (buffer == null) buffer = UBufferPool.HEAP.acquire(chunkSize);
+						if (!emit(buffer)) break;
+					}
+					
+					missed = pending.addAndGet(-missed);
+					if (missed == 0) break;
+				}
+			} finally {
+				// No buffer is held while the subscriber has no demand
+				if (buffer != null) UBufferPool.HEAP.release(buffer);
+			}
+		}
+		
+		/**
+		 * Reads and emits the next chunk.
+		 *
+		 * @param buffer the buffer used to read the chunk
+		 * @return false if the subscription has terminated
+		 */
+		private boolean emit(@NotNull ByteBuffer buffer) {
+			int read;
+			try {
+				if (channel == null) channel = source.open();
+				buffer.clear().limit(chunkSize);
+				
+				// Short reads are completed, so every chunk but the last one is full
+				do {
+					read = channel.read(buffer);
+				} while (read >= 0 && buffer.hasRemaining());
+			} catch (IOException | RuntimeException e) {
+				terminate(e);
+				return false;
+			}
+			
+			buffer.flip();
+			if (buffer.hasRemaining()) {
+				if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+				try {
+					subscriber.onNext(buffer);
+				} catch (RuntimeException e) {
+					// The subscriber is broken, nothing else is signalled to it
+					done = true;
+					close();
+					return false;
+				}
+			}
+			
+			if (read < 0) {
+				done = true;
+				close();
+				subscriber.onComplete();
+				return false;
+			}
+			return true;
+		}
+		
+		private void terminate(@NotNull Throwable error) {
+			done = true;
+			close();
+			subscriber.onError(error);
+		}
+		
+		private void close() {
+			if (channel == null) return;
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// Nothing else is read from the channel
+			}
+			channel = null;
+		}
+		
+	}
+	
+}
\ No newline at end of file
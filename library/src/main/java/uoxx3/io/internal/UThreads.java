@@ -0,0 +1,170 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread helpers that use virtual threads when the running JVM supports them. The library
+ * is compiled for Java 17, so virtual threads are reached through method handles.
+ */
+public final class UThreads {
+	
+	/**
+	 * {@code Thread.ofVirtual().name(String).unstarted(Runnable)}, or null if virtual
+	 * threads are not available.
+	 */
+	private static final @Nullable MethodHandle VIRTUAL_FACTORY = virtualFactory();
+	
+	/**
+	 * {@code Thread.isVirtual()}, or null if virtual threads are not available.
+	 */
+	private static final @Nullable MethodHandle IS_VIRTUAL = isVirtualHandle();
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UThreads() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Thread methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Checks whether the running JVM supports virtual threads.
+	 *
+	 * @return true if virtual threads are available
+	 */
+	public static boolean virtualThreadsAvailable() {
+		return VIRTUAL_FACTORY != null;
+	}
+	
+	/**
+	 * Checks whether the given thread is a virtual thread.
+	 *
+	 * @param thread the thread to check
+	 * @return true if the thread is virtual
+	 * @throws IllegalArgumentException if the thread is null
+	 */
+	public static boolean isVirtual(@NotNull Thread thread) {
+		UAssert.paramNotNull(thread, "Thread thread");
+		if (IS_VIRTUAL == null) return false;
+		
+		try {
+			return (boolean) IS_VIRTUAL.invokeExact(thread);
+		} catch (Throwable e) {
+			throw new IllegalStateException("Cannot check the thread kind", e);
+		}
+	}
+	
+	/**
+	 * Creates a new unstarted thread. A virtual thread is created when requested and
+	 * available; otherwise a daemon platform thread is created.
+	 *
+	 * @param name    the name of the thread
+	 * @param task    the task run by the thread
+	 * @param virtual true to prefer a virtual thread
+	 * @return the unstarted thread
+	 * @throws IllegalArgumentException if the name or task is null
+	 */
+	public static @NotNull Thread newThread(@NotNull String name, @NotNull Runnable task, boolean virtual) {
+		UAssert.paramNotNull(name, "String name");
+		UAssert.paramNotNull(task, "Runnable task");
+		
+		if (virtual && VIRTUAL_FACTORY != null) {
+			try {
+				return (Thread) VIRTUAL_FACTORY.invoke(name, task);
+			} catch (Throwable e) {
+				throw new IllegalStateException("Cannot create a virtual thread", e);
+			}
+		}
+		
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+	
+	/**
+	 * Creates an executor for blocking I/O tasks. Every task runs in its own virtual thread
+	 * when virtual threads are available; otherwise the tasks are queued on a bounded pool of
+	 * daemon platform threads that stop when they are idle.
+	 *
+	 * @param name            the name of the threads
+	 * @param platformThreads the maximum number of platform threads
+	 * @return the executor
+	 * @throws IllegalArgumentException if the name is null or the number of threads is not positive
+	 */
+	public static @NotNull Executor newExecutor(@NotNull String name, int platformThreads) {
+		UAssert.paramNotNull(name, "String name");
+		if (platformThreads <= 0) {
+			throw new IllegalArgumentException("The number of threads must be positive. \"%d\" given"
+												   .formatted(platformThreads));
+		}
+		if (VIRTUAL_FACTORY != null) return task -> newThread(name, task, true).start();
+		
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(platformThreads, platformThreads, 30, TimeUnit.SECONDS,
+														 new LinkedBlockingQueue<>(),
+														 task -> newThread(name, task, false));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Looks up the virtual thread builder methods.
+	 *
+	 * @return the factory handle, or null if virtual threads are not available
+	 */
+	private static @Nullable MethodHandle virtualFactory() {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			
+			MethodHandle create = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtual));
+			MethodHandle name = lookup.findVirtual(ofVirtual, "name", MethodType.methodType(ofVirtual, String.class));
+			MethodHandle unstarted = lookup.findVirtual(builder, "unstarted",
+														MethodType.methodType(Thread.class, Runnable.class));
+			
+			// (name, task) -> Thread.ofVirtual().name(name).unstarted(task)
+			MethodHandle named = MethodHandles.collectArguments(
+				unstarted.asType(MethodType.methodType(Thread.class, ofVirtual, Runnable.class)), 0,
+				MethodHandles.collectArguments(name, 0, create));
+			
+			// Virtual threads are a preview feature before Java 21
+			named.invoke("probe", (Runnable) () -> {});
+			return named;
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Looks up the virtual thread check method.
+	 *
+	 * @return the check handle, or null if virtual threads are not available
+	 */
+	private static @Nullable MethodHandle isVirtualHandle() {
+		if (VIRTUAL_FACTORY == null) return null;
+		try {
+			return MethodHandles.publicLookup()
+				.findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+	
+}
\ No newline at end of file
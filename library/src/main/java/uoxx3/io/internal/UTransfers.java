@@ -0,0 +1,306 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.UCopyListener;
+import uoxx3.io.UCopyResult;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copy strategies used by the {@code UResource.copy} methods. The fastest strategy available
+ * for the given source and target is selected: kernel transfers between channels, direct
+ * transfers of uncompressed archive entries, and pooled direct buffers as the last resort.
+ */
+public final class UTransfers {
+	
+	/**
+	 * The maximum number of bytes moved by a single transfer call. Progress is reported
+	 * after every call.
+	 */
+	private static final long TRANSFER_STEP = 8L << 20;
+	
+	private static final OpenOption[] REPLACE_OPTIONS = {
+		StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
+	};
+	private static final OpenOption[] CREATE_OPTIONS = {
+		StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW
+	};
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UTransfers() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Copy methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Copies a file into another file. Nothing is copied when both are the same file.
+	 *
+	 * @param source   the file to copy, in any file system
+	 * @param target   the destination file, in any file system
+	 * @param replace  true to replace the target if it exists
+	 * @param listener the action that receives the progress, or null
+	 * @return the result of the copy
+	 * @throws java.nio.file.FileAlreadyExistsException if the target exists and must not be replaced
+	 * @throws IOException                              if an I/O error occurs
+	 * @throws IllegalArgumentException                 if the source or target is null
+	 */
+	public static @NotNull UCopyResult copy(@NotNull Path source, @NotNull Path target, boolean replace,
+		@Nullable UCopyListener listener) throws IOException {
+		UAssert.paramNotNull(source, "Path source");
+		UAssert.paramNotNull(target, "Path target");
+		long start = System.nanoTime();
+		OpenOption[] options = replace ? REPLACE_OPTIONS : CREATE_OPTIONS;
+		
+		// Opening the target would truncate the source, so there is nothing to copy, as in Files#copy
+		if (Files.exists(target) && Files.isSameFile(source, target)) {
+			return new UCopyResult(0, System.nanoTime() - start, UCopyResult.Method.TRANSFER);
+		}
+		
+		StoredEntry stored = storedEntry(source);
+		if (stored != null) {
+			try (FileChannel archive = FileChannel.open(stored.archive(), StandardOpenOption.READ);
+				 WritableByteChannel out = Files.newByteChannel(target, options)) {
+				long offset = UZipIndex.dataOffset(archive, stored.entry());
+				long bytes = transfer(archive, offset, stored.entry().size(), out, listener);
+				return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.STORED_ENTRY);
+			}
+		}
+		
+		if (isDefault(source)) {
+			try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				 WritableByteChannel out = Files.newByteChannel(target, options)) {
+				long bytes = transfer(in, 0, in.size(), out, listener);
+				return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.TRANSFER);
+			}
+		}
+		
+		try (ReadableByteChannel in = Files.newByteChannel(source);
+			 WritableByteChannel out = Files.newByteChannel(target, options)) {
+			long bytes = buffered(in, out, Files.size(source), listener);
+			return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.BUFFERED);
+		}
+	}
+	
+	/**
+	 * Copies a file into a channel, such as a socket channel. The channel is not closed.
+	 *
+	 * @param source   the file to copy, in any file system
+	 * @param target   the destination channel; it must be in blocking mode
+	 * @param listener the action that receives the progress, or null
+	 * @return the result of the copy
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the source or target is null, or the target is not blocking
+	 */
+	public static @NotNull UCopyResult copy(@NotNull Path source, @NotNull WritableByteChannel target,
+		@Nullable UCopyListener listener) throws IOException {
+		UAssert.paramNotNull(source, "Path source");
+		UAssert.paramNotNull(target, "WritableByteChannel target");
+		requireBlocking(target);
+		long start = System.nanoTime();
+		
+		StoredEntry stored = storedEntry(source);
+		if (stored != null) {
+			try (FileChannel archive = FileChannel.open(stored.archive(), StandardOpenOption.READ)) {
+				long offset = UZipIndex.dataOffset(archive, stored.entry());
+				long bytes = transfer(archive, offset, stored.entry().size(), target, listener);
+				return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.STORED_ENTRY);
+			}
+		}
+		
+		if (isDefault(source)) {
+			try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+				long bytes = transfer(in, 0, in.size(), target, listener);
+				return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.TRANSFER);
+			}
+		}
+		
+		try (ReadableByteChannel in = Files.newByteChannel(source)) {
+			long bytes = buffered(in, target, Files.size(source), listener);
+			return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.BUFFERED);
+		}
+	}
+	
+	/**
+	 * Copies all the data of a channel, such as a socket channel, into a file. The channel
+	 * is read until its end and is not closed.
+	 *
+	 * @param source   the channel to read; it must be in blocking mode
+	 * @param target   the destination file, in any file system
+	 * @param replace  true to replace the target if it exists
+	 * @param listener the action that receives the progress, or null
+	 * @return the result of the copy
+	 * @throws java.nio.file.FileAlreadyExistsException if the target exists and must not be replaced
+	 * @throws IOException                              if an I/O error occurs
+	 * @throws IllegalArgumentException                 if the source or target is null, or the source is not blocking
+	 */
+	public static @NotNull UCopyResult copy(@NotNull ReadableByteChannel source, @NotNull Path target,
+		boolean replace, @Nullable UCopyListener listener) throws IOException {
+		UAssert.paramNotNull(source, "ReadableByteChannel source");
+		UAssert.paramNotNull(target, "Path target");
+		requireBlocking(source);
+		long start = System.nanoTime();
+		OpenOption[] options = replace ? REPLACE_OPTIONS : CREATE_OPTIONS;
+		
+		if (isDefault(target)) {
+			try (FileChannel out = FileChannel.open(target, options)) {
+				long position = 0;
+				long transferred;
+				while ((transferred = out.transferFrom(source, position, TRANSFER_STEP)) > 0) {
+					position += transferred;
+					if (listener != null) listener.progress(position, -1);
+				}
+				return new UCopyResult(position, System.nanoTime() - start, UCopyResult.Method.TRANSFER);
+			}
+		}
+		
+		try (WritableByteChannel out = Files.newByteChannel(target, options)) {
+			long bytes = buffered(source, out, -1, listener);
+			return new UCopyResult(bytes, System.nanoTime() - start, UCopyResult.Method.BUFFERED);
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Transfers a region of a file channel into another channel. On Linux the transfer is
+	 * done by the kernel, without copying the data into the Java heap.
+	 *
+	 * @param in       the source channel
+	 * @param position the position of the first byte to transfer
+	 * @param count    the number of bytes to transfer
+	 * @param out      the destination channel
+	 * @param listener the action that receives the progress, or null
+	 * @return the number of bytes transferred, lower than the count if the file was truncated
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static long transfer(@NotNull FileChannel in, long position, long count, @NotNull WritableByteChannel out,
+		@Nullable UCopyListener listener) throws IOException {
+		long done = 0;
+		while (done < count) {
+			long transferred = in.transferTo(position + done, Math.min(count - done, TRANSFER_STEP), out);
+			// Blocking channels only transfer nothing at the end of the file
+			if (transferred <= 0) break;
+			
+			done += transferred;
+			if (listener != null) listener.progress(done, count);
+		}
+		return done;
+	}
+	
+	/**
+	 * Copies a channel into another channel through a pooled direct buffer.
+	 *
+	 * @param in       the source channel
+	 * @param out      the destination channel
+	 * @param total    the expected number of bytes, or -1 if it is not known
+	 * @param listener the action that receives the progress, or null
+	 * @return the number of bytes copied
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static long buffered(@NotNull ReadableByteChannel in, @NotNull WritableByteChannel out, long total,
+		@Nullable UCopyListener listener) throws IOException {
+		ByteBuffer buffer = UBufferPool.SHARED.acquire();
+		try {
+			long done = 0;
+			while (in.read(buffer) != -1) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					done += out.write(buffer);
+				}
+				buffer.clear();
+				if (listener != null) listener.progress(done, total);
+			}
+			return done;
+		} finally {
+			UBufferPool.SHARED.release(buffer);
+		}
+	}
+	
+	/**
+	 * Locates the data of an uncompressed entry of a jar or zip file system.
+	 *
+	 * @param source the path to check
+	 * @return the archive and entry, or null if the path is not an uncompressed archive entry
+	 */
+	private static @Nullable StoredEntry storedEntry(@NotNull Path source) {
+		if (!"jar".equals(source.getFileSystem().provider().getScheme())) return null;
+		
+		try {
+			// jar:<archive uri>!/<entry>
+			String location = source.toUri().getRawSchemeSpecificPart();
+			int separator = location.indexOf("!/");
+			if (separator == -1) return null;
+			
+			URI archiveUri = URI.create(location.substring(0, separator));
+			if (!"file".equals(archiveUri.getScheme())) return null;
+			
+			Path archive = Path.of(archiveUri);
+			String name = source.toAbsolutePath().toString().substring(1);
+			UZipIndex.Entry entry = UZipIndex.of(archive).entry(name);
+			
+			// The archive on disk must match the mounted view of the entry
+			if (entry == null || !entry.stored() || entry.size() != Files.size(source)) return null;
+			return new StoredEntry(archive, entry);
+		} catch (IOException | RuntimeException e) {
+			// The regular copy is used for anything the index cannot resolve
+			return null;
+		}
+	}
+	
+	/**
+	 * Checks whether the path belongs to the default file system, where file channels and
+	 * kernel transfers are available.
+	 *
+	 * @param path the path to check
+	 * @return true if the path belongs to the default file system
+	 */
+	private static boolean isDefault(@NotNull Path path) {
+		return path.getFileSystem() == FileSystems.getDefault();
+	}
+	
+	/**
+	 * Rejects channels in non-blocking mode, where a transfer may do nothing without
+	 * reaching the end of the data.
+	 *
+	 * @param channel the channel to check
+	 * @throws IllegalArgumentException if the channel is not in blocking mode
+	 */
+	private static void requireBlocking(@NotNull Object channel) {
+		if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+			throw new IllegalArgumentException("The channel must be in blocking mode");
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Uncompressed entry of an archive.
+	 *
+	 * @param archive the archive file
+	 * @param entry   the entry of the archive
+	 */
+	private record StoredEntry(@NotNull Path archive, @NotNull UZipIndex.Entry entry) {}
+	
+}
\ No newline at end of file
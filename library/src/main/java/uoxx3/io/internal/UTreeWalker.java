@@ -0,0 +1,468 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+import uoxx3.io.UWalkEntry;
+import uoxx3.io.UWalkOptions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parallel directory walker. Every directory is listed by its own fork/join task, so idle
+ * workers steal whole subtrees from busy ones. Entries are filtered while the directories
+ * are read and delivered in batches.
+ */
+public final class UTreeWalker {
+	
+	/**
+	 * Marks the end of the walk in the stream queue. Empty batches are never delivered.
+	 */
+	private static final List<UWalkEntry> END = new ArrayList<>(0);
+	
+	private static final LinkOption[] FOLLOW_LINKS = new LinkOption[0];
+	private static final LinkOption[] NOFOLLOW_LINKS = new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+	
+	/**
+	 * Stops the walks of the streams that were dropped without being closed.
+	 */
+	private static final Cleaner CLEANER = Cleaner.create();
+	
+	private final UWalkOptions options;
+	private final @Nullable Consumer<List<UWalkEntry>> consumer;
+	private final @Nullable BlockingQueue<List<UWalkEntry>> queue;
+	private Class<? extends BasicFileAttributes> attributeType = BasicFileAttributes.class;
+	private final AtomicReference<Throwable> error = new AtomicReference<>();
+	private volatile boolean cancelled;
+	private volatile boolean closed;
+	
+	/**
+	 * Creates a new walker that delivers every batch to the given consumer or queue.
+	 *
+	 * @param options  the walk options
+	 * @param consumer the action that receives the batches
+	 * @param queue    the queue that receives the batches
+	 */
+	private UTreeWalker(@NotNull UWalkOptions options, @Nullable Consumer<List<UWalkEntry>> consumer,
+		@Nullable BlockingQueue<List<UWalkEntry>> queue) {
+		this.options = options;
+		this.consumer = consumer;
+		this.queue = queue;
+	}
+	
+	/* -----------------------------------------------------
+	 * Walk methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Walks the given tree and delivers the entries in batches. The consumer may be called
+	 * concurrently from several worker threads; this method returns when the walk is done.
+	 *
+	 * @param root     the root of the tree
+	 * @param options  the walk options
+	 * @param consumer the action that receives every batch
+	 * @throws IOException              if the root or any directory cannot be read
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static void walk(@NotNull Path root, @NotNull UWalkOptions options,
+		@NotNull Consumer<List<UWalkEntry>> consumer) throws IOException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(options, "UWalkOptions options");
+		UAssert.paramNotNull(consumer, "Consumer<List<UWalkEntry>> consumer");
+		
+		UTreeWalker walker = new UTreeWalker(options, consumer, null);
+		DirectoryTask task = walker.start(root);
+		if (task != null) {
+			ForkJoinPool pool = pool(options);
+			try {
+				pool.invoke(task);
+			} finally {
+				if (pool != options.pool()) pool.shutdown();
+			}
+		}
+		walker.rethrow();
+	}
+	
+	/**
+	 * Walks the given tree lazily. The workers read ahead a bounded number of batches and
+	 * wait until the stream consumes them. Unless the options set a pool, the walk runs on a
+	 * pool of its own that is shut down when the walk ends or the stream is closed. The stream
+	 * must be closed, for example with a try-with-resources statement, when it is not read to
+	 * the end: closing it stops the walk and releases the waiting workers. A stream dropped
+	 * without being closed only releases them once it is garbage collected.
+	 *
+	 * @param root    the root of the tree
+	 * @param options the walk options
+	 * @return the stream of entries; read errors are thrown as {@link UncheckedIOException}
+	 * @throws IOException              if the root cannot be read
+	 * @throws IllegalArgumentException if any parameter is null
+	 */
+	public static @NotNull Stream<UWalkEntry> stream(@NotNull Path root, @NotNull UWalkOptions options)
+		throws IOException {
+		UAssert.paramNotNull(root, "Path root");
+		UAssert.paramNotNull(options, "UWalkOptions options");
+		
+		BlockingQueue<List<UWalkEntry>> queue = new ArrayBlockingQueue<>(options.queueCapacity());
+		UTreeWalker walker = new UTreeWalker(options, null, queue);
+		
+		DirectoryTask task = walker.start(root);
+		ForkJoinPool pool = task == null ? null : pool(options);
+		// An own pool is shut down when the walk ends or the stream is closed
+		boolean owned = pool != null && pool != options.pool();
+		if (task == null) {
+			queue.add(END);
+		} else {
+			pool.execute(() -> {
+				try {
+					task.invoke();
+				} finally {
+					walker.offer(END);
+					if (owned) pool.shutdown();
+				}
+			});
+		}
+		
+		Iterator<UWalkEntry> iterator = walker.new QueueIterator();
+		// The action only references the walker and the pool, which never reference the iterator
+		Cleaner.Cleanable cleanable = CLEANER.register(iterator, () -> {
+			walker.stop();
+			if (owned) pool.shutdown();
+		});
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+			.onClose(cleanable::clean);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the pool configured in the options, or a new pool owned by the walk. The walks
+	 * never use the common pool: the workers of a stream wait while its queue is full, and
+	 * would keep common pool threads busy for as long as the stream is not read.
+	 *
+	 * @param options the walk options
+	 * @return the pool that runs the walk
+	 */
+	private static @NotNull ForkJoinPool pool(@NotNull UWalkOptions options) {
+		ForkJoinPool pool = options.pool();
+		return pool != null ? pool : new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Reads the root of the tree and delivers it if it is accepted.
+	 *
+	 * @param root the root of the tree
+	 * @return the task that walks the root, or null if there is nothing to walk
+	 * @throws IOException if the root cannot be read
+	 */
+	private @Nullable DirectoryTask start(@NotNull Path root) throws IOException {
+		if (options.posixAttributes() && root.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			attributeType = PosixFileAttributes.class;
+		}
+		
+		BasicFileAttributes attributes = Files.readAttributes(root, attributeType,
+															  options.followLinks() ? FOLLOW_LINKS : NOFOLLOW_LINKS);
+		UWalkEntry entry = new UWalkEntry(root, attributes, 0);
+		
+		if (!attributes.isDirectory()) {
+			Path name = root.getFileName();
+			if (name == null || options.accepts(name.toString())) {
+				deliver(List.of(entry));
+			}
+			return null;
+		}
+		
+		if (options.includeDirectories()) deliver(List.of(entry));
+		if (options.maxDepth() == 0) return null;
+		
+		return new DirectoryTask(root, 1, new Ancestor(attributes.fileKey(), null));
+	}
+	
+	/**
+	 * Reads the attributes of a directory entry.
+	 *
+	 * @param path the entry to read
+	 * @return the attributes, or null if the entry no longer exists
+	 * @throws IOException if the attributes cannot be read
+	 */
+	private @Nullable BasicFileAttributes attributes(@NotNull Path path) throws IOException {
+		try {
+			if (options.followLinks()) {
+				try {
+					return Files.readAttributes(path, attributeType, FOLLOW_LINKS);
+				} catch (IOException e) {
+					// Broken links are reported as the link itself
+					return Files.readAttributes(path, attributeType, NOFOLLOW_LINKS);
+				}
+			}
+			return Files.readAttributes(path, attributeType, NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			// The entry was removed after the directory was listed
+			return null;
+		}
+	}
+	
+	/**
+	 * Delivers a batch unless the walk was stopped. Errors thrown by the consumer stop the walk.
+	 *
+	 * @param batch the batch to deliver
+	 */
+	private void deliver(@NotNull List<UWalkEntry> batch) {
+		if (cancelled) return;
+		if (queue != null) {
+			offer(batch);
+			return;
+		}
+		
+		try {
+			Objects.requireNonNull(consumer).accept(batch);
+		} catch (RuntimeException | Error e) {
+			fail(e);
+		}
+	}
+	
+	/**
+	 * Records an error and stops the walk.
+	 *
+	 * @param e the error to record
+	 */
+	private void fail(@NotNull Throwable e) {
+		error.compareAndSet(null, e);
+		cancelled = true;
+	}
+	
+	/**
+	 * Stops the walk of a stream and releases the workers waiting for the queue.
+	 */
+	private void stop() {
+		cancelled = true;
+		closed = true;
+		Objects.requireNonNull(queue).clear();
+	}
+	
+	/**
+	 * Throws the first error recorded during the walk, if any.
+	 *
+	 * @throws IOException if the recorded error is an I/O error
+	 */
+	private void rethrow() throws IOException {
+		Throwable e = error.get();
+		if (e == null) return;
+		if (e instanceof IOException io) throw io;
+		if (e instanceof RuntimeException runtime) throw runtime;
+		throw (Error) e;
+	}
+	
+	/**
+	 * Puts a batch in the stream queue unless the stream was closed. The calling worker is
+	 * reported as blocked to the pool while the queue is full, so other tasks of the pool
+	 * can keep running.
+	 *
+	 * @param batch the batch to put
+	 */
+	private void offer(@NotNull List<UWalkEntry> batch) {
+		BlockingQueue<List<UWalkEntry>> queue = Objects.requireNonNull(this.queue);
+		ForkJoinPool.ManagedBlocker blocker = new ForkJoinPool.ManagedBlocker() {
+			private boolean done;
+			
+			@Override
+			public boolean block() throws InterruptedException {
+				done = closed || queue.offer(batch, 50, TimeUnit.MILLISECONDS);
+				return done;
+			}
+			
+			@Override
+			public boolean isReleasable() {
+				return done || closed || (done = queue.offer(batch));
+			}
+		};
+		
+		boolean interrupted = false;
+		while (true) {
+			try {
+				ForkJoinPool.managedBlock(blocker);
+				break;
+			} catch (InterruptedException e) {
+				// The end of the walk must still reach the consumer
+				interrupted = true;
+				fail(new InterruptedIOException("The walk was interrupted"));
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * File keys of the directories above a directory, used to detect link cycles.
+	 *
+	 * @param key    the file key of the directory
+	 * @param parent the ancestors of the directory
+	 */
+	private record Ancestor(@Nullable Object key, @Nullable Ancestor parent) {
+		
+		/**
+		 * Checks whether the given key belongs to this directory or any of its ancestors.
+		 *
+		 * @param other the key to check
+		 * @return true if the key is found
+		 */
+		boolean contains(@Nullable Object other) {
+			if (other == null) return false;
+			for (Ancestor current = this; current != null; current = current.parent) {
+				if (Objects.equals(current.key, other)) return true;
+			}
+			return false;
+		}
+		
+	}
+	
+	/**
+	 * Task that lists a single directory and forks a task for every subdirectory. The tasks
+	 * are never serialized.
+	 */
+	@SuppressWarnings("serial")
+	private final class DirectoryTask extends RecursiveAction {
+		
+		private final Path directory;
+		private final int depth;
+		private final Ancestor ancestors;
+		
+		/**
+		 * Creates a new task for the given directory.
+		 *
+		 * @param directory the directory to list
+		 * @param depth     the depth of the entries of the directory
+		 * @param ancestors the directory and its ancestors
+		 */
+		DirectoryTask(@NotNull Path directory, int depth, @NotNull Ancestor ancestors) {
+			this.directory = directory;
+			this.depth = depth;
+			this.ancestors = ancestors;
+		}
+		
+		@Override
+		protected void compute() {
+			if (cancelled) return;
+			
+			int batchSize = options.batchSize();
+			List<UWalkEntry> batch = new ArrayList<>(Math.min(batchSize, 64));
+			List<DirectoryTask> forks = new ArrayList<>();
+			
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for (Path child : stream) {
+					if (cancelled) break;
+					
+					BasicFileAttributes attributes = attributes(child);
+					if (attributes == null) continue;
+					
+					if (attributes.isDirectory()) {
+						if (options.includeDirectories()) batch.add(new UWalkEntry(child, attributes, depth));
+						
+						// Only links can form cycles
+						boolean cycle = options.followLinks() && ancestors.contains(attributes.fileKey());
+						if (depth < options.maxDepth() && !cycle) {
+							DirectoryTask task = new DirectoryTask(child, depth + 1,
+																   new Ancestor(attributes.fileKey(), ancestors));
+							task.fork();
+							forks.add(task);
+						}
+					} else if (options.accepts(child.getFileName().toString())) {
+						batch.add(new UWalkEntry(child, attributes, depth));
+					}
+					
+					if (batch.size() >= batchSize) {
+						deliver(batch);
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+			} catch (IOException e) {
+				if (!options.ignoreErrors()) fail(e);
+			} catch (DirectoryIteratorException e) {
+				if (!options.ignoreErrors()) fail(e.getCause());
+			}
+			
+			if (!batch.isEmpty()) deliver(batch);
+			
+			// Join the newest forks first, they are the most likely to be still unstolen
+			for (int i = forks.size() - 1; i >= 0; i--) {
+				forks.get(i).join();
+			}
+		}
+		
+	}
+	
+	/**
+	 * Iterator over the batches of the stream queue.
+	 */
+	private final class QueueIterator implements Iterator<UWalkEntry> {
+		
+		private List<UWalkEntry> current = List.of();
+		private int index;
+		private boolean finished;
+		
+		@Override
+		public boolean hasNext() {
+			while (index >= current.size()) {
+				if (finished) return false;
+				
+				try {
+					current = Objects.requireNonNull(queue).take();
+					index = 0;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancelled = true;
+					throw new IllegalStateException("The walk was interrupted", e);
+				}
+				
+				if (current == END) {
+					finished = true;
+					try {
+						rethrow();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		public UWalkEntry next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			return current.get(index++);
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.io.UMappedFile;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+/**
+ * Mapped view made of several {@link MappedByteBuffer} windows, used where memory segments
+ * are not available. A buffer is limited to 2 GB, so larger files are split into windows
+ * that overlap by {@link Long#BYTES} bytes; any single value is then fully contained in one
+ * window.
+ */
+final class UWindowedMapping implements UMappedFile {
+	
+	/**
+	 * The distance between the start of two consecutive windows.
+	 */
+	private static final long WINDOW_SIZE = 1L << 30;
+	
+	/**
+	 * The number of extra bytes mapped after every window.
+	 */
+	private static final int WINDOW_OVERLAP = Long.BYTES;
+	
+	/**
+	 * Releases a window right away through {@code sun.misc.Unsafe.invokeCleaner(ByteBuffer)}, or
+	 * null if it is not available. Without it, the windows are released by the garbage collector.
+	 */
+	private static final @Nullable Cleaner CLEANER = cleaner();
+	
+	private final long size;
+	private final ByteOrder order;
+	private volatile MappedByteBuffer @Nullable [] windows;
+	
+	/**
+	 * Maps the whole content of the given channel.
+	 *
+	 * @param channel the channel to map; it can be closed once the mapping is created
+	 * @param order   the byte order of the multibyte values
+	 * @throws IOException if the file cannot be mapped
+	 */
+	UWindowedMapping(@NotNull FileChannel channel, @NotNull ByteOrder order) throws IOException {
+		this.size = channel.size();
+		this.order = order;
+		
+		int count = (int) Math.max(1, (size + WINDOW_SIZE - 1) / WINDOW_SIZE);
+		MappedByteBuffer[] windows = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long start = i * WINDOW_SIZE;
+			long length = Math.min(size - start, WINDOW_SIZE + WINDOW_OVERLAP);
+			windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			windows[i].order(order);
+		}
+		this.windows = windows;
+	}
+	
+	/* -----------------------------------------------------
+	 * Read methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public long size() {
+		return size;
+	}
+	
+	@Override
+	public @NotNull ByteOrder order() {
+		return order;
+	}
+	
+	@Override
+	public byte getByte(long position) {
+		Objects.checkIndex(position, size);
+		return window(position).get((int) (position % WINDOW_SIZE));
+	}
+	
+	@Override
+	public short getShort(long position) {
+		Objects.checkFromIndexSize(position, Short.BYTES, size);
+		return window(position).getShort((int) (position % WINDOW_SIZE));
+	}
+	
+	@Override
+	public int getInt(long position) {
+		Objects.checkFromIndexSize(position, Integer.BYTES, size);
+		return window(position).getInt((int) (position % WINDOW_SIZE));
+	}
+	
+	@Override
+	public long getLong(long position) {
+		Objects.checkFromIndexSize(position, Long.BYTES, size);
+		return window(position).getLong((int) (position % WINDOW_SIZE));
+	}
+	
+	@Override
+	public void get(long position, byte @NotNull [] destination, int offset, int length) {
+		Objects.checkFromIndexSize(position, length, size);
+		Objects.checkFromIndexSize(offset, length, destination.length);
+		
+		while (length > 0) {
+			int index = (int) (position % WINDOW_SIZE);
+			int count = (int) Math.min(length, WINDOW_SIZE - index);
+			window(position).get(index, destination, offset, count);
+			
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+	
+	@Override
+	public @NotNull ByteBuffer slice(long position, int length) {
+		Objects.checkFromIndexSize(position, length, size);
+		int index = (int) (position % WINDOW_SIZE);
+		
+		if (index + length <= WINDOW_SIZE + WINDOW_OVERLAP) {
+			return window(position).slice(index, length).asReadOnlyBuffer().order(order);
+		}
+		
+		// The region crosses a window boundary
+		byte[] copy = new byte[length];
+		get(position, copy, 0, length);
+		return ByteBuffer.wrap(copy).asReadOnlyBuffer().order(order);
+	}
+	
+	/* -----------------------------------------------------
+	 * Lifetime methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public boolean isOpen() {
+		return windows != null;
+	}
+	
+	@Override
+	public void close() {
+		MappedByteBuffer[] current;
+		synchronized (this) {
+			current = windows;
+			windows = null;
+		}
+		if (current == null || CLEANER == null) return;
+		
+		for (MappedByteBuffer window : current) {
+			try {
+				CLEANER.method().invoke(CLEANER.unsafe(), window);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Left to the garbage collector
+			}
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the window that contains the given position.
+	 *
+	 * @param position the position in the file
+	 * @return the window of the position
+	 * @throws IllegalStateException if the view is closed
+	 */
+	private @NotNull MappedByteBuffer window(long position) {
+		MappedByteBuffer[] current = windows;
+		if (current == null) throw new IllegalStateException("The mapped file is closed");
+		return current[(int) (position / WINDOW_SIZE)];
+	}
+	
+	/**
+	 * Looks up the method used to unmap buffers before they are garbage collected. Core
+	 * reflection is used because the {@code jdk.unsupported} module opens {@code sun.misc}
+	 * without being required by this module.
+	 *
+	 * @return the cleaner, or null if it is not available
+	 */
+	private static @Nullable Cleaner cleaner() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return new Cleaner(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * The unsafe instance and its {@code invokeCleaner} method.
+	 *
+	 * @param unsafe the unsafe instance
+	 * @param method the method that unmaps a direct buffer
+	 */
+	private record Cleaner(@NotNull Object unsafe, @NotNull Method method) {}
+	
+}
\ No newline at end of file
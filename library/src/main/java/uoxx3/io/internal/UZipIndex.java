@@ -0,0 +1,294 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Index of the entries of a zip file built from its central directory. It gives the exact
+ * position of the data of every entry, so uncompressed entries can be read directly from
+ * the archive file.
+ */
+public final class UZipIndex {
+	
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int ZIP64_END_SIZE = 56;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	
+	/**
+	 * The compression method of the entries stored without compression.
+	 */
+	public static final int METHOD_STORED = 0;
+	
+	/**
+	 * The maximum number of archives whose index is kept in memory.
+	 */
+	private static final int MAX_CACHED_INDEXES = 32;
+	
+	/**
+	 * Indexes by archive, reused while the archive size and modification time do not change.
+	 * The least recently used index is dropped when the cache is full, so a process that
+	 * copies from many archives does not keep all their central directories.
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<Path, UZipIndex> CACHE = Collections.synchronizedMap(
+		new LinkedHashMap<>(MAX_CACHED_INDEXES, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, UZipIndex> eldest) {
+				return size() > MAX_CACHED_INDEXES;
+			}
+		});
+	
+	private final Map<String, Entry> entries;
+	private final long size;
+	private final long modified;
+	
+	/**
+	 * Creates a new index.
+	 *
+	 * @param entries  the entries by name
+	 * @param size     the size of the archive when it was indexed
+	 * @param modified the modification time of the archive when it was indexed
+	 */
+	private UZipIndex(@NotNull Map<String, Entry> entries, long size, long modified) {
+		this.entries = entries;
+		this.size = size;
+		this.modified = modified;
+	}
+	
+	/* -----------------------------------------------------
+	 * Index methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Returns the index of the given archive, reading its central directory if the archive
+	 * was not indexed before or changed since it was indexed.
+	 *
+	 * @param archive the zip file
+	 * @return the index of the archive
+	 * @throws IOException              if the archive cannot be read or is not a valid zip file
+	 * @throws IllegalArgumentException if the archive is null
+	 */
+	public static @NotNull UZipIndex of(@NotNull Path archive) throws IOException {
+		UAssert.paramNotNull(archive, "Path archive");
+		Path key = archive.toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		long modified = attributes.lastModifiedTime().toMillis();
+		
+		UZipIndex index = CACHE.get(key);
+		if (index != null && index.size == attributes.size() && index.modified == modified) return index;
+		
+		try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+			index = new UZipIndex(read(channel), attributes.size(), modified);
+		}
+		CACHE.put(key, index);
+		return index;
+	}
+	
+	/**
+	 * Finds the entry with the given name.
+	 *
+	 * @param name the name of the entry, without leading separator
+	 * @return the entry, or null if the archive has no entry with that name
+	 */
+	public @Nullable Entry entry(@NotNull String name) {
+		return entries.get(name);
+	}
+	
+	/**
+	 * Returns the position of the first byte of the data of an entry. The position depends
+	 * on the local header of the entry, which is read from the given channel.
+	 *
+	 * @param channel the channel of the archive
+	 * @param entry   the entry to locate
+	 * @return the position of the entry data
+	 * @throws IOException if the local header cannot be read or is not valid
+	 */
+	public static long dataOffset(@NotNull FileChannel channel, @NotNull Entry entry) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, header, entry.headerOffset());
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header of entry " + entry.name());
+		}
+		
+		int nameLength = Short.toUnsignedInt(header.getShort(26));
+		int extraLength = Short.toUnsignedInt(header.getShort(28));
+		return entry.headerOffset() + LOCAL_HEADER_SIZE + nameLength + extraLength;
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Reads the central directory of an archive.
+	 *
+	 * @param channel the channel of the archive
+	 * @return the entries by name
+	 * @throws IOException if the archive cannot be read or is not a valid zip file
+	 */
+	private static @NotNull Map<String, Entry> read(@NotNull FileChannel channel) throws IOException {
+		long length = channel.size();
+		
+		// The end record is followed by a comment of up to 64K bytes
+		int tailLength = (int) Math.min(length, END_SIZE + 0xFFFF);
+		ByteBuffer tail = ByteBuffer.allocate(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, tail, length - tailLength);
+		
+		int end = -1;
+		for (int i = tailLength - END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_SIGNATURE) {
+				end = i;
+				break;
+			}
+		}
+		if (end == -1) throw new ZipException("End of central directory not found");
+		
+		long count = Short.toUnsignedLong(tail.getShort(end + 10));
+		long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+		long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+		
+		// Zip64 archives store the real values in a second end record
+		long endPosition = length - tailLength + end;
+		if (directoryOffset == ZIP64_MAGIC && endPosition >= ZIP64_LOCATOR_SIZE) {
+			ByteBuffer locator = ByteBuffer.allocate(ZIP64_LOCATOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, locator, endPosition - ZIP64_LOCATOR_SIZE);
+			
+			if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+				ByteBuffer zip64 = ByteBuffer.allocate(ZIP64_END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				readFully(channel, zip64, locator.getLong(8));
+				if (zip64.getInt(0) != ZIP64_END_SIGNATURE) throw new ZipException("Invalid zip64 end record");
+				
+				count = zip64.getLong(32);
+				directorySize = zip64.getLong(40);
+				directoryOffset = zip64.getLong(48);
+			}
+		}
+		
+		if (directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > length) {
+			throw new ZipException("Invalid central directory");
+		}
+		
+		ByteBuffer directory = ByteBuffer.allocate((int) directorySize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, directory, directoryOffset);
+		
+		Map<String, Entry> entries = new HashMap<>((int) Math.min(count * 2, 1 << 20));
+		int position = 0;
+		while (position + CENTRAL_HEADER_SIZE <= directory.limit() &&
+			   directory.getInt(position) == CENTRAL_HEADER_SIGNATURE) {
+			int method = Short.toUnsignedInt(directory.getShort(position + 10));
+			long compressedSize = Integer.toUnsignedLong(directory.getInt(position + 20));
+			long size = Integer.toUnsignedLong(directory.getInt(position + 24));
+			int nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+			int extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+			int commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+			long headerOffset = Integer.toUnsignedLong(directory.getInt(position + 42));
+			
+			int nameStart = position + CENTRAL_HEADER_SIZE;
+			int next = nameStart + nameLength + extraLength + commentLength;
+			if (next > directory.limit()) throw new ZipException("Truncated central directory");
+			
+			byte[] nameBytes = new byte[nameLength];
+			directory.get(nameStart, nameBytes);
+			// Names without the UTF-8 flag are decoded as UTF-8 too, like the zip file system does
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+			
+			// The zip64 extra field holds only the values that overflowed, in this order
+			int extra = nameStart + nameLength;
+			int extraEnd = extra + extraLength;
+			while (extra + 4 <= extraEnd) {
+				int id = Short.toUnsignedInt(directory.getShort(extra));
+				int dataLength = Short.toUnsignedInt(directory.getShort(extra + 2));
+				if (id == ZIP64_EXTRA_ID) {
+					int field = extra + 4;
+					if (size == ZIP64_MAGIC && field + 8 <= extraEnd) {
+						size = directory.getLong(field);
+						field += 8;
+					}
+					if (compressedSize == ZIP64_MAGIC && field + 8 <= extraEnd) {
+						compressedSize = directory.getLong(field);
+						field += 8;
+					}
+					if (headerOffset == ZIP64_MAGIC && field + 8 <= extraEnd) {
+						headerOffset = directory.getLong(field);
+					}
+					break;
+				}
+				extra += 4 + dataLength;
+			}
+			
+			entries.put(name, new Entry(name, method, compressedSize, size, headerOffset));
+			position = next;
+		}
+		return entries;
+	}
+	
+	/**
+	 * Fills a buffer with the bytes of the channel starting at the given position.
+	 *
+	 * @param channel  the channel to read from
+	 * @param buffer   the buffer to fill
+	 * @param position the position of the first byte
+	 * @throws IOException if the channel ends before the buffer is full
+	 */
+	private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position)
+		throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read == -1) throw new ZipException("Unexpected end of the archive");
+		}
+		buffer.flip();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal types
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Entry of the central directory.
+	 *
+	 * @param name           the name of the entry
+	 * @param method         the compression method of the entry
+	 * @param compressedSize the number of bytes of the entry data in the archive
+	 * @param size           the number of bytes of the uncompressed entry
+	 * @param headerOffset   the position of the local header of the entry
+	 */
+	public record Entry(@NotNull String name, int method, long compressedSize, long size, long headerOffset) {
+		
+		/**
+		 * Checks whether the entry is stored without compression.
+		 *
+		 * @return true if the entry data can be read directly
+		 */
+		public boolean stored() {
+			return method == METHOD_STORED && compressedSize == size;
+		}
+		
+	}
+	
+}
\ No newline at end of file
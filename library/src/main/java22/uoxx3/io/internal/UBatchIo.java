@@ -0,0 +1,79 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.UAssert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Batched file read engine. This is the Java 22 version of the multi-release jar: on Linux,
+ * when the {@code uoxx3.io.uring} system property is true, the files of the default file
+ * system are opened, read and closed in batches submitted through io_uring, so a batch costs
+ * a few system calls instead of several per file; the large files, which gain nothing from
+ * the ring, are still read with {@link UBulkReader}. Otherwise every file is read with
+ * {@link UBulkReader}.
+ */
+public final class UBatchIo {
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UBatchIo() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Engine methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Checks whether the reads are submitted through io_uring.
+	 *
+	 * @return true if the native engine is in use
+	 */
+	public static boolean nativeEngine() {
+		return UUring.available();
+	}
+	
+	/**
+	 * Reads every file and delivers its content to the consumer. The files read through
+	 * io_uring are delivered in the calling thread, batch by batch.
+	 *
+	 * @param paths       the files to read
+	 * @param parallelism the maximum number of files read at the same time
+	 * @param consumer    the action that receives every file and its content
+	 * @throws IOException              if any file cannot be read
+	 * @throws IllegalArgumentException if any parameter is null or the parallelism is not positive
+	 * @see UBulkReader#readAll(Collection, int, BiConsumer)
+	 */
+	public static void readAll(@NotNull Collection<Path> paths, int parallelism,
+		@NotNull BiConsumer<Path, ByteBuffer> consumer) throws IOException {
+		UAssert.paramNotNull(paths, "Collection<Path> paths");
+		UAssert.paramNotNull(consumer, "BiConsumer<Path, ByteBuffer> consumer");
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("The parallelism must be positive. \"%d\" given".formatted(parallelism));
+		}
+		if (!nativeEngine()) {
+			UBulkReader.readAll(paths, parallelism, consumer);
+			return;
+		}
+		
+		// io_uring only reaches the files of the operating system
+		List<Path> local = new ArrayList<>(paths.size());
+		List<Path> others = new ArrayList<>();
+		for (Path path : paths) {
+			(path.getFileSystem() == FileSystems.getDefault() ? local : others).add(path);
+		}
+		
+		if (!local.isEmpty()) UUringReader.readAll(local, parallelism, consumer);
+		if (!others.isEmpty()) UBulkReader.readAll(others, parallelism, consumer);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import uoxx3.io.UMappedFile;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Mapped view backed by a single {@link MemorySegment}. The segment belongs to a shared
+ * arena, so closing the view unmaps the file immediately and any later or concurrent
+ * access fails with an {@link IllegalStateException} instead of reading unmapped memory.
+ */
+final class USegmentMapping implements UMappedFile {
+	
+	private final Arena arena;
+	private final MemorySegment segment;
+	private final ByteOrder order;
+	private final ValueLayout.OfShort shortLayout;
+	private final ValueLayout.OfInt intLayout;
+	private final ValueLayout.OfLong longLayout;
+	
+	/**
+	 * Maps the whole content of the given channel.
+	 *
+	 * @param channel the channel to map; it can be closed once the mapping is created
+	 * @param order   the byte order of the multibyte values
+	 * @throws IOException if the file cannot be mapped
+	 */
+	USegmentMapping(@NotNull FileChannel channel, @NotNull ByteOrder order) throws IOException {
+		this.arena = Arena.ofShared();
+		try {
+			this.segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+		} catch (IOException | RuntimeException e) {
+			arena.close();
+			throw e;
+		}
+		
+		this.order = order;
+		this.shortLayout = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order);
+		this.intLayout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(order);
+		this.longLayout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order);
+	}
+	
+	/* -----------------------------------------------------
+	 * Read methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public long size() {
+		return segment.byteSize();
+	}
+	
+	@Override
+	public @NotNull ByteOrder order() {
+		return order;
+	}
+	
+	@Override
+	public byte getByte(long position) {
+		return segment.get(ValueLayout.JAVA_BYTE, position);
+	}
+	
+	@Override
+	public short getShort(long position) {
+		return segment.get(shortLayout, position);
+	}
+	
+	@Override
+	public int getInt(long position) {
+		return segment.get(intLayout, position);
+	}
+	
+	@Override
+	public long getLong(long position) {
+		return segment.get(longLayout, position);
+	}
+	
+	@Override
+	public void get(long position, byte @NotNull [] destination, int offset, int length) {
+		MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, position, destination, offset, length);
+	}
+	
+	@Override
+	public @NotNull ByteBuffer slice(long position, int length) {
+		return segment.asSlice(position, length).asByteBuffer().asReadOnlyBuffer().order(order);
+	}
+	
+	/* -----------------------------------------------------
+	 * Lifetime methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public boolean isOpen() {
+		return arena.scope().isAlive();
+	}
+	
+	@Override
+	public synchronized void close() {
+		if (arena.scope().isAlive()) arena.close();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,371 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.util.Locale;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+
+/**
+ * Minimal io_uring instance driven through raw system calls, so no native library other
+ * than the C library is needed. The submission and completion rings are mapped into the
+ * process and accessed with acquire and release semantics, as the kernel expects.
+ * <p>
+ * An instance is confined to the thread that creates it.
+ */
+final class UUring implements AutoCloseable {
+	
+	static final byte OP_OPENAT = 18;
+	static final byte OP_CLOSE = 19;
+	static final byte OP_STATX = 21;
+	static final byte OP_READ = 22;
+	
+	private static final long SYS_IO_URING_SETUP = 425;
+	private static final long SYS_IO_URING_ENTER = 426;
+	private static final int IORING_ENTER_GETEVENTS = 1;
+	private static final int IORING_FEAT_SINGLE_MMAP = 1;
+	// Added together with the open, stat, read and close operations in Linux 5.6
+	private static final int IORING_FEAT_RW_CUR_POS = 1 << 3;
+	private static final long IORING_OFF_SQ_RING = 0;
+	private static final long IORING_OFF_CQ_RING = 0x8000000L;
+	private static final long IORING_OFF_SQES = 0x10000000L;
+	
+	private static final int PROT_READ_WRITE = 0x1 | 0x2;
+	private static final int MAP_SHARED_POPULATE = 0x01 | 0x8000;
+	private static final int EINTR = 4;
+	
+	private static final int PARAMS_SIZE = 120;
+	private static final int SQ_OFFSETS = 40;
+	private static final int CQ_OFFSETS = 80;
+	private static final int SQE_SIZE = 64;
+	private static final int CQE_SIZE = 16;
+	
+	private static final VarHandle INT = JAVA_INT.varHandle();
+	
+	private static final @Nullable MethodHandle SETUP;
+	private static final @Nullable MethodHandle ENTER;
+	private static final @Nullable MethodHandle MMAP;
+	private static final @Nullable MethodHandle MUNMAP;
+	private static final @Nullable MethodHandle CLOSE;
+	private static final @Nullable VarHandle ERRNO;
+	private static final long STATE_SIZE;
+	
+	static {
+		MethodHandle setup = null;
+		MethodHandle enter = null;
+		MethodHandle mmap = null;
+		MethodHandle munmap = null;
+		MethodHandle close = null;
+		VarHandle errno = null;
+		long stateSize = 0;
+		
+		if (System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux")) {
+			try {
+				Linker linker = Linker.nativeLinker();
+				SymbolLookup libc = linker.defaultLookup();
+				MemorySegment syscall = libc.find("syscall").orElseThrow();
+				Linker.Option state = Linker.Option.captureCallState("errno");
+				
+				// The system call arguments are the variadic arguments of syscall
+				setup = linker.downcallHandle(syscall, FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_INT, ADDRESS),
+											  state, Linker.Option.firstVariadicArg(1));
+				enter = linker.downcallHandle(syscall,
+											  FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_INT, JAVA_INT, JAVA_INT,
+																	JAVA_INT, ADDRESS, JAVA_LONG),
+											  state, Linker.Option.firstVariadicArg(1));
+				mmap = linker.downcallHandle(libc.find("mmap").orElseThrow(),
+											 FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_LONG, JAVA_INT, JAVA_INT,
+																   JAVA_INT, JAVA_LONG));
+				munmap = linker.downcallHandle(libc.find("munmap").orElseThrow(),
+											   FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG));
+				close = linker.downcallHandle(libc.find("close").orElseThrow(),
+											  FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+				
+				MemoryLayout stateLayout = Linker.Option.captureStateLayout();
+				errno = stateLayout.varHandle(MemoryLayout.PathElement.groupElement("errno"));
+				stateSize = stateLayout.byteSize();
+			} catch (RuntimeException e) {
+				setup = null;
+			}
+		}
+		
+		SETUP = setup;
+		ENTER = enter;
+		MMAP = mmap;
+		MUNMAP = munmap;
+		CLOSE = close;
+		ERRNO = errno;
+		STATE_SIZE = stateSize;
+	}
+	
+	private final Arena arena = Arena.ofConfined();
+	private final MemorySegment state;
+	private final int fd;
+	private final MemorySegment sqRing;
+	private final MemorySegment cqRing;
+	private final MemorySegment sqes;
+	private final long sqHeadOffset;
+	private final long sqTailOffset;
+	private final long cqHeadOffset;
+	private final long cqTailOffset;
+	private final long cqesOffset;
+	private final int sqEntries;
+	private final int sqMask;
+	private final int cqMask;
+	private int sqTail;
+	private int cqHead;
+	
+	/**
+	 * Creates a new ring.
+	 *
+	 * @param entries the number of submission entries; rounded up to a power of two by the kernel
+	 * @throws IOException           if the ring cannot be created
+	 * @throws IllegalStateException if io_uring cannot be called on this system
+	 */
+	UUring(int entries) throws IOException {
+		if (SETUP == null || ENTER == null || MMAP == null || MUNMAP == null || CLOSE == null) {
+			throw new IllegalStateException("io_uring is not available");
+		}
+		state = arena.allocate(STATE_SIZE);
+		
+		MemorySegment sqMapping = null;
+		MemorySegment cqMapping = null;
+		MemorySegment sqeMapping = null;
+		int ringFd = -1;
+		try {
+			MemorySegment params = arena.allocate(PARAMS_SIZE, Long.BYTES);
+			ringFd = (int) (long) SETUP.invokeExact(state, SYS_IO_URING_SETUP, entries, params);
+			if (ringFd < 0) throw new IOException("io_uring_setup failed with error " + errno());
+			
+			int features = params.get(JAVA_INT, 20);
+			if ((features & IORING_FEAT_RW_CUR_POS) == 0) throw new IOException("The kernel io_uring is too old");
+			
+			sqEntries = params.get(JAVA_INT, 0);
+			int cqEntries = params.get(JAVA_INT, 4);
+			long sqSize = params.get(JAVA_INT, SQ_OFFSETS + 24) + (long) sqEntries * Integer.BYTES;
+			long cqSize = params.get(JAVA_INT, CQ_OFFSETS + 20) + (long) cqEntries * CQE_SIZE;
+			
+			// Since Linux 5.4 both rings share a single mapping
+			boolean single = (features & IORING_FEAT_SINGLE_MMAP) != 0;
+			if (single) sqSize = cqSize = Math.max(sqSize, cqSize);
+			
+			sqMapping = map(ringFd, sqSize, IORING_OFF_SQ_RING);
+			cqMapping = single ? sqMapping : map(ringFd, cqSize, IORING_OFF_CQ_RING);
+			sqeMapping = map(ringFd, (long) sqEntries * SQE_SIZE, IORING_OFF_SQES);
+			sqRing = sqMapping;
+			cqRing = cqMapping;
+			sqes = sqeMapping;
+			
+			sqHeadOffset = params.get(JAVA_INT, SQ_OFFSETS);
+			sqTailOffset = params.get(JAVA_INT, SQ_OFFSETS + 4);
+			sqMask = sqRing.get(JAVA_INT, params.get(JAVA_INT, SQ_OFFSETS + 8));
+			cqHeadOffset = params.get(JAVA_INT, CQ_OFFSETS);
+			cqTailOffset = params.get(JAVA_INT, CQ_OFFSETS + 4);
+			cqMask = cqRing.get(JAVA_INT, params.get(JAVA_INT, CQ_OFFSETS + 8));
+			cqesOffset = params.get(JAVA_INT, CQ_OFFSETS + 20);
+			
+			// Every submission slot always points to the entry with the same index
+			long array = params.get(JAVA_INT, SQ_OFFSETS + 24);
+			for (int i = 0; i < sqEntries; i++) {
+				sqRing.set(JAVA_INT, array + (long) i * Integer.BYTES, i);
+			}
+			sqTail = (int) INT.getAcquire(sqRing, sqTailOffset);
+			cqHead = (int) INT.getAcquire(cqRing, cqHeadOffset);
+			fd = ringFd;
+		} catch (Throwable e) {
+			unmap(sqeMapping);
+			unmap(sqMapping);
+			if (cqMapping != sqMapping) unmap(cqMapping);
+			if (ringFd >= 0) closeDescriptor(ringFd);
+			arena.close();
+			
+			if (e instanceof IOException io) throw io;
+			if (e instanceof RuntimeException runtime) throw runtime;
+			if (e instanceof Error error) throw error;
+			throw new IOException(e);
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Availability methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Checks whether io_uring is enabled with the {@code uoxx3.io.uring} system property and
+	 * supported by the running kernel. The check is done once.
+	 *
+	 * @return true if rings can be created
+	 */
+	static boolean available() {
+		return Probe.AVAILABLE;
+	}
+	
+	/**
+	 * Closes a file descriptor without the ring.
+	 *
+	 * @param descriptor the descriptor to close
+	 */
+	static void closeDescriptor(int descriptor) {
+		if (CLOSE == null) return;
+		try {
+			int ignore = (int) CLOSE.invokeExact(descriptor);
+		} catch (Throwable ignored) {
+			// Nothing else can be done with the descriptor
+		}
+	}
+	
+	/* -----------------------------------------------------
+	 * Submission methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Adds an entry to the submission queue. The entry is sent to the kernel by the next
+	 * call to {@link #submit(int)}.
+	 *
+	 * @param opcode   the operation code
+	 * @param fd       the file descriptor, or the directory descriptor of path operations
+	 * @param address  the buffer or path address
+	 * @param length   the buffer length, or the mode or mask of path operations
+	 * @param offset   the file offset, or the second address of path operations
+	 * @param opFlags  the operation flags
+	 * @param userData the value returned with the completion
+	 * @throws IllegalStateException if the submission queue is full
+	 */
+	void prepare(byte opcode, int fd, long address, int length, long offset, int opFlags, long userData) {
+		int head = (int) INT.getAcquire(sqRing, sqHeadOffset);
+		if (sqTail - head == sqEntries) throw new IllegalStateException("The submission queue is full");
+		
+		MemorySegment sqe = sqes.asSlice((long) (sqTail & sqMask) * SQE_SIZE, SQE_SIZE).fill((byte) 0);
+		sqe.set(JAVA_BYTE, 0, opcode);
+		sqe.set(JAVA_INT, 4, fd);
+		sqe.set(JAVA_LONG, 8, offset);
+		sqe.set(JAVA_LONG, 16, address);
+		sqe.set(JAVA_INT, 24, length);
+		sqe.set(JAVA_INT, 28, opFlags);
+		sqe.set(JAVA_LONG, 32, userData);
+		
+		sqTail++;
+		INT.setRelease(sqRing, sqTailOffset, sqTail);
+	}
+	
+	/**
+	 * Submits every prepared entry and waits until the given number of completions can be
+	 * reaped, with as few system calls as possible.
+	 *
+	 * @param completions the number of completions to wait for
+	 * @throws IOException if io_uring_enter fails
+	 */
+	void submit(int completions) throws IOException {
+		while (true) {
+			int unsubmitted = sqTail - (int) INT.getAcquire(sqRing, sqHeadOffset);
+			int ready = (int) INT.getAcquire(cqRing, cqTailOffset) - cqHead;
+			if (unsubmitted == 0 && ready >= completions) return;
+			
+			long result;
+			try {
+				result = (long) ENTER.invokeExact(state, SYS_IO_URING_ENTER, fd, unsubmitted,
+												  Math.max(0, completions - ready), IORING_ENTER_GETEVENTS,
+												  MemorySegment.NULL, 0L);
+			} catch (Throwable e) {
+				throw new IOException(e);
+			}
+			if (result < 0 && errno() != EINTR) throw new IOException("io_uring_enter failed with error " + errno());
+		}
+	}
+	
+	/**
+	 * Takes the available completions.
+	 *
+	 * @param data    receives the user data of every completion
+	 * @param results receives the result of every completion; negative values are error numbers
+	 * @return the number of completions taken, limited by the array lengths
+	 */
+	int reap(long @NotNull [] data, int @NotNull [] results) {
+		int tail = (int) INT.getAcquire(cqRing, cqTailOffset);
+		int count = 0;
+		
+		while (cqHead != tail && count < data.length) {
+			long base = cqesOffset + (long) (cqHead & cqMask) * CQE_SIZE;
+			data[count] = cqRing.get(JAVA_LONG_UNALIGNED, base);
+			results[count] = cqRing.get(JAVA_INT_UNALIGNED, base + Long.BYTES);
+			count++;
+			cqHead++;
+		}
+		
+		INT.setRelease(cqRing, cqHeadOffset, cqHead);
+		return count;
+	}
+	
+	/* -----------------------------------------------------
+	 * Lifetime methods
+	 * ----------------------------------------------------- */
+	
+	@Override
+	public void close() {
+		unmap(sqes);
+		unmap(sqRing);
+		if (cqRing != sqRing) unmap(cqRing);
+		closeDescriptor(fd);
+		arena.close();
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	private int errno() {
+		return ERRNO == null ? -1 : (int) ERRNO.get(state, 0L);
+	}
+	
+	private static @NotNull MemorySegment map(int fd, long size, long offset) throws Throwable {
+		MemorySegment address = (MemorySegment) MMAP.invokeExact(MemorySegment.NULL, size, PROT_READ_WRITE,
+																 MAP_SHARED_POPULATE, fd, offset);
+		if (address.address() == -1L) throw new IOException("Cannot map the io_uring rings");
+		return address.reinterpret(size);
+	}
+	
+	private static void unmap(@Nullable MemorySegment mapping) {
+		if (mapping == null || MUNMAP == null) return;
+		try {
+			int ignore = (int) MUNMAP.invokeExact(mapping, mapping.byteSize());
+		} catch (Throwable ignored) {
+			// The mapping is released with the process
+		}
+	}
+	
+	/**
+	 * Lazily computed availability.
+	 */
+	private static final class Probe {
+		
+		private static final boolean AVAILABLE = probe();
+		
+		private static boolean probe() {
+			if (!Boolean.getBoolean("uoxx3.io.uring") || SETUP == null) return false;
+			// Containers usually reject io_uring_setup with a seccomp filter
+			try {
+				new UUring(2).close();
+				return true;
+			} catch (IOException | RuntimeException e) {
+				return false;
+			}
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+package uoxx3.io.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import uoxx3.io.UFSConstants;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Reads batches of files through io_uring. Every batch needs three submissions, whatever
+ * the number of files: all the files are opened and stated together, then read together,
+ * then closed together. Short reads are resubmitted in further rounds.
+ * <p>
+ * The content is read into direct buffers of {@link UBufferPool#SHARED} and delivered in
+ * the calling thread once the whole batch is read. The size reported by {@code statx} is
+ * the amount of data read, so data appended while the batch is read is ignored.
+ * <p>
+ * The files larger than {@code MAX_FILE_SIZE} are left out of the batches and read with
+ * {@link UBulkReader} once the batches are done: the system calls saved by the ring do not
+ * matter for them, and a batch never holds more than {@code MAX_BATCH * MAX_FILE_SIZE} bytes.
+ */
+final class UUringReader {
+	
+	private static final int RING_ENTRIES = 256;
+	private static final int MAX_BATCH = RING_ENTRIES / 2;
+	private static final int MAX_FILE_SIZE = 128 << 10;
+	private static final int AT_FDCWD = -100;
+	private static final int O_RDONLY_CLOEXEC = 0x80000;
+	private static final int STATX_SIZE = 0x200;
+	private static final int STATX_BUFFER_SIZE = 256;
+	private static final long STATX_SIZE_OFFSET = 40;
+	
+	private static final int ENOENT = 2;
+	private static final int EPERM = 1;
+	private static final int EACCES = 13;
+	
+	private static final int OPEN = 0;
+	private static final int STAT = 1;
+	private static final int READ = 2;
+	private static final int CLOSE = 3;
+	
+	/**
+	 * This class cannot be instantiated
+	 */
+	private UUringReader() {
+		throw new IllegalStateException("This class cannot be instantiated");
+	}
+	
+	/* -----------------------------------------------------
+	 * Read methods
+	 * ----------------------------------------------------- */
+	
+	/**
+	 * Reads every file of the default file system and delivers its content to the consumer.
+	 * The first error stops the remaining batches and the reads of the large files.
+	 *
+	 * @param paths       the files to read
+	 * @param parallelism the maximum number of files of every batch
+	 * @param consumer    the action that receives every file and its content
+	 * @throws IOException if any file cannot be read or the ring fails
+	 */
+	static void readAll(@NotNull List<Path> paths, int parallelism, @NotNull BiConsumer<Path, ByteBuffer> consumer)
+		throws IOException {
+		int batch = Math.min(parallelism, MAX_BATCH);
+		List<Path> large = new ArrayList<>();
+		try (UUring ring = new UUring(RING_ENTRIES)) {
+			for (int from = 0; from < paths.size(); from += batch) {
+				readBatch(ring, paths.subList(from, Math.min(paths.size(), from + batch)), large, consumer);
+			}
+		}
+		if (!large.isEmpty()) UBulkReader.readAll(large, parallelism, consumer);
+	}
+	
+	/* -----------------------------------------------------
+	 * Internal methods
+	 * ----------------------------------------------------- */
+	
+	private static void readBatch(@NotNull UUring ring, @NotNull List<Path> paths, @NotNull List<Path> large,
+		@NotNull BiConsumer<Path, ByteBuffer> consumer) throws IOException {
+		int count = paths.size();
+		int[] fds = new int[count];
+		long[] sizes = new long[count];
+		ByteBuffer[] buffers = new ByteBuffer[count];
+		long[] data = new long[2 * count];
+		int[] results = new int[2 * count];
+		Arrays.fill(fds, -1);
+		
+		try {
+			IOException error;
+			try {
+				error = open(ring, paths, fds, sizes, data, results);
+				if (error == null) error = read(ring, paths, fds, sizes, buffers, data, results);
+			} finally {
+				close(ring, fds, data, results);
+			}
+			if (error != null) throw error;
+			
+			for (int i = 0; i < count; i++) {
+				if (buffers[i] == null) large.add(paths.get(i));
+				else consumer.accept(paths.get(i), buffers[i].flip().asReadOnlyBuffer());
+			}
+		} finally {
+			for (ByteBuffer buffer : buffers) {
+				if (buffer != null) UBufferPool.SHARED.release(buffer);
+			}
+		}
+	}
+	
+	/**
+	 * Opens and stats every file with a single submission.
+	 *
+	 * @return the first error, or null if every file was opened
+	 */
+	private static @Nullable IOException open(@NotNull UUring ring, @NotNull List<Path> paths, int @NotNull [] fds,
+		long @NotNull [] sizes, long @NotNull [] data, int @NotNull [] results) throws IOException {
+		int count = paths.size();
+		IOException error = null;
+		
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment stats = arena.allocate((long) STATX_BUFFER_SIZE * count, Long.BYTES);
+			for (int i = 0; i < count; i++) {
+				MemorySegment name = arena.allocateFrom(paths.get(i).toAbsolutePath().toString());
+				ring.prepare(UUring.OP_OPENAT, AT_FDCWD, name.address(), 0, 0, O_RDONLY_CLOEXEC, tag(i, OPEN));
+				ring.prepare(UUring.OP_STATX, AT_FDCWD, name.address(), STATX_SIZE,
+							 stats.address() + (long) i * STATX_BUFFER_SIZE, 0, tag(i, STAT));
+			}
+			ring.submit(2 * count);
+			
+			int reaped = ring.reap(data, results);
+			for (int c = 0; c < reaped; c++) {
+				int i = index(data[c]);
+				if (results[c] < 0) error = first(error, failure(paths.get(i), -results[c]));
+				else if (kind(data[c]) == OPEN) fds[i] = results[c];
+			}
+			
+			for (int i = 0; error == null && i < count; i++) {
+				sizes[i] = stats.get(JAVA_LONG, (long) i * STATX_BUFFER_SIZE + STATX_SIZE_OFFSET);
+			}
+		}
+		return error;
+	}
+	
+	/**
+	 * Reads the content of every opened file up to {@code MAX_FILE_SIZE}, resubmitting the
+	 * short reads. The larger files get no buffer.
+	 *
+	 * @return the first error, or null if every file was read
+	 */
+	private static @Nullable IOException read(@NotNull UUring ring, @NotNull List<Path> paths, int @NotNull [] fds,
+		long @NotNull [] sizes, ByteBuffer @NotNull [] buffers, long @NotNull [] data, int @NotNull [] results)
+		throws IOException {
+		int count = paths.size();
+		int[] pending = new int[count];
+		int remaining = 0;
+		
+		for (int i = 0; i < count; i++) {
+			if (sizes[i] > MAX_FILE_SIZE) continue;
+			
+			// Files such as the ones in /proc report no size, so they are read until the end
+			int size = (int) sizes[i];
+			buffers[i] = UBufferPool.SHARED.acquire(size > 0 ? size : UFSConstants.FS_BUFFER_SIZE);
+			buffers[i].limit(size > 0 ? size : buffers[i].capacity());
+			pending[remaining++] = i;
+		}
+		
+		IOException error = null;
+		while (remaining > 0 && error == null) {
+			for (int p = 0; p < remaining; p++) {
+				int i = pending[p];
+				ByteBuffer buffer = buffers[i];
+				ring.prepare(UUring.OP_READ, fds[i], MemorySegment.ofBuffer(buffer).address(), buffer.remaining(),
+							 buffer.position(), 0, tag(i, READ));
+			}
+			ring.submit(remaining);
+			
+			int reaped = ring.reap(data, results);
+			remaining = 0;
+			for (int c = 0; c < reaped; c++) {
+				int i = index(data[c]);
+				int result = results[c];
+				ByteBuffer buffer = buffers[i];
+				
+				if (result < 0) {
+					error = first(error, failure(paths.get(i), -result));
+					continue;
+				}
+				// The file shrank, or reached the end of a file without size
+				if (result == 0) continue;
+				
+				buffer.position(buffer.position() + result);
+				if (buffer.hasRemaining()) {
+					pending[remaining++] = i;
+				} else if (sizes[i] <= 0) {
+					buffers[i] = grow(buffer);
+					pending[remaining++] = i;
+				}
+			}
+		}
+		return error;
+	}
+	
+	/**
+	 * Closes every opened file with a single submission, or one by one if the ring fails.
+	 */
+	private static void close(@NotNull UUring ring, int @NotNull [] fds, long @NotNull [] data,
+		int @NotNull [] results) {
+		int opened = 0;
+		for (int i = 0; i < fds.length; i++) {
+			if (fds[i] < 0) continue;
+			ring.prepare(UUring.OP_CLOSE, fds[i], 0, 0, 0, 0, tag(i, CLOSE));
+			opened++;
+		}
+		if (opened == 0) return;
+		
+		try {
+			ring.submit(opened);
+			ring.reap(data, results);
+		} catch (IOException e) {
+			for (int fd : fds) {
+				if (fd >= 0) UUring.closeDescriptor(fd);
+			}
+		}
+	}
+	
+	private static @NotNull ByteBuffer grow(@NotNull ByteBuffer buffer) {
+		if (buffer.limit() < buffer.capacity()) return buffer.limit(buffer.capacity());
+		
+		ByteBuffer larger = UBufferPool.SHARED.acquire(buffer.capacity() * 2);
+		larger.put(buffer.flip());
+		UBufferPool.SHARED.release(buffer);
+		return larger;
+	}
+	
+	private static @NotNull IOException failure(@NotNull Path path, int errno) {
+		return switch (errno) {
+			case ENOENT -> new NoSuchFileException(path.toString());
+			case EPERM, EACCES -> new AccessDeniedException(path.toString());
+			default -> new IOException("Cannot read %s, error %d".formatted(path, errno));
+		};
+	}
+	
+	private static @NotNull IOException first(@Nullable IOException current, @NotNull IOException error) {
+		return current != null ? current : error;
+	}
+	
+	private static long tag(int index, int kind) {
+		return (long) index << 8 | kind;
+	}
+	
+	private static int index(long tag) {
+		return (int) (tag >>> 8);
+	}
+	
+	private static int kind(long tag) {
+		return (int) (tag & 0xFF);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+class UAsyncIoTest {
+	
+	@Test
+	public void hashTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		byte[] content = new byte[3 << 20];
+		new Random(7).nextBytes(content);
+		Path file = Files.write(root.resolve("data.bin"), content);
+		
+		String expected = UResourceHash.hashStr(file);
+		String actual = UAsyncIo.hashStr(file).join();
+		Assertions.assertEquals(expected, actual,
+								"The asynchronous hash differs from the blocking hash");
+		
+		CompletionException error = Assertions.assertThrows(CompletionException.class,
+															() -> UAsyncIo.hash(root.resolve("missing.bin")).join(),
+															"A missing file was hashed");
+		Assertions.assertInstanceOf(NoSuchFileException.class, error.getCause(),
+									"The original exception was wrapped");
+		
+		System.out.printf("Asynchronous hash: %s%n", actual);
+	}
+	
+	@Test
+	public void pathOfTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		Path jar = root.resolve("async.jar");
+		try (OutputStream out = Files.newOutputStream(jar);
+			 ZipOutputStream zip = new ZipOutputStream(out)) {
+			zip.putNextEntry(new ZipEntry("entry.txt"));
+			zip.write("Hello world".getBytes());
+		}
+		
+		Path entry = UAsyncIo.pathOf(URI.create("jar:" + jar.toUri() + "!/entry.txt")).join();
+		try {
+			Assertions.assertEquals("Hello world", Files.readString(entry),
+									"Invalid entry content");
+			Assertions.assertEquals(UResourceHash.hashStr(Files.newInputStream(entry)),
+									UAsyncIo.hashStr(entry).join(),
+									"Invalid hash of an archive entry");
+		} finally {
+			UFilesystem.closeFilesystemsIf(fs -> fs.equals(entry.getFileSystem()));
+		}
+		
+		System.out.printf("Asynchronous path: %s%n", entry.toUri());
+	}
+	
+}
\ No newline at end of file
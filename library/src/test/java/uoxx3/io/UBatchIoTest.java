@@ -0,0 +1,55 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uoxx3.io.internal.UBatchIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class UBatchIoTest {
+	
+	@Test
+	public void nativeReadTest(@TempDir Path root) throws IOException {
+		// Only the java22Test task runs on Java 22 with -Duoxx3.io.uring=true
+		if (Boolean.getBoolean("uoxx3.io.uring") && !UBatchIo.nativeEngine()) {
+			// Containers usually reject io_uring, so the skip is reported instead of failing
+			System.err.println("io_uring was requested but is not available, the native read test is skipped");
+		}
+		Assumptions.assumeTrue(UBatchIo.nativeEngine(), "io_uring is not in use");
+		
+		// More files than a batch holds, some of them too large for the ring
+		Random random = new Random(7);
+		List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			byte[] content = new byte[i % 50 == 0 ? (1 << 20) + i : random.nextInt(8 << 10)];
+			random.nextBytes(content);
+			Path file = root.resolve("file-" + i + ".bin");
+			Files.write(file, content);
+			paths.add(file);
+		}
+		
+		Map<Path, byte[]> contents = UResource.readAll(paths);
+		Assertions.assertEquals(paths.size(), contents.size(),
+								"Invalid number of files read");
+		for (Path path : paths) {
+			Assertions.assertArrayEquals(Files.readAllBytes(path), contents.get(path),
+										 "Invalid content of " + path.getFileName());
+		}
+		
+		paths.add(root.resolve("missing.bin"));
+		Assertions.assertThrows(NoSuchFileException.class, () -> UResource.readAll(paths),
+								"A missing file was read");
+		
+		System.out.printf("Read %d files through io_uring%n", contents.size());
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uoxx3.io.internal.UBufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+class UBufferPoolTest {
+	
+	@Test
+	public void sizeClassTest() {
+		UBufferPool pool = new UBufferPool(3000, 5000, 2, false, false);
+		
+		Assertions.assertEquals(4096, pool.acquire(0).capacity(),
+								"The minimum class was not rounded up to a power of two");
+		Assertions.assertEquals(4096, pool.acquire(4096).capacity(),
+								"A size of a class was rounded up");
+		Assertions.assertEquals(8192, pool.acquire(4097).capacity(),
+								"The size was not rounded up to the next class");
+		Assertions.assertEquals(8192, pool.acquire(8192).capacity(),
+								"The maximum class was not rounded up to a power of two");
+		Assertions.assertEquals(8193, pool.acquire(8193).capacity(),
+								"Sizes beyond the largest class are not allocated exactly");
+		Assertions.assertFalse(pool.acquire(1).isDirect(),
+							   "The heap pool allocated a direct buffer");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> pool.acquire(-1),
+								"A negative size was accepted");
+		
+		System.out.printf("Classes of %d and %d bytes%n", 4096, 8192);
+	}
+	
+	@Test
+	public void reuseTest() {
+		UBufferPool pool = new UBufferPool(4 << 10, 1 << 20, 2);
+		
+		// Small classes are kept in the slots of the thread
+		ByteBuffer small = pool.acquire(5000);
+		small.putInt(42).order(ByteOrder.LITTLE_ENDIAN);
+		pool.release(small);
+		ByteBuffer reused = pool.acquire(6000);
+		Assertions.assertSame(small, reused,
+							  "The buffer of the thread slot was not reused");
+		Assertions.assertEquals(0, reused.position(),
+								"The reused buffer was not cleared");
+		Assertions.assertEquals(ByteOrder.BIG_ENDIAN, reused.order(),
+								"The order of the reused buffer was not reset");
+		
+		// Large classes go through the shared queues
+		ByteBuffer large = pool.acquire(1 << 20);
+		pool.release(large);
+		Assertions.assertSame(large, pool.acquire(1 << 20),
+							  "The buffer of the shared queue was not reused");
+		
+		// Buffers of another kind are ignored
+		pool.release(ByteBuffer.allocate(8192));
+		Assertions.assertTrue(pool.acquire(8192).isDirect(),
+							  "A heap buffer was pooled by the direct pool");
+		
+		System.out.printf("Reused buffers of %d and %d bytes%n", small.capacity(), large.capacity());
+	}
+	
+	@Test
+	public void doubleReleaseTest() {
+		UBufferPool pool = new UBufferPool(4 << 10, 1 << 20, 2, true, true);
+		ByteBuffer buffer = pool.acquire(100);
+		pool.release(buffer);
+		
+		Assertions.assertThrows(IllegalStateException.class, () -> pool.release(buffer),
+								"A released buffer was released again");
+		Assertions.assertThrows(IllegalStateException.class, () -> pool.release(ByteBuffer.allocateDirect(4096)),
+								"A foreign buffer was released");
+		
+		// The test task enables the tracking of the shared pools with -Duoxx3.io.buffers.debug
+		if (UBufferPool.DEBUG) {
+			ByteBuffer shared = UBufferPool.SHARED.acquire(100);
+			UBufferPool.SHARED.release(shared);
+			Assertions.assertThrows(IllegalStateException.class, () -> UBufferPool.SHARED.release(shared),
+									"The shared pool accepted a double release in debug mode");
+		}
+		
+		System.out.printf("Double release rejected, debug: %b%n", UBufferPool.DEBUG);
+	}
+	
+	@Test
+	public void leakTest() throws InterruptedException {
+		UBufferPool pool = new UBufferPool(4 << 10, 1 << 20, 2, false, true);
+		pool.release(pool.acquire(100));
+		leak(pool);
+		
+		for (int i = 0; i < 50 && pool.leaks() == 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		Assertions.assertEquals(1, pool.leaks(),
+								"The buffer collected without being released was not reported");
+		Assertions.assertEquals(0, new UBufferPool(4 << 10, 1 << 20, 2).leaks(),
+								"A pool without tracking reported leaks");
+		
+		System.out.printf("Leaked buffers: %d%n", pool.leaks());
+	}
+	
+	@Test
+	public void readSizeTest(@TempDir Path root) {
+		int size = UBufferPool.readSize(root.resolve("file.bin"));
+		
+		Assertions.assertEquals(1, Integer.bitCount(size),
+								"The read size is not a power of two");
+		Assertions.assertTrue(size >= UFSConstants.FS_READ_BUFFER_SIZE && size <= 1 << 20,
+							  "The read size is out of bounds: " + size);
+		Assertions.assertEquals(size, UBufferPool.readSize(root.resolve("other.bin")),
+								"Files of the same directory have different read sizes");
+		Assertions.assertEquals(UFSConstants.FS_READ_BUFFER_SIZE, UBufferPool.readSize(root.getRoot()),
+								"The root directory did not use the default size");
+		
+		System.out.printf("Read size: %d%n", size);
+	}
+	
+	/**
+	 * Acquires a buffer and drops it, in a separate frame so it can be collected.
+	 */
+	private static void leak(UBufferPool pool) {
+		pool.acquire(200).put((byte) 1);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+class UContentStoreTest {
+	
+	@Test
+	public void putTest(@TempDir Path root) throws Exception {
+		byte[] content = "stored content".getBytes(StandardCharsets.UTF_8);
+		String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		UContentStore store = new UContentStore(root.resolve("store"), "SHA-256", 1024);
+		
+		String digest = store.put(new ByteArrayInputStream(content));
+		Assertions.assertEquals(expected, digest,
+								"The digest is not the lowercase hexadecimal digest of the content");
+		Assertions.assertEquals(expected, UResourceHash.hashStr(HexFormat.of().parseHex(expected)),
+								"hashStr does not match HexFormat");
+		Assertions.assertArrayEquals(content, Files.readAllBytes(store.get(digest)),
+									 "Invalid stored content");
+		Assertions.assertEquals(root.resolve("store/objects").resolve(digest.substring(0, 2))
+									.resolve(digest.substring(2, 4)).resolve(digest), store.get(digest),
+								"Invalid fan-out location");
+		
+		// The same content from a file is stored once
+		Path file = Files.write(root.resolve("file.txt"), content);
+		Assertions.assertEquals(digest, store.put(file),
+								"The same content has another digest");
+		Assertions.assertEquals(List.of(digest), store.digests(),
+								"The same content was stored twice");
+		
+		// A reopened store knows the existing objects
+		UContentStore reopened = new UContentStore(root.resolve("store"), "SHA-256", 1024);
+		Assertions.assertTrue(reopened.contains(digest),
+							  "The reopened store does not contain the object");
+		Assertions.assertFalse(reopened.contains("00".repeat(32)),
+							   "The reopened store contains an unknown object");
+		Assertions.assertThrows(NoSuchFileException.class, () -> reopened.get("00".repeat(32)),
+								"An unknown object was found");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> reopened.get("XYZ"),
+								"An invalid digest was accepted");
+		
+		Assertions.assertTrue(store.delete(digest),
+							  "The object was not deleted");
+		Assertions.assertFalse(store.contains(digest),
+							   "The deleted object is still stored");
+		
+		System.out.printf("Stored: %s%n", digest);
+	}
+	
+	@Test
+	public void materializeTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		UContentStore store = new UContentStore(root.resolve("store"));
+		String digest = store.put(new ByteArrayInputStream("materialized".getBytes(StandardCharsets.UTF_8)));
+		
+		Path target = store.materialize(digest, root.resolve("target.txt"));
+		Assertions.assertEquals("materialized", Files.readString(target),
+								"Invalid materialized content");
+		Assertions.assertThrows(IOException.class, () -> store.materialize(digest, target),
+								"An existing target was replaced");
+		
+		// The materialized file keeps its content when the object is deleted
+		store.delete(digest);
+		Assertions.assertEquals("materialized", Files.readString(target),
+								"The materialized file lost its content");
+		
+		System.out.printf("Materialized: %s%n", target);
+	}
+	
+	@Test
+	public void concurrentPutTest(@TempDir Path root) throws Exception {
+		byte[] content = new byte[4 << 20];
+		new Random(7).nextBytes(content);
+		Path file = Files.write(root.resolve("large.bin"), content);
+		UContentStore store = new UContentStore(root.resolve("store"));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> puts = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				puts.add(executor.submit(() -> store.put(file)));
+			}
+			String digest = puts.get(0).get();
+			for (Future<String> put : puts) {
+				Assertions.assertEquals(digest, put.get(),
+										"Concurrent puts of the same content have different digests");
+			}
+			Assertions.assertEquals(List.of(digest), store.digests(),
+									"The content was stored more than once");
+			try (Stream<Path> staging = Files.list(root.resolve("store/tmp"))) {
+				Assertions.assertEquals(0, staging.count(),
+										"Staging files were left behind");
+			}
+			
+			System.out.printf("Stored concurrently: %s%n", digest);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+}
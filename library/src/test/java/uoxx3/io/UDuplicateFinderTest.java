@@ -0,0 +1,106 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+class UDuplicateFinderTest {
+	
+	@Test
+	public void findTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		byte[] large = new byte[64 << 10];
+		new Random(9).nextBytes(large);
+		Files.createDirectories(root.resolve("a/b"));
+		
+		// Small duplicates are confirmed by the sample alone
+		Files.writeString(root.resolve("small-1.txt"), "duplicated");
+		Files.writeString(root.resolve("a/small-2.txt"), "duplicated");
+		Files.writeString(root.resolve("a/b/small-3.txt"), "duplicated");
+		Files.writeString(root.resolve("a/other.txt"), "different!");
+		// Large files with the same head and tail only differ in the middle
+		Files.write(root.resolve("large-1.bin"), large);
+		Files.write(root.resolve("a/large-2.bin"), large);
+		large[large.length / 2] ^= 1;
+		Files.write(root.resolve("a/b/large-3.bin"), large);
+		// Empty files are never duplicates
+		Files.createFile(root.resolve("empty-1"));
+		Files.createFile(root.resolve("empty-2"));
+		
+		List<UDuplicateGroup> delivered = new ArrayList<>();
+		UDuplicateReport report = UDuplicateFinder.find(List.of(root), "SHA-256", null, delivered::add);
+		List<UDuplicateGroup> groups = new ArrayList<>(report.groups());
+		groups.sort(Comparator.comparingLong(UDuplicateGroup::size));
+		
+		Assertions.assertEquals(2, groups.size(),
+								"Invalid number of duplicate groups");
+		Assertions.assertEquals(List.of(root.resolve("a/b/small-3.txt"), root.resolve("a/small-2.txt"),
+										root.resolve("small-1.txt")), groups.get(0).paths(),
+								"Invalid small duplicate group");
+		Assertions.assertEquals(List.of(root.resolve("a/large-2.bin"), root.resolve("large-1.bin")),
+								groups.get(1).paths(),
+								"Invalid large duplicate group");
+		Assertions.assertEquals(UResourceHash.hashStr(root.resolve("large-1.bin"), "SHA-256"), groups.get(1).digest(),
+								"The group digest is not the full digest");
+		Assertions.assertEquals(2, delivered.size(),
+								"Not every group was delivered to the consumer");
+		Assertions.assertEquals(7, report.scannedFiles(),
+								"Invalid number of scanned files");
+		Assertions.assertEquals(3, report.hashedFiles(),
+								"Only the large files with the same sample need a full hash");
+		Assertions.assertEquals(2L * 10 + large.length, report.wastedBytes(),
+								"Invalid wasted bytes");
+		
+		System.out.printf("Groups: %s%n", groups);
+	}
+	
+	@Test
+	public void cacheTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		byte[] large = new byte[64 << 10];
+		new Random(10).nextBytes(large);
+		Files.createDirectories(root.resolve("tree"));
+		Path first = Files.write(root.resolve("tree/first.bin"), large);
+		Files.write(root.resolve("tree/second.bin"), large);
+		
+		UHashCache cache = new UHashCache("SHA-256");
+		UDuplicateFinder.find(List.of(root.resolve("tree")), "SHA-256", cache);
+		Assertions.assertEquals(2, cache.size(),
+								"The full digests were not cached");
+		
+		// The cache survives between runs and replaces the full hashes
+		Path file = root.resolve("hashes.txt");
+		cache.save(file);
+		UHashCache loaded = UHashCache.load(file, "SHA-256");
+		UDuplicateReport report = UDuplicateFinder.find(List.of(root.resolve("tree")), "SHA-256", loaded);
+		Assertions.assertEquals(1, report.groups().size(),
+								"The cached digests did not find the duplicates");
+		Assertions.assertEquals(0, report.hashedFiles(),
+								"The cached files were hashed again");
+		
+		// Entries of changed files and of other algorithms are not used
+		BasicFileAttributes attributes = Files.readAttributes(first, BasicFileAttributes.class);
+		Assertions.assertNotNull(loaded.get(first, attributes),
+								 "The unchanged file has no cached digest");
+		Files.setLastModifiedTime(first, FileTime.fromMillis(attributes.lastModifiedTime().toMillis() + 2000));
+		Assertions.assertNull(loaded.get(first, Files.readAttributes(first, BasicFileAttributes.class)),
+							  "The digest of a changed file was returned");
+		Assertions.assertEquals(0, UHashCache.load(file, "SHA-1").size(),
+								"Entries of another algorithm were loaded");
+		Assertions.assertThrows(IllegalArgumentException.class,
+								() -> UDuplicateFinder.find(List.of(root), "SHA-1", loaded),
+								"A cache of another algorithm was accepted");
+		
+		System.out.printf("Cached digests: %d%n", loaded.size());
+	}
+	
+}
\ No newline at end of file
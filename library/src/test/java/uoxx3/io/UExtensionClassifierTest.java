@@ -0,0 +1,89 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class UExtensionClassifierTest {
+	
+	@Test
+	public void classifyTest() {
+		UExtensionClassifier<String> classifier = UExtensionClassifier.of(Map.of(
+			"gz", "compressed",
+			".tar.gz", "archive",
+			"JSON", "data"));
+		
+		Assertions.assertEquals("archive", classifier.classify("backup.tar.gz"),
+								"The longest extension was not matched");
+		Assertions.assertEquals("compressed", classifier.classify("/var/log/system.log.gz"),
+								"Invalid category of a single extension");
+		Assertions.assertEquals("data", classifier.classify("C:\\config\\Settings.Json"),
+								"The extension was not compared ignoring case");
+		Assertions.assertEquals("compressed", classifier.classify("  dir|file.gz//  "),
+								"Trailing separators and spaces were not ignored");
+		Assertions.assertNull(classifier.classify("archive.gz/readme"),
+							  "The extension of a directory was matched");
+		Assertions.assertNull(classifier.classify("gz"),
+							  "A name without extension was matched");
+		Assertions.assertNull(classifier.classify("file.tgz"),
+							  "A partial extension was matched");
+		Assertions.assertEquals("none", classifier.classify("file.txt", "none"),
+								"The default value was not returned");
+		
+		System.out.printf("Categories: %s%n", classifier.categories());
+	}
+	
+	@Test
+	public void trailingDotTest() {
+		UExtensionClassifier<String> classifier = UExtensionClassifier.of(Map.of("gz", "compressed"));
+		
+		// Empty trailing extensions are discarded by UResourceName, so the classifier ignores them too
+		String[] names = {"file.gz.", "file.gz..", "dir/file.gz./", "file.", ".", "file..gz"};
+		for (String name : names) {
+			UResourceName parsed = UResourceName.of(name);
+			String expected = parsed.extensionCount() > 0 &&
+				parsed.extension(parsed.extensionCount() - 1).equals("gz") ? "compressed" : null;
+			Assertions.assertEquals(expected, classifier.classify(name),
+									"Inconsistent category of \"%s\"".formatted(name));
+		}
+		Assertions.assertEquals("compressed", classifier.classify("file.gz."),
+								"The trailing dot was not ignored");
+		
+		System.out.printf("Classified %d names with trailing dots%n", names.length);
+	}
+	
+	@Test
+	public void bulkTest() {
+		UExtensionClassifier<String> classifier = UExtensionClassifier.of(Map.of("png", "image", "jpg", "image"));
+		CharSequence[] names = {"a.png", "b.JPG", "c.txt", new StringBuilder("d.png")};
+		
+		Assertions.assertArrayEquals(new int[]{0, 0, UExtensionClassifier.NO_CATEGORY, 0},
+									 classifier.categoryIndexes(names),
+									 "Invalid category indexes");
+		String[] result = new String[names.length];
+		classifier.classifyAll(names, result);
+		Assertions.assertArrayEquals(new String[]{"image", "image", null, "image"}, result,
+									 "Invalid categories");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> classifier.classifyAll(names, new String[1]),
+								"Arrays of different lengths were accepted");
+		
+		System.out.printf("Categories: %s%n", classifier.categories());
+	}
+	
+	@Test
+	public void invalidTest() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+								() -> UExtensionClassifier.of(Map.of("gz", "compressed", "GZ", "archive")),
+								"Conflicting categories were accepted");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> UExtensionClassifier.of(Map.of("gz.", "x")),
+								"An extension ending with a dot was accepted");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> UExtensionClassifier.of(Map.of("a/b", "x")),
+								"An extension with a separator was accepted");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> UExtensionClassifier.of(Map.of(".", "x")),
+								"An empty extension was accepted");
+		
+		System.out.println("Invalid extensions rejected");
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package uoxx3.io;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+class UFilesystemTest {
+	
+	@Test
+	public void eventsTest(@TempDir Path root) throws IOException {
+		Path jar = root.resolve("events.jar");
+		try (OutputStream out = Files.newOutputStream(jar);
+			 ZipOutputStream zip = new ZipOutputStream(out)) {
+			zip.putNextEntry(new ZipEntry("entry.txt"));
+			zip.write("Hello world".getBytes(StandardCharsets.UTF_8));
+		}
+		String archive = "jar:" + jar.toUri();
+		
+		Path dump = root.resolve("events.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("uoxx3.io.FilesystemMount").withoutThreshold();
+			recording.enable("uoxx3.io.FilesystemClose").withoutThreshold();
+			recording.start();
+			
+			FileSystem fs = UFilesystem.filesystem(URI.create(archive + "!/entry.txt"));
+			UFilesystem.filesystem(URI.create(archive + "!/"));
+			UFilesystem.closeFilesystemsIf(fs::equals);
+			
+			recording.stop();
+			recording.dump(dump);
+		}
+		
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		List<RecordedEvent> mounts = events.stream()
+			.filter(event -> event.getEventType().getName().equals("uoxx3.io.FilesystemMount"))
+			.toList();
+		List<RecordedEvent> closes = events.stream()
+			.filter(event -> event.getEventType().getName().equals("uoxx3.io.FilesystemClose"))
+			.toList();
+		
+		Assertions.assertEquals(2, mounts.size(),
+								"Invalid number of mount events");
+		Assertions.assertEquals(1, closes.size(),
+								"Invalid number of close events");
+		for (RecordedEvent mount : mounts) {
+			Assertions.assertEquals(archive, mount.getString("archive"),
+									"Invalid archive of the mount event");
+		}
+		Assertions.assertEquals(1, mounts.stream().filter(mount -> mount.getBoolean("reused")).count(),
+								"Invalid number of reused mounts");
+		Assertions.assertEquals(archive, closes.get(0).getString("archive"),
+								"The close event does not report the mounted archive");
+		
+		System.out.printf("Mounted and closed %s%n", archive);
+	}
+	
+}
\ No newline at end of file
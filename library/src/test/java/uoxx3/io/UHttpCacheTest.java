@@ -0,0 +1,221 @@
+package uoxx3.io;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class UHttpCacheTest {
+	
+	@Test
+	public void fetchTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		AtomicInteger transfers = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> serve(exchange, transfers));
+		server.start();
+		try {
+			String base = "http://127.0.0.1:%d/".formatted(server.getAddress().getPort());
+			URI schema = URI.create(base + "schema.json");
+			URI copy = URI.create(base + "copy/schema.json");
+			UHttpCache cache = new UHttpCache(root, 1 << 20);
+			
+			Path body = cache.fetch(schema);
+			Assertions.assertEquals("{\"schema\": 1}", Files.readString(body),
+									"Invalid cached body");
+			Assertions.assertEquals(body, cache.fetch(schema),
+									"The revalidated body is not the cached one");
+			Assertions.assertEquals(body, cache.fetch(copy),
+									"Identical bodies were stored twice");
+			Assertions.assertEquals(2, transfers.get(),
+									"The cached body was transferred again");
+			
+			// The index survives between runs, bodies the index does not reference are deleted
+			String orphan = new UContentStore(root.resolve("store")).put(new ByteArrayInputStream(new byte[]{1, 2}));
+			UHttpCache reopened = new UHttpCache(root, 1 << 20);
+			Assertions.assertFalse(new UContentStore(root.resolve("store")).contains(orphan),
+								   "The unreferenced body was not deleted");
+			reopened.fetch(schema);
+			Assertions.assertEquals(2, transfers.get(),
+									"The reopened cache did not revalidate the body");
+			Assertions.assertEquals(1, reopened.stats().hits(),
+									"The revalidation was not counted as a hit");
+			
+			// Bodies of 14 bytes, only the most recently fetched one fits
+			UHttpCache small = new UHttpCache(root.resolve("small"), 20);
+			small.fetch(URI.create(base + "large-a"));
+			small.fetch(URI.create(base + "large-b"));
+			Assertions.assertEquals(1, small.stats().evictions(),
+									"The least recently fetched body was not evicted");
+			Assertions.assertEquals(1, small.stats().entries(),
+									"Invalid number of cached resources");
+			Assertions.assertTrue(small.stats().bytes() <= small.maxBytes(),
+								  "The cached bodies exceed the capacity");
+			
+			// A body larger than the whole capacity is returned but not cached
+			Path huge = small.fetch(URI.create(base + "huge"));
+			Assertions.assertEquals("huge".repeat(10), Files.readString(huge),
+									"Invalid body larger than the capacity");
+			Assertions.assertEquals(1, small.stats().entries(),
+									"The body larger than the capacity was cached");
+			Assertions.assertTrue(small.stats().bytes() <= small.maxBytes(),
+								  "The cached bodies exceed the capacity");
+			small.fetch(URI.create(base + "large-a"));
+			Assertions.assertFalse(Files.exists(huge),
+								   "The body larger than the capacity was kept after the next fetch");
+			
+			// A cache reopened with a smaller capacity evicts down to it
+			UHttpCache smaller = new UHttpCache(root.resolve("small"), 10);
+			Assertions.assertEquals(0, smaller.stats().entries(),
+									"The reopened cache exceeds its capacity");
+			
+			System.out.printf("Stats: %s%n", reopened.stats());
+		} finally {
+			server.stop(0);
+		}
+	}
+	
+	@Test
+	public void coalesceTest(@TempDir Path root) throws Exception {
+		AtomicInteger transfers = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(8);
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			// The first request is held until every fetch has started
+			try {
+				started.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			serve(exchange, transfers);
+		});
+		server.start();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			UHttpCache cache = new UHttpCache(root, 1 << 20);
+			URI uri = URI.create("http://127.0.0.1:%d/schema.json".formatted(server.getAddress().getPort()));
+			List<Future<Path>> fetches = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				fetches.add(executor.submit(() -> {
+					started.countDown();
+					return cache.fetch(uri);
+				}));
+			}
+			
+			// A fetch that starts after the shared request completed only revalidates the body
+			Path body = fetches.get(0).get();
+			for (Future<Path> fetch : fetches) {
+				Assertions.assertEquals(body, fetch.get(),
+										"A concurrent fetch returned another body");
+			}
+			Assertions.assertEquals(1, transfers.get(),
+									"Concurrent fetches of the same resource transferred the body several times");
+			Assertions.assertEquals(1, cache.stats().misses(),
+									"Concurrent fetches of the same resource stored the body several times");
+			
+			System.out.printf("Stats: %s%n", cache.stats());
+		} finally {
+			executor.shutdownNow();
+			server.stop(0);
+		}
+	}
+	
+	@Test
+	public void lastModifiedTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		AtomicReference<String> modified = new AtomicReference<>("Wed, 21 Oct 2015 07:28:00 GMT");
+		AtomicReference<String> condition = new AtomicReference<>();
+		AtomicInteger transfers = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			// No entity tag, only the modification date validates the body
+			String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+			condition.set(since);
+			exchange.getResponseHeaders().add("Last-Modified", modified.get());
+			if (modified.get().equals(since)) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			
+			byte[] body = modified.get().getBytes(StandardCharsets.UTF_8);
+			transfers.incrementAndGet();
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		try {
+			UHttpCache cache = new UHttpCache(root, 1 << 20);
+			URI uri = URI.create("http://127.0.0.1:%d/report.txt".formatted(server.getAddress().getPort()));
+			
+			cache.fetch(uri);
+			Assertions.assertNull(condition.get(),
+								  "The first fetch was conditional");
+			Assertions.assertEquals(modified.get(), cache.fetchString(uri),
+									"Invalid revalidated body");
+			Assertions.assertEquals(modified.get(), condition.get(),
+									"The revalidation did not send If-Modified-Since");
+			Assertions.assertEquals(1, transfers.get(),
+									"The unmodified body was transferred again");
+			Assertions.assertEquals(1, cache.stats().hits(),
+									"The revalidation was not counted as a hit");
+			
+			// A newer modification date transfers the new body
+			modified.set("Thu, 22 Oct 2015 07:28:00 GMT");
+			Assertions.assertEquals(modified.get(), cache.fetchString(uri),
+									"The modified body was not transferred");
+			Assertions.assertEquals(2, transfers.get(),
+									"Invalid number of transfers");
+			
+			System.out.printf("Stats: %s%n", cache.stats());
+		} finally {
+			server.stop(0);
+		}
+	}
+	
+	/**
+	 * Serves a body derived from the file name, answering conditional requests of unchanged
+	 * bodies with 304.
+	 */
+	private static void serve(HttpExchange exchange, AtomicInteger transfers) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		String content = name.startsWith("large") ? name.repeat(2) : "{\"schema\": 1}";
+		byte[] body = (name.equals("huge") ? name.repeat(10) : content).getBytes(StandardCharsets.UTF_8);
+		String etag = "\"" + body.length + "-" + name.charAt(0) + "\"";
+		
+		exchange.getResponseHeaders().add("ETag", etag);
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+		
+		transfers.incrementAndGet();
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package uoxx3.io;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class UHttpDownloaderTest {
+	
+	@Test
+	public void downloadTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		byte[] content = new byte[10 << 20];
+		new Random(3).nextBytes(content);
+		String expected = UResourceHash.hashStr(MessageDigest.getInstance("SHA-256").digest(content));
+		AtomicBoolean broken = new AtomicBoolean(true);
+		
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/artifact.bin", exchange -> serve(exchange, content, broken.get()));
+		server.createContext("/artifact.bin.empty", UHttpDownloaderTest::serveEmpty);
+		// The ranges are requested in parallel, so they are served in parallel too
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		server.setExecutor(executor);
+		server.start();
+		try {
+			URI uri = URI.create("http://127.0.0.1:%d/artifact.bin".formatted(server.getAddress().getPort()));
+			Path target = root.resolve("artifact.bin");
+			UHttpDownloader downloader = new UHttpDownloader();
+			
+			// The server drops the ranges of the second half, the chunks before them are kept for the next attempt
+			Assertions.assertThrows(IOException.class, () -> downloader.download(uri, target, "SHA-256", expected),
+									"The broken download completed");
+			Assertions.assertFalse(Files.exists(target),
+								   "The target was replaced by a partial download");
+			
+			broken.set(false);
+			UDownloadResult result = downloader.download(uri, target, "SHA-256", expected);
+			Assertions.assertEquals(expected, result.digestStr(),
+									"Invalid digest of the download");
+			Assertions.assertTrue(result.resumedBytes() > 0,
+								  "The interrupted download was not resumed");
+			Assertions.assertArrayEquals(content, Files.readAllBytes(target),
+										 "Invalid content of the download");
+			
+			Assertions.assertThrows(IOException.class, () -> downloader.download(uri, target, "SHA-256", "00"),
+									"A wrong digest was accepted");
+			Assertions.assertArrayEquals(content, Files.readAllBytes(target),
+										 "A download with a wrong digest replaced the target");
+			
+			// Empty resources answer the range probe with 416
+			Path empty = root.resolve("empty.bin");
+			Assertions.assertEquals(0, downloader.download(URI.create(uri + ".empty"), empty).bytes(),
+									"Invalid size of an empty download");
+			Assertions.assertEquals(0, Files.size(empty),
+									"The empty download is not empty");
+			
+			System.out.printf("Downloaded %d bytes in %d connections, %d resumed%n", result.bytes(), result.ranges(),
+							  result.resumedBytes());
+		} finally {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Serves a single range of the content. The broken server only sends the first half of the
+	 * ranges in the second half of the content.
+	 */
+	private static void serve(HttpExchange exchange, byte[] content, boolean broken) throws IOException {
+		long first = 0;
+		long last = content.length - 1;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		if (range != null) {
+			String[] bounds = range.substring("bytes=".length()).split("-");
+			first = Long.parseLong(bounds[0]);
+			last = Long.parseLong(bounds[1]);
+			exchange.getResponseHeaders().add("Content-Range", "bytes %d-%d/%d".formatted(first, last,
+																						   content.length));
+		}
+		exchange.getResponseHeaders().add("ETag", "\"artifact-1\"");
+		
+		// The broken server sends a chunked body, so it can end before the whole range is written
+		int length = (int) (last - first + 1);
+		broken &= first >= content.length / 2;
+		exchange.sendResponseHeaders(range != null ? 206 : 200, broken ? 0 : length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(content, (int) first, broken && length > 1 ? length / 2 : length);
+		}
+	}
+	
+	/**
+	 * Serves an empty body, rejecting every range as a real server does.
+	 */
+	private static void serveEmpty(HttpExchange exchange) throws IOException {
+		if (exchange.getRequestHeaders().getFirst("Range") != null) {
+			exchange.getResponseHeaders().add("Content-Range", "bytes */0");
+			exchange.sendResponseHeaders(416, -1);
+		} else {
+			exchange.sendResponseHeaders(200, -1);
+		}
+		exchange.close();
+	}
+	
+}
\ No newline at end of file
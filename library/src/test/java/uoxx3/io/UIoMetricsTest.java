@@ -0,0 +1,63 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+class UIoMetricsTest {
+	
+	@Test
+	public void metricsTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		Path jar = root.resolve("metrics.jar");
+		try (OutputStream out = Files.newOutputStream(jar);
+			 ZipOutputStream zip = new ZipOutputStream(out)) {
+			zip.putNextEntry(new ZipEntry("entry.txt"));
+			zip.write("Hello world".getBytes(StandardCharsets.UTF_8));
+		}
+		
+		UIoMetrics metrics = new UIoMetrics();
+		UIoMetricsListener.register(metrics);
+		try {
+			URI entry = URI.create("jar:" + jar.toUri() + "!/entry.txt");
+			UResource.pathOf(entry);
+			Path path = UResource.pathOf(entry);
+			UResourceHash.hash(path, "SHA-256");
+			UFilesystem.closeFilesystemsIf(fs -> fs.equals(path.getFileSystem()));
+		} finally {
+			UIoMetricsListener.unregister(metrics);
+		}
+		
+		UIoMetricsSnapshot snapshot = metrics.snapshot();
+		Assertions.assertEquals(2, snapshot.mounts(),
+								"Invalid number of mounts");
+		Assertions.assertEquals(1, snapshot.reusedMounts(),
+								"Invalid number of reused mounts");
+		Assertions.assertEquals(1, snapshot.closes(),
+								"Invalid number of closes");
+		Assertions.assertEquals(0.5, snapshot.resolveHitRate(),
+								"Invalid resolve hit rate");
+		Assertions.assertEquals(11, snapshot.hashedBytes(),
+								"Invalid number of hashed bytes");
+		Assertions.assertEquals(1, snapshot.mountLatency().count(),
+								"Invalid mount latency count");
+		Assertions.assertTrue(snapshot.resolveLatency().percentile(0.99) >= snapshot.resolveLatency().percentile(0.5),
+							  "Invalid resolve percentiles");
+		
+		metrics.reset();
+		Assertions.assertEquals(0, metrics.snapshot().resolves(),
+								"The metrics were not reset");
+		
+		System.out.printf("Metrics: %s%n", snapshot);
+	}
+	
+}
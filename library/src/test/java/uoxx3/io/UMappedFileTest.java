@@ -0,0 +1,88 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+class UMappedFileTest {
+	
+	@Test
+	public void implementationTest(@TempDir Path root) throws IOException {
+		Path file = Files.write(root.resolve("data.bin"), new byte[16]);
+		
+		// The java22Test task runs the tests against the versioned classes of the multi-release jar
+		String expected = Runtime.version().feature() >= 22 ? "USegmentMapping" : "UWindowedMapping";
+		try (UMappedFile mapped = UResource.map(file)) {
+			Assertions.assertEquals(expected, mapped.getClass().getSimpleName(),
+									"The mapping of this Java version was not used");
+		}
+		
+		System.out.printf("Java %d mapping: %s%n", Runtime.version().feature(), expected);
+	}
+	
+	@Test
+	public void orderTest(@TempDir Path root) throws IOException {
+		ByteBuffer content = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < content.capacity() / Long.BYTES; i++) {
+			content.putLong(i * 0x0101010101010101L);
+		}
+		Path file = Files.write(root.resolve("values.bin"), content.array());
+		
+		try (UMappedFile mapped = UResource.map(file, ByteOrder.LITTLE_ENDIAN)) {
+			Assertions.assertEquals(ByteOrder.LITTLE_ENDIAN, mapped.order(),
+									"Invalid byte order");
+			Assertions.assertEquals(3 * 0x0101010101010101L, mapped.getLong(3 * Long.BYTES),
+									"Invalid little-endian long");
+			// Unaligned reads cross the boundary of two values
+			Assertions.assertEquals(0x0202020201010101L, mapped.getLong(Long.BYTES + 4),
+									"Invalid unaligned long");
+			Assertions.assertEquals(0x0303, mapped.getShort(3 * Long.BYTES),
+									"Invalid little-endian short");
+			
+			byte[] bytes = new byte[Long.BYTES];
+			mapped.get(511 * Long.BYTES, bytes, 0, bytes.length);
+			Assertions.assertArrayEquals(Arrays.copyOfRange(content.array(), 511 * Long.BYTES, 512 * Long.BYTES), bytes,
+										 "Invalid bulk read");
+			
+			ByteBuffer slice = mapped.slice(Long.BYTES, Long.BYTES);
+			Assertions.assertTrue(slice.isReadOnly(),
+								  "The slice is writable");
+			Assertions.assertEquals(0x0101010101010101L, slice.getLong(),
+									"The slice does not use the byte order of the mapping");
+			Assertions.assertThrows(IndexOutOfBoundsException.class, () -> mapped.get(4090, bytes, 0, bytes.length),
+									"A bulk read out of the file was accepted");
+		}
+		
+		System.out.printf("Mapped %d values%n", content.capacity() / Long.BYTES);
+	}
+	
+	@Test
+	public void closeTest(@TempDir Path root) throws IOException {
+		Path empty = Files.write(root.resolve("empty.bin"), new byte[0]);
+		try (UMappedFile mapped = UResource.map(empty)) {
+			Assertions.assertEquals(0, mapped.size(),
+									"Invalid size of an empty mapping");
+			Assertions.assertThrows(IndexOutOfBoundsException.class, () -> mapped.getByte(0),
+									"Read out of an empty mapping");
+		}
+		
+		Path file = Files.write(root.resolve("file.bin"), new byte[64]);
+		UMappedFile mapped = UResource.map(file);
+		mapped.close();
+		mapped.close();
+		Assertions.assertFalse(mapped.isOpen(),
+							   "The mapping is still open after a second close");
+		Assertions.assertThrows(IllegalStateException.class, () -> mapped.getInt(0),
+								"Read after close");
+		
+		System.out.printf("Closed: %s%n", file);
+	}
+	
+}
\ No newline at end of file
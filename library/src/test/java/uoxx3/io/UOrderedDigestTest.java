@@ -0,0 +1,86 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uoxx3.io.internal.UBufferPool;
+import uoxx3.io.internal.UOrderedDigest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+class UOrderedDigestTest {
+	
+	private static final int CHUNK_SIZE = 1024;
+	private static final int CHUNKS = 64;
+	
+	@Test
+	public void concurrentDigestTest(@TempDir Path root) throws Exception {
+		byte[] content = new byte[CHUNKS * CHUNK_SIZE - 100];
+		Random random = new Random(11);
+		random.nextBytes(content);
+		byte[] expected = MessageDigest.getInstance("SHA-256").digest(content);
+		Path file = Files.write(root.resolve("chunks.bin"), content);
+		
+		// Many rounds, so the workers race for the drain in different orders
+		for (int round = 0; round < 200; round++) {
+			boolean[] stored = new boolean[CHUNKS];
+			for (int i = 0; i < CHUNKS; i++) {
+				stored[i] = random.nextInt(3) == 0;
+			}
+			Assertions.assertArrayEquals(expected, digest(file, content, stored),
+										 "Invalid digest in round " + round);
+		}
+		
+		System.out.printf("Digested %d rounds of %d chunks%n", 200, CHUNKS);
+	}
+	
+	private static byte[] digest(Path file, byte[] content, boolean[] stored) throws IOException,
+		NoSuchAlgorithmException, InterruptedException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			UOrderedDigest ordered = new UOrderedDigest(MessageDigest.getInstance("SHA-256"), channel, content.length,
+														CHUNK_SIZE, 4, stored);
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			List<Thread> workers = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				Thread thread = new Thread(() -> {
+					try {
+						int index;
+						while ((index = ordered.claim()) >= 0) {
+							int first = index * CHUNK_SIZE;
+							int size = Math.min(CHUNK_SIZE, content.length - first);
+							ByteBuffer buffer = UBufferPool.HEAP.acquire(size);
+							buffer.put(content, first, size);
+							if ((index & 1) == 0) Thread.yield();
+							ordered.completed(index, buffer.flip());
+						}
+					} catch (IOException | RuntimeException e) {
+						error.compareAndSet(null, e);
+						ordered.fail();
+					}
+				});
+				thread.start();
+				workers.add(thread);
+			}
+			
+			ordered.drain();
+			for (Thread thread : workers) {
+				thread.join();
+			}
+			Assertions.assertNull(error.get(),
+								  "A worker failed");
+			return ordered.digest();
+		}
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class UResourceCacheTest {
+	
+	@Test
+	public void readTest(@TempDir Path root) throws IOException {
+		Path file = root.resolve("config.json");
+		Files.writeString(file, "{\"version\": 1}");
+		UResourceCache cache = new UResourceCache(1 << 20);
+		
+		Assertions.assertEquals("{\"version\": 1}", text(cache.read(file)),
+								"Invalid content of the first read");
+		Assertions.assertEquals("{\"version\": 1}", text(cache.read(file)),
+								"Invalid content of the cached read");
+		Assertions.assertEquals(1, cache.stats().hits(),
+								"The second read was not a hit");
+		Assertions.assertEquals(1, cache.stats().misses(),
+								"The first read was not a miss");
+		
+		// The validation notices the change without any invalidation
+		Files.writeString(file, "{\"version\": 22}");
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+		Assertions.assertEquals("{\"version\": 22}", text(cache.read(file)),
+								"The changed resource was read from the cache");
+		Assertions.assertEquals(1, cache.stats().invalidations(),
+								"The outdated entry was not counted as invalidated");
+		
+		System.out.println(cache.stats());
+	}
+	
+	@Test
+	public void invalidateTest(@TempDir Path root) throws IOException {
+		Path file = root.resolve("config.json");
+		Files.writeString(file, "first");
+		UResourceCache cache = new UResourceCache(1 << 20, UResourceCache.DEFAULT_OFF_HEAP_THRESHOLD, false);
+		cache.read(file);
+		
+		// Without validation the entry is kept until it is invalidated
+		Files.writeString(file, "second");
+		Assertions.assertEquals("first", text(cache.read(file)),
+								"The unvalidated entry was not served from the cache");
+		cache.invalidate(file);
+		Assertions.assertEquals("second", text(cache.read(file)),
+								"The invalidated entry was served from the cache");
+		
+		cache.invalidateAll();
+		Assertions.assertEquals(0, cache.stats().entries(),
+								"The entries were not removed");
+		Assertions.assertEquals(2, cache.stats().invalidations(),
+								"Invalid number of invalidations");
+		
+		System.out.println(cache.stats());
+	}
+	
+	@Test
+	public void evictionTest(@TempDir Path root) throws IOException {
+		// Entries of 100 bytes, the cache holds 10 of them
+		UResourceCache cache = new UResourceCache(1000);
+		Path hot = root.resolve("hot.bin");
+		Files.write(hot, new byte[100]);
+		cache.read(hot);
+		cache.read(hot);
+		
+		// A scan of resources read only once does not flush the resource read twice
+		List<Path> scanned = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Path file = root.resolve("scan-" + i + ".bin");
+			Files.write(file, new byte[100]);
+			cache.read(file);
+			scanned.add(file);
+		}
+		Assertions.assertEquals(11, cache.stats().evictions(),
+								"Invalid number of evictions");
+		
+		long hits = cache.stats().hits();
+		cache.read(hot);
+		cache.read(scanned.get(19));
+		Assertions.assertEquals(hits + 2, cache.stats().hits(),
+								"The protected or the most recent resource was evicted");
+		cache.read(scanned.get(0));
+		Assertions.assertEquals(hits + 2, cache.stats().hits(),
+								"The least recently read resource was not evicted first");
+		
+		System.out.println(cache.stats());
+	}
+	
+	@Test
+	public void invalidateDuringLoadTest(@TempDir Path root) throws Exception {
+		// A named pipe blocks the load until the test writes the content
+		Path pipe = root.resolve("pipe");
+		boolean created;
+		try {
+			created = new ProcessBuilder("mkfifo", pipe.toString()).start().waitFor() == 0;
+		} catch (IOException e) {
+			created = false;
+		}
+		Assumptions.assumeTrue(created, "Named pipes are not supported");
+		
+		UResourceCache cache = new UResourceCache(1 << 20, UResourceCache.DEFAULT_OFF_HEAP_THRESHOLD, false);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<ByteBuffer> read = executor.submit(() -> cache.read(pipe));
+			
+			// Opening the pipe waits for the reader, so the load is in progress when it is invalidated
+			try (OutputStream out = Files.newOutputStream(pipe)) {
+				cache.invalidate(pipe);
+				out.write("outdated".getBytes(StandardCharsets.UTF_8));
+			}
+			Assertions.assertEquals("outdated", text(read.get()),
+									"Invalid content of the load");
+			Assertions.assertEquals(0, cache.stats().entries(),
+									"The content read before the invalidation was cached");
+			
+			System.out.println(cache.stats());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static String text(ByteBuffer buffer) {
+		return StandardCharsets.UTF_8.decode(buffer).toString();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+class UResourceChunkerTest {
+	
+	@Test
+	public void chunksTest() throws IOException, NoSuchAlgorithmException {
+		byte[] data = new byte[1 << 20];
+		new Random(7).nextBytes(data);
+		
+		List<UResourceChunk> chunks = UResourceChunker.chunks(new ByteArrayInputStream(data));
+		long expectedOffset = 0;
+		
+		for (UResourceChunk chunk : chunks) {
+			Assertions.assertEquals(expectedOffset, chunk.offset(),
+									"The chunks are not contiguous");
+			Assertions.assertTrue(chunk.length() <= UFSConstants.FS_CHUNK_MAX_SIZE,
+								  "The chunk exceeds the maximum size");
+			expectedOffset += chunk.length();
+		}
+		
+		Assertions.assertEquals(data.length, expectedOffset,
+								"The chunks do not cover the whole stream");
+		System.out.printf("Chunks: %d%n", chunks.size());
+	}
+	
+	@Test
+	public void shiftedChunksTest() throws IOException, NoSuchAlgorithmException {
+		byte[] data = new byte[1 << 20];
+		new Random(7).nextBytes(data);
+		
+		// Insert a few bytes at the beginning of the data
+		byte[] shifted = new byte[data.length + 13];
+		System.arraycopy(data, 0, shifted, 13, data.length);
+		
+		List<UResourceChunk> original = UResourceChunker.chunks(new ByteArrayInputStream(data));
+		List<UResourceChunk> modified = UResourceChunker.chunks(new ByteArrayInputStream(shifted));
+		Set<String> digests = new HashSet<>();
+		original.forEach(chunk -> digests.add(chunk.digestStr()));
+		
+		long shared = modified.stream()
+			.filter(chunk -> digests.contains(chunk.digestStr()))
+			.count();
+		
+		Assertions.assertTrue(shared >= original.size() - 2,
+							  "The insertion changed more than the surrounding chunks");
+		System.out.printf("Shared chunks: %d of %d%n", shared, original.size());
+	}
+	
+	@Test
+	public void chunkIndexTest() throws IOException, NoSuchAlgorithmException {
+		byte[] data = new byte[256 << 10];
+		new Random(11).nextBytes(data);
+		
+		UChunkIndex index = new UChunkIndex();
+		index.add(new ByteArrayInputStream(data));
+		index.add(new ByteArrayInputStream(data));
+		
+		UChunkReport report = index.report();
+		Assertions.assertEquals(2L * data.length, report.totalBytes(),
+								"Invalid total bytes");
+		Assertions.assertEquals(data.length, report.duplicateBytes(),
+								"Invalid duplicate bytes");
+		System.out.println(report);
+	}
+	
+}
\ No newline at end of file
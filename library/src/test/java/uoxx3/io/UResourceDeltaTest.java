@@ -0,0 +1,125 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class UResourceDeltaTest {
+	
+	@Test
+	public void deltaTest(@TempDir Path directory) throws IOException, NoSuchAlgorithmException {
+		byte[] oldData = new byte[(1 << 20) + 123];
+		new Random(3).nextBytes(oldData);
+		
+		// Modify a region and insert some bytes in the middle
+		byte[] newData = new byte[oldData.length + 100];
+		System.arraycopy(oldData, 0, newData, 0, 300_000);
+		System.arraycopy(oldData, 300_000, newData, 300_100, oldData.length - 300_000);
+		newData[700_000] ^= 0x5A;
+		
+		Path oldPath = Files.write(directory.resolve("old.bin"), oldData);
+		Path newPath = Files.write(directory.resolve("new.bin"), newData);
+		Path rebuilt = directory.resolve("rebuilt.bin");
+		
+		USignature signature = UResourceDelta.signature(oldPath);
+		List<UDeltaInstruction> instructions = new ArrayList<>();
+		UResourceDelta.delta(signature, newPath, instructions::add);
+		UResourceDelta.apply(oldPath, instructions, rebuilt);
+		
+		long literalBytes = instructions.stream()
+			.filter(UDeltaInstruction.Literal.class::isInstance)
+			.mapToLong(UDeltaInstruction::length)
+			.sum();
+		
+		Assertions.assertArrayEquals(newData, Files.readAllBytes(rebuilt),
+									 "The rebuilt resource is not equal");
+		Assertions.assertTrue(literalBytes < 4L * UResourceDelta.DEFAULT_BLOCK_SIZE,
+							  "The delta contains too many literal bytes");
+		
+		System.out.printf("Instructions: %d%n", instructions.size());
+		System.out.printf("Literal bytes: %d%n", literalBytes);
+	}
+	
+	@Test
+	public void serializationTest(@TempDir Path directory) throws IOException, NoSuchAlgorithmException {
+		byte[] oldData = new byte[200_000];
+		new Random(9).nextBytes(oldData);
+		byte[] newData = oldData.clone();
+		newData[10] ^= 1;
+		
+		// Signature round trip
+		ByteArrayOutputStream signatureOut = new ByteArrayOutputStream();
+		UResourceDelta.signature(new ByteArrayInputStream(oldData), 4096, "SHA-256")
+			.writeTo(signatureOut);
+		USignature signature = USignature.readFrom(new ByteArrayInputStream(signatureOut.toByteArray()));
+		
+		// Delta round trip
+		List<UDeltaInstruction> instructions = new ArrayList<>();
+		UResourceDelta.delta(signature, new ByteArrayInputStream(newData), instructions::add);
+		ByteArrayOutputStream deltaOut = new ByteArrayOutputStream();
+		UResourceDelta.writeDelta(instructions, deltaOut);
+		
+		List<UDeltaInstruction> decoded = new ArrayList<>();
+		UResourceDelta.readDelta(new ByteArrayInputStream(deltaOut.toByteArray()), decoded::add);
+		
+		Path oldPath = Files.write(directory.resolve("old.bin"), oldData);
+		ByteArrayOutputStream rebuilt = new ByteArrayOutputStream();
+		UResourceDelta.apply(oldPath, decoded, rebuilt);
+		
+		Assertions.assertArrayEquals(newData, rebuilt.toByteArray(),
+									 "The rebuilt resource is not equal");
+		System.out.printf("Delta size: %d bytes%n", deltaOut.size());
+	}
+	
+	@Test
+	public void segmentedDeltaTest(@TempDir Path directory) throws IOException, NoSuchAlgorithmException {
+		byte[] oldData = new byte[(1 << 20) + 321];
+		Random random = new Random(5);
+		random.nextBytes(oldData);
+		
+		// Heavily changed: every other 64 KB region is rewritten
+		byte[] newData = oldData.clone();
+		for (int i = 0; i < newData.length; i += 128 << 10) {
+			byte[] region = new byte[Math.min(64 << 10, newData.length - i)];
+			random.nextBytes(region);
+			System.arraycopy(region, 0, newData, i, region.length);
+		}
+		
+		Path oldPath = Files.write(directory.resolve("old.bin"), oldData);
+		Path newPath = Files.write(directory.resolve("new.bin"), newData);
+		Path rebuilt = directory.resolve("rebuilt.bin");
+		USignature signature = UResourceDelta.signature(oldPath, 4096, "SHA-256");
+		
+		// Segments of 40 KB, so there are more segments than processors and the matches cross their bounds
+		List<UDeltaInstruction> instructions = new ArrayList<>();
+		UResourceDelta.delta(signature, newPath, 40 << 10, instructions::add);
+		UResourceDelta.apply(oldPath, instructions, rebuilt);
+		Assertions.assertArrayEquals(newData, Files.readAllBytes(rebuilt),
+									 "The resource rebuilt from segments is not equal");
+		
+		// The copies of the segments of an unchanged file are merged into one
+		List<UDeltaInstruction> unchanged = new ArrayList<>();
+		UResourceDelta.delta(signature, oldPath, 40 << 10, unchanged::add);
+		Assertions.assertEquals(List.of(new UDeltaInstruction.Copy(0, oldData.length)), unchanged,
+								"The copies were not merged at the segment boundaries");
+		
+		Assertions.assertThrows(IllegalArgumentException.class,
+								() -> UResourceDelta.apply(oldPath, instructions, oldPath),
+								"The base file was rebuilt in place");
+		Assertions.assertArrayEquals(oldData, Files.readAllBytes(oldPath),
+									 "The rejected rebuild changed the base file");
+		
+		System.out.printf("Segmented instructions: %d%n", instructions.size());
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class UResourceHashTest {
+	
+	@Test
+	public void hashStrTest() {
+		byte[] hash = {0x00, 0x7f, (byte) 0x80, (byte) 0xff};
+		String expected = "007f80ff";
+		
+		Assertions.assertEquals(expected, UResourceHash.hashStr(hash),
+								"Invalid hexadecimal representation");
+		System.out.printf("Hash: %s%n", UResourceHash.hashStr(hash));
+	}
+	
+	@Test
+	public void hashAllTest(@TempDir Path directory) throws IOException, NoSuchAlgorithmException {
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Path file = directory.resolve("file-" + i + ".txt");
+			Files.writeString(file, "content " + i);
+			files.add(file);
+		}
+		
+		Map<Path, byte[]> hashes = UResourceHash.hashAll(files);
+		Assertions.assertEquals(files, List.copyOf(hashes.keySet()),
+								"The hashes are not in the order of the files");
+		for (Path file : files) {
+			Assertions.assertArrayEquals(UResourceHash.hash(file), hashes.get(file),
+										 "Invalid hash of " + file);
+		}
+		
+		System.out.printf("Hashed %d files%n", hashes.size());
+	}
+	
+	@Test
+	public void quickFingerprintTest(@TempDir Path root) throws IOException, NoSuchAlgorithmException {
+		Path file = root.resolve("fingerprint.bin");
+		byte[] data = new byte[4 << 20];
+		new Random(1).nextBytes(data);
+		Files.write(file, data);
+		
+		UQuickFingerprint original = UResourceHash.quickFingerprint(file);
+		Assertions.assertFalse(original.complete(),
+							   "The fingerprint should not read the whole file");
+		Assertions.assertTrue(original.probablyEquals(UResourceHash.quickFingerprint(file)),
+							  "The fingerprint is not stable");
+		
+		// Changes inside the head window are detected
+		data[10] ^= 1;
+		Files.write(file, data);
+		Assertions.assertFalse(original.probablyEquals(UResourceHash.quickFingerprint(file)),
+							   "The head change was not detected");
+		
+		// Size changes are always detected
+		Files.write(file, new byte[data.length - 1]);
+		Assertions.assertFalse(original.probablyEquals(UResourceHash.quickFingerprint(file)),
+							   "The size change was not detected");
+		
+		System.out.println(original);
+	}
+	
+}
\ No newline at end of file
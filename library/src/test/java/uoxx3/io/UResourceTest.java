@@ -2,13 +2,38 @@ package uoxx3.io;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import uoxx3.platform.UPlatform;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
 
 class UResourceTest {
 	
@@ -81,6 +106,323 @@ class UResourceTest {
 		System.out.printf("Result: %s%n", extension);
 	}
 	
+	@Test
+	public void resourceNameTest() {
+		UResourceName name = UResourceName.of("C:\\opt\\info//archive.tar.gz/ ");
+		
+		Assertions.assertEquals("C:\\opt\\info", name.directory(),
+								"Invalid directory");
+		Assertions.assertEquals("archive.tar.gz", name.filename(),
+								"Invalid filename");
+		Assertions.assertEquals("archive", name.basename(),
+								"Invalid basename");
+		Assertions.assertArrayEquals(new String[]{"tar", "gz"}, name.extensions(),
+									 "Invalid extensions");
+		Assertions.assertTrue(name.extensionEquals(1, "GZ", true),
+							  "Invalid extension comparison");
+		
+		// Reuse the same instance with other location
+		name.reset(".bashrc");
+		Assertions.assertEquals("", name.basename(),
+								"Invalid hidden file basename");
+		Assertions.assertEquals("bashrc", name.lastExtension(),
+								"Invalid hidden file extension");
+		
+		System.out.printf("Name: %s%n", name);
+	}
+	
+	@Test
+	public void walkTest(@TempDir Path root) throws IOException {
+		Files.createDirectories(root.resolve("a/b/c"));
+		Files.writeString(root.resolve("top.txt"), "top");
+		Files.writeString(root.resolve("a/first.tar.gz"), "first");
+		Files.writeString(root.resolve("a/b/second.TXT"), "second");
+		Files.writeString(root.resolve("a/b/c/third.txt"), "third");
+		Files.writeString(root.resolve("a/b/c/ignored.bin"), "ignored");
+		
+		UWalkOptions options = UWalkOptions.DEFAULT.withExtensions("txt", "tar.gz")
+			.withBatchSize(1);
+		Set<Path> found;
+		try (Stream<UWalkEntry> stream = UResource.walk(root, options)) {
+			found = stream.map(UWalkEntry::path).collect(Collectors.toSet());
+		}
+		Assertions.assertEquals(Set.of(root.resolve("top.txt"), root.resolve("a/first.tar.gz"),
+									   root.resolve("a/b/second.TXT"), root.resolve("a/b/c/third.txt")),
+								found, "Invalid walk result");
+		
+		// Depth limit and directories with the callback variant
+		Set<Path> limited = ConcurrentHashMap.newKeySet();
+		UResource.walk(root, UWalkOptions.DEFAULT.withMaxDepth(2).withDirectories(true),
+					   batch -> batch.forEach(entry -> limited.add(entry.path())));
+		Assertions.assertEquals(Set.of(root, root.resolve("top.txt"), root.resolve("a"),
+									   root.resolve("a/first.tar.gz"), root.resolve("a/b")),
+								limited, "Invalid depth limited walk");
+		
+		System.out.printf("Filtered: %s%n", found);
+		System.out.printf("Limited: %s%n", limited);
+	}
+	
+	@Test
+	public void abandonedWalkTest(@TempDir Path root) throws IOException, InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			Files.writeString(root.resolve("file-" + i + ".txt"), "content");
+		}
+		
+		// The worker fills the queue and waits until the dropped stream is collected
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			readFirst(root, UWalkOptions.DEFAULT.withPool(pool).withBatchSize(1));
+			for (int i = 0; i < 100 && !pool.isQuiescent(); i++) {
+				System.gc();
+				Thread.sleep(50);
+			}
+			Assertions.assertTrue(pool.isQuiescent(),
+								  "The walk of the dropped stream did not stop");
+		} finally {
+			pool.shutdownNow();
+		}
+		
+		System.out.println("The walk of the dropped stream stopped");
+	}
+	
+	@Test
+	public void ownPoolWalkTest(@TempDir Path root) throws IOException {
+		for (int i = 0; i < 10; i++) {
+			Files.writeString(root.resolve("file-" + i + ".txt"), "content");
+		}
+		
+		// Walks without a configured pool never run on the common pool
+		Set<ForkJoinPool> pools = ConcurrentHashMap.newKeySet();
+		UResource.walk(root, UWalkOptions.DEFAULT.withBatchSize(1),
+					   batch -> pools.add(ForkJoinTask.getPool()));
+		try (Stream<UWalkEntry> stream = UResource.walk(root, UWalkOptions.DEFAULT.withBatchSize(1))) {
+			Assertions.assertEquals(10, stream.count(), "Invalid streamed entry count");
+		}
+		Assertions.assertFalse(pools.contains(ForkJoinPool.commonPool()),
+							   "The walk ran on the common pool");
+		Assertions.assertTrue(pools.stream().allMatch(ForkJoinPool::isShutdown),
+							  "The pool of the walk was not shut down");
+		
+		System.out.printf("Walk pools: %s%n", pools);
+	}
+	
+	@Test
+	public void copyTest(@TempDir Path root) throws IOException {
+		byte[] content = "stored and deflated content".repeat(1000).getBytes(StandardCharsets.UTF_8);
+		Path source = Files.write(root.resolve("source.bin"), content);
+		
+		UCopyResult plain = UResource.copy(source, root.resolve("plain.bin"));
+		Assertions.assertEquals(UCopyResult.Method.TRANSFER, plain.method(),
+								"Invalid copy method");
+		Assertions.assertArrayEquals(content, Files.readAllBytes(root.resolve("plain.bin")),
+									 "Invalid copied content");
+		
+		// A copy into the same file does not truncate it
+		Assertions.assertEquals(0, UResource.copy(source, source, true, null).bytes(),
+								"Data was copied into the same file");
+		Path alias = root.resolve("../" + root.getFileName() + "/source.bin");
+		Assertions.assertEquals(0, UResource.copy(source, alias).bytes(),
+								"Data was copied into the same file through another path");
+		Assertions.assertArrayEquals(content, Files.readAllBytes(source),
+									 "The copy into the same file changed the source");
+		
+		// Jar with an uncompressed and a compressed entry
+		Path jar = root.resolve("assets.jar");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			ZipEntry stored = new ZipEntry("assets/stored.bin");
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(content.length);
+			stored.setCrc(crc.getValue());
+			out.putNextEntry(stored);
+			out.write(content);
+			out.putNextEntry(new ZipEntry("assets/deflated.bin"));
+			out.write(content);
+		}
+		
+		URI uri = URI.create("jar:" + jar.toUri());
+		FileSystem fs = UFilesystem.filesystem(uri);
+		Assertions.assertSame(fs, UFilesystem.filesystem(uri),
+							  "The jar was mounted twice");
+		
+		List<Long> progress = new ArrayList<>();
+		UCopyResult stored = UResource.copy(fs.getPath("/assets/stored.bin"), root.resolve("stored.bin"), false,
+											(transferred, total) -> progress.add(transferred));
+		UCopyResult deflated = UResource.copy(fs.getPath("/assets/deflated.bin"), root.resolve("deflated.bin"));
+		
+		Assertions.assertEquals(UCopyResult.Method.STORED_ENTRY, stored.method(),
+								"Invalid stored entry copy method");
+		Assertions.assertEquals(UCopyResult.Method.BUFFERED, deflated.method(),
+								"Invalid deflated entry copy method");
+		Assertions.assertArrayEquals(content, Files.readAllBytes(root.resolve("stored.bin")),
+									 "Invalid stored entry content");
+		Assertions.assertArrayEquals(content, Files.readAllBytes(root.resolve("deflated.bin")),
+									 "Invalid deflated entry content");
+		Assertions.assertEquals(content.length, (long) progress.get(progress.size() - 1),
+								"Invalid progress");
+		
+		UFilesystem.closeFilesystemsIf(fs::equals);
+		System.out.printf("Stored: %s%n", stored);
+		System.out.printf("Deflated: %s%n", deflated);
+	}
+	
+	@Test
+	public void mapTest(@TempDir Path root) throws IOException {
+		ByteBuffer content = ByteBuffer.allocate(20)
+			.putInt(0xCAFEBABE)
+			.putLong(0x0102030405060708L)
+			.putLong(-1L);
+		Path file = Files.write(root.resolve("index.bin"), content.array());
+		
+		UMappedFile mapped = UResource.map(file);
+		try (mapped) {
+			Assertions.assertEquals(20, mapped.size(),
+									"Invalid mapped size");
+			Assertions.assertEquals(0xCAFEBABE, mapped.getInt(0),
+									"Invalid int value");
+			Assertions.assertEquals(0x0102030405060708L, mapped.getLong(4),
+									"Invalid long value");
+			Assertions.assertEquals(0x0708, mapped.slice(10, 2).getShort(),
+									"Invalid slice");
+			Assertions.assertThrows(IndexOutOfBoundsException.class, () -> mapped.getLong(16),
+									"Read out of the file");
+		}
+		
+		Assertions.assertFalse(mapped.isOpen(),
+							   "The mapping is still open");
+		Assertions.assertThrows(IllegalStateException.class, () -> mapped.getByte(0),
+								"Read after close");
+		
+		System.out.printf("Mapped: %s%n", file);
+	}
+	
+	@Test
+	public void readAllTest(@TempDir Path root) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			byte[] content = new byte[i * 37];
+			Arrays.fill(content, (byte) i);
+			files.add(Files.write(root.resolve("file-%d.bin".formatted(i)), content));
+		}
+		// Exactly a pool size class, and larger than the largest class
+		byte[] exact = new byte[4096];
+		byte[] large = new byte[(1 << 20) + 1];
+		new Random(5).nextBytes(exact);
+		new Random(6).nextBytes(large);
+		files.add(Files.write(root.resolve("exact.bin"), exact));
+		files.add(Files.write(root.resolve("large.bin"), large));
+		
+		Map<Path, byte[]> contents = UResource.readAll(files);
+		Assertions.assertEquals(files.size(), contents.size(),
+								"Invalid number of files");
+		for (Path file : files) {
+			Assertions.assertArrayEquals(Files.readAllBytes(file), contents.get(file),
+										 "Invalid content of " + file);
+		}
+		
+		files.add(root.resolve("missing.bin"));
+		Assertions.assertThrows(IOException.class, () -> UResource.readAll(files, 8, (path, buffer) -> {}),
+								"Missing file not reported");
+		
+		System.out.printf("Read: %d files%n", contents.size());
+	}
+	
+	@Test
+	public void archiveTest(@TempDir Path root) throws IOException {
+		Path tree = Files.createDirectories(root.resolve("tree/empty")).getParent();
+		byte[] large = new byte[1 << 20];
+		new Random(7).nextBytes(large);
+		Arrays.fill(large, 1 << 19, large.length, (byte) 'u');
+		Files.write(tree.resolve("large.bin"), large);
+		Files.createDirectories(tree.resolve("nested/deep"));
+		Files.writeString(tree.resolve("nested/deep/text.txt"), "Hello world");
+		Files.write(tree.resolve("nested/empty.txt"), new byte[0]);
+		
+		Path first = root.resolve("first.zip");
+		Path second = root.resolve("second.zip");
+		int entries = UResource.archive(tree, first);
+		UResource.archive(tree, second);
+		
+		Assertions.assertEquals(6, entries,
+								"Invalid number of entries");
+		Assertions.assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second),
+									 "The archive is not reproducible");
+		
+		Path extracted = root.resolve("extracted");
+		Assertions.assertEquals(3, UResource.extract(first, extracted),
+								"Invalid number of files");
+		Assertions.assertArrayEquals(large, Files.readAllBytes(extracted.resolve("large.bin")),
+									 "Invalid large file");
+		Assertions.assertEquals("Hello world", Files.readString(extracted.resolve("nested/deep/text.txt")),
+								"Invalid text file");
+		Assertions.assertTrue(Files.isDirectory(extracted.resolve("empty")),
+							  "Missing empty directory");
+		
+		Path unsafe = root.resolve("unsafe.zip");
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(unsafe))) {
+			zip.putNextEntry(new ZipEntry("../outside.txt"));
+			zip.closeEntry();
+		}
+		Assertions.assertThrows(ZipException.class, () -> UResource.extract(unsafe, extracted),
+								"Entry outside of the target extracted");
+		
+		System.out.printf("Archive: %d bytes%n", Files.size(first));
+	}
+	
+	@Test
+	public void publisherTest(@TempDir Path root) throws IOException {
+		byte[] content = new byte[(1 << 20) + 123];
+		new Random(7).nextBytes(content);
+		Path source = Files.write(root.resolve("source.bin"), content);
+		Path target = root.resolve("target.bin");
+		
+		UPathSubscriber subscriber = new UPathSubscriber(target);
+		UResource.publisher(source, 64 << 10).subscribe(subscriber);
+		
+		Assertions.assertEquals(content.length, (long) subscriber.result().join(),
+								"Invalid number of written bytes");
+		Assertions.assertArrayEquals(content, Files.readAllBytes(target),
+									 "Invalid published content");
+		
+		UPathSubscriber missing = new UPathSubscriber(root.resolve("missing.bin"));
+		UResource.publisher(root.resolve("none.bin")).subscribe(missing);
+		Assertions.assertThrows(CompletionException.class, () -> missing.result().join(),
+								"A missing file was published");
+		Assertions.assertFalse(Files.exists(root.resolve("missing.bin")),
+							   "A failed subscription created the target");
+		
+		System.out.printf("Published: %d bytes%n", Files.size(target));
+	}
+	
+	@Test
+	public void publisherDemandTest(@TempDir Path root) throws IOException, InterruptedException {
+		Path source = Files.write(root.resolve("source.bin"), new byte[(4 << 10) + 10]);
+		
+		// Every requested chunk is delivered once, and nothing is delivered without demand
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		UResource.publisher(source, 1 << 10).subscribe(subscriber);
+		for (int i = 0; i < 2; i++) {
+			subscriber.subscription.request(1);
+			Assertions.assertEquals(1 << 10, subscriber.events.poll(5, TimeUnit.SECONDS),
+									"Invalid requested chunk");
+			Assertions.assertNull(subscriber.events.poll(200, TimeUnit.MILLISECONDS),
+								  "A chunk was delivered without demand");
+		}
+		subscriber.subscription.cancel();
+		
+		// Non-positive requests are rejected through onError
+		RecordingSubscriber invalid = new RecordingSubscriber();
+		UResource.publisher(source, 1 << 10).subscribe(invalid);
+		invalid.subscription.request(0);
+		Assertions.assertInstanceOf(IllegalArgumentException.class, invalid.events.poll(5, TimeUnit.SECONDS),
+									"The invalid request was not rejected");
+		Assertions.assertNull(invalid.events.poll(200, TimeUnit.MILLISECONDS),
+							  "A signal was delivered after the error");
+		
+		System.out.println("The publisher followed the requested demand");
+	}
+	
 	@Test
 	public void pathOfTest() throws IOException {
 		ClassLoader loader = ClassLoader.getSystemClassLoader();
@@ -93,4 +435,41 @@ class UResourceTest {
 		System.out.println(resourcePath);
 	}
 	
+	/**
+	 * Reads the first entry of a walk and drops the stream without closing it.
+	 */
+	private static void readFirst(Path root, UWalkOptions options) throws IOException {
+		UResource.walk(root, options).iterator().next();
+	}
+	
+	/**
+	 * Subscriber that records the size of every chunk, the error or the completion.
+	 */
+	private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+		
+		private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+		private Flow.Subscription subscription;
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+		
+		@Override
+		public void onNext(ByteBuffer item) {
+			events.add(item.remaining());
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			events.add(throwable);
+		}
+		
+		@Override
+		public void onComplete() {
+			events.add("complete");
+		}
+		
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+class UTreeSnapshotTest {
+	
+	@Test
+	public void snapshotDiffTest(@TempDir Path workspace) throws IOException, NoSuchAlgorithmException {
+		Path root = Files.createDirectories(workspace.resolve("tree"));
+		Files.createDirectories(root.resolve("conf/nested"));
+		Files.writeString(root.resolve("app.jar"), "application");
+		Files.writeString(root.resolve("conf/app.properties"), "key=value");
+		Files.writeString(root.resolve("conf/nested/removed.txt"), "removed");
+		Path touched = Files.writeString(root.resolve("touched.txt"), "touched");
+		
+		// Written and opened again through the memory-mapped file
+		Path file = workspace.resolve("tree.snapshot");
+		UTreeSnapshot.create(root, "SHA-256").write(file);
+		UTreeSnapshot before = UTreeSnapshot.open(file);
+		
+		Assertions.assertEquals(4, before.size(),
+								"Invalid number of entries");
+		Assertions.assertEquals("app.jar", before.entry(0).path(),
+								"The entries are not sorted");
+		Assertions.assertTrue(before.find("conf/app.properties").isPresent(),
+							  "Entry not found");
+		Assertions.assertTrue(before.find("conf/missing").isEmpty(),
+							  "Unexpected entry found");
+		
+		Files.writeString(root.resolve("conf/app.properties"), "key=other");
+		Files.delete(root.resolve("conf/nested/removed.txt"));
+		Files.writeString(root.resolve("conf/added.txt"), "added");
+		// Only the modification time changes: the file is hashed but not reported
+		Files.setLastModifiedTime(touched, FileTime.fromMillis(0));
+		
+		List<String> live = new ArrayList<>();
+		before.diff(root, change -> live.add(change.kind() + " " + change.path()));
+		List<String> expected = List.of("ADDED conf/added.txt", "MODIFIED conf/app.properties",
+										"REMOVED conf/nested/removed.txt");
+		Assertions.assertEquals(expected, live,
+								"Invalid live diff");
+		
+		List<String> snapshots = new ArrayList<>();
+		before.diff(UTreeSnapshot.create(root, "SHA-256"), change -> snapshots.add(change.kind() + " " + change.path()));
+		Assertions.assertEquals(expected, snapshots,
+								"Invalid snapshot diff");
+		
+		System.out.printf("Changes: %s%n", live);
+	}
+	
+	@Test
+	public void largeDiffTest(@TempDir Path workspace) throws IOException, NoSuchAlgorithmException {
+		// More changed files than a single hashing batch
+		Path root = Files.createDirectories(workspace.resolve("tree"));
+		for (int i = 0; i < 600; i++) {
+			Files.writeString(root.resolve("file-%04d.txt".formatted(i)), "content " + i);
+		}
+		UTreeSnapshot before = UTreeSnapshot.create(root, "SHA-256");
+		
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 600; i += 2) {
+			Path changed = root.resolve("file-%04d.txt".formatted(i));
+			Files.writeString(changed, "changed content " + i);
+			expected.add("MODIFIED " + changed.getFileName());
+		}
+		
+		List<String> live = new ArrayList<>();
+		before.diff(root, change -> live.add(change.kind() + " " + change.path()));
+		Assertions.assertEquals(expected, live,
+								"The changes of the batches are not delivered in order");
+		
+		System.out.printf("Changes: %d%n", live.size());
+	}
+	
+}
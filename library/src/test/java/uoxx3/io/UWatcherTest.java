@@ -0,0 +1,65 @@
+package uoxx3.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class UWatcherTest {
+	
+	@Test
+	public void coalesceTest(@TempDir Path root) throws IOException, InterruptedException {
+		Path existing = Files.writeString(root.resolve("existing.txt"), "existing");
+		Path removed = Files.writeString(root.resolve("removed.txt"), "removed");
+		BlockingQueue<UChangeSet> changes = new LinkedBlockingQueue<>();
+		
+		try (UWatcher ignored = UWatcher.watch(root, Duration.ofMillis(300), false, changes::add)) {
+			// A burst of events over the same entries
+			Path nested = Files.createDirectories(root.resolve("a/b"));
+			Path created = Files.writeString(nested.resolve("created.txt"), "first");
+			Files.writeString(created, "second");
+			Files.writeString(existing, "existing and modified");
+			Files.delete(removed);
+			Path temporary = Files.writeString(root.resolve("temporary.txt"), "temporary");
+			Files.delete(temporary);
+			
+			UChangeSet result = changes.poll(10, TimeUnit.SECONDS);
+			Assertions.assertNotNull(result, "No change set delivered");
+			
+			// Events delivered late by the platform may arrive in a second set
+			UChangeSet extra;
+			while ((extra = changes.poll(1, TimeUnit.SECONDS)) != null) {
+				result = merge(result, extra);
+			}
+			
+			Assertions.assertEquals(Set.of(root.resolve("a"), nested, created), result.created(),
+									"Invalid created entries");
+			Assertions.assertEquals(Set.of(existing), result.modified(),
+									"Invalid modified entries");
+			Assertions.assertEquals(Set.of(removed), result.deleted(),
+									"Invalid deleted entries");
+			
+			System.out.printf("Changes: %s%n", result);
+		}
+	}
+	
+	private static UChangeSet merge(UChangeSet first, UChangeSet second) {
+		Set<Path> created = new HashSet<>(first.created());
+		Set<Path> modified = new HashSet<>(first.modified());
+		created.addAll(second.created());
+		second.modified().stream().filter(path -> !created.contains(path)).forEach(modified::add);
+		Set<Path> deleted = new HashSet<>(first.deleted());
+		deleted.addAll(second.deleted());
+		return new UChangeSet(created, modified, deleted);
+	}
+	
+}
\ No newline at end of file
@@ -33,4 +33,5 @@ dependencyResolutionManagement {
  * Project artifacts loading
  * ----------------------------------------------------- */
 
-include(":library")
\ No newline at end of file
+include(":library")
+include(":benchmarks")
\ No newline at end of file